@@ -369,7 +369,7 @@ public class OpenFileAction extends DiskAccessAction {
                     }
                 }
             }
-            if (recordHistory && !importer.isBatchImporter()) {
+            if (recordHistory && (!importer.isBatchImporter() || importer.isBatchRecordedInHistory())) {
                 for (File f : files) {
                     try {
                         if (successfullyOpenedFiles.contains(f)) {
@@ -15,8 +15,10 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.Future;
+import java.util.function.Predicate;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.openstreetmap.josm.data.Bounds;
@@ -26,6 +28,7 @@ import org.openstreetmap.josm.data.ViewportData;
 import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.PrimitiveId;
 import org.openstreetmap.josm.data.osm.Relation;
 import org.openstreetmap.josm.data.osm.Way;
 import org.openstreetmap.josm.data.osm.visitor.BoundingXYVisitor;
@@ -36,6 +39,7 @@ import org.openstreetmap.josm.gui.io.UpdatePrimitivesTask;
 import org.openstreetmap.josm.gui.layer.OsmDataLayer;
 import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
 import org.openstreetmap.josm.gui.progress.ProgressMonitor;
+import org.openstreetmap.josm.gui.util.GuiHelper;
 import org.openstreetmap.josm.io.BoundingBoxDownloader;
 import org.openstreetmap.josm.io.OsmServerLocationReader;
 import org.openstreetmap.josm.io.OsmServerLocationReader.OsmUrlPattern;
@@ -43,6 +47,7 @@ import org.openstreetmap.josm.io.OsmServerReader;
 import org.openstreetmap.josm.io.OsmTransferCanceledException;
 import org.openstreetmap.josm.io.OsmTransferException;
 import org.openstreetmap.josm.io.OverpassDownloadReader;
+import org.openstreetmap.josm.io.TiledBoundingBoxDownloader;
 import org.openstreetmap.josm.tools.Logging;
 import org.openstreetmap.josm.tools.Utils;
 import org.xml.sax.SAXException;
@@ -83,7 +88,26 @@ public class DownloadOsmTask extends AbstractDownloadTask<DataSet> {
 
     @Override
     public Future<?> download(DownloadParams settings, Bounds downloadArea, ProgressMonitor progressMonitor) {
-        return download(new BoundingBoxDownloader(downloadArea), settings, downloadArea, progressMonitor);
+        BoundingBoxDownloader reader;
+        if (TiledBoundingBoxDownloader.TILED.get()) {
+            TiledBoundingBoxDownloader tiledReader = new TiledBoundingBoxDownloader(downloadArea);
+            tiledReader.setExpectedDensity(estimateDensity(downloadArea));
+            reader = tiledReader;
+        } else {
+            reader = new BoundingBoxDownloader(downloadArea);
+        }
+        return download(reader, settings, downloadArea, progressMonitor);
+    }
+
+    /**
+     * Estimates the data density of an area to download from the data already downloaded in the edit layer.
+     * @param downloadArea the area to download
+     * @return the expected number of nodes per square degree, 0 if unknown
+     * @see TiledBoundingBoxDownloader#estimateDensity
+     */
+    public static double estimateDensity(Bounds downloadArea) {
+        OsmDataLayer layer = MainApplication.getLayerManager().getEditLayer();
+        return layer != null ? TiledBoundingBoxDownloader.estimateDensity(layer.getDataSet(), downloadArea) : 0;
     }
 
     /**
@@ -380,6 +404,16 @@ public class DownloadOsmTask extends AbstractDownloadTask<DataSet> {
                 return Collections.emptySet();
             Collection<OsmPrimitive> col = new ArrayList<>();
             ds.searchNodes(bounds.toBBox()).stream().filter(n -> !n.isNew() && !dataSet.containsNode(n)).forEachOrdered(col::add);
+            return addReferrersToUpdate(col, p -> p instanceof Way ? dataSet.containsWay((Way) p) : dataSet.containsRelation((Relation) p));
+        }
+
+        /**
+         * Adds the ways and relations referring to nodes missing in the downloaded data, and missing themselves.
+         * @param col the nodes missing in the downloaded data
+         * @param downloaded determines if a way or relation is part of the downloaded data
+         * @return the primitives to update
+         */
+        protected final Collection<OsmPrimitive> addReferrersToUpdate(Collection<OsmPrimitive> col, Predicate<OsmPrimitive> downloaded) {
             if (!col.isEmpty()) {
                 Set<Way> ways = new HashSet<>();
                 Set<Relation> rels = new HashSet<>();
@@ -394,8 +428,8 @@ public class DownloadOsmTask extends AbstractDownloadTask<DataSet> {
                         }
                     }
                 }
-                ways.stream().filter(w -> !dataSet.containsWay(w)).forEachOrdered(col::add);
-                rels.stream().filter(r -> !dataSet.containsRelation(r)).forEachOrdered(col::add);
+                ways.stream().filter(downloaded.negate()).forEachOrdered(col::add);
+                rels.stream().filter(downloaded.negate()).forEachOrdered(col::add);
             }
             return col;
         }
@@ -403,6 +437,14 @@ public class DownloadOsmTask extends AbstractDownloadTask<DataSet> {
 
     protected class DownloadTask extends AbstractInternalTask {
         protected final OsmServerReader reader;
+        /** the layer into which data is progressively merged while downloading, if any */
+        private OsmDataLayer streamingLayer;
+        /** the data set returned by a streaming download, only holding the data sources and the remark */
+        private DataSet streamingResult;
+        /** the nodes of the target layer in the download area which have not been part of the streamed data so far */
+        private Set<OsmPrimitive> notStreamedNodes;
+        /** the ids of the ways and relations which have been part of the streamed data */
+        private final Set<PrimitiveId> streamedIds = new HashSet<>();
 
         /**
          * Constructs a new {@code DownloadTask}.
@@ -429,15 +471,53 @@ public class DownloadOsmTask extends AbstractDownloadTask<DataSet> {
         }
 
         protected DataSet parseDataSet() throws OsmTransferException {
+            if (reader instanceof OverpassDownloadReader && OverpassDownloadReader.STREAMING.get()) {
+                ((OverpassDownloadReader) reader).setBatchConsumer(batch -> GuiHelper.runInEDTAndWait(() -> mergeBatch(batch)));
+            }
             return reader.parseOsm(progressMonitor.createSubTaskMonitor(ProgressMonitor.ALL_TICKS, false));
         }
 
+        /**
+         * Merges a batch of data received while the download is still running.
+         * The first batch determines the target layer, exactly as {@link #loadData} does for a complete download.
+         * @param batch batch of downloaded data
+         */
+        private void mergeBatch(DataSet batch) {
+            if (streamingLayer == null) {
+                // a new layer is created empty, the batches are then merged into its data set
+                dataSet = new DataSet();
+                streamingLayer = addNewLayerIfRequired(newLayerName);
+                if (streamingLayer == null) {
+                    streamingLayer = getEditLayer();
+                    if (streamingLayer == null || !streamingLayer.isDownloadable()) {
+                        streamingLayer = getFirstModifiableDataLayer();
+                    }
+                    if (currentBounds != null) {
+                        // the primitives deleted on the server are searched among the nodes existing before the download
+                        notStreamedNodes = streamingLayer.getDataSet().searchNodes(currentBounds.toBBox()).stream()
+                                .filter(n -> !n.isNew()).collect(Collectors.toCollection(HashSet::new));
+                    }
+                }
+            }
+            if (notStreamedNodes != null) {
+                batch.getNodes().forEach(notStreamedNodes::remove);
+                batch.getWays().forEach(w -> streamedIds.add(w.getPrimitiveId()));
+                batch.getRelations().forEach(r -> streamedIds.add(r.getPrimitiveId()));
+            }
+            streamingLayer.mergeFrom(batch);
+        }
+
         @Override
         public void realRun() throws IOException, SAXException, OsmTransferException {
             try {
                 if (isCanceled())
                     return;
-                dataSet = parseDataSet();
+                DataSet result = parseDataSet();
+                if (streamingLayer != null) {
+                    streamingResult = result;
+                } else {
+                    dataSet = result;
+                }
             } catch (OsmTransferException e) {
                 if (isCanceled()) {
                     Logging.info(tr("Ignoring exception because download has been canceled. Exception was: {0}", e.toString()));
@@ -457,6 +537,10 @@ public class DownloadOsmTask extends AbstractDownloadTask<DataSet> {
         protected void finish() {
             if (isFailed() || isCanceled())
                 return;
+            if (streamingLayer != null) {
+                finishStreaming();
+                return;
+            }
             if (dataSet == null)
                 return; // user canceled download or error occurred
             if (dataSet.allPrimitives().isEmpty()) {
@@ -476,6 +560,29 @@ public class DownloadOsmTask extends AbstractDownloadTask<DataSet> {
             loadData(newLayerName, currentBounds);
         }
 
+        /**
+         * Completes a download whose primitives have already been merged batch by batch: only the data sources remain,
+         * and the primitives deleted on the server are updated like in {@link #loadData}.
+         */
+        private void finishStreaming() {
+            Collection<OsmPrimitive> primitivesToUpdate = notStreamedNodes == null ? Collections.emptySet()
+                    : addReferrersToUpdate(new ArrayList<>(notStreamedNodes), p -> streamedIds.contains(p.getPrimitiveId()));
+            streamingLayer.mergeFrom(streamingResult);
+            if (streamingLayer.getDataSet() != dataSet) {
+                // the primitives merged into an existing layer are not kept apart, only the data sources are remembered
+                dataSet = streamingResult;
+            }
+            rememberDownloadedData(dataSet);
+            MapFrame map = MainApplication.getMap();
+            if (map != null && zoomAfterDownload) {
+                computeBbox(currentBounds).map(ViewportData::new).ifPresent(map.mapView::zoomTo);
+            }
+            if (!primitivesToUpdate.isEmpty()) {
+                MainApplication.worker.submit(new UpdatePrimitivesTask(streamingLayer, primitivesToUpdate));
+            }
+            streamingLayer.onPostDownloadFromServer();
+        }
+
         @Override
         protected void cancel() {
             setCanceled(true);
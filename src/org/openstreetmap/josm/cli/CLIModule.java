@@ -1,6 +1,11 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.cli;
 
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.io.FileNotFoundException;
+import java.nio.file.NoSuchFileException;
+
 /**
  * A command line interface module.
  * <p>
@@ -23,4 +28,23 @@ public interface CLIModule {
      * @param argArray command line arguments without the initial action keyword
      */
     void processArguments(String[] argArray);
+
+    /**
+     * Reports an error which stops the processing of the command line arguments on the standard error stream.
+     * A missing file is reported as such, any other error by its message.
+     * @param e the error
+     * @param debug if {@code true}, the stack trace of the error is printed too
+     * @return the exit code to use, {@code 1}
+     */
+    static int reportError(Exception e, boolean debug) {
+        if (debug) {
+            e.printStackTrace();
+        }
+        if (e instanceof FileNotFoundException || e instanceof NoSuchFileException) {
+            System.err.println(tr("Error - file not found: ''{0}''", e.getMessage()));
+        } else if (e.getMessage() != null) {
+            System.err.println(tr("Error: {0}", e.getMessage()));
+        }
+        return 1;
+    }
 }
@@ -20,12 +20,17 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
@@ -36,6 +41,7 @@ import javax.xml.stream.XMLStreamException;
 import org.openstreetmap.josm.data.preferences.ColorInfo;
 import org.openstreetmap.josm.data.preferences.JosmBaseDirectories;
 import org.openstreetmap.josm.data.preferences.NamedColorProperty;
+import org.openstreetmap.josm.data.preferences.PreferencesCache;
 import org.openstreetmap.josm.data.preferences.PreferencesReader;
 import org.openstreetmap.josm.data.preferences.PreferencesWriter;
 import org.openstreetmap.josm.gui.MainApplication;
@@ -46,6 +52,7 @@ import org.openstreetmap.josm.spi.preferences.Config;
 import org.openstreetmap.josm.spi.preferences.IBaseDirectories;
 import org.openstreetmap.josm.spi.preferences.ListSetting;
 import org.openstreetmap.josm.spi.preferences.Setting;
+import org.openstreetmap.josm.spi.preferences.StringSetting;
 import org.openstreetmap.josm.tools.CheckParameterUtil;
 import org.openstreetmap.josm.tools.ListenerList;
 import org.openstreetmap.josm.tools.Logging;
@@ -82,6 +89,15 @@ public class Preferences extends AbstractPreferences {
 
     private static final long MAX_AGE_DEFAULT_PREFERENCES = TimeUnit.DAYS.toSeconds(50);
 
+    /** Delay in milliseconds before changes are written, so that changes made in a row are written together */
+    private static final long SAVE_DELAY = 500;
+
+    private static final ScheduledExecutorService SAVE_EXECUTOR = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = Utils.newThreadFactory("preferences-saver-%d", Thread.NORM_PRIORITY).newThread(r);
+        thread.setDaemon(true);
+        return thread;
+    });
+
     private final IBaseDirectories dirs;
 
     /**
@@ -89,19 +105,34 @@ public class Preferences extends AbstractPreferences {
      */
     private boolean saveOnPut = true;
 
+    /**
+     * Determines if the binary cache of the preferences file is used.
+     */
+    private boolean useCache = true;
+
+    /** Save scheduled by {@link #scheduleSave()}, not started yet */
+    private ScheduledFuture<?> pendingSave;
+    private boolean shutdownHookAdded;
+    /** Lock ensuring the preference files are written by one thread at a time */
+    private final Object saveLock = new Object();
+
     /**
      * Maps the setting name to the current value of the setting.
      * The map must not contain null as key or value. The mapped setting objects
      * must not have a null value.
+     * <p>
+     * Settings are read without locking, hence a concurrent map. They are changed while holding the lock of this object.
      */
-    protected final SortedMap<String, Setting<?>> settingsMap = new TreeMap<>();
+    protected final SortedMap<String, Setting<?>> settingsMap = new ConcurrentSkipListMap<>();
 
     /**
      * Maps the setting name to the default value of the setting.
      * The map must not contain null as key or value. The value of the mapped
      * setting objects can be null.
+     * <p>
+     * Defaults are registered when settings are read, hence a concurrent map.
      */
-    protected final SortedMap<String, Setting<?>> defaultsMap = new TreeMap<>();
+    protected final SortedMap<String, Setting<?>> defaultsMap = new ConcurrentSkipListMap<>();
 
     private final Predicate<Entry<String, Setting<?>>> NO_DEFAULT_SETTINGS_ENTRY =
             e -> !e.getValue().equals(defaultsMap.get(e.getKey()));
@@ -254,6 +285,15 @@ public class Preferences extends AbstractPreferences {
         return new File(dirs.getPreferencesDirectory(false), "preferences.xml");
     }
 
+    /**
+     * Returns the binary cache of the user preferences file, loaded instead of the XML file when it is up to date.
+     * @return The binary cache of the user preferences file
+     * @see PreferencesCache
+     */
+    public File getPreferencesCacheFile() {
+        return new File(dirs.getPreferencesDirectory(false), "preferences.cache");
+    }
+
     /**
      * Returns the cache file for default preferences.
      * @return the cache file for default preferences
@@ -297,7 +337,7 @@ public class Preferences extends AbstractPreferences {
      * Get all named colors, including customized and the default ones.
      * @return a map of all named colors (maps preference key to {@link ColorInfo})
      */
-    public synchronized Map<String, ColorInfo> getAllNamedColors() {
+    public Map<String, ColorInfo> getAllNamedColors() {
         final Map<String, ColorInfo> all = new TreeMap<>();
         for (final Entry<String, Setting<?>> e : settingsMap.entrySet()) {
             if (!e.getKey().startsWith(NamedColorProperty.NAMED_COLOR_PREFIX))
@@ -326,11 +366,99 @@ public class Preferences extends AbstractPreferences {
     }
 
     /**
-     * Called after every put. In case of a problem, do nothing but output the error in log.
+     * Saves the preferences file. Blocks until it is written, including the changes whose save has been scheduled.
+     * @throws IOException if any I/O error occurs
+     */
+    public void save() throws IOException {
+        cancelPendingSave();
+        saveNow();
+    }
+
+    /**
+     * Called after every put. Schedules a save of the preferences file after a short delay, so that the caller
+     * is not blocked and changes made in a row are written together. In case of a problem, do nothing but output
+     * the error in log. Use {@link #flush()} to write pending changes immediately.
+     */
+    public synchronized void scheduleSave() {
+        if (pendingSave != null) {
+            return; // the pending save will write this change as well
+        }
+        pendingSave = SAVE_EXECUTOR.schedule(this::savePending, SAVE_DELAY, TimeUnit.MILLISECONDS);
+        if (!shutdownHookAdded) {
+            shutdownHookAdded = true;
+            try {
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    try {
+                        flush();
+                    } catch (IOException | InvalidPathException e) {
+                        Logging.log(Logging.LEVEL_WARN, "Unable to save preferences on shutdown", e);
+                    }
+                }, "preferences-flush"));
+            } catch (IllegalStateException | SecurityException e) {
+                Logging.log(Logging.LEVEL_ERROR, "Unable to add preferences shutdown hook", e);
+            }
+        }
+    }
+
+    private void savePending() {
+        synchronized (this) {
+            pendingSave = null;
+        }
+        try {
+            saveNow();
+        } catch (IOException | InvalidPathException e) {
+            File file = getPreferenceFile();
+            try {
+                file = file.getAbsoluteFile();
+            } catch (SecurityException ex) {
+                Logging.trace(ex);
+            }
+            Logging.log(Logging.LEVEL_WARN, tr("Failed to persist preferences to ''{0}''", file), e);
+        }
+    }
+
+    /**
+     * Writes the changes not saved yet, if any, to the preferences file. Blocks until they are written.
      * @throws IOException if any I/O error occurs
      */
-    public synchronized void save() throws IOException {
-        save(getPreferenceFile(), settingsMap.entrySet().stream().filter(NO_DEFAULT_SETTINGS_ENTRY), false);
+    public void flush() throws IOException {
+        if (cancelPendingSave()) {
+            saveNow();
+        }
+    }
+
+    private synchronized boolean cancelPendingSave() {
+        if (pendingSave == null) {
+            return false;
+        }
+        pendingSave.cancel(false);
+        pendingSave = null;
+        return true;
+    }
+
+    /**
+     * Writes the preferences file, and its binary cache.
+     * @throws IOException if any I/O error occurs
+     */
+    private void saveNow() throws IOException {
+        synchronized (saveLock) {
+            SortedMap<String, Setting<?>> snapshot = new TreeMap<>();
+            settingsMap.entrySet().stream().filter(NO_DEFAULT_SETTINGS_ENTRY).forEach(e -> snapshot.put(e.getKey(), e.getValue()));
+            /* currently unused, but may help to fix configuration issues in future.
+             * Written into the snapshot only, since a put would schedule another save */
+            snapshot.put("josm.version", new StringSetting(Integer.toString(Version.getInstance().getVersion())));
+            List<Entry<String, Setting<?>>> settings = new ArrayList<>(snapshot.entrySet());
+            File prefFile = getPreferenceFile();
+            save(prefFile, settings.stream(), false);
+            if (!useCache) {
+                return;
+            }
+            try {
+                new PreferencesCache(getPreferencesCacheFile(), prefFile).write(Version.getInstance().getVersion(), settings);
+            } catch (IOException | InvalidPathException | SecurityException e) {
+                Logging.log(Logging.LEVEL_WARN, tr("Failed to write preferences cache ''{0}''", getPreferencesCacheFile()), e);
+            }
+        }
     }
 
     /**
@@ -342,11 +470,6 @@ public class Preferences extends AbstractPreferences {
     }
 
     protected void save(File prefFile, Stream<Entry<String, Setting<?>>> settings, boolean defaults) throws IOException {
-        if (!defaults) {
-            /* currently unused, but may help to fix configuration issues in future */
-            putInt("josm.version", Version.getInstance().getVersion());
-        }
-
         File backupFile = new File(prefFile + "_backup");
 
         // Backup old preferences if there are old preferences
@@ -395,11 +518,21 @@ public class Preferences extends AbstractPreferences {
      */
     protected void load() throws IOException, SAXException, XMLStreamException {
         File pref = getPreferenceFile();
+        PreferencesCache cache = new PreferencesCache(getPreferencesCacheFile(), pref);
+        if (useCache && cache.isUpToDate()) {
+            try {
+                cache.read();
+                setSettings(cache.getSettings());
+                removeObsolete(cache.getVersion());
+                return;
+            } catch (IOException e) {
+                Logging.log(Logging.LEVEL_WARN, tr("Failed to read preferences cache ''{0}''", getPreferencesCacheFile()), e);
+            }
+        }
         PreferencesReader.validateXML(pref);
         PreferencesReader reader = new PreferencesReader(pref, false);
         reader.parse();
-        settingsMap.clear();
-        settingsMap.putAll(reader.getSettings());
+        setSettings(reader.getSettings());
         removeObsolete(reader.getVersion());
     }
 
@@ -435,8 +568,7 @@ public class Preferences extends AbstractPreferences {
     public void fromXML(Reader in) throws XMLStreamException, IOException {
         PreferencesReader reader = new PreferencesReader(in, false);
         reader.parse();
-        settingsMap.clear();
-        settingsMap.putAll(reader.getSettings());
+        setSettings(reader.getSettings());
     }
 
     /**
@@ -484,13 +616,13 @@ public class Preferences extends AbstractPreferences {
             if (!preferenceFile.exists()) {
                 Logging.info(tr("Missing preference file ''{0}''. Creating a default preference file.", preferenceFile.getAbsoluteFile()));
                 resetToDefault();
-                save();
+                saveNow();
             } else if (reset) {
                 File backupFile = new File(prefDir, "preferences.xml.bak");
                 PlatformManager.getPlatform().rename(preferenceFile, backupFile);
                 Logging.warn(tr("Replacing existing preference file ''{0}'' with default preference file.", preferenceFile.getAbsoluteFile()));
                 resetToDefault();
-                save();
+                saveNow();
             }
         } catch (IOException | InvalidPathException e) {
             Logging.error(e);
@@ -524,7 +656,7 @@ public class Preferences extends AbstractPreferences {
             PlatformManager.getPlatform().rename(preferenceFile, backupFile);
             try {
                 resetToDefault();
-                save();
+                saveNow();
             } catch (IOException e1) {
                 Logging.error(e1);
                 Logging.warn(tr("Failed to initialize preferences. Failed to reset preference file to default: {0}", getPreferenceFile()));
@@ -562,7 +694,16 @@ public class Preferences extends AbstractPreferences {
      * Reset all values stored in this map to the default values. This clears the preferences.
      */
     public final void resetToDefault() {
+        setSettings(Collections.emptySortedMap());
+    }
+
+    /**
+     * Replaces all settings. Listeners are not notified.
+     * @param settings the new settings
+     */
+    private synchronized void setSettings(Map<String, Setting<?>> settings) {
         settingsMap.clear();
+        settingsMap.putAll(settings);
     }
 
     /**
@@ -594,17 +735,7 @@ public class Preferences extends AbstractPreferences {
                 settingsMap.put(key, settingCopy);
             }
             if (saveOnPut) {
-                try {
-                    save();
-                } catch (IOException | InvalidPathException e) {
-                    File file = getPreferenceFile();
-                    try {
-                        file = file.getAbsoluteFile();
-                    } catch (SecurityException ex) {
-                        Logging.trace(ex);
-                    }
-                    Logging.log(Logging.LEVEL_WARN, tr("Failed to persist preferences to ''{0}''", file), e);
-                }
+                scheduleSave();
             }
         }
         // Call outside of synchronized section in case some listener wait for other thread that wait for preference lock
@@ -618,7 +749,7 @@ public class Preferences extends AbstractPreferences {
      * @param def The default value to use if it was not found
      * @return The setting
      */
-    public synchronized Setting<?> getSetting(String key, Setting<?> def) {
+    public Setting<?> getSetting(String key, Setting<?> def) {
         return getSetting(key, def, Setting.class);
     }
 
@@ -633,14 +764,16 @@ public class Preferences extends AbstractPreferences {
      */
     @SuppressWarnings("unchecked")
     @Override
-    public synchronized <T extends Setting<?>> T getSetting(String key, T def, Class<T> klass) {
+    public <T extends Setting<?>> T getSetting(String key, T def, Class<T> klass) {
         CheckParameterUtil.ensureParameterNotNull(key);
         CheckParameterUtil.ensureParameterNotNull(def);
         Setting<?> oldDef = defaultsMap.get(key);
         if (oldDef != null && oldDef.isNew() && oldDef.getValue() != null && def.getValue() != null && !def.equals(oldDef)) {
             Logging.info("Defaults for " + key + " differ: " + def + " != " + defaultsMap.get(key));
         }
-        if (def.getValue() != null || oldDef == null) {
+        // The default is registered once per session, so that reading a setting does not write to shared state
+        boolean registered = oldDef != null && oldDef.isNew() && (def.getValue() == null || def.equals(oldDef));
+        if (!registered && (def.getValue() != null || oldDef == null)) {
             Setting<?> defCopy = def.copy();
             defCopy.setTime(System.currentTimeMillis() / 1000);
             defCopy.setNew(true);
@@ -748,8 +881,7 @@ public class Preferences extends AbstractPreferences {
     private void removeObsolete(int loadedVersion) {
         Logging.trace("Remove obsolete preferences for version {0}", Integer.toString(loadedVersion));
         for (String key : OBSOLETE_PREF_KEYS) {
-            if (settingsMap.containsKey(key)) {
-                settingsMap.remove(key);
+            if (settingsMap.remove(key) != null) {
                 Logging.info(tr("Preference setting {0} has been removed since it is no longer used.", key));
             }
         }
@@ -766,4 +898,16 @@ public class Preferences extends AbstractPreferences {
             saveOnPut = enable;
         }
     }
+
+    /**
+     * Enables or not the binary cache of the preferences file, read instead of the XML file when it is up to date
+     * and written each time the preferences file is saved. This behaviour is enabled by default.
+     * @param enable if {@code true}, makes JOSM use the binary cache of the preferences file
+     * @see #getPreferencesCacheFile()
+     */
+    public final void enableCache(boolean enable) {
+        synchronized (this) {
+            useCache = enable;
+        }
+    }
 }
@@ -0,0 +1,509 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.gpx;
+
+import java.awt.Color;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.projection.Projecting;
+import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.UncheckedParseException;
+import org.openstreetmap.josm.tools.date.DateUtils;
+
+/**
+ * A gpx track segment that cannot be changed, storing its points in a compact columnar layout.
+ * <p>
+ * Coordinates, times and elevations are kept in primitive arrays, other point attributes in one array per attribute key,
+ * immutable values being shared between points. {@link WayPoint} objects are only created when an element of
+ * {@link #getWayPoints()} is accessed, and are then kept by the segment, so that a point is always the same object.
+ * <p>
+ * Renderers should read the points by index instead, and keep their drawing information with
+ * {@link #setDrawing(int, Color, boolean, int)}. It is stored in two more columns, and copied to the points already created.
+ * <p>
+ * Use a {@link Builder} to create instances.
+ */
+public final class ColumnarGpxTrackSegment implements GpxTrackSegment {
+
+    /** Marker for points without time */
+    private static final long NO_TIME = Long.MIN_VALUE;
+
+    private final double[] lat;
+    private final double[] lon;
+    private final long[] time;
+    private final double[] ele;
+    private final Map<String, Object[]> attributes;
+    private final Bounds bounds;
+    private final double length;
+
+    private final List<WayPoint> wayPoints = Collections.unmodifiableList(new WayPointList());
+    private WayPoint[] points;
+    private Color[] customColoring;
+    /** Direction of the line before each point, or -1 if no line should be drawn */
+    private byte[] dir;
+    /** Projected coordinates of the points as east/north pairs, computed for all the points at once */
+    private double[] eastNorth;
+    private Object eastNorthCacheKey;
+
+    private ColumnarGpxTrackSegment(Builder builder) {
+        int size = builder.size;
+        this.lat = Arrays.copyOf(builder.lat, size);
+        this.lon = Arrays.copyOf(builder.lon, size);
+        this.time = builder.hasTime ? Arrays.copyOf(builder.time, size) : null;
+        this.ele = builder.hasEle ? Arrays.copyOf(builder.ele, size) : null;
+        Map<String, Object[]> attrs = new LinkedHashMap<>();
+        for (Entry<String, Object[]> e : builder.attributes.entrySet()) {
+            attrs.put(e.getKey(), Arrays.copyOf(e.getValue(), size));
+        }
+        this.attributes = attrs;
+        this.bounds = calculateBounds();
+        this.length = calculateLength();
+    }
+
+    private Bounds calculateBounds() {
+        Bounds result = null;
+        for (int i = 0; i < lat.length; i++) {
+            if (result == null) {
+                result = new Bounds(new LatLon(lat[i], lon[i]));
+            } else {
+                result.extend(lat[i], lon[i]);
+            }
+        }
+        return result;
+    }
+
+    private double calculateLength() {
+        double result = 0.0; // in meters
+        for (int i = 1; i < lat.length; i++) {
+            double d = new LatLon(lat[i - 1], lon[i - 1]).greatCircleDistance(new LatLon(lat[i], lon[i]));
+            if (!Double.isNaN(d) && !Double.isInfinite(d)) {
+                result += d;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of points of this segment.
+     * @return the number of points of this segment
+     */
+    public int size() {
+        return lat.length;
+    }
+
+    @Override
+    public Bounds getBounds() {
+        return bounds == null ? null : new Bounds(bounds);
+    }
+
+    /**
+     * Returns the latitude of a point.
+     * @param index index of the point
+     * @return the latitude of the point
+     */
+    public double getLat(int index) {
+        return lat[index];
+    }
+
+    /**
+     * Returns the longitude of a point.
+     * @param index index of the point
+     * @return the longitude of the point
+     */
+    public double getLon(int index) {
+        return lon[index];
+    }
+
+    /**
+     * Returns the coordinates of a point.
+     * @param index index of the point
+     * @return the coordinates of the point
+     */
+    public LatLon getCoor(int index) {
+        return new LatLon(lat[index], lon[index]);
+    }
+
+    /**
+     * Returns the projected coordinates of a point. The coordinates of all the points are computed at the first call
+     * and kept until the projection changes, like the coordinates cached by {@link WayPoint#getEastNorth(Projecting)}.
+     * @param index index of the point
+     * @param projecting the projection to use
+     * @return the projected coordinates of the point
+     */
+    public synchronized EastNorth getEastNorth(int index, Projecting projecting) {
+        Object cacheKey = projecting.getCacheKey();
+        if (eastNorth == null || !Objects.equals(cacheKey, eastNorthCacheKey)) {
+            double[] coordinates = new double[2 * lat.length];
+            for (int i = 0; i < lat.length; i++) {
+                coordinates[2 * i] = lat[i];
+                coordinates[2 * i + 1] = lon[i];
+            }
+            projecting.latlon2eastNorth(coordinates, coordinates, lat.length);
+            eastNorth = coordinates;
+            eastNorthCacheKey = cacheKey;
+        }
+        return new EastNorth(eastNorth[2 * index], eastNorth[2 * index + 1]);
+    }
+
+    /**
+     * Returns the time of a point in milliseconds since the epoch.
+     * @param index index of the point
+     * @return the time of the point, or 0 if it has no time
+     * @see WayPoint#getTimeInMillis()
+     */
+    public long getTimeInMillis(int index) {
+        return time != null && time[index] != NO_TIME ? time[index] : 0;
+    }
+
+    /**
+     * Determines if at least one point has a time.
+     * @return {@code true} if at least one point has a time
+     */
+    public boolean hasTimes() {
+        if (time != null) {
+            for (long t : time) {
+                if (t != NO_TIME) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns an attribute of a point, other than its time and elevation.
+     * @param index index of the point
+     * @param key attribute key
+     * @return the attribute value, or {@code null}
+     */
+    public Object getAttribute(int index, String key) {
+        Object[] values = attributes.get(key);
+        return values != null ? values[index] : null;
+    }
+
+    /**
+     * Returns the drawing color of a point.
+     * @param index index of the point
+     * @return the drawing color of the point, or {@code null} if not set
+     * @see WayPoint#customColoring
+     */
+    public synchronized Color getCustomColoring(int index) {
+        return customColoring != null ? customColoring[index] : null;
+    }
+
+    /**
+     * Determines if the line before a point should be drawn.
+     * @param index index of the point
+     * @return {@code true} if the line before the point should be drawn
+     * @see WayPoint#drawLine
+     */
+    public synchronized boolean isDrawLine(int index) {
+        return dir != null && dir[index] >= 0;
+    }
+
+    /**
+     * Returns the direction of the line before a point.
+     * @param index index of the point
+     * @return the direction of the line before the point, between 0 and 7
+     * @see WayPoint#dir
+     */
+    public synchronized int getDirection(int index) {
+        return dir != null ? Math.max(dir[index], 0) : 0;
+    }
+
+    /**
+     * Sets the drawing information of a point. Points of {@link #getWayPoints()} already created are updated.
+     * @param index index of the point
+     * @param color drawing color of the point
+     * @param drawLine {@code true} if the line before the point should be drawn
+     * @param direction direction of the line before the point, between 0 and 7
+     * @see WayPoint#customColoring
+     * @see WayPoint#drawLine
+     * @see WayPoint#dir
+     */
+    public synchronized void setDrawing(int index, Color color, boolean drawLine, int direction) {
+        if (customColoring == null) {
+            customColoring = new Color[lat.length];
+            dir = new byte[lat.length];
+            Arrays.fill(dir, (byte) -1);
+        }
+        customColoring[index] = color;
+        dir[index] = (byte) (drawLine ? direction : -1);
+        if (points != null && points[index] != null) {
+            copyDrawing(index, points[index]);
+        }
+    }
+
+    private void copyDrawing(int index, WayPoint wpt) {
+        if (customColoring != null) {
+            wpt.customColoring = customColoring[index];
+            wpt.drawLine = dir[index] >= 0;
+            wpt.dir = Math.max(dir[index], 0);
+        }
+    }
+
+    /**
+     * Creates a new point with the data and the drawing information of a point of this segment.
+     * Unlike the points of {@link #getWayPoints()}, it is not kept by the segment.
+     * @param index index of the point
+     * @return a new point
+     */
+    public synchronized WayPoint createWayPoint(int index) {
+        WayPoint wpt = new WayPoint(new LatLon(lat[index], lon[index]));
+        if (time != null && time[index] != NO_TIME) {
+            wpt.setTimeInMillis(time[index]);
+        }
+        if (ele != null && !Double.isNaN(ele[index])) {
+            wpt.put(GpxConstants.PT_ELE, formatElevation(ele[index]));
+        }
+        for (Entry<String, Object[]> e : attributes.entrySet()) {
+            Object value = e.getValue()[index];
+            if (value != null) {
+                wpt.put(e.getKey(), value);
+            }
+        }
+        copyDrawing(index, wpt);
+        return wpt;
+    }
+
+    private synchronized WayPoint getWayPoint(int index) {
+        if (points == null) {
+            points = new WayPoint[lat.length];
+        }
+        WayPoint wpt = points[index];
+        if (wpt == null) {
+            wpt = createWayPoint(index);
+            points[index] = wpt;
+        }
+        return wpt;
+    }
+
+    @Override
+    public Collection<WayPoint> getWayPoints() {
+        return wayPoints;
+    }
+
+    @Override
+    public double length() {
+        return length;
+    }
+
+    @Override
+    public int getUpdateCount() {
+        return 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(lat) + Arrays.hashCode(lon);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null || getClass() != obj.getClass())
+            return false;
+        ColumnarGpxTrackSegment other = (ColumnarGpxTrackSegment) obj;
+        if (!Arrays.equals(lat, other.lat) || !Arrays.equals(lon, other.lon)
+                || !Arrays.equals(time, other.time) || !Arrays.equals(ele, other.ele)
+                || !attributes.keySet().equals(other.attributes.keySet()))
+            return false;
+        for (Entry<String, Object[]> e : attributes.entrySet()) {
+            if (!Arrays.equals(e.getValue(), other.attributes.get(e.getKey())))
+                return false;
+        }
+        return true;
+    }
+
+    private static String formatElevation(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    /**
+     * The points of the segment, each one created when first accessed.
+     */
+    private final class WayPointList extends AbstractList<WayPoint> {
+        @Override
+        public WayPoint get(int index) {
+            return getWayPoint(index);
+        }
+
+        @Override
+        public int size() {
+            return lat.length;
+        }
+    }
+
+    /**
+     * Builds a {@link ColumnarGpxTrackSegment} point by point. Added points are copied, they can be discarded afterwards.
+     * <p>
+     * This class is not thread safe.
+     */
+    public static final class Builder {
+        private int size;
+        private double[] lat = new double[16];
+        private double[] lon = new double[16];
+        private long[] time = new long[16];
+        private double[] ele = new double[16];
+        private boolean hasTime;
+        private boolean hasEle;
+        private final Map<String, Object[]> attributes = new LinkedHashMap<>();
+        private final Map<Object, Object> sharedValues = new HashMap<>();
+        private String[] timeTexts;
+
+        /**
+         * Returns the number of points added so far.
+         * @return the number of points added so far
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Determines if no point has been added yet.
+         * @return {@code true} if no point has been added yet
+         */
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        /**
+         * Adds all the given points.
+         * @param wayPoints points to add
+         * @return this builder
+         */
+        public Builder addAll(Collection<WayPoint> wayPoints) {
+            for (WayPoint wpt : wayPoints) {
+                add(wpt);
+            }
+            return this;
+        }
+
+        /**
+         * Adds a point to the segment.
+         * @param wpt point to add
+         * @return this builder
+         */
+        public Builder add(WayPoint wpt) {
+            return add(wpt, null);
+        }
+
+        /**
+         * Adds a point to the segment, with a time not parsed yet. Times are parsed by {@link #build()}, which may
+         * run in another thread than the one adding points.
+         * @param wpt point to add
+         * @param timeText time of the point, in ISO 8601 format. {@code null} to use the time of {@code wpt}
+         * @return this builder
+         */
+        public Builder add(WayPoint wpt, String timeText) {
+            if (size == lat.length) {
+                int capacity = size + (size >> 1);
+                lat = Arrays.copyOf(lat, capacity);
+                lon = Arrays.copyOf(lon, capacity);
+                time = Arrays.copyOf(time, capacity);
+                ele = Arrays.copyOf(ele, capacity);
+                if (timeTexts != null) {
+                    timeTexts = Arrays.copyOf(timeTexts, capacity);
+                }
+                for (Entry<String, Object[]> e : attributes.entrySet()) {
+                    e.setValue(Arrays.copyOf(e.getValue(), capacity));
+                }
+            }
+            lat[size] = wpt.lat();
+            lon[size] = wpt.lon();
+            time[size] = NO_TIME;
+            ele[size] = Double.NaN;
+            if (timeText != null) {
+                if (timeTexts == null) {
+                    timeTexts = new String[lat.length];
+                }
+                timeTexts[size] = timeText;
+                hasTime = true;
+            }
+            for (Entry<String, Object> e : wpt.attr.entrySet()) {
+                String key = e.getKey();
+                Object value = e.getValue();
+                if (GpxConstants.PT_TIME.equals(key) && value instanceof Date) {
+                    time[size] = ((Date) value).getTime();
+                    hasTime = true;
+                } else if (GpxConstants.PT_ELE.equals(key) && isCompactElevation(value)) {
+                    ele[size] = Double.parseDouble((String) value);
+                    hasEle = true;
+                } else if (value != null) {
+                    attributes.computeIfAbsent(key, k -> new Object[lat.length])[size] = share(value);
+                }
+            }
+            size++;
+            return this;
+        }
+
+        /**
+         * Determines if an elevation value can be stored as a number and given back unchanged.
+         * @param value elevation value
+         * @return {@code true} if the value can be stored as a number
+         */
+        private static boolean isCompactElevation(Object value) {
+            if (value instanceof String) {
+                try {
+                    double d = Double.parseDouble((String) value);
+                    return !Double.isNaN(d) && !Double.isInfinite(d) && value.equals(formatElevation(d));
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Returns an already stored instance equal to the given attribute value, if it is immutable.
+         * @param value attribute value
+         * @return the shared instance
+         */
+        private Object share(Object value) {
+            if (value instanceof String || value instanceof Number || value instanceof Boolean) {
+                Object shared = sharedValues.putIfAbsent(value, value);
+                return shared != null ? shared : value;
+            }
+            return value;
+        }
+
+        private void parseTimes() {
+            for (int i = 0; i < size; i++) {
+                if (timeTexts[i] != null) {
+                    try {
+                        time[i] = DateUtils.tsFromString(timeTexts[i]);
+                    } catch (UncheckedParseException e) {
+                        Logging.error(e);
+                    }
+                }
+            }
+            timeTexts = null;
+        }
+
+        /**
+         * Creates the segment. Times added as text are parsed, the bounds and length of the segment are computed.
+         * @return the segment containing all added points
+         */
+        public ColumnarGpxTrackSegment build() {
+            if (timeTexts != null) {
+                parseTimes();
+            }
+            return new ColumnarGpxTrackSegment(this);
+        }
+    }
+}
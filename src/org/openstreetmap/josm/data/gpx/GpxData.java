@@ -203,7 +203,7 @@ public class GpxData extends WithAttributes implements Data {
                                     // splitting needs to be handled here,
                                     // because other high priority tracks between the same waypoints could follow
                                     if (!wpsNew.isEmpty()) {
-                                        segsNew.add(new ImmutableGpxTrackSegment(wpsNew));
+                                        segsNew.add(new ColumnarGpxTrackSegment.Builder().addAll(wpsNew).build());
                                     }
                                     if (!segsNew.isEmpty()) {
                                         privateTracks.add(new ImmutableGpxTrack(segsNew, trk.getAttributes()));
@@ -221,7 +221,7 @@ public class GpxData extends WithAttributes implements Data {
                         if (split) {
                             //track has to be split, because we have an overlapping short track in the middle
                             if (!wpsNew.isEmpty()) {
-                                segsNew.add(new ImmutableGpxTrackSegment(wpsNew));
+                                segsNew.add(new ColumnarGpxTrackSegment.Builder().addAll(wpsNew).build());
                             }
                             if (!segsNew.isEmpty()) {
                                 privateTracks.add(new ImmutableGpxTrack(segsNew, trk.getAttributes()));
@@ -238,7 +238,7 @@ public class GpxData extends WithAttributes implements Data {
                     }
                 }
                 if (!wpsNew.isEmpty()) {
-                    segsNew.add(new ImmutableGpxTrackSegment(wpsNew));
+                    segsNew.add(new ColumnarGpxTrackSegment.Builder().addAll(wpsNew).build());
                 }
             } else {
                 segsNew.add(seg);
@@ -253,7 +253,9 @@ public class GpxData extends WithAttributes implements Data {
 
     private void connectTracks(WayPoint prevWp, GpxTrackSegmentSpan span, Map<String, Object> attr) {
         if (prevWp != null && !span.lastEquals(prevWp)) {
-            privateTracks.add(new ImmutableGpxTrack(Arrays.asList(Arrays.asList(new WayPoint(prevWp), span.getFirstWp())), attr));
+            List<GpxTrackSegment> segs = Collections.singletonList(
+                    new ColumnarGpxTrackSegment.Builder().add(new WayPoint(prevWp)).add(span.getFirstWp()).build());
+            privateTracks.add(new ImmutableGpxTrack(segs, attr));
         }
     }
 
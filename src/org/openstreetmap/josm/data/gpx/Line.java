@@ -12,6 +12,7 @@ import java.util.Objects;
  */
 public class Line implements Collection<WayPoint> {
     private final Collection<WayPoint> waypoints;
+    private final GpxTrackSegment trackSegment;
     private final boolean unordered;
 
     /**
@@ -21,6 +22,7 @@ public class Line implements Collection<WayPoint> {
      */
     public Line(Collection<WayPoint> waypoints, Map<String, Object> attributes) {
         this.waypoints = Objects.requireNonNull(waypoints);
+        this.trackSegment = null;
         unordered = attributes.isEmpty() && waypoints.stream().allMatch(x -> x.get(GpxConstants.PT_TIME) == null);
     }
 
@@ -30,7 +32,14 @@ public class Line implements Collection<WayPoint> {
      * @param trackAttributes track attributes
      */
     public Line(GpxTrackSegment trackSegment, Map<String, Object> trackAttributes) {
-        this(trackSegment.getWayPoints(), trackAttributes);
+        this.waypoints = Objects.requireNonNull(trackSegment.getWayPoints());
+        this.trackSegment = trackSegment;
+        if (trackSegment instanceof ColumnarGpxTrackSegment) {
+            // do not create the points of compact segments
+            unordered = trackAttributes.isEmpty() && !((ColumnarGpxTrackSegment) trackSegment).hasTimes();
+        } else {
+            unordered = trackAttributes.isEmpty() && waypoints.stream().allMatch(x -> x.get(GpxConstants.PT_TIME) == null);
+        }
     }
 
     /**
@@ -41,6 +50,14 @@ public class Line implements Collection<WayPoint> {
         this(route.routePoints, route.attr);
     }
 
+    /**
+     * Returns the track segment of this line.
+     * @return the track segment of this line, or {@code null} if it was not created from a track segment
+     */
+    public GpxTrackSegment getTrackSegment() {
+        return trackSegment;
+    }
+
     /**
      * Determines if waypoints are ordered.
      * @return {@code true} if waypoints are ordered
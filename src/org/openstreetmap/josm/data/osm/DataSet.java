@@ -2,6 +2,7 @@
 package org.openstreetmap.josm.data.osm;
 
 import static org.openstreetmap.josm.tools.I18n.tr;
+import static org.openstreetmap.josm.tools.I18n.trn;
 
 import java.awt.geom.Area;
 import java.util.ArrayList;
@@ -15,7 +16,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletionService;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
@@ -49,6 +54,7 @@ import org.openstreetmap.josm.data.osm.event.RelationMembersChangedEvent;
 import org.openstreetmap.josm.data.osm.event.TagsChangedEvent;
 import org.openstreetmap.josm.data.osm.event.WayNodesChangedEvent;
 import org.openstreetmap.josm.data.osm.visitor.BoundingXYVisitor;
+import org.openstreetmap.josm.data.projection.Projecting;
 import org.openstreetmap.josm.data.projection.Projection;
 import org.openstreetmap.josm.data.projection.ProjectionChangeListener;
 import org.openstreetmap.josm.data.projection.ProjectionRegistry;
@@ -57,6 +63,7 @@ import org.openstreetmap.josm.spi.preferences.Config;
 import org.openstreetmap.josm.tools.ListenerList;
 import org.openstreetmap.josm.tools.Logging;
 import org.openstreetmap.josm.tools.SubclassFilteredCollection;
+import org.openstreetmap.josm.tools.Utils;
 
 /**
  * DataSet is the data behind the application. It can consists of only a few points up to the whole
@@ -114,6 +121,27 @@ public final class DataSet implements OsmData<OsmPrimitive, Node, Way, Relation>
      */
     private static final int MAX_EVENTS = 1000;
 
+    /**
+     * Number of nodes projected at once by a thread in {@link #reproject}
+     */
+    private static final int REPROJECTION_CHUNK_SIZE = 10_000;
+
+    /**
+     * The threads projecting the nodes in {@link #reproject}, created on first use and shared by all data sets
+     */
+    private static class ReprojectionPoolHolder {
+        private static final ForkJoinPool THREAD_POOL = newForkJoinPool();
+
+        private static ForkJoinPool newForkJoinPool() {
+            try {
+                return Utils.newForkJoinPool("projection.numberOfThreads", "reprojection-%d", Thread.NORM_PRIORITY);
+            } catch (SecurityException e) {
+                Logging.log(Logging.LEVEL_ERROR, "Unable to create new ForkJoinPool", e);
+                return null;
+            }
+        }
+    }
+
     private final QuadBucketPrimitiveStore<Node, Way, Relation> store = new QuadBucketPrimitiveStore<>();
 
     private final Storage<OsmPrimitive> allPrimitives = new Storage<>(new Storage.PrimitiveIdHash(), true);
@@ -984,10 +1012,82 @@ public final class DataSet implements OsmData<OsmPrimitive, Node, Way, Relation>
     }
 
     void fireHighlightingChanged() {
-        HighlightUpdateListener.HighlightUpdateEvent e = new HighlightUpdateListener.HighlightUpdateEvent(this);
+        fireHighlightingChanged(null);
+    }
+
+    void fireHighlightingChanged(OsmPrimitive primitive) {
+        HighlightUpdateListener.HighlightUpdateEvent e = new HighlightUpdateListener.HighlightUpdateEvent(this, primitive);
         highlightUpdateListeners.fireEvent(l -> l.highlightUpdated(e));
     }
 
+    /**
+     * Projects the coordinates of all nodes with the given projection, and caches them in the nodes.
+     * <p>
+     * Otherwise, nodes are projected one by one when their east/north coordinates are first needed, usually by the
+     * first repaint after a projection change. Here, chunks of nodes are projected in parallel. Each chunk is projected
+     * while holding the read lock, so the data set can still be painted, and node moves only wait for the current chunks.
+     * @param projection the projection
+     * @param progressMonitor the progress monitor
+     * @return the number of projected nodes. Nodes whose coordinates were already cached are skipped.
+     */
+    public int reproject(Projecting projection, ProgressMonitor progressMonitor) {
+        List<Node> nodes;
+        lock.readLock().lock();
+        try {
+            nodes = new ArrayList<>(getNodes());
+        } finally {
+            lock.readLock().unlock();
+        }
+        int chunks = (nodes.size() + REPROJECTION_CHUNK_SIZE - 1) / REPROJECTION_CHUNK_SIZE;
+        progressMonitor.beginTask(trn("Projecting {0} node", "Projecting {0} nodes", nodes.size(), nodes.size()), chunks);
+        ForkJoinPool pool = ReprojectionPoolHolder.THREAD_POOL;
+        try {
+            CompletionService<Integer> tasks = new ExecutorCompletionService<>(pool != null ? pool : Runnable::run);
+            for (int i = 0; i < nodes.size(); i += REPROJECTION_CHUNK_SIZE) {
+                List<Node> chunk = nodes.subList(i, Math.min(nodes.size(), i + REPROJECTION_CHUNK_SIZE));
+                tasks.submit(() -> progressMonitor.isCanceled() ? 0 : reproject(projection, chunk));
+            }
+            int projected = 0;
+            for (int i = 0; i < chunks; i++) {
+                projected += tasks.take().get();
+                // progress monitors are not thread-safe, so the progress is only reported by this thread
+                progressMonitor.worked(1);
+            }
+            return projected;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            progressMonitor.finishTask();
+        }
+    }
+
+    private int reproject(Projecting projection, List<Node> nodes) {
+        Object cacheKey = projection.getCacheKey();
+        double[] coordinates = new double[2 * nodes.size()];
+        Node[] projected = new Node[nodes.size()];
+        int count = 0;
+        lock.readLock().lock();
+        try {
+            for (Node n : nodes) {
+                if (n.getDataSet() == this && n.isLatLonKnown() && !n.isEastNorthCached(projection)) {
+                    coordinates[2 * count] = n.lat();
+                    coordinates[2 * count + 1] = n.lon();
+                    projected[count++] = n;
+                }
+            }
+            projection.latlon2eastNorth(coordinates, coordinates, count);
+            for (int i = 0; i < count; i++) {
+                projected[i].setEastNorthCache(coordinates[2 * i], coordinates[2 * i + 1], cacheKey);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return count;
+    }
+
     /**
      * Invalidates the internal cache of projected east/north coordinates.
      *
@@ -16,13 +16,24 @@ public interface HighlightUpdateListener {
      */
     class HighlightUpdateEvent {
         private final DataSet dataSet;
+        private final OsmPrimitive primitive;
 
         /**
          * Create a new highlight update event.
          * @param dataSet The dataset that was changed.
          */
         public HighlightUpdateEvent(DataSet dataSet) {
+            this(dataSet, null);
+        }
+
+        /**
+         * Create a new highlight update event.
+         * @param dataSet The dataset that was changed.
+         * @param primitive The primitive whose highlighting changed, or <code>null</code>
+         */
+        public HighlightUpdateEvent(DataSet dataSet, OsmPrimitive primitive) {
             this.dataSet = dataSet;
+            this.primitive = primitive;
         }
 
         /**
@@ -32,6 +43,14 @@ public interface HighlightUpdateListener {
         public DataSet getDataSet() {
             return dataSet;
         }
+
+        /**
+         * Get the primitive whose highlighting changed.
+         * @return The primitive, or <code>null</code> if the highlighted way segments or virtual nodes changed.
+         */
+        public OsmPrimitive getPrimitive() {
+            return primitive;
+        }
     }
 
     /**
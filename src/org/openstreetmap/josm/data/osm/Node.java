@@ -38,8 +38,9 @@ public final class Node extends OsmPrimitive implements INode {
     private double north = Double.NaN;
     /**
      * The cache key to use for {@link #east} and {@link #north}.
+     * Written after them, and read before them, see {@link #setEastNorthCache}.
      */
-    private Object eastNorthCacheKey;
+    private volatile Object eastNorthCacheKey;
 
     @Override
     public void setCoor(LatLon coor) {
@@ -91,15 +92,39 @@ public final class Node extends OsmPrimitive implements INode {
     public EastNorth getEastNorth(Projecting projection) {
         if (!isLatLonKnown()) return null;
 
-        if (Double.isNaN(east) || Double.isNaN(north) || !Objects.equals(projection.getCacheKey(), eastNorthCacheKey)) {
+        boolean cached = Objects.equals(projection.getCacheKey(), eastNorthCacheKey);
+        double e = east;
+        double n = north;
+        if (!cached || Double.isNaN(e) || Double.isNaN(n)) {
             // projected coordinates haven't been calculated yet,
             // so fill the cache of the projected node coordinates
             EastNorth en = projection.latlon2eastNorth(this);
-            this.east = en.east();
-            this.north = en.north();
-            this.eastNorthCacheKey = projection.getCacheKey();
+            setEastNorthCache(en.east(), en.north(), projection.getCacheKey());
+            return en;
         }
-        return new EastNorth(east, north);
+        return new EastNorth(e, n);
+    }
+
+    /**
+     * Sets the cached projected coordinates. They may be set by other threads than the one reading them,
+     * see {@link DataSet#reproject}.
+     * @param east east coordinate
+     * @param north north coordinate
+     * @param cacheKey the cache key of the projection
+     */
+    void setEastNorthCache(double east, double north, Object cacheKey) {
+        this.east = east;
+        this.north = north;
+        this.eastNorthCacheKey = cacheKey;
+    }
+
+    /**
+     * Determines if the projected coordinates are cached for the given projection.
+     * @param projection the projection
+     * @return {@code true} if the projected coordinates are cached
+     */
+    boolean isEastNorthCached(Projecting projection) {
+        return Objects.equals(projection.getCacheKey(), eastNorthCacheKey) && !Double.isNaN(east) && !Double.isNaN(north);
     }
 
     /**
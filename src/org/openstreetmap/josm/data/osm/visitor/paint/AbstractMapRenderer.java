@@ -7,6 +7,7 @@ import java.awt.geom.GeneralPath;
 import java.awt.geom.Path2D;
 import java.awt.geom.Rectangle2D;
 import java.util.Iterator;
+import java.util.function.BooleanSupplier;
 
 import org.openstreetmap.josm.data.osm.BBox;
 import org.openstreetmap.josm.data.osm.INode;
@@ -27,6 +28,9 @@ import org.openstreetmap.josm.tools.Logging;
  */
 public abstract class AbstractMapRenderer implements Rendering {
 
+    /** The number of primitives or style records drawn between two calls of the cancel check */
+    private static final int CANCEL_CHECK_INTERVAL = 64;
+
     /** the graphics context to which the visitor renders OSM objects */
     protected final Graphics2D g;
     /** the map viewport - provides projection and hit detection functionality */
@@ -64,6 +68,11 @@ public abstract class AbstractMapRenderer implements Rendering {
     /** Performs slow operations by default. Can be disabled when fast partial rendering is required */
     protected boolean doSlowOperations = true;
 
+    /** Tells if the current render pass is obsolete, {@code null} if it is never canceled */
+    protected BooleanSupplier cancelCheck;
+    /** Set as soon as the current render pass has been canceled */
+    protected volatile boolean canceled;
+
     /**
      * <p>Creates an abstract paint visitor</p>
      *
@@ -83,6 +92,47 @@ public abstract class AbstractMapRenderer implements Rendering {
         this.isInactiveMode = isInactiveMode;
     }
 
+    /**
+     * Sets the check whether the current render pass is obsolete, e.g. because the map view has been moved in the meantime.
+     * <p>
+     * The check is called regularly while the primitives are drawn, by the styled renderer also while the styles are computed,
+     * possibly from several threads at the same time. The rendering stops as soon as it returns {@code true}. What has been drawn so far remains in the graphics context.
+     * @param cancelCheck the check, or {@code null} to always render completely
+     * @see #isCanceled()
+     */
+    public void setCancelCheck(BooleanSupplier cancelCheck) {
+        this.cancelCheck = cancelCheck;
+    }
+
+    /**
+     * Determines if the last render pass has been canceled before it was complete.
+     * @return {@code true} if the last render pass has been canceled
+     * @see #setCancelCheck(BooleanSupplier)
+     */
+    public boolean isCanceled() {
+        return canceled;
+    }
+
+    /**
+     * Calls the cancel check, unless the render pass has been canceled already.
+     * @return {@code true} if the render pass has been canceled
+     */
+    protected boolean checkCanceled() {
+        if (!canceled && cancelCheck != null && cancelCheck.getAsBoolean()) {
+            canceled = true;
+        }
+        return canceled;
+    }
+
+    /**
+     * Checks if the render pass has been canceled, every {@link #CANCEL_CHECK_INTERVAL} primitives or style records.
+     * @param index the index of the primitive or style record that is drawn next
+     * @return {@code true} if the render pass has been canceled
+     */
+    protected boolean isCanceled(int index) {
+        return index % CANCEL_CHECK_INTERVAL == 0 ? checkCanceled() : canceled;
+    }
+
     /**
      * Draw the node as small square with the given color.
      *
@@ -6,6 +6,7 @@ import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.ForkJoinTask;
 import java.util.concurrent.RecursiveTask;
+import java.util.function.BooleanSupplier;
 
 import org.openstreetmap.josm.data.osm.INode;
 import org.openstreetmap.josm.data.osm.IPrimitive;
@@ -35,6 +36,11 @@ public class ComputeStyleListWorker extends RecursiveTask<List<StyleRecord>> imp
 
     private static final long serialVersionUID = 1L;
 
+    /**
+     * The number of primitives processed between two calls of the cancel check
+     */
+    private static final int CANCEL_CHECK_INTERVAL = 32;
+
     private final transient List<? extends IPrimitive> input;
     private final transient List<StyleRecord> output;
 
@@ -42,6 +48,7 @@ public class ComputeStyleListWorker extends RecursiveTask<List<StyleRecord>> imp
     private final int directExecutionTaskSize;
     private final double circum;
     private final NavigatableComponent nc;
+    private final transient BooleanSupplier cancelCheck;
 
     private final boolean drawArea;
     private final boolean drawMultipolygon;
@@ -75,12 +82,30 @@ public class ComputeStyleListWorker extends RecursiveTask<List<StyleRecord>> imp
     ComputeStyleListWorker(double circum, NavigatableComponent nc,
             final List<? extends IPrimitive> input, List<StyleRecord> output, int directExecutionTaskSize,
             ElemStyles styles) {
+        this(circum, nc, input, output, directExecutionTaskSize, styles, null);
+    }
+
+    /**
+     * Constructs a new {@code ComputeStyleListWorker} that stops as soon as the computation is obsolete.
+     * @param circum distance on the map in meters that 100 screen pixels represent
+     * @param nc navigatable component
+     * @param input the primitives to process
+     * @param output the list of styles to which styles will be added
+     * @param directExecutionTaskSize the threshold deciding whether to subdivide the tasks
+     * @param styles the {@link ElemStyles} instance used to generate primitive {@link StyleElement}s.
+     * @param cancelCheck tells if the computation is obsolete, called regularly and possibly from several threads,
+     * or {@code null} to always compute all styles
+     */
+    ComputeStyleListWorker(double circum, NavigatableComponent nc,
+            final List<? extends IPrimitive> input, List<StyleRecord> output, int directExecutionTaskSize,
+            ElemStyles styles, BooleanSupplier cancelCheck) {
         this.circum = circum;
         this.nc = nc;
         this.input = input;
         this.output = output;
         this.directExecutionTaskSize = directExecutionTaskSize;
         this.styles = styles;
+        this.cancelCheck = cancelCheck;
         this.drawArea = circum <= Config.getPref().getInt("mappaint.fillareas", 10_000_000);
         this.drawMultipolygon = drawArea && Config.getPref().getBoolean("mappaint.multipolygon", true);
         this.drawRestriction = Config.getPref().getBoolean("mappaint.restriction", true);
@@ -96,7 +121,7 @@ public class ComputeStyleListWorker extends RecursiveTask<List<StyleRecord>> imp
             for (int fromIndex = 0; fromIndex < input.size(); fromIndex += directExecutionTaskSize) {
                 final int toIndex = Math.min(fromIndex + directExecutionTaskSize, input.size());
                 tasks.add(new ComputeStyleListWorker(circum, nc, input.subList(fromIndex, toIndex),
-                        new ArrayList<>(directExecutionTaskSize), directExecutionTaskSize, styles).fork());
+                        new ArrayList<>(directExecutionTaskSize), directExecutionTaskSize, styles, cancelCheck).fork());
             }
             for (ForkJoinTask<List<StyleRecord>> task : tasks) {
                 output.addAll(task.join());
@@ -107,13 +132,17 @@ public class ComputeStyleListWorker extends RecursiveTask<List<StyleRecord>> imp
 
     /**
      * Compute directly (without using fork/join) the style list. Only called for small input.
+     * If the computation becomes obsolete, the remaining primitives are skipped.
      * @return list of computed style records
      */
     public List<StyleRecord> computeDirectly() {
         MapCSSStyleSource.STYLE_SOURCE_LOCK.readLock().lock();
         try {
-            for (final IPrimitive osm : input) {
-                acceptDrawable(osm);
+            for (int i = 0; i < input.size(); i++) {
+                if (cancelCheck != null && i % CANCEL_CHECK_INTERVAL == 0 && cancelCheck.getAsBoolean()) {
+                    break;
+                }
+                acceptDrawable(input.get(i));
             }
             return output;
         } catch (JosmRuntimeException | IllegalArgumentException | IllegalStateException e) {
@@ -0,0 +1,264 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm.visitor.paint;
+
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * A screen space index of the labels drawn by the {@link StyledMapRenderer}, used to skip labels that would overlap
+ * labels already drawn.
+ * <p>
+ * The bounding boxes of the labels are stored in a grid of square cells, in view coordinates. The index also remembers
+ * the labels that have been rejected. It can be kept between paints while the view is only panned, see
+ * {@link #translate}: labels are then placed at the same position as before, and rejected labels are skipped without
+ * laying out their text again.
+ * <p>
+ * If only some regions of the view are painted again, the labels are restricted to these regions, see
+ * {@link #setRegions}, so that no label is cut at the border of a region.
+ * <p>
+ * This class is not thread safe.
+ * @see StyledMapRenderer#PREFERENCE_LABEL_COLLISION
+ */
+public final class LabelCollisionIndex {
+
+    /**
+     * The width and height of a grid cell in pixels
+     */
+    private static final int CELL_SIZE = 64;
+
+    private static final class Label {
+        private final Object key;
+        private final Rectangle2D.Double box;
+        private final boolean placed;
+
+        Label(Object key, Rectangle2D box, boolean placed) {
+            this.key = key;
+            this.box = new Rectangle2D.Double(box.getX(), box.getY(), box.getWidth(), box.getHeight());
+            this.placed = placed;
+        }
+    }
+
+    private final Map<Long, List<Label>> grid = new HashMap<>();
+    private final Map<Object, List<Label>> labels = new HashMap<>();
+    /** The regions labels are restricted to, {@code null} if they are not restricted */
+    private List<Rectangle2D> regions;
+    /** The keys of the labels reaching outside of the regions, which are kept as they are */
+    private final Set<Object> kept = new HashSet<>();
+
+    /**
+     * Determines if the labels of the given key have been rejected before, and none of them has been placed.
+     * @param key the key of the labels, e.g. the primitive and the text style
+     * @return {@code true} if the labels do not need to be laid out again
+     */
+    boolean isRejected(Object key) {
+        List<Label> list = labels.get(key);
+        return list != null && list.stream().noneMatch(l -> l.placed);
+    }
+
+    /**
+     * Keeps the labels of the given key as they are, if they reach outside of the {@linkplain #setRegions regions}.
+     * Such a label is not moved or rejected, since only the part of it inside the regions is painted again.
+     * @param key the key of the labels
+     * @return {@code true} if the labels are kept, {@code false} if they can be placed again
+     */
+    boolean keep(Object key) {
+        List<Label> list = labels.get(key);
+        if (regions != null && list != null && list.stream().anyMatch(l -> !isInRegions(l.box))) {
+            kept.add(key);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Forgets the labels of the given key, so that they can be placed again.
+     * @param key the key of the labels
+     */
+    void removeKey(Object key) {
+        List<Label> list = labels.remove(key);
+        if (list != null) {
+            list.stream().filter(l -> l.placed).forEach(this::removeFromGrid);
+        }
+    }
+
+    /**
+     * Adds a label to the index, if it does not overlap a label of another key.
+     * @param key the key of the label, e.g. the primitive and the text style
+     * @param box the bounding box of the label in view coordinates
+     * @return {@code true} if the label has been placed, {@code false} if it has been rejected
+     */
+    boolean place(Object key, Rectangle2D box) {
+        if (kept.contains(key)) {
+            return labels.get(key).stream().anyMatch(l -> l.placed && l.box.intersects(box));
+        } else if (regions != null && !isInRegions(box)) {
+            // it could not be painted completely, and is not remembered so that it is placed again by a full repaint
+            return false;
+        }
+        boolean free = isFree(key, box);
+        Label label = new Label(key, box, free);
+        labels.computeIfAbsent(key, k -> new ArrayList<>(1)).add(label);
+        if (free) {
+            addToGrid(label);
+        }
+        return free;
+    }
+
+    private boolean isInRegions(Rectangle2D box) {
+        return regions.stream().anyMatch(r -> r.contains(box));
+    }
+
+    private boolean isFree(Object key, Rectangle2D box) {
+        int x0 = cell(box.getMinX());
+        int x1 = cell(box.getMaxX());
+        int y0 = cell(box.getMinY());
+        int y1 = cell(box.getMaxY());
+        for (int x = x0; x <= x1; x++) {
+            for (int y = y0; y <= y1; y++) {
+                List<Label> list = grid.get(cellKey(x, y));
+                if (list != null) {
+                    for (Label l : list) {
+                        if (!l.key.equals(key) && l.box.intersects(box)) {
+                            return false;
+                        }
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    private void addToGrid(Label label) {
+        for (long cell : cells(label.box)) {
+            grid.computeIfAbsent(cell, k -> new ArrayList<>(4)).add(label);
+        }
+    }
+
+    private void removeFromGrid(Label label) {
+        for (long cell : cells(label.box)) {
+            List<Label> list = grid.get(cell);
+            if (list != null && list.remove(label) && list.isEmpty()) {
+                grid.remove(cell);
+            }
+        }
+    }
+
+    private static List<Long> cells(Rectangle2D box) {
+        List<Long> cells = new ArrayList<>(4);
+        for (int x = cell(box.getMinX()), x1 = cell(box.getMaxX()); x <= x1; x++) {
+            for (int y = cell(box.getMinY()), y1 = cell(box.getMaxY()); y <= y1; y++) {
+                cells.add(cellKey(x, y));
+            }
+        }
+        return cells;
+    }
+
+    private static int cell(double coordinate) {
+        return (int) Math.floor(coordinate / CELL_SIZE);
+    }
+
+    private static long cellKey(int x, int y) {
+        return ((long) x << 32) | (y & 0xffffffffL);
+    }
+
+    /**
+     * Moves all labels after the view has been panned. Labels outside of the view are forgotten.
+     * @param dx the horizontal offset in view coordinates
+     * @param dy the vertical offset in view coordinates
+     * @param view the bounds of the view
+     */
+    public void translate(double dx, double dy, Rectangle2D view) {
+        List<Label> all = new ArrayList<>();
+        labels.values().forEach(all::addAll);
+        labels.clear();
+        grid.clear();
+        List<Label> kept = new ArrayList<>(all.size());
+        for (Label l : all) {
+            l.box.x += dx;
+            l.box.y += dy;
+            if (l.box.intersects(view)) {
+                kept.add(l);
+            }
+        }
+        // a label rejected because of a forgotten label might fit now
+        for (Label l : all) {
+            if (l.placed && !l.box.intersects(view)) {
+                kept.removeIf(r -> !r.placed && r.box.intersects(l.box));
+            }
+        }
+        for (Label l : kept) {
+            labels.computeIfAbsent(l.key, k -> new ArrayList<>(1)).add(l);
+            if (l.placed) {
+                addToGrid(l);
+            }
+        }
+    }
+
+    /**
+     * Forgets the labels intersecting a region that is painted again, and the rejected labels that overlap them.
+     * <p>
+     * The forgotten labels may be placed differently or not at all, so the returned region has to be painted again.
+     * @param region the region in view coordinates
+     * @return the bounds of the region and of the forgotten labels
+     */
+    public Rectangle2D forget(Rectangle2D region) {
+        Rectangle2D bounds = new Rectangle2D.Double();
+        bounds.setRect(region);
+        List<Rectangle2D> removed = new ArrayList<>();
+        removed.add(region);
+        for (Object key : getKeys(l -> l.box.intersects(region))) {
+            labels.get(key).stream().filter(l -> l.placed).forEach(l -> removed.add(l.box));
+            labels.get(key).forEach(l -> bounds.add(l.box));
+            removeKey(key);
+        }
+        for (Object key : getKeys(l -> !l.placed && removed.stream().anyMatch(l.box::intersects))) {
+            labels.get(key).forEach(l -> bounds.add(l.box));
+            removeKey(key);
+        }
+        return bounds;
+    }
+
+    /**
+     * Restricts the labels to the regions that are painted again, until the next call.
+     * <p>
+     * Labels reaching outside of the regions are {@linkplain #keep kept} as they are. New labels are only placed if they
+     * are completely inside one of the regions.
+     * @param regions the regions in view coordinates, or {@code null} to place labels anywhere
+     */
+    public void setRegions(List<Rectangle2D> regions) {
+        this.regions = regions;
+        kept.clear();
+    }
+
+    private List<Object> getKeys(Predicate<Label> predicate) {
+        List<Object> keys = new ArrayList<>();
+        labels.forEach((key, list) -> {
+            if (list.stream().anyMatch(predicate)) {
+                keys.add(key);
+            }
+        });
+        return keys;
+    }
+
+    /**
+     * Forgets all labels.
+     */
+    public void clear() {
+        grid.clear();
+        labels.clear();
+        kept.clear();
+    }
+
+    /**
+     * Gets the number of labels in the index.
+     * @return the number of placed and rejected labels
+     */
+    public int size() {
+        return labels.values().stream().mapToInt(List::size).sum();
+    }
+}
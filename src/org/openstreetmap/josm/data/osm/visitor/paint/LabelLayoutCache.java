@@ -0,0 +1,241 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm.visitor.paint;
+
+import java.awt.Font;
+import java.awt.Shape;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.font.TextLayout;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.openstreetmap.josm.data.preferences.AbstractProperty;
+import org.openstreetmap.josm.data.preferences.IntegerProperty;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * A memory cache for the layout of the labels drawn by the {@link StyledMapRenderer}.
+ * <p>
+ * The same labels, e.g. street names, are drawn again in every paint. Laying out their text, especially the bidi
+ * analysis and glyph shaping for labels along lines and the outline for labels with a halo, is expensive.
+ * The cache keeps the string bounds, the untransformed outline and the shaped glyphs of the recently used labels,
+ * keyed by text, font and font render context. It is shared by all renderers and is thread safe.
+ * <p>
+ * Glyph vectors are modified when they are placed along a line, so a new copy of the cached glyphs is returned
+ * every time.
+ */
+public final class LabelLayoutCache {
+
+    /**
+     * The maximum number of labels in the cache
+     */
+    public static final AbstractProperty<Integer> PREFERENCE_SIZE = new IntegerProperty("mappaint.label.cache-size", 2000).cached();
+
+    private static final LabelLayoutCache INSTANCE = new LabelLayoutCache();
+
+    private static final class Key {
+        private final String text;
+        private final Font font;
+        private final FontRenderContext frc;
+
+        Key(String text, Font font, FontRenderContext frc) {
+            this.text = text;
+            this.font = font;
+            this.frc = frc;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(text, font, frc);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (obj == null || getClass() != obj.getClass())
+                return false;
+            Key other = (Key) obj;
+            return text.equals(other.text) && font.equals(other.font) && frc.equals(other.frc);
+        }
+    }
+
+    /**
+     * The glyph codes and positions of a glyph vector of one bidi run
+     */
+    private static final class GlyphRun {
+        private final int[] codes;
+        private final float[] positions;
+
+        GlyphRun(GlyphVector gv) {
+            int count = gv.getNumGlyphs();
+            codes = gv.getGlyphCodes(0, count, null);
+            positions = gv.getGlyphPositions(0, count + 1, null);
+        }
+
+        GlyphVector create(Font font, FontRenderContext frc) {
+            GlyphVector gv = font.createGlyphVector(frc, codes);
+            for (int i = 0; i <= codes.length; i++) {
+                gv.setGlyphPosition(i, new Point2D.Float(positions[2 * i], positions[2 * i + 1]));
+            }
+            return gv;
+        }
+    }
+
+    private static final class Entry {
+        private final Key key;
+        // lazily computed, guarded by this
+        private Rectangle2D bounds;
+        private Shape outline;
+        private List<GlyphRun> glyphs;
+
+        Entry(Key key) {
+            this.key = key;
+        }
+
+        synchronized Rectangle2D getBounds() {
+            if (bounds == null) {
+                bounds = key.font.getStringBounds(key.text, key.frc);
+            }
+            return bounds;
+        }
+
+        synchronized Shape getOutline() {
+            if (outline == null) {
+                outline = new TextLayout(key.text, key.font, key.frc).getOutline(null);
+            }
+            return outline;
+        }
+
+        synchronized List<GlyphRun> getGlyphs() {
+            if (glyphs == null) {
+                glyphs = new ArrayList<>(1);
+                Utils.getGlyphVectorsBidi(key.text, key.font, key.frc).forEach(gv -> glyphs.add(new GlyphRun(gv)));
+            }
+            return glyphs;
+        }
+    }
+
+    // guarded by cache
+    private final Map<Key, Entry> cache = new LinkedHashMap<Key, Entry>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+            return size() > PREFERENCE_SIZE.get();
+        }
+    };
+    private long hits;
+    private long misses;
+
+    private LabelLayoutCache() {
+        // Hide default constructor
+    }
+
+    /**
+     * Replies the unique instance.
+     * @return the unique instance
+     */
+    public static LabelLayoutCache getInstance() {
+        return INSTANCE;
+    }
+
+    private Entry get(String text, Font font, FontRenderContext frc) {
+        Key key = new Key(text, font, frc);
+        synchronized (cache) {
+            Entry entry = cache.get(key);
+            if (entry == null) {
+                misses++;
+                entry = new Entry(key);
+                cache.put(key, entry);
+            } else {
+                hits++;
+            }
+            return entry;
+        }
+    }
+
+    /**
+     * Gets the logical bounds of a text, see {@link Font#getStringBounds(String, FontRenderContext)}.
+     * @param text the text
+     * @param font the font
+     * @param frc the font render context
+     * @return a new rectangle with the bounds of the text
+     */
+    public Rectangle2D getStringBounds(String text, Font font, FontRenderContext frc) {
+        return (Rectangle2D) get(text, font, frc).getBounds().clone();
+    }
+
+    /**
+     * Gets the outline of a text, see {@link TextLayout#getOutline(AffineTransform)}.
+     * @param text the text
+     * @param font the font
+     * @param frc the font render context
+     * @param at the transform to apply to the outline
+     * @return the transformed outline of the text
+     */
+    public Shape getOutline(String text, Font font, FontRenderContext frc, AffineTransform at) {
+        return at.createTransformedShape(get(text, font, frc).getOutline());
+    }
+
+    /**
+     * Gets the glyph vectors of a text, one for each bidi run, see {@link Utils#getGlyphVectorsBidi}.
+     * @param text the text
+     * @param font the font
+     * @param frc the font render context
+     * @return new glyph vectors, which may be modified by the caller
+     */
+    public List<GlyphVector> getGlyphVectorsBidi(String text, Font font, FontRenderContext frc) {
+        List<GlyphRun> runs = get(text, font, frc).getGlyphs();
+        List<GlyphVector> gvs = new ArrayList<>(runs.size());
+        for (GlyphRun run : runs) {
+            gvs.add(run.create(font, frc));
+        }
+        return gvs;
+    }
+
+    /**
+     * Gets the number of lookups of a label that was in the cache.
+     * @return the number of cache hits since the last {@link #clear}
+     */
+    public long getHits() {
+        synchronized (cache) {
+            return hits;
+        }
+    }
+
+    /**
+     * Gets the number of lookups of a label that was not in the cache.
+     * @return the number of cache misses since the last {@link #clear}
+     */
+    public long getMisses() {
+        synchronized (cache) {
+            return misses;
+        }
+    }
+
+    /**
+     * Gets the number of labels in the cache.
+     * @return the number of labels
+     */
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    /**
+     * Clears the cache and resets the hit and miss counts.
+     */
+    public void clear() {
+        synchronized (cache) {
+            cache.clear();
+            hits = 0;
+            misses = 0;
+        }
+    }
+}
@@ -2,6 +2,8 @@
 package org.openstreetmap.josm.data.osm.visitor.paint;
 
 import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.util.List;
 import java.util.function.Supplier;
 
@@ -26,6 +28,14 @@ public class RenderBenchmarkCollector {
         // nop
     }
 
+    /**
+     * Notified when the renderer has found the primitives in the view, before their styles are computed.
+     * @param candidates The number of primitives in the view
+     */
+    public void renderCandidates(int candidates) {
+        // nop
+    }
+
     /**
      * Notified when the renderer method starts sorting the styles
      * @return <code>true</code> if the renderer should continue to render
@@ -45,6 +55,24 @@ public class RenderBenchmarkCollector {
         return true;
     }
 
+    /**
+     * Determines if the time to draw each style element is measured, see {@link #renderElement}.
+     * The style elements are then drawn one after the other.
+     * @return <code>true</code> if the renderer should report the time to draw each style element
+     */
+    public boolean isProfilingElements() {
+        return false;
+    }
+
+    /**
+     * Notified when a style element has been drawn, if {@link #isProfilingElements()}.
+     * @param record The style element and its primitive
+     * @param nanos The time to draw it, in nanoseconds
+     */
+    public void renderElement(StyleRecord record, long nanos) {
+        // nop
+    }
+
     /**
      * Notified when the render method is done.
      */
@@ -118,10 +146,14 @@ public class RenderBenchmarkCollector {
     public static class LoggingBenchmark extends RenderBenchmarkCollector.CapturingBenchmark {
         private final PrintStream outStream = System.err;
         private double circum;
+        private long labelHits;
+        private long labelMisses;
 
         @Override
         public void renderStart(double circum) {
             this.circum = circum;
+            labelHits = LabelLayoutCache.getInstance().getHits();
+            labelMisses = LabelLayoutCache.getInstance().getMisses();
             super.renderStart(circum);
             outStream.print("BENCHMARK: rendering ");
         }
@@ -136,18 +168,98 @@ public class RenderBenchmarkCollector {
         @Override
         public void renderDone() {
             super.renderDone();
+            long hits = LabelLayoutCache.getInstance().getHits() - labelHits;
+            long lookups = hits + LabelLayoutCache.getInstance().getMisses() - labelMisses;
             outStream.println("; phase 2 (draw): " + Utils.getDurationString(timeFinished - timeGenerateDone) +
+                    " (label cache hits: " + hits + '/' + lookups + ')' +
                     "; total: " + Utils.getDurationString(timeFinished - timeStart) +
                     " (scale: " + circum + " zoom level: " + Selector.GeneralSelector.scale2level(circum) + ')');
         }
     }
 
+    /**
+     * A benchmark implementation that records the detailed profile of the render pass in the {@link RenderProfile}.
+     * <p>
+     * The memory allocated by the rendering thread is only known on Java virtual machines supporting
+     * {@link com.sun.management.ThreadMXBean#getThreadAllocatedBytes(long)}. It does not include the memory allocated
+     * by the threads computing the styles in parallel.
+     */
+    public static class ProfilingBenchmark extends RenderBenchmarkCollector {
+        private final RenderProfile profile = RenderProfile.getInstance();
+        private double circum;
+        private int candidates;
+        private int drawn;
+        private long timeStart;
+        private long timeGenerateDone;
+        private long timeSortingDone;
+        private long allocatedStart;
+
+        @Override
+        public void renderStart(double circum) {
+            this.circum = circum;
+            allocatedStart = getAllocatedBytes();
+            timeStart = System.nanoTime();
+            super.renderStart(circum);
+        }
+
+        @Override
+        public void renderCandidates(int candidates) {
+            this.candidates = candidates;
+        }
+
+        @Override
+        public boolean renderSort() {
+            timeGenerateDone = System.nanoTime();
+            return super.renderSort();
+        }
+
+        @Override
+        public boolean renderDraw(List<StyleRecord> allStyleElems) {
+            timeSortingDone = System.nanoTime();
+            drawn = (int) allStyleElems.stream().map(StyleRecord::getPrimitive).distinct().count();
+            return super.renderDraw(allStyleElems);
+        }
+
+        @Override
+        public boolean isProfilingElements() {
+            return true;
+        }
+
+        @Override
+        public void renderElement(StyleRecord record, long nanos) {
+            profile.addElement(record.getStyle(), nanos);
+        }
+
+        @Override
+        public void renderDone() {
+            long timeFinished = System.nanoTime();
+            long allocated = allocatedStart < 0 ? -1 : getAllocatedBytes() - allocatedStart;
+            super.renderDone();
+            profile.addFrame(new RenderProfile.Frame(circum, candidates, drawn, timeGenerateDone - timeStart,
+                    timeSortingDone - timeGenerateDone, timeFinished - timeSortingDone, allocated));
+            profile.scheduleWrite();
+        }
+
+        private static long getAllocatedBytes() {
+            ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if (bean instanceof com.sun.management.ThreadMXBean) {
+                return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+            return -1;
+        }
+    }
+
     /**
      * A supplier that gets the default benchmark class.
-     * @return A supplier that returns a nop or a logging benchmark.
+     * @return A supplier that returns a nop, a logging or a profiling benchmark.
      */
     public static Supplier<RenderBenchmarkCollector> defaultBenchmarkSupplier() {
-        return () -> Logging.isTraceEnabled() || Config.getPref().getBoolean("mappaint.render.benchmark", false)
+        return () -> {
+            if (RenderProfile.isEnabled()) {
+                return new ProfilingBenchmark();
+            }
+            return Logging.isTraceEnabled() || Config.getPref().getBoolean("mappaint.render.benchmark", false)
                 ? new LoggingBenchmark() : new RenderBenchmarkCollector();
+        };
     }
 }
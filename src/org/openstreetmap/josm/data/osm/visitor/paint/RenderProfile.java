@@ -0,0 +1,400 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm.visitor.paint;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.json.Json;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonObjectBuilder;
+import javax.json.stream.JsonGenerator;
+
+import org.openstreetmap.josm.data.preferences.AbstractProperty;
+import org.openstreetmap.josm.data.preferences.BooleanProperty;
+import org.openstreetmap.josm.data.preferences.StringProperty;
+import org.openstreetmap.josm.gui.mappaint.StyleSource;
+import org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSRule;
+import org.openstreetmap.josm.gui.mappaint.styleelement.StyleElement;
+import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * A detailed profile of the map rendering, to find out which parts of a style make it slow.
+ * <p>
+ * When enabled, the time spent is attributed to each MapCSS rule (matching the selector and executing the
+ * declaration), to each {@link StyleElement} type (drawing) and to each layer (painting). For each frame, the number of
+ * primitives in the view, the number of primitives drawn, the time of the render phases and the memory allocated by
+ * the rendering thread are recorded. The totals are kept until {@link #reset()}, which is called when the styles change.
+ * <p>
+ * Styles are cached on the primitives, so the rules are only evaluated when the styles are computed again, e.g. after
+ * the style or the zoom level has changed.
+ * <p>
+ * This class is thread safe.
+ * @see RenderBenchmarkCollector.ProfilingBenchmark
+ */
+public final class RenderProfile {
+
+    /**
+     * Preference to enable the profiling of the map rendering
+     */
+    public static final AbstractProperty<Boolean> PREFERENCE_ENABLED = new BooleanProperty("mappaint.render.profile", false).cached();
+
+    /**
+     * Preference for the file the profile is written to as JSON, if not empty, see {@link #scheduleWrite()}
+     */
+    public static final AbstractProperty<String> PREFERENCE_FILE = new StringProperty("mappaint.render.profile.file", "").cached();
+
+    /** The minimum time in seconds between two writes of the profile file */
+    private static final long WRITE_INTERVAL = 5;
+
+    private static final RenderProfile INSTANCE = new RenderProfile();
+
+    private final ScheduledExecutorService fileWriter = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "render-profile-writer");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+    private final AtomicBoolean writeScheduled = new AtomicBoolean();
+
+    /**
+     * Time spent and number of calls for one rule, element type or layer.
+     */
+    private static final class Timing {
+        private final String name;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder matches = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+
+        Timing(String name) {
+            this.name = name;
+        }
+
+        void add(long time, boolean matched) {
+            count.increment();
+            nanos.add(time);
+            if (matched) {
+                matches.increment();
+            }
+        }
+
+        long getNanos() {
+            return nanos.sum();
+        }
+    }
+
+    private final Map<MapCSSRule, Timing> rules = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Timing> elements = new ConcurrentHashMap<>();
+    private final Map<String, Timing> layers = new ConcurrentHashMap<>();
+
+    // guarded by this
+    private long frames;
+    private long candidates;
+    private long drawn;
+    private long allocatedBytes;
+    private Frame lastFrame;
+
+    /**
+     * The statistics of one rendered frame.
+     */
+    public static final class Frame {
+        final double circum;
+        final int candidates;
+        final int drawn;
+        final long generateNanos;
+        final long sortNanos;
+        final long drawNanos;
+        final long allocatedBytes;
+
+        /**
+         * Constructs a new {@code Frame}.
+         * @param circum the circum of the view
+         * @param candidates the number of primitives in the view
+         * @param drawn the number of primitives drawn, the other primitives have been culled
+         * @param generateNanos the time to compute the styles
+         * @param sortNanos the time to sort the styles
+         * @param drawNanos the time to draw the styles
+         * @param allocatedBytes the memory allocated by the rendering thread, or {@code -1} if unknown
+         */
+        public Frame(double circum, int candidates, int drawn, long generateNanos, long sortNanos, long drawNanos,
+                long allocatedBytes) {
+            this.circum = circum;
+            this.candidates = candidates;
+            this.drawn = drawn;
+            this.generateNanos = generateNanos;
+            this.sortNanos = sortNanos;
+            this.drawNanos = drawNanos;
+            this.allocatedBytes = allocatedBytes;
+        }
+    }
+
+    private RenderProfile() {
+        // Hide default constructor
+    }
+
+    /**
+     * Replies the unique instance.
+     * @return the unique instance
+     */
+    public static RenderProfile getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Determines if the rendering is profiled.
+     * @return {@code true} if the profiling is enabled
+     */
+    public static boolean isEnabled() {
+        return PREFERENCE_ENABLED.get();
+    }
+
+    /**
+     * Records the evaluation of a rule for one primitive.
+     * @param source the style source of the rule
+     * @param rule the rule
+     * @param nanos the time to match the selector and to execute the declaration
+     * @param matched {@code true} if the selector has matched
+     */
+    public void addRule(StyleSource source, MapCSSRule rule, long nanos, boolean matched) {
+        rules.computeIfAbsent(rule, r -> new Timing(source.getDisplayString() + ": " + r.selector)).add(nanos, matched);
+    }
+
+    /**
+     * Wraps the rule candidates of a primitive, to record the time of each rule with {@link #addRule}.
+     * @param source the style source of the rules
+     * @param candidates the rule candidates
+     * @return the rule candidates, timed while they are iterated
+     */
+    public RuleTimer timeRules(StyleSource source, Iterator<MapCSSRule> candidates) {
+        return new RuleTimer(source, candidates);
+    }
+
+    /**
+     * An iterator over rules that attributes the time until the next rule is requested to the current rule.
+     */
+    public final class RuleTimer implements Iterator<MapCSSRule> {
+        private final StyleSource source;
+        private final Iterator<MapCSSRule> candidates;
+        private MapCSSRule rule;
+        private long start;
+        private boolean matched;
+
+        private RuleTimer(StyleSource source, Iterator<MapCSSRule> candidates) {
+            this.source = source;
+            this.candidates = candidates;
+        }
+
+        /**
+         * Notifies that the selector of the current rule has matched.
+         */
+        public void matched() {
+            matched = true;
+        }
+
+        private void stop() {
+            if (rule != null) {
+                addRule(source, rule, System.nanoTime() - start, matched);
+                rule = null;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            boolean hasNext = candidates.hasNext();
+            if (!hasNext) {
+                stop();
+            }
+            return hasNext;
+        }
+
+        @Override
+        public MapCSSRule next() {
+            stop();
+            MapCSSRule next = candidates.next();
+            rule = next;
+            matched = false;
+            start = System.nanoTime();
+            return next;
+        }
+    }
+
+    /**
+     * Records the drawing of a style element.
+     * @param style the style element
+     * @param nanos the time to draw it
+     */
+    public void addElement(StyleElement style, long nanos) {
+        elements.computeIfAbsent(style.getClass(), c -> new Timing(c.getSimpleName())).add(nanos, true);
+    }
+
+    /**
+     * Records the painting of a layer.
+     * @param layer the name of the layer
+     * @param nanos the time to paint it
+     */
+    public void addLayer(String layer, long nanos) {
+        layers.computeIfAbsent(layer, Timing::new).add(nanos, true);
+    }
+
+    /**
+     * Records a rendered frame.
+     * @param frame the statistics of the frame
+     */
+    public synchronized void addFrame(Frame frame) {
+        frames++;
+        candidates += frame.candidates;
+        drawn += frame.drawn;
+        if (frame.allocatedBytes > 0) {
+            allocatedBytes += frame.allocatedBytes;
+        }
+        lastFrame = frame;
+    }
+
+    /**
+     * Forgets all recorded data.
+     */
+    public synchronized void reset() {
+        rules.clear();
+        elements.clear();
+        layers.clear();
+        frames = 0;
+        candidates = 0;
+        drawn = 0;
+        allocatedBytes = 0;
+        lastFrame = null;
+    }
+
+    private static List<Timing> sorted(Map<?, Timing> map) {
+        List<Timing> list = new ArrayList<>(map.values());
+        list.sort(Comparator.comparingLong(Timing::getNanos).reversed());
+        return list;
+    }
+
+    private static String ms(long nanos) {
+        return String.format(Locale.ROOT, "%.1f", nanos / 1e6);
+    }
+
+    /**
+     * Gets a summary of the profile, as HTML to display on the map.
+     * @param top the number of rules and element types to show
+     * @return the summary
+     */
+    public synchronized String getSummary(int top) {
+        StringBuilder sb = new StringBuilder("<html><b>").append(tr("Render profile")).append("</b>");
+        if (lastFrame != null) {
+            sb.append("<br>").append(tr("Last frame: styles {0} ms, sort {1} ms, draw {2} ms",
+                    ms(lastFrame.generateNanos), ms(lastFrame.sortNanos), ms(lastFrame.drawNanos)))
+              .append("<br>").append(tr("{0} of {1} primitives drawn, {2} culled",
+                    lastFrame.drawn, lastFrame.candidates, lastFrame.candidates - lastFrame.drawn));
+            if (lastFrame.allocatedBytes >= 0) {
+                sb.append("<br>").append(tr("{0} allocated", Utils.getSizeString(lastFrame.allocatedBytes, Locale.getDefault())));
+            }
+        }
+        appendTable(sb, tr("Slowest rules"), sorted(rules), top);
+        appendTable(sb, tr("Slowest style elements"), sorted(elements), top);
+        appendTable(sb, tr("Layers"), sorted(layers), top);
+        return sb.append("</html>").toString();
+    }
+
+    private static void appendTable(StringBuilder sb, String title, List<Timing> timings, int top) {
+        if (timings.isEmpty())
+            return;
+        sb.append("<br><b>").append(title).append("</b><table>");
+        for (Timing t : timings.subList(0, Math.min(top, timings.size()))) {
+            sb.append("<tr><td>").append(Utils.escapeReservedCharactersHTML(Utils.shortenString(t.name, 60)))
+              .append("</td><td align=right>").append(ms(t.getNanos())).append(" ms</td><td align=right>")
+              .append(t.count.sum()).append("</td></tr>");
+        }
+        sb.append("</table>");
+    }
+
+    /**
+     * Schedules writing the profile to the file of {@link #PREFERENCE_FILE} in a background thread, unless a write
+     * is already pending. The file is written at most once per {@link #WRITE_INTERVAL} seconds.
+     */
+    public void scheduleWrite() {
+        if (!Utils.isStripEmpty(PREFERENCE_FILE.get()) && writeScheduled.compareAndSet(false, true)) {
+            fileWriter.schedule(() -> {
+                writeScheduled.set(false);
+                writeFile();
+            }, WRITE_INTERVAL, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Writes the profile to the file of {@link #PREFERENCE_FILE} now, if set.
+     */
+    public void writeFile() {
+        String file = PREFERENCE_FILE.get();
+        if (!Utils.isStripEmpty(file)) {
+            try (Writer writer = Files.newBufferedWriter(Paths.get(file), StandardCharsets.UTF_8)) {
+                writeJson(writer);
+            } catch (IOException | InvalidPathException e) {
+                Logging.warn(e);
+            }
+        }
+    }
+
+    /**
+     * Writes the profile as JSON.
+     * @param writer the writer
+     */
+    public synchronized void writeJson(Writer writer) {
+        JsonObjectBuilder json = Json.createObjectBuilder()
+                .add("frames", frames)
+                .add("candidates", candidates)
+                .add("drawn", drawn)
+                .add("culled", candidates - drawn)
+                .add("allocatedBytes", allocatedBytes);
+        if (lastFrame != null) {
+            json.add("lastFrame", Json.createObjectBuilder()
+                    .add("circum", lastFrame.circum)
+                    .add("candidates", lastFrame.candidates)
+                    .add("drawn", lastFrame.drawn)
+                    .add("generateMs", lastFrame.generateNanos / 1e6)
+                    .add("sortMs", lastFrame.sortNanos / 1e6)
+                    .add("drawMs", lastFrame.drawNanos / 1e6)
+                    .add("allocatedBytes", lastFrame.allocatedBytes));
+        }
+        json.add("rules", toJson(sorted(rules), "selector", true))
+            .add("elements", toJson(sorted(elements), "type", false))
+            .add("layers", toJson(sorted(layers), "layer", false));
+        try (JsonGenerator generator = Json.createGeneratorFactory(
+                Collections.singletonMap(JsonGenerator.PRETTY_PRINTING, true)).createGenerator(writer)) {
+            generator.write(json.build());
+        }
+    }
+
+    private static JsonArrayBuilder toJson(List<Timing> timings, String nameKey, boolean withMatches) {
+        JsonArrayBuilder array = Json.createArrayBuilder();
+        for (Timing t : timings) {
+            JsonObjectBuilder o = Json.createObjectBuilder()
+                    .add(nameKey, t.name)
+                    .add("count", t.count.sum());
+            if (withMatches) {
+                o.add("matches", t.matches.sum());
+            }
+            array.add(o.add("ms", t.getNanos() / 1e6));
+        }
+        return array;
+    }
+}
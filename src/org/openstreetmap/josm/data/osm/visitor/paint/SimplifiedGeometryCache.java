@@ -0,0 +1,367 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm.visitor.paint;
+
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.INode;
+import org.openstreetmap.josm.data.osm.IWay;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataSetListener;
+import org.openstreetmap.josm.data.osm.event.NodeMovedEvent;
+import org.openstreetmap.josm.data.osm.event.PrimitivesAddedEvent;
+import org.openstreetmap.josm.data.osm.event.PrimitivesRemovedEvent;
+import org.openstreetmap.josm.data.osm.event.RelationMembersChangedEvent;
+import org.openstreetmap.josm.data.osm.event.TagsChangedEvent;
+import org.openstreetmap.josm.data.osm.event.WayNodesChangedEvent;
+import org.openstreetmap.josm.data.preferences.AbstractProperty;
+import org.openstreetmap.josm.data.preferences.BooleanProperty;
+import org.openstreetmap.josm.data.preferences.DoubleProperty;
+import org.openstreetmap.josm.data.projection.Projection;
+import org.openstreetmap.josm.data.projection.ProjectionChangeListener;
+import org.openstreetmap.josm.data.projection.ProjectionRegistry;
+import org.openstreetmap.josm.gui.MainApplication;
+import org.openstreetmap.josm.gui.layer.LayerManager.LayerAddEvent;
+import org.openstreetmap.josm.gui.layer.LayerManager.LayerChangeListener;
+import org.openstreetmap.josm.gui.layer.LayerManager.LayerOrderChangeEvent;
+import org.openstreetmap.josm.gui.layer.LayerManager.LayerRemoveEvent;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+
+/**
+ * A memory cache for way geometry simplified to a lower level of detail.
+ * <p>
+ * When zoomed out, many nodes of a way fall into the same pixel. The renderer then uses the projected way geometry
+ * simplified with the Douglas-Peucker algorithm, with a tolerance below one pixel. The tolerance is rounded down to a
+ * power of two (the zoom band), so that the same simplified geometry is used while zooming within the band.
+ * Only the geometry of the last used band is kept for each way, and only if it has noticeably fewer points.
+ * <p>
+ * Entries are invalidated by the dataset events of the data layers and by projection changes.
+ */
+public final class SimplifiedGeometryCache implements DataSetListener, LayerChangeListener, ProjectionChangeListener {
+
+    /**
+     * Indicates that the renderer should use simplified geometry when zoomed out.
+     */
+    public static final AbstractProperty<Boolean> PREFERENCE_LOD = new BooleanProperty("mappaint.lod", true).cached();
+    /**
+     * The maximum distance in pixels between the simplified and the original geometry.
+     */
+    private static final AbstractProperty<Double> PREFERENCE_TOLERANCE = new DoubleProperty("mappaint.lod.tolerance", 0.5).cached();
+    /**
+     * Ways with fewer nodes are never simplified
+     */
+    private static final int MIN_NODES = 8;
+    /**
+     * The simplified geometry is only used if it has at most this ratio of the original points
+     */
+    private static final double MAX_RATIO = 0.75;
+
+    private static final SimplifiedGeometryCache INSTANCE = new SimplifiedGeometryCache();
+
+    /** Marks a way whose geometry cannot be simplified enough in a given band */
+    private static final double[] NOT_SIMPLIFIED = new double[0];
+
+    private final Map<DataSet, Map<Way, Entry>> cache = new ConcurrentHashMap<>();
+
+    private static final class Entry {
+        private final double tolerance;
+        private final double[] coordinates;
+
+        Entry(double tolerance, double[] coordinates) {
+            this.tolerance = tolerance;
+            this.coordinates = coordinates;
+        }
+    }
+
+    private SimplifiedGeometryCache() {
+        ProjectionRegistry.addProjectionChangeListener(this);
+        MainApplication.getLayerManager().addLayerChangeListener(this);
+    }
+
+    /**
+     * Replies the unique instance.
+     * @return the unique instance
+     */
+    public static SimplifiedGeometryCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Gets the simplification tolerance to use at the given scale.
+     * @param scale the scale, in east/north units per pixel
+     * @return the tolerance in east/north units, rounded down to a power of two times the configured pixel tolerance.
+     * 0 if simplification is disabled.
+     */
+    public static double getTolerance(double scale) {
+        double pixelTolerance = PREFERENCE_TOLERANCE.get();
+        if (!PREFERENCE_LOD.get() || !(scale > 0) || !(pixelTolerance > 0) || Double.isInfinite(scale)) {
+            return 0;
+        }
+        return Math.scalb(pixelTolerance, Math.getExponent(scale));
+    }
+
+    /**
+     * Gets the simplified geometry of a way.
+     * @param w the way
+     * @param tolerance the tolerance, see {@link #getTolerance}
+     * @return the east/north coordinates of the simplified way, as x/y pairs,
+     * or {@code null} if the way nodes should be used as they are
+     */
+    public double[] get(IWay<?> w, double tolerance) {
+        if (tolerance <= 0 || !(w instanceof Way) || w.getNodesCount() < MIN_NODES) {
+            return null;
+        }
+        Way way = (Way) w;
+        DataSet ds = way.getDataSet();
+        if (ds == null) {
+            return null;
+        }
+        Map<Way, Entry> map = cache.computeIfAbsent(ds, k -> new ConcurrentHashMap<>());
+        Entry entry = map.get(way);
+        if (entry == null || entry.tolerance != tolerance) {
+            entry = new Entry(tolerance, simplify(way, tolerance));
+            map.put(way, entry);
+        }
+        return entry.coordinates == NOT_SIMPLIFIED ? null : entry.coordinates;
+    }
+
+    private static double[] simplify(IWay<?> w, double tolerance) {
+        double[] coordinates = new double[2 * w.getNodesCount()];
+        int count = 0;
+        for (INode n : w.getNodes()) {
+            EastNorth en = n.isLatLonKnown() ? n.getEastNorth() : null;
+            if (en != null) {
+                coordinates[2 * count] = en.east();
+                coordinates[2 * count + 1] = en.north();
+                count++;
+            }
+        }
+        int simplified = simplify(coordinates, count, tolerance);
+        if (simplified > MAX_RATIO * count || (w.isClosed() && simplified < 4)) {
+            return NOT_SIMPLIFIED;
+        }
+        return Arrays.copyOf(coordinates, 2 * simplified);
+    }
+
+    /**
+     * Simplifies a path in east/north space, each sub path separately.
+     * Closed sub paths that would collapse are kept as they are.
+     * @param path the path
+     * @param tolerance the tolerance, see {@link #getTolerance}
+     * @return the simplified path, with the same winding rule
+     */
+    public static Path2D.Double simplify(Path2D.Double path, double tolerance) {
+        Path2D.Double result = new Path2D.Double(path.getWindingRule());
+        double[] coordinates = new double[64];
+        int count = 0;
+        double[] segment = new double[6];
+        for (PathIterator it = path.getPathIterator(null); !it.isDone(); it.next()) {
+            int type = it.currentSegment(segment);
+            if (type == PathIterator.SEG_MOVETO && count > 0) {
+                appendSimplified(result, coordinates, count, false, tolerance);
+                count = 0;
+            }
+            if (type == PathIterator.SEG_MOVETO || type == PathIterator.SEG_LINETO) {
+                if (2 * count + 2 > coordinates.length) {
+                    coordinates = Arrays.copyOf(coordinates, 2 * coordinates.length);
+                }
+                coordinates[2 * count] = segment[0];
+                coordinates[2 * count + 1] = segment[1];
+                count++;
+            } else if (type == PathIterator.SEG_CLOSE && count > 0) {
+                appendSimplified(result, coordinates, count, true, tolerance);
+                count = 0;
+            }
+        }
+        if (count > 0) {
+            appendSimplified(result, coordinates, count, false, tolerance);
+        }
+        return result;
+    }
+
+    private static void appendSimplified(Path2D.Double result, double[] coordinates, int count, boolean closed, double tolerance) {
+        int simplified = count;
+        if (count >= MIN_NODES) {
+            double[] copy = Arrays.copyOf(coordinates, 2 * count);
+            simplified = simplify(copy, count, tolerance);
+            if (!closed || simplified >= 3) {
+                System.arraycopy(copy, 0, coordinates, 0, 2 * simplified);
+            } else {
+                simplified = count;
+            }
+        }
+        result.moveTo(coordinates[0], coordinates[1]);
+        for (int i = 1; i < simplified; i++) {
+            result.lineTo(coordinates[2 * i], coordinates[2 * i + 1]);
+        }
+        if (closed) {
+            result.closePath();
+        }
+    }
+
+    /**
+     * Simplifies a polyline in place, using the Douglas-Peucker algorithm. The first and last point are always kept.
+     * @param coordinates the x/y pairs of the points
+     * @param count the number of points
+     * @param tolerance the maximum distance of a removed point to the simplified line
+     * @return the number of points that were kept, at the start of the array
+     */
+    static int simplify(double[] coordinates, int count, double tolerance) {
+        if (count < 3) {
+            return count;
+        }
+        boolean[] keep = new boolean[count];
+        keep[0] = true;
+        keep[count - 1] = true;
+        int[] stack = new int[2 * count];
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = count - 1;
+        double toleranceSq = tolerance * tolerance;
+        while (top > 0) {
+            int last = stack[--top];
+            int first = stack[--top];
+            double maxDistSq = -1;
+            int farthest = -1;
+            for (int i = first + 1; i < last; i++) {
+                double distSq = segmentDistanceSq(coordinates, i, first, last);
+                if (distSq > maxDistSq) {
+                    maxDistSq = distSq;
+                    farthest = i;
+                }
+            }
+            if (farthest >= 0 && maxDistSq > toleranceSq) {
+                keep[farthest] = true;
+                stack[top++] = first;
+                stack[top++] = farthest;
+                stack[top++] = farthest;
+                stack[top++] = last;
+            }
+        }
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            if (keep[i]) {
+                coordinates[2 * kept] = coordinates[2 * i];
+                coordinates[2 * kept + 1] = coordinates[2 * i + 1];
+                kept++;
+            }
+        }
+        return kept;
+    }
+
+    private static double segmentDistanceSq(double[] c, int point, int first, int last) {
+        double x = c[2 * point];
+        double y = c[2 * point + 1];
+        double x1 = c[2 * first];
+        double y1 = c[2 * first + 1];
+        double dx = c[2 * last] - x1;
+        double dy = c[2 * last + 1] - y1;
+        double lengthSq = dx * dx + dy * dy;
+        double t = lengthSq > 0 ? ((x - x1) * dx + (y - y1) * dy) / lengthSq : 0;
+        t = Math.max(0, Math.min(1, t));
+        double px = x1 + t * dx - x;
+        double py = y1 + t * dy - y;
+        return px * px + py * py;
+    }
+
+    /**
+     * Clears the cache for the given dataset.
+     * @param ds the data set
+     */
+    public void clear(DataSet ds) {
+        cache.remove(ds);
+    }
+
+    /**
+     * Clears the whole cache.
+     */
+    public void clear() {
+        cache.clear();
+    }
+
+    private void remove(DataSet ds, OsmPrimitive p) {
+        Map<Way, Entry> map = cache.get(ds);
+        if (map != null) {
+            if (p instanceof Way) {
+                map.remove(p);
+            } else {
+                for (OsmPrimitive ref : p.getReferrers()) {
+                    if (ref instanceof Way) {
+                        map.remove(ref);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void primitivesAdded(PrimitivesAddedEvent event) {
+        // Do nothing
+    }
+
+    @Override
+    public void primitivesRemoved(PrimitivesRemovedEvent event) {
+        event.getPrimitives().forEach(p -> remove(event.getDataset(), p));
+    }
+
+    @Override
+    public void tagsChanged(TagsChangedEvent event) {
+        // Do nothing
+    }
+
+    @Override
+    public void nodeMoved(NodeMovedEvent event) {
+        remove(event.getDataset(), event.getNode());
+    }
+
+    @Override
+    public void wayNodesChanged(WayNodesChangedEvent event) {
+        remove(event.getDataset(), event.getChangedWay());
+    }
+
+    @Override
+    public void relationMembersChanged(RelationMembersChangedEvent event) {
+        // Do nothing
+    }
+
+    @Override
+    public void otherDatasetChange(AbstractDatasetChangedEvent event) {
+        // Do nothing
+    }
+
+    @Override
+    public void dataChanged(DataChangedEvent event) {
+        // Sent e.g. when undoing a move of a large number of nodes, without NodeMovedEvent
+        clear(event.getDataset());
+    }
+
+    @Override
+    public void layerAdded(LayerAddEvent e) {
+        // Do nothing
+    }
+
+    @Override
+    public void layerOrderChanged(LayerOrderChangeEvent e) {
+        // Do nothing
+    }
+
+    @Override
+    public void layerRemoving(LayerRemoveEvent e) {
+        if (e.getRemovedLayer() instanceof OsmDataLayer) {
+            clear(((OsmDataLayer) e.getRemovedLayer()).data);
+        }
+    }
+
+    @Override
+    public void projectionChanged(Projection oldValue, Projection newValue) {
+        clear();
+    }
+}
@@ -7,7 +7,6 @@ import java.awt.Color;
 import java.awt.Component;
 import java.awt.Dimension;
 import java.awt.Font;
-import java.awt.FontMetrics;
 import java.awt.Graphics2D;
 import java.awt.Image;
 import java.awt.Point;
@@ -18,27 +17,32 @@ import java.awt.TexturePaint;
 import java.awt.font.FontRenderContext;
 import java.awt.font.GlyphVector;
 import java.awt.font.LineMetrics;
-import java.awt.font.TextLayout;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Path2D;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.awt.geom.RoundRectangle2D;
 import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
+import java.util.stream.IntStream;
 
 import javax.swing.AbstractButton;
 import javax.swing.FocusManager;
@@ -77,6 +81,7 @@ import org.openstreetmap.josm.gui.mappaint.styleelement.MapImage;
 import org.openstreetmap.josm.gui.mappaint.styleelement.RepeatImageElement.LineImageAlignment;
 import org.openstreetmap.josm.gui.mappaint.styleelement.StyleElement;
 import org.openstreetmap.josm.gui.mappaint.styleelement.Symbol;
+import org.openstreetmap.josm.gui.mappaint.styleelement.TextElement;
 import org.openstreetmap.josm.gui.mappaint.styleelement.TextLabel;
 import org.openstreetmap.josm.gui.mappaint.styleelement.placement.PositionForAreaStrategy;
 import org.openstreetmap.josm.spi.preferences.Config;
@@ -217,6 +222,14 @@ public class StyledMapRenderer extends AbstractMapRenderer {
             return style;
         }
 
+        /**
+         * Get the primitive painted with the style.
+         * @return The primitive
+         */
+        public IPrimitive getPrimitive() {
+            return osm;
+        }
+
         /**
          * Paints the primitive with the style.
          * @param paintSettings The settings to use.
@@ -239,7 +252,7 @@ public class StyledMapRenderer extends AbstractMapRenderer {
         }
     }
 
-    private static final Map<Font, Boolean> IS_GLYPH_VECTOR_DOUBLE_TRANSLATION_BUG = new HashMap<>();
+    private static final Map<Font, Boolean> IS_GLYPH_VECTOR_DOUBLE_TRANSLATION_BUG = new ConcurrentHashMap<>();
 
     /**
      * Check, if this System has the GlyphVector double translation bug.
@@ -340,6 +353,33 @@ public class StyledMapRenderer extends AbstractMapRenderer {
      */
     public static final AbstractProperty<String> PREFERENCE_TEXT_ANTIALIASING
             = new StringProperty("mappaint.text-antialiasing", "default").cached();
+    /**
+     * Indicates that the style records should be drawn in parallel, in horizontal tiles of the target image.
+     * This is only done if the target image has been set, see {@link #setTargetImage}.
+     */
+    public static final AbstractProperty<Boolean> PREFERENCE_TILED_DRAWING
+            = new BooleanProperty("mappaint.render.tiled", false).cached();
+    /**
+     * The minimum distance in pixels a style element may be painted outside of the bounds of its primitive,
+     * used for style elements that do not know their extent. Used to decide which primitives have to be drawn in a tile.
+     */
+    private static final AbstractProperty<Integer> TILE_MARGIN = new IntegerProperty("mappaint.render.tiled.margin", 100).cached();
+    /**
+     * The minimum height of a tile in pixels
+     */
+    private static final int MIN_TILE_HEIGHT = 64;
+    /**
+     * Indicates that labels overlapping other labels are not drawn, see {@link LabelCollisionIndex}.
+     * Labels with a higher major z-index and labels of larger primitives are placed first.
+     */
+    public static final AbstractProperty<Boolean> PREFERENCE_LABEL_COLLISION
+            = new BooleanProperty("mappaint.label.collision", false).cached();
+    /**
+     * The order in which labels are placed: higher major z-index first, then larger primitives first
+     */
+    private static final Comparator<StyleRecord> LABEL_PRIORITY = Comparator
+            .<StyleRecord>comparingDouble(r -> -r.style.majorZIndex)
+            .thenComparingDouble(r -> -getArea(r.osm.getBBox()));
 
     /**
      * The line with to use for highlighting
@@ -361,9 +401,57 @@ public class StyledMapRenderer extends AbstractMapRenderer {
 
     private boolean leftHandTraffic;
     private Object antialiasing;
+    /**
+     * The tolerance for the simplified geometry of ways and multipolygons, in east/north units. 0 to use the full geometry.
+     */
+    private double lodTolerance;
 
     private Supplier<RenderBenchmarkCollector> benchmarkFactory = RenderBenchmarkCollector.defaultBenchmarkSupplier();
 
+    private BufferedImage targetImage;
+    /**
+     * The regions of the target image to draw in device space, {@code null} to draw the whole clip
+     */
+    private List<Rectangle> regions;
+
+    private LabelCollisionIndex labelIndex;
+    /**
+     * The index the labels are currently placed in by {@link #placeLabels}, {@code null} when drawing
+     */
+    private LabelCollisionIndex placingIndex;
+    /**
+     * The labels placed by {@link #placeLabels}, drawn when their style record is painted.
+     * {@code null} if labels are drawn without collision detection.
+     */
+    private Map<LabelKey, List<Consumer<StyledMapRenderer>>> placedLabels;
+
+    /**
+     * Key of a label in the label index and in {@link #placedLabels}. Text styles are compared by identity, since a primitive
+     * may have several text style elements with equal text styles, e.g. on different layers, which are separate labels.
+     */
+    private static final class LabelKey {
+        private final IPrimitive osm;
+        private final TextLabel text;
+
+        LabelKey(IPrimitive osm, TextLabel text) {
+            this.osm = osm;
+            this.text = text;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * osm.hashCode() + System.identityHashCode(text);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (obj == null || getClass() != obj.getClass()) return false;
+            LabelKey that = (LabelKey) obj;
+            return text == that.text && osm.equals(that.osm);
+        }
+    }
+
     /**
      * Constructs a new {@code StyledMapRenderer}.
      *
@@ -389,6 +477,76 @@ public class StyledMapRenderer extends AbstractMapRenderer {
         this.styles = styles;
     }
 
+    /**
+     * Sets the image the graphics context of this renderer paints into.
+     * <p>
+     * If it is known and {@link #PREFERENCE_TILED_DRAWING} is enabled, the style records are drawn in parallel:
+     * each thread draws the primitives near a horizontal tile of the image into an image of the same size, and its
+     * tile is then copied back. The result is the same as when drawing sequentially, at the cost of one image per thread.
+     * @param targetImage the image that is the destination of the graphics context, or {@code null} if unknown
+     */
+    public void setTargetImage(BufferedImage targetImage) {
+        this.targetImage = targetImage;
+    }
+
+    /**
+     * Sets the regions of the target image to draw, e.g. the dirty regions of a retained image.
+     * <p>
+     * The styles are computed and the labels are placed once for all regions. Then each region is drawn like a tile,
+     * see {@link #setTargetImage}, with a rectangular clip. The content of the regions is replaced. This is only done
+     * if the target image has been set.
+     * @param regions the regions in device space, or {@code null} to draw the whole clip of the graphics context
+     */
+    public void setRegions(List<Rectangle> regions) {
+        this.regions = regions;
+    }
+
+    /**
+     * Sets the label index to use if {@link #PREFERENCE_LABEL_COLLISION} is enabled.
+     * <p>
+     * The index may be kept by the caller and passed again for the next paint, as long as the view is only panned and
+     * the index is updated accordingly. Otherwise a new index is used for each paint.
+     * @param labelIndex the label index, or {@code null} to use a new one
+     */
+    public void setLabelCollisionIndex(LabelCollisionIndex labelIndex) {
+        this.labelIndex = labelIndex;
+    }
+
+    /**
+     * Creates a renderer for a tile of the target image, with the same settings as this renderer.
+     * @param tileGraphics the graphics context of the tile
+     * @return the tile renderer
+     */
+    private StyledMapRenderer createTileRenderer(Graphics2D tileGraphics) {
+        StyledMapRenderer renderer = new StyledMapRenderer(tileGraphics, nc, isInactiveMode);
+        renderer.backgroundColor = backgroundColor;
+        renderer.inactiveColor = inactiveColor;
+        renderer.selectedColor = selectedColor;
+        renderer.relationSelectedColor = relationSelectedColor;
+        renderer.nodeColor = nodeColor;
+        renderer.highlightColor = highlightColor;
+        renderer.virtualNodeSize = virtualNodeSize;
+        renderer.virtualNodeSpace = virtualNodeSpace;
+        renderer.segmentNumberSpace = segmentNumberSpace;
+        renderer.doSlowOperations = doSlowOperations;
+        renderer.circum = circum;
+        renderer.scale = scale;
+        renderer.paintSettings = paintSettings;
+        renderer.styles = styles;
+        renderer.highlightColorTransparent = highlightColorTransparent;
+        renderer.highlightWaySegments = highlightWaySegments;
+        renderer.useWiderHighlight = useWiderHighlight;
+        renderer.useStrokes = useStrokes;
+        renderer.showNames = showNames;
+        renderer.showIcons = showIcons;
+        renderer.isOutlineOnly = isOutlineOnly;
+        renderer.leftHandTraffic = leftHandTraffic;
+        renderer.antialiasing = antialiasing;
+        renderer.lodTolerance = lodTolerance;
+        renderer.placedLabels = placedLabels;
+        return renderer;
+    }
+
     private void displaySegments(MapViewPath path, Path2D orientationArrows, Path2D onewayArrows, Path2D onewayArrowsCasing,
             Color color, BasicStroke line, BasicStroke dashes, Color dashedColor) {
         g.setColor(isInactiveMode ? inactiveColor : color);
@@ -515,7 +673,7 @@ public class StyledMapRenderer extends AbstractMapRenderer {
                 if (!isAreaVisible(pd.get())) {
                     continue;
                 }
-                MapViewPath p = shapeEastNorthToMapView(pd.get());
+                MapViewPath p = shapeEastNorthToMapView(pd.getSimplified(lodTolerance));
                 MapViewPath pfClip = null;
                 if (extent != null) {
                     if (!usePartialFill(pd.getAreaAndPerimeter(null), extent, extentThreshold)) {
@@ -606,7 +764,7 @@ public class StyledMapRenderer extends AbstractMapRenderer {
      * @param bs The text and it's alignment.
      */
     public void drawBoxText(INode n, BoxTextElement bs) {
-        if (!isShowNames() || bs == null)
+        if (!isShowNames() || bs == null || isLabelHandled(n, bs.text))
             return;
 
         MapViewPoint p = mapState.getPointFor(n);
@@ -618,7 +776,7 @@ public class StyledMapRenderer extends AbstractMapRenderer {
         g.setFont(text.font);
 
         FontRenderContext frc = g.getFontRenderContext();
-        Rectangle2D bounds = text.font.getStringBounds(s, frc);
+        Rectangle2D bounds = LabelLayoutCache.getInstance().getStringBounds(s, text.font, frc);
 
         double x = Math.round(p.getInViewX()) + bs.xOffset + bounds.getCenterX();
         double y = Math.round(p.getInViewY()) + bs.yOffset + bounds.getCenterY();
@@ -1149,7 +1307,7 @@ public class StyledMapRenderer extends AbstractMapRenderer {
      * @since 11722
      */
     public void drawText(IPrimitive osm, TextLabel text, PositionForAreaStrategy labelPositionStrategy) {
-        if (!isShowNames()) {
+        if (!isShowNames() || isLabelHandled(osm, text)) {
             return;
         }
         String name = text.getString(osm);
@@ -1157,8 +1315,7 @@ public class StyledMapRenderer extends AbstractMapRenderer {
             return;
         }
 
-        FontMetrics fontMetrics = g.getFontMetrics(text.font); // if slow, use cache
-        Rectangle2D nb = fontMetrics.getStringBounds(name, g); // if slow, approximate by strlen()*maxcharbounds(font)
+        Rectangle2D nb = LabelLayoutCache.getInstance().getStringBounds(name, text.font, g.getFontRenderContext());
 
         Font defaultFont = g.getFont();
         forEachPolygon(osm, path -> {
@@ -1168,15 +1325,16 @@ public class StyledMapRenderer extends AbstractMapRenderer {
             if (center != null) {
                 displayText(osm, text, name, nb, center);
             } else if (position.supportsGlyphVector()) {
-                List<GlyphVector> gvs = Utils.getGlyphVectorsBidi(name, text.font, g.getFontRenderContext());
+                List<GlyphVector> gvs = LabelLayoutCache.getInstance().getGlyphVectorsBidi(name, text.font, g.getFontRenderContext());
 
                 List<GlyphVector> translatedGvs = position.generateGlyphVectors(path, nb, gvs, isGlyphVectorDoubleTranslationBug(text.font));
-                displayText(() -> translatedGvs.forEach(gv -> g.drawGlyphVector(gv, 0, 0)),
-                        () -> translatedGvs.stream().collect(
-                                Path2D.Double::new,
-                                (p, gv) -> p.append(gv.getOutline(0, 0), false),
-                                (p1, p2) -> p1.append(p2, false)),
-                        osm.isDisabled(), text);
+                if (placingIndex == null) {
+                    displayGlyphVectors(translatedGvs, osm.isDisabled(), text);
+                } else {
+                    Rectangle2D bounds = new Rectangle2D.Double();
+                    translatedGvs.forEach(gv -> bounds.add(gv.getVisualBounds()));
+                    placeLabel(osm, text, bounds, r -> r.displayGlyphVectors(translatedGvs, osm.isDisabled(), text));
+                }
             } else {
                 Logging.trace("Couldn't find a correct label placement for {0} / {1}", osm, name);
             }
@@ -1196,17 +1354,76 @@ public class StyledMapRenderer extends AbstractMapRenderer {
             at.rotate(center.getRotation());
             at.translate(-nb.getCenterX(), -nb.getCenterY());
         }
-        displayText(() -> {
-            AffineTransform defaultTransform = g.getTransform();
-            g.transform(at);
-            g.setFont(text.font);
-            g.drawString(name, 0, 0);
-            g.setTransform(defaultTransform);
-        }, () -> {
-            FontRenderContext frc = g.getFontRenderContext();
-            TextLayout tl = new TextLayout(name, text.font, frc);
-            return tl.getOutline(at);
-        }, osm.isDisabled(), text);
+        if (placingIndex == null) {
+            displayText(() -> {
+                AffineTransform defaultTransform = g.getTransform();
+                g.transform(at);
+                g.setFont(text.font);
+                g.drawString(name, 0, 0);
+                g.setTransform(defaultTransform);
+            }, () -> LabelLayoutCache.getInstance().getOutline(name, text.font, g.getFontRenderContext(), at),
+                    osm.isDisabled(), text);
+        } else {
+            placeLabel(osm, text, at.createTransformedShape(nb).getBounds2D(), r -> r.displayText(osm, text, name, nb, center));
+        }
+    }
+
+    private void displayGlyphVectors(List<GlyphVector> gvs, boolean disabled, TextLabel text) {
+        displayText(() -> gvs.forEach(gv -> g.drawGlyphVector(gv, 0, 0)),
+                () -> gvs.stream().collect(
+                        Path2D.Double::new,
+                        (p, gv) -> p.append(gv.getOutline(0, 0), false),
+                        (p1, p2) -> p1.append(p2, false)),
+                disabled, text);
+    }
+
+    /**
+     * Handles the labels of a primitive that do not need to be laid out, when labels are drawn with collision detection.
+     * <p>
+     * While placing the labels, labels rejected in an earlier paint are skipped, and labels kept by the index are laid out
+     * again at the same position. While drawing, the labels placed before are drawn.
+     * @param osm The primitive
+     * @param text The text style
+     * @return {@code true} if the label has been handled, {@code false} if it has to be laid out
+     */
+    private boolean isLabelHandled(IPrimitive osm, TextLabel text) {
+        if (placedLabels == null) {
+            return false;
+        }
+        LabelKey key = new LabelKey(osm, text);
+        if (placingIndex != null) {
+            if (placedLabels.containsKey(key) || placingIndex.isRejected(key)) {
+                return true;
+            }
+            if (!placingIndex.keep(key)) {
+                placingIndex.removeKey(key);
+            }
+            placedLabels.put(key, new ArrayList<>(1));
+            return false;
+        }
+        List<Consumer<StyledMapRenderer>> labels = placedLabels.get(key);
+        if (labels != null) {
+            labels.forEach(label -> label.accept(this));
+        }
+        return true;
+    }
+
+    /**
+     * Adds a label to the label index. If it fits, it is drawn when its style record is painted.
+     * @param osm The primitive
+     * @param text The text style
+     * @param bounds The bounds of the label in view coordinates
+     * @param label The function that draws the label with the given renderer
+     */
+    private void placeLabel(IPrimitive osm, TextLabel text, Rectangle2D bounds, Consumer<StyledMapRenderer> label) {
+        if (text.haloRadius != null) {
+            bounds.setRect(bounds.getX() - text.haloRadius, bounds.getY() - text.haloRadius,
+                    bounds.getWidth() + 2 * text.haloRadius, bounds.getHeight() + 2 * text.haloRadius);
+        }
+        LabelKey key = new LabelKey(osm, text);
+        if (placingIndex.place(key, bounds)) {
+            placedLabels.get(key).add(label);
+        }
     }
 
     /**
@@ -1307,7 +1524,11 @@ public class StyledMapRenderer extends AbstractMapRenderer {
         }
 
         MapViewPoint lastPoint = null;
-        Iterator<MapViewPoint> it = new OffsetIterator(mapState, wayNodes, offset);
+        // orientation arrows are placed at the nodes, so they need the full geometry
+        double[] simplified = showOrientation ? null : SimplifiedGeometryCache.getInstance().get(way, lodTolerance);
+        Iterator<MapViewPoint> it = simplified != null
+                ? new OffsetIterator(getPoints(simplified), offset)
+                : new OffsetIterator(mapState, wayNodes, offset);
         boolean initialMoveToNeeded = true;
         ArrowPaintHelper drawArrowHelper = null;
         if (showOrientation) {
@@ -1413,6 +1634,9 @@ public class StyledMapRenderer extends AbstractMapRenderer {
 
         circum = nc.getDist100Pixel();
         scale = nc.getScale();
+        AffineTransform deviceTransform = g.getTransform();
+        double deviceScale = deviceTransform != null ? Math.max(1, Math.abs(deviceTransform.getScaleX())) : 1;
+        lodTolerance = SimplifiedGeometryCache.getTolerance(scale / deviceScale);
 
         leftHandTraffic = PREFERENCE_LEFT_HAND_TRAFFIC.get();
 
@@ -1454,9 +1678,26 @@ public class StyledMapRenderer extends AbstractMapRenderer {
         g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, textAntialiasing);
     }
 
+    private List<MapViewPoint> getPoints(double[] coordinates) {
+        List<MapViewPoint> points = new ArrayList<>(coordinates.length / 2);
+        for (int i = 0; i < coordinates.length; i += 2) {
+            points.add(mapState.getPointFor(new EastNorth(coordinates[i], coordinates[i + 1])));
+        }
+        return points;
+    }
+
     private MapViewPath getPath(IWay<?> w) {
         MapViewPath path = new MapViewPath(mapState);
-        if (w.isClosed()) {
+        double[] simplified = SimplifiedGeometryCache.getInstance().get(w, lodTolerance);
+        if (simplified != null) {
+            path.moveTo(new EastNorth(simplified[0], simplified[1]));
+            for (int i = 2; i < simplified.length; i += 2) {
+                path.lineTo(new EastNorth(simplified[i], simplified[i + 1]));
+            }
+            if (w.isClosed()) {
+                path.lineTo(new EastNorth(simplified[0], simplified[1]));
+            }
+        } else if (w.isClosed()) {
             path.appendClosed(w.getNodes(), false);
         } else {
             path.append(w.getNodes(), false);
@@ -1656,6 +1897,7 @@ public class StyledMapRenderer extends AbstractMapRenderer {
     private void paintWithLock(final OsmData<?, ?, ?, ?> data, boolean renderVirtualNodes, RenderBenchmarkCollector benchmark,
             BBox bbox) {
         try {
+            canceled = false;
             highlightWaySegments = data.getHighlightedWaySegments();
 
             benchmark.renderStart(circum);
@@ -1663,23 +1905,30 @@ public class StyledMapRenderer extends AbstractMapRenderer {
             List<? extends INode> nodes = data.searchNodes(bbox);
             List<? extends IWay<?>> ways = data.searchWays(bbox);
             List<? extends IRelation<?>> relations = data.searchRelations(bbox);
+            benchmark.renderCandidates(nodes.size() + ways.size() + relations.size());
 
             final List<StyleRecord> allStyleElems = new ArrayList<>(nodes.size()+ways.size()+relations.size());
 
             // Need to process all relations first.
             // Reason: Make sure, ElemStyles.getStyleCacheWithRange is not called for the same primitive in parallel threads.
             // (Could be synchronized, but try to avoid this for performance reasons.)
+            BooleanSupplier workerCancelCheck = cancelCheck != null ? this::checkCanceled : null;
             if (THREAD_POOL != null) {
                 THREAD_POOL.invoke(new ComputeStyleListWorker(circum, nc, relations, allStyleElems,
-                        Math.max(20, relations.size() / THREAD_POOL.getParallelism() / 3), styles));
-                THREAD_POOL.invoke(new ComputeStyleListWorker(circum, nc, new CompositeList<>(nodes, ways), allStyleElems,
-                        Math.max(100, (nodes.size() + ways.size()) / THREAD_POOL.getParallelism() / 3), styles));
+                        Math.max(20, relations.size() / THREAD_POOL.getParallelism() / 3), styles, workerCancelCheck));
+                if (!checkCanceled()) {
+                    THREAD_POOL.invoke(new ComputeStyleListWorker(circum, nc, new CompositeList<>(nodes, ways), allStyleElems,
+                            Math.max(100, (nodes.size() + ways.size()) / THREAD_POOL.getParallelism() / 3), styles, workerCancelCheck));
+                }
             } else {
-                new ComputeStyleListWorker(circum, nc, relations, allStyleElems, 0, styles).computeDirectly();
-                new ComputeStyleListWorker(circum, nc, new CompositeList<>(nodes, ways), allStyleElems, 0, styles).computeDirectly();
+                new ComputeStyleListWorker(circum, nc, relations, allStyleElems, 0, styles, workerCancelCheck).computeDirectly();
+                if (!checkCanceled()) {
+                    new ComputeStyleListWorker(circum, nc, new CompositeList<>(nodes, ways), allStyleElems, 0, styles,
+                            workerCancelCheck).computeDirectly();
+                }
             }
 
-            if (!benchmark.renderSort()) {
+            if (!benchmark.renderSort() || checkCanceled()) {
                 return;
             }
 
@@ -1687,15 +1936,38 @@ public class StyledMapRenderer extends AbstractMapRenderer {
             StyleRecord[] sorted = allStyleElems.toArray(new StyleRecord[0]);
             Arrays.parallelSort(sorted, null);
 
-            if (!benchmark.renderDraw(allStyleElems)) {
+            if (!benchmark.renderDraw(allStyleElems) || checkCanceled()) {
                 return;
             }
 
-            for (StyleRecord record : sorted) {
-                paintRecord(record);
+            if (PREFERENCE_LABEL_COLLISION.get() && isShowNames()) {
+                placeLabels(sorted, labelIndex != null ? labelIndex : new LabelCollisionIndex());
+            }
+
+            Rectangle tiledArea = benchmark.isProfilingElements() ? null : getTiledArea();
+            if (regions != null && targetImage != null) {
+                paintRegions(sorted, r -> r.drawVirtualNodes(data, bbox));
+            } else if (tiledArea != null) {
+                paintTiled(sorted, tiledArea);
+            } else if (benchmark.isProfilingElements()) {
+                for (int i = 0; i < sorted.length && !isCanceled(i); i++) {
+                    long start = System.nanoTime();
+                    paintRecord(sorted[i]);
+                    benchmark.renderElement(sorted[i], System.nanoTime() - start);
+                }
+            } else {
+                for (int i = 0; i < sorted.length && !isCanceled(i); i++) {
+                    paintRecord(sorted[i]);
+                }
+            }
+            placedLabels = null;
+            if (canceled) {
+                return;
             }
 
-            drawVirtualNodes(data, bbox);
+            if (regions == null || targetImage == null) {
+                drawVirtualNodes(data, bbox);
+            }
 
             benchmark.renderDone();
         } catch (JosmRuntimeException | IllegalArgumentException | IllegalStateException e) {
@@ -1708,6 +1980,29 @@ public class StyledMapRenderer extends AbstractMapRenderer {
         }
     }
 
+    /**
+     * Places the labels of the style records in the label index, in the order of their priority.
+     * The labels that fit are drawn later, when their style record is painted.
+     * @param sorted The sorted style records
+     * @param index The label index
+     */
+    private void placeLabels(StyleRecord[] sorted, LabelCollisionIndex index) {
+        placedLabels = new HashMap<>();
+        placingIndex = index;
+        try {
+            Arrays.stream(sorted)
+                    .filter(r -> r.style instanceof TextElement || r.style instanceof BoxTextElement)
+                    .sorted(LABEL_PRIORITY)
+                    .forEachOrdered(this::paintRecord);
+        } finally {
+            placingIndex = null;
+        }
+    }
+
+    private static double getArea(BBox box) {
+        return box.isValid() ? box.width() * box.height() : 0;
+    }
+
     private void paintRecord(StyleRecord record) {
         try {
             record.paintPrimitive(paintSettings, this);
@@ -1715,4 +2010,168 @@ public class StyledMapRenderer extends AbstractMapRenderer {
             throw BugReport.intercept(e).put("record", record);
         }
     }
+
+    /**
+     * Gets the area of the target image that is drawn in tiles.
+     * @return The area in device space, or <code>null</code> if the records have to be drawn sequentially.
+     */
+    private Rectangle getTiledArea() {
+        if (targetImage == null || THREAD_POOL == null || !PREFERENCE_TILED_DRAWING.get()) {
+            return null;
+        }
+        Rectangle area = new Rectangle(targetImage.getWidth(), targetImage.getHeight());
+        Shape clip = g.getClip();
+        if (clip != null) {
+            area = area.intersection(g.getTransform().createTransformedShape(clip).getBounds());
+        }
+        return area.height >= 2 * MIN_TILE_HEIGHT ? area : null;
+    }
+
+    /**
+     * Draws the style records in horizontal tiles, in parallel.
+     * <p>
+     * The tiles span the whole width of the area, since labels may extend far beyond their primitive horizontally.
+     * Each tile draws the records that may touch it in their original order into its own image, then copies it
+     * into the target image. A record touches a tile if the bounds of its primitive, extended by the
+     * {@linkplain StyleElement#getPaintExtent paint extent} of its style, intersect the tile.
+     * @param sorted The sorted style records
+     * @param area The area of the target image to draw, in device space
+     */
+    private void paintTiled(StyleRecord[] sorted, Rectangle area) {
+        double[] minY = new double[sorted.length];
+        double[] maxY = new double[sorted.length];
+        computeVerticalExtents(sorted, minY, maxY);
+
+        int tiles = Math.min(Math.max(2, THREAD_POOL.getParallelism()), area.height / MIN_TILE_HEIGHT);
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(tiles);
+        for (int i = 0; i < tiles; i++) {
+            int y0 = area.y + area.height * i / tiles;
+            int y1 = area.y + area.height * (i + 1) / tiles;
+            Rectangle tile = new Rectangle(area.x, y0, area.width, y1 - y0);
+            tasks.add(ForkJoinTask.adapt(() -> paintTile(sorted, minY, maxY, tile, null)));
+        }
+        THREAD_POOL.submit(() -> ForkJoinTask.invokeAll(tasks)).join();
+    }
+
+    /**
+     * Draws the style records into the {@linkplain #setRegions regions}, in parallel if possible.
+     * @param sorted The sorted style records
+     * @param overlay Draws what is painted on top of the style records, e.g. the virtual nodes
+     */
+    private void paintRegions(StyleRecord[] sorted, Consumer<StyledMapRenderer> overlay) {
+        double[] minY = new double[sorted.length];
+        double[] maxY = new double[sorted.length];
+        computeVerticalExtents(sorted, minY, maxY);
+
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(regions.size());
+        for (Rectangle region : regions) {
+            tasks.add(ForkJoinTask.adapt(() -> paintTile(sorted, minY, maxY, region, overlay)));
+        }
+        if (THREAD_POOL != null) {
+            THREAD_POOL.submit(() -> ForkJoinTask.invokeAll(tasks)).join();
+        } else {
+            tasks.forEach(ForkJoinTask::invoke);
+        }
+    }
+
+    /**
+     * Computes the vertical range of the target image each style record may touch.
+     * @param sorted The sorted style records
+     * @param minY The array to store the top of each range in, in device space
+     * @param maxY The array to store the bottom of each range in, in device space
+     */
+    private void computeVerticalExtents(StyleRecord[] sorted, double[] minY, double[] maxY) {
+        double scale = Math.max(1, Math.abs(g.getTransform().getScaleY()));
+        IntStream indices = IntStream.range(0, sorted.length);
+        Runnable compute = () -> (THREAD_POOL != null ? indices.parallel() : indices).forEach(i -> {
+            Rectangle2D bounds = getDeviceBounds(sorted[i].osm);
+            double margin = Math.max(TILE_MARGIN.get(), sorted[i].style.getPaintExtent(this)) * scale;
+            minY[i] = bounds == null ? Double.NEGATIVE_INFINITY : bounds.getMinY() - margin;
+            maxY[i] = bounds == null ? Double.POSITIVE_INFINITY : bounds.getMaxY() + margin;
+        });
+        if (THREAD_POOL != null) {
+            THREAD_POOL.submit(compute).join();
+        } else {
+            compute.run();
+        }
+    }
+
+    /**
+     * Draws the style records that may touch a tile of the target image.
+     * @param sorted The sorted style records
+     * @param minY The top of the range each style record may touch
+     * @param maxY The bottom of the range each style record may touch
+     * @param tile The tile in device space
+     * @param overlay If not {@code null}, the content of the tile is replaced instead of drawn over, and the overlay is
+     * drawn on top of the style records
+     */
+    private void paintTile(StyleRecord[] sorted, double[] minY, double[] maxY, Rectangle tile, Consumer<StyledMapRenderer> overlay) {
+        WritableRaster targetRaster = targetImage.getRaster();
+        WritableRaster tileRaster = targetRaster.createCompatibleWritableRaster(tile.width, tile.height);
+        if (overlay == null) {
+            tileRaster.setDataElements(0, 0, targetRaster.createChild(tile.x, tile.y, tile.width, tile.height, 0, 0, null));
+        }
+        BufferedImage tileImage = new BufferedImage(targetImage.getColorModel(), tileRaster, targetImage.isAlphaPremultiplied(), null);
+
+        Graphics2D tileGraphics = tileImage.createGraphics();
+        try {
+            tileGraphics.setRenderingHints(g.getRenderingHints());
+            tileGraphics.setComposite(g.getComposite());
+            tileGraphics.setBackground(g.getBackground());
+            tileGraphics.setPaint(g.getPaint());
+            tileGraphics.setFont(g.getFont());
+            tileGraphics.setStroke(g.getStroke());
+            // the tile image starts at the top left corner of the tile
+            tileGraphics.translate(-tile.x, -tile.y);
+            tileGraphics.setClip(tile);
+            tileGraphics.transform(g.getTransform());
+            Shape clip = g.getClip();
+            if (clip != null) {
+                tileGraphics.clip(clip);
+            }
+
+            StyledMapRenderer renderer = createTileRenderer(tileGraphics);
+            for (int i = 0; i < sorted.length && !isCanceled(i); i++) {
+                if (maxY[i] >= tile.y && minY[i] <= tile.getMaxY()) {
+                    renderer.paintRecord(sorted[i]);
+                }
+            }
+            if (overlay != null && !canceled) {
+                overlay.accept(renderer);
+            }
+        } finally {
+            tileGraphics.dispose();
+        }
+        targetRaster.setDataElements(tile.x, tile.y, tileRaster);
+    }
+
+    /**
+     * Computes the bounds of a primitive in device space.
+     * @param osm The primitive
+     * @return The bounds, or <code>null</code> if they are unknown
+     */
+    private Rectangle2D getDeviceBounds(IPrimitive osm) {
+        Rectangle2D.Double bounds = null;
+        if (osm instanceof INode) {
+            bounds = extendViewBounds(null, (INode) osm);
+        } else if (osm instanceof IWay) {
+            for (INode n : ((IWay<?>) osm).getNodes()) {
+                bounds = extendViewBounds(bounds, n);
+            }
+        }
+        // relations are drawn in all tiles
+        return bounds == null ? null : g.getTransform().createTransformedShape(bounds).getBounds2D();
+    }
+
+    private Rectangle2D.Double extendViewBounds(Rectangle2D.Double bounds, INode n) {
+        if (!n.isLatLonKnown()) {
+            return bounds;
+        }
+        MapViewPoint p = mapState.getPointFor(n);
+        if (bounds == null) {
+            return new Rectangle2D.Double(p.getInViewX(), p.getInViewY(), 0, 0);
+        }
+        bounds.add(p.getInViewX(), p.getInViewY());
+        return bounds;
+    }
 }
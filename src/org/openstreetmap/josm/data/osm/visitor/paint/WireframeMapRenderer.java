@@ -8,12 +8,14 @@ import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.Stroke;
 import java.awt.geom.Ellipse2D;
-import java.awt.geom.GeneralPath;
+import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.awt.geom.Rectangle2D.Double;
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.osm.BBox;
@@ -82,6 +84,17 @@ public class WireframeMapRenderer extends AbstractMapRenderer implements Primiti
     protected Color currentColor;
     /** Path store to draw subsequent segments of same color as one <code>Path</code>. */
     protected MapPath2D currentPath = new MapPath2D();
+    /**
+     * Segments and direction arrows not yet displayed, by color. All segments of the same color are drawn
+     * with a single call by {@link #displaySegments()}, the paths are reset and reused afterwards.
+     * The order of the colors within one call is not defined, so primitives that must be drawn on top of others
+     * (highlighted, selected) are displayed by a later call.
+     */
+    private final Map<Color, MapPath2D> pendingSegments = new LinkedHashMap<>();
+    /** Relation members not yet displayed, by color. Stroked with {@link #relatedWayStroke} all at once. */
+    private final Map<Color, MapPath2D> pendingMembers = new LinkedHashMap<>();
+    /** Circles around relation member nodes not yet displayed, by color. Drawn before the relation members. */
+    private final Map<Color, MapPath2D> pendingMemberNodes = new LinkedHashMap<>();
 
     /** Helper variable for {@link #drawSegment} */
     private static final ArrowPaintHelper ARROW_PAINT_HELPER = new ArrowPaintHelper(Utils.toRadians(20), 10);
@@ -90,6 +103,7 @@ public class WireframeMapRenderer extends AbstractMapRenderer implements Primiti
     private final Stroke relatedWayStroke = new BasicStroke(
             4, BasicStroke.CAP_SQUARE, BasicStroke.JOIN_BEVEL);
     private MapViewRectangle viewClip;
+    private BBox viewClipBBox;
 
     /**
      * Creates an wireframe render
@@ -151,19 +165,29 @@ public class WireframeMapRenderer extends AbstractMapRenderer implements Primiti
         Rectangle clip = g.getClipBounds();
         clip.grow(50, 50);
         viewClip = mapState.getViewArea(clip);
+        viewClipBBox = viewClip.getLatLonBoundsBox().toBBox();
         getSettings(virtual);
+        canceled = false;
 
+        int index = 0;
         for (final IRelation<?> rel : data.searchRelations(bbox)) {
+            if (isCanceled(index++)) {
+                return;
+            }
             if (rel.isDrawable() && !rel.isSelected() && !rel.isDisabledAndHidden()) {
                 rel.accept(this);
             }
         }
+        displaySegments();
 
         // draw tagged ways first, then untagged ways, then highlighted ways
         List<IWay<?>> highlightedWays = new ArrayList<>();
         List<IWay<?>> untaggedWays = new ArrayList<>();
 
         for (final IWay<?> way : data.searchWays(bbox)) {
+            if (isCanceled(index++)) {
+                return;
+            }
             if (way.isDrawable() && !way.isSelected() && !way.isDisabledAndHidden()) {
                 if (way.isHighlighted()) {
                     highlightedWays.add(way);
@@ -176,13 +200,18 @@ public class WireframeMapRenderer extends AbstractMapRenderer implements Primiti
         }
         displaySegments();
 
+        for (final IWay<?> way : untaggedWays) {
+            if (isCanceled(index++)) {
+                return;
+            }
+            way.accept(this);
+        }
+        displaySegments();
+
         // Display highlighted ways after the other ones (fix #8276)
-        List<IWay<?>> specialWays = new ArrayList<>(untaggedWays);
-        specialWays.addAll(highlightedWays);
-        for (final IWay<?> way : specialWays) {
+        for (final IWay<?> way : highlightedWays) {
             way.accept(this);
         }
-        specialWays.clear();
         displaySegments();
 
         for (final IPrimitive osm : data.getSelected()) {
@@ -193,10 +222,14 @@ public class WireframeMapRenderer extends AbstractMapRenderer implements Primiti
         displaySegments();
 
         for (final INode osm: data.searchNodes(bbox)) {
+            if (isCanceled(index++)) {
+                return;
+            }
             if (osm.isDrawable() && !osm.isSelected() && !osm.isDisabledAndHidden()) {
                 osm.accept(this);
             }
         }
+        displaySegments();
         drawVirtualNodes(data, bbox);
 
         // draw highlighted way segments over the already drawn ways. Otherwise each
@@ -318,7 +351,7 @@ public class WireframeMapRenderer extends AbstractMapRenderer implements Primiti
                     drawSegment(lastP, p, wayColor,
                             showOnlyHeadArrowOnly ? !it.hasNext() : showThisDirectionArrow);
                     if ((showOrderNumber || (showOrderNumberOnSelectedWay && w.isSelected())) && !isInactiveMode) {
-                        drawOrderNumber(lastP, p, orderNumber, g.getColor());
+                        drawOrderNumber(lastP, p, orderNumber, wayColor);
                     }
                 }
                 lastP = p;
@@ -345,7 +378,7 @@ public class WireframeMapRenderer extends AbstractMapRenderer implements Primiti
         } else {
             col = relationColor;
         }
-        g.setColor(col);
+        MapPath2D members = getPendingPath(pendingMembers, col);
 
         for (IRelationMember<?> m : r.getMembers()) {
             if (m.getMember().isIncomplete() || !m.getMember().isDrawable()) {
@@ -355,12 +388,10 @@ public class WireframeMapRenderer extends AbstractMapRenderer implements Primiti
             if (m.isNode()) {
                 MapViewPoint p = mapState.getPointFor((INode) m.getMember());
                 if (p.isInView()) {
-                    g.draw(new Ellipse2D.Double(p.getInViewX()-4, p.getInViewY()-4, 9, 9));
+                    getPendingPath(pendingMemberNodes, col).append(new Ellipse2D.Double(p.getInViewX()-4, p.getInViewY()-4, 9, 9), false);
                 }
 
-            } else if (m.isWay()) {
-                GeneralPath path = new GeneralPath();
-
+            } else if (m.isWay() && m.getMember().getBBox().intersects(viewClipBBox)) {
                 boolean first = true;
                 for (INode n : ((IWay<?>) m.getMember()).getNodes()) {
                     if (!n.isDrawable()) {
@@ -368,14 +399,12 @@ public class WireframeMapRenderer extends AbstractMapRenderer implements Primiti
                     }
                     MapViewPoint p = mapState.getPointFor(n);
                     if (first) {
-                        path.moveTo(p.getInViewX(), p.getInViewY());
+                        members.moveTo(p);
                         first = false;
                     } else {
-                        path.lineTo(p.getInViewX(), p.getInViewY());
+                        members.lineTo(p);
                     }
                 }
-
-                g.draw(relatedWayStroke.createStrokedShape(path));
             }
         }
     }
@@ -398,6 +427,7 @@ public class WireframeMapRenderer extends AbstractMapRenderer implements Primiti
 
     /**
      * Draw a line with the given color.
+     * The segment continues the current subpath if it starts at its end.
      *
      * @param path The path to append this segment.
      * @param mv1 First point of the way segment.
@@ -406,7 +436,10 @@ public class WireframeMapRenderer extends AbstractMapRenderer implements Primiti
      * @since 10827
      */
     protected void drawSegment(MapPath2D path, MapViewPoint mv1, MapViewPoint mv2, boolean showDirection) {
-        path.moveTo(mv1);
+        Point2D end = path.getCurrentPoint();
+        if (end == null || end.getX() != mv1.getInViewX() || end.getY() != mv1.getInViewY()) {
+            path.moveTo(mv1);
+        }
         path.lineTo(mv2);
         if (showDirection) {
             ARROW_PAINT_HELPER.paintArrowAt(path, mv2, mv1);
@@ -424,29 +457,49 @@ public class WireframeMapRenderer extends AbstractMapRenderer implements Primiti
      */
     protected void drawSegment(MapViewPoint p1, MapViewPoint p2, Color col, boolean showDirection) {
         if (!col.equals(currentColor)) {
-            displaySegments(col);
+            currentPath = getPendingPath(pendingSegments, col);
+            currentColor = col;
         }
         drawSegment(currentPath, p1, p2, showDirection);
     }
 
+    private static MapPath2D getPendingPath(Map<Color, MapPath2D> paths, Color color) {
+        MapPath2D path = paths.get(color);
+        if (path == null) {
+            path = new MapPath2D();
+            paths.put(color, path);
+        }
+        return path;
+    }
+
     /**
-     * Finally display all segments in currect path.
+     * Finally display all pending segments, with one call per color.
      */
     protected void displaySegments() {
         displaySegments(null);
     }
 
     /**
-     * Finally display all segments in currect path.
+     * Finally display all pending segments, with one call per color.
      *
-     * @param newColor This color is set after the path is drawn.
+     * @param newColor The color of {@link #currentPath} after the segments are drawn.
      */
     protected void displaySegments(Color newColor) {
-        if (currentPath != null) {
-            g.setColor(currentColor);
-            g.draw(currentPath);
-            currentPath = new MapPath2D();
-            currentColor = newColor;
+        displayPaths(pendingMemberNodes, null);
+        displayPaths(pendingMembers, relatedWayStroke);
+        displayPaths(pendingSegments, null);
+        currentColor = newColor;
+        currentPath = newColor != null ? getPendingPath(pendingSegments, newColor) : new MapPath2D();
+    }
+
+    private void displayPaths(Map<Color, MapPath2D> paths, Stroke stroke) {
+        for (Map.Entry<Color, MapPath2D> e : paths.entrySet()) {
+            MapPath2D path = e.getValue();
+            if (path.getCurrentPoint() != null) {
+                g.setColor(e.getKey());
+                g.draw(stroke != null ? stroke.createStrokedShape(path) : path);
+                path.reset();
+            }
         }
     }
 }
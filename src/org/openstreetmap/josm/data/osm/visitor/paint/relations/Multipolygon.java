@@ -22,6 +22,7 @@ import org.openstreetmap.josm.data.osm.RelationMember;
 import org.openstreetmap.josm.data.osm.Way;
 import org.openstreetmap.josm.data.osm.event.NodeMovedEvent;
 import org.openstreetmap.josm.data.osm.event.WayNodesChangedEvent;
+import org.openstreetmap.josm.data.osm.visitor.paint.SimplifiedGeometryCache;
 import org.openstreetmap.josm.data.osm.visitor.paint.relations.Multipolygon.PolyData.Intersection;
 import org.openstreetmap.josm.data.projection.Projection;
 import org.openstreetmap.josm.data.projection.ProjectionRegistry;
@@ -274,6 +275,8 @@ public class Multipolygon {
         private final Path2D.Double poly;
         private Rectangle2D bounds;
         private final List<PolyData> inners;
+        private Path2D.Double simplified;
+        private double simplifiedTolerance;
 
         /**
          * Constructs a new {@code PolyData} from a closed way.
@@ -377,6 +380,23 @@ public class Multipolygon {
             return poly;
         }
 
+        /**
+         * Gets the polygon outline and interior simplified to a lower level of detail.
+         * The result is kept until the polygon or the tolerance changes.
+         * @param tolerance the tolerance, see {@link SimplifiedGeometryCache#getTolerance}
+         * @return The path in east/north space.
+         */
+        public synchronized Path2D.Double getSimplified(double tolerance) {
+            if (tolerance <= 0) {
+                return poly;
+            }
+            if (simplified == null || simplifiedTolerance != tolerance) {
+                simplified = SimplifiedGeometryCache.simplify(poly, tolerance);
+                simplifiedTolerance = tolerance;
+            }
+            return simplified;
+        }
+
         /**
          * Gets the bounds as {@link Rectangle2D} in east/north space.
          * @return The bounds
@@ -431,6 +451,9 @@ public class Multipolygon {
             poly.reset();
             buildPoly();
             bounds = null;
+            synchronized (this) {
+                simplified = null;
+            }
         }
 
         /**
@@ -0,0 +1,285 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.preferences;
+
+import static org.openstreetmap.josm.tools.I18n.marktr;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.openstreetmap.josm.spi.preferences.ListListSetting;
+import org.openstreetmap.josm.spi.preferences.ListSetting;
+import org.openstreetmap.josm.spi.preferences.MapListSetting;
+import org.openstreetmap.josm.spi.preferences.Setting;
+import org.openstreetmap.josm.spi.preferences.SettingVisitor;
+import org.openstreetmap.josm.spi.preferences.StringSetting;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * Binary snapshot of the settings of a preferences XML file, much faster to load than the XML file.
+ * <p>
+ * The snapshot records the size and modification time of the XML file it has been created from. It is only used
+ * if they still match, i.e. if the XML file has not been modified since, for instance by hand.
+ * @see PreferencesReader
+ */
+public class PreferencesCache {
+
+    private static final int MAGIC = 0x4a4f5350; // JOSP
+    private static final int FORMAT_VERSION = 1;
+
+    private static final byte STRING = 0;
+    private static final byte LIST = 1;
+    private static final byte LIST_LIST = 2;
+    private static final byte MAP_LIST = 3;
+
+    private final File cacheFile;
+    private final File xmlFile;
+    private final SortedMap<String, Setting<?>> settings = new TreeMap<>();
+    private int version;
+
+    /**
+     * Constructs a new {@code PreferencesCache}.
+     * @param cacheFile the binary cache file
+     * @param xmlFile the preferences XML file
+     */
+    public PreferencesCache(File cacheFile, File xmlFile) {
+        this.cacheFile = cacheFile;
+        this.xmlFile = xmlFile;
+    }
+
+    /**
+     * Determines if the cache file exists and has been created from the current XML file.
+     * @return {@code true} if the cache file can be read instead of the XML file
+     */
+    public boolean isUpToDate() {
+        if (!cacheFile.isFile() || !xmlFile.isFile() || cacheFile.lastModified() < xmlFile.lastModified()) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile.toPath())))) {
+            return readHeader(in);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private boolean readHeader(DataInputStream in) throws IOException {
+        return in.readInt() == MAGIC
+            && in.readInt() == FORMAT_VERSION
+            && in.readLong() == xmlFile.length()
+            && in.readLong() == xmlFile.lastModified();
+    }
+
+    /**
+     * Reads the cache file.
+     * @throws IOException if any I/O error occurs, or if the cache file is not up to date
+     */
+    public void read() throws IOException {
+        settings.clear();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile.toPath())))) {
+            if (!readHeader(in)) {
+                throw new IOException("Preferences cache " + cacheFile + " is outdated");
+            }
+            version = in.readInt();
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                String key = readString(in);
+                settings.put(key, readSetting(in));
+            }
+        }
+    }
+
+    private static Setting<?> readSetting(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+        case STRING:
+            return new StringSetting(readString(in));
+        case LIST:
+            return new ListSetting(readList(in));
+        case LIST_LIST:
+            int lists = in.readInt();
+            List<List<String>> listList = new ArrayList<>(lists);
+            for (int i = 0; i < lists; i++) {
+                listList.add(readList(in));
+            }
+            return new ListListSetting(Collections.unmodifiableList(listList));
+        case MAP_LIST:
+            int maps = in.readInt();
+            List<Map<String, String>> mapList = new ArrayList<>(maps);
+            for (int i = 0; i < maps; i++) {
+                int entries = in.readInt();
+                Map<String, String> map = new LinkedHashMap<>();
+                for (int j = 0; j < entries; j++) {
+                    map.put(readString(in), readString(in));
+                }
+                mapList.add(Collections.unmodifiableMap(map));
+            }
+            return new MapListSetting(Collections.unmodifiableList(mapList));
+        default:
+            throw new IOException("Unknown setting type " + type);
+        }
+    }
+
+    private static List<String> readList(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        List<String> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(readString(in));
+        }
+        return Collections.unmodifiableList(list);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes the cache file for the current XML file, which must have been written with the given settings.
+     * @param version the version from the XML root element
+     * @param entries the settings written to the XML file
+     * @throws IOException if any I/O error occurs
+     */
+    public void write(int version, Collection<Entry<String, Setting<?>>> entries) throws IOException {
+        File tmpFile = new File(cacheFile + "_tmp");
+        try {
+            writeTo(tmpFile, version, entries);
+            Files.move(tmpFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            if (tmpFile.exists()) {
+                Utils.deleteFile(tmpFile, marktr("Unable to delete temporary file {0}"));
+            }
+            throw e;
+        }
+    }
+
+    private void writeTo(File file, int version, Collection<Entry<String, Setting<?>>> entries) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file.toPath())))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(xmlFile.length());
+            out.writeLong(xmlFile.lastModified());
+            out.writeInt(version);
+            out.writeInt(entries.size());
+            SettingWriter writer = new SettingWriter(out);
+            for (Entry<String, Setting<?>> e : entries) {
+                writeString(out, e.getKey());
+                e.getValue().visit(writer);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Deletes the cache file, if any.
+     */
+    public void delete() {
+        if (cacheFile.exists()) {
+            Utils.deleteFile(cacheFile, marktr("Unable to delete preferences cache file {0}"));
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeList(DataOutputStream out, List<String> list) throws IOException {
+        out.writeInt(list.size());
+        for (String s : list) {
+            writeString(out, s);
+        }
+    }
+
+    private static final class SettingWriter implements SettingVisitor {
+        private final DataOutputStream out;
+
+        SettingWriter(DataOutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void visit(StringSetting setting) {
+            try {
+                out.writeByte(STRING);
+                writeString(out, setting.getValue());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void visit(ListSetting setting) {
+            try {
+                out.writeByte(LIST);
+                writeList(out, setting.getValue());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void visit(ListListSetting setting) {
+            try {
+                out.writeByte(LIST_LIST);
+                out.writeInt(setting.getValue().size());
+                for (List<String> list : setting.getValue()) {
+                    writeList(out, list);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void visit(MapListSetting setting) {
+            try {
+                out.writeByte(MAP_LIST);
+                out.writeInt(setting.getValue().size());
+                for (Map<String, String> map : setting.getValue()) {
+                    out.writeInt(map.size());
+                    for (Entry<String, String> e : map.entrySet()) {
+                        writeString(out, e.getKey());
+                        writeString(out, e.getValue());
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Returns the settings read from the cache file.
+     * @return the settings read from the cache file
+     */
+    public SortedMap<String, Setting<?>> getSettings() {
+        return settings;
+    }
+
+    /**
+     * Returns the version from the XML root element the cache has been created from.
+     * @return the version
+     */
+    public int getVersion() {
+        return version;
+    }
+}
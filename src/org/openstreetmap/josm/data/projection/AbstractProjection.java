@@ -124,6 +124,19 @@ public abstract class AbstractProjection implements Projection {
                 (ellps.a * k0 * en[1] + y0) / toMeter);
     }
 
+    @Override
+    public void latlon2eastNorth(double[] latLon, double[] eastNorth, int count) {
+        // the datum shift works on the arrays, the results are then projected in place
+        datum.fromWGS84(latLon, eastNorth, count);
+        for (int i = 0; i < count; i++) {
+            double lat = eastNorth[2 * i];
+            double lon = eastNorth[2 * i + 1];
+            double[] en = proj.project(Utils.toRadians(lat), Utils.toRadians(LatLon.normalizeLon(lon - lon0 - pm)));
+            eastNorth[2 * i] = (ellps.a * k0 * en[0] + x0) / toMeter;
+            eastNorth[2 * i + 1] = (ellps.a * k0 * en[1] + y0) / toMeter;
+        }
+    }
+
     @Override
     public LatLon eastNorth2latlon(EastNorth en) {
         // We know it is a latlon. Nice would be to change this method return type to ILatLon
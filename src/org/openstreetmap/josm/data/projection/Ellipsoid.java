@@ -379,17 +379,37 @@ public final class Ellipsoid {
     public LatLon cart2LatLon(double[] xyz, double epsilon) {
         double norm = Math.sqrt(xyz[0] * xyz[0] + xyz[1] * xyz[1]);
         double lg = 2.0 * Math.atan(xyz[1] / (xyz[0] + norm));
-        double lt = Math.atan(xyz[2] / (norm * (1.0 - (a * e2 / Math.sqrt(xyz[0] * xyz[0] + xyz[1] * xyz[1] + xyz[2] * xyz[2])))));
+        double lt = latitude(xyz[0], xyz[1], xyz[2], norm, epsilon);
+        return new LatLon(Utils.toDegrees(lt), Utils.toDegrees(lg));
+    }
+
+    /**
+     * convert cartesian coordinates to ellipsoidal coordinates, without allocating a {@link LatLon}
+     *
+     * @param x the X coordinate in meters
+     * @param y the Y coordinate in meters
+     * @param z the Z coordinate in meters
+     * @param latLon the array to store the latitude and longitude in degrees in
+     * @param index the index of the latitude in {@code latLon}, the longitude is stored after it
+     */
+    public void cart2LatLon(double x, double y, double z, double[] latLon, int index) {
+        double norm = Math.sqrt(x * x + y * y);
+        latLon[index] = Utils.toDegrees(latitude(x, y, z, norm, 1e-11));
+        latLon[index + 1] = Utils.toDegrees(2.0 * Math.atan(y / (x + norm)));
+    }
+
+    private double latitude(double x, double y, double z, double norm, double epsilon) {
+        double lt = Math.atan(z / (norm * (1.0 - (a * e2 / Math.sqrt(x * x + y * y + z * z)))));
         double delta = 1.0;
         while (delta > epsilon) {
             double s2 = Math.sin(lt);
             s2 *= s2;
-            double l = Math.atan((xyz[2] / norm)
+            double l = Math.atan((z / norm)
                     / (1.0 - (a * e2 * Math.cos(lt) / (norm * Math.sqrt(1.0 - e2 * s2)))));
             delta = Math.abs(l - lt);
             lt = l;
         }
-        return new LatLon(Utils.toDegrees(lt), Utils.toDegrees(lg));
+        return lt;
     }
 
     /**
@@ -399,15 +419,25 @@ public final class Ellipsoid {
      * @return the corresponding (X, Y Z) cartesian coordinates in meters.
      */
     public double[] latLon2Cart(LatLon coord) {
-        double phi = Utils.toRadians(coord.lat());
-        double lambda = Utils.toRadians(coord.lon());
+        double[] xyz = new double[3];
+        latLon2Cart(coord.lat(), coord.lon(), xyz);
+        return xyz;
+    }
+
+    /**
+     * convert ellipsoidal coordinates to cartesian coordinates, without allocating a {@link LatLon}
+     *
+     * @param lat the latitude in degrees
+     * @param lon the longitude in degrees
+     * @param xyz the array to store the corresponding (X, Y Z) cartesian coordinates in meters in
+     */
+    public void latLon2Cart(double lat, double lon, double[] xyz) {
+        double phi = Utils.toRadians(lat);
+        double lambda = Utils.toRadians(lon);
 
         double rn = a / Math.sqrt(1 - e2 * Math.pow(Math.sin(phi), 2));
-        double[] xyz = new double[3];
         xyz[0] = rn * Math.cos(phi) * Math.cos(lambda);
         xyz[1] = rn * Math.cos(phi) * Math.sin(lambda);
         xyz[2] = rn * (1 - e2) * Math.sin(phi);
-
-        return xyz;
     }
 }
@@ -40,6 +40,22 @@ public interface Projecting {
      */
     EastNorth latlon2eastNorth(ILatLon ll);
 
+    /**
+     * Converts several points from lat/lon to easting/northing.
+     *
+     * @param latLon the geographical points to convert (in WGS84 lat/lon), as lat/lon pairs
+     * @param eastNorth the array receiving the corresponding east/north coordinates, as east/north pairs.
+     * May be the same array as {@code latLon}.
+     * @param count the number of points to convert
+     */
+    default void latlon2eastNorth(double[] latLon, double[] eastNorth, int count) {
+        for (int i = 0; i < count; i++) {
+            EastNorth en = latlon2eastNorth(new LatLon(latLon[2 * i], latLon[2 * i + 1]));
+            eastNorth[2 * i] = en.east();
+            eastNorth[2 * i + 1] = en.north();
+        }
+    }
+
     /**
      * Convert a east/north coordinate to the {@link LatLon} coordinate.
      * This method clamps the lat/lon coordinate to the nearest point in the world bounds.
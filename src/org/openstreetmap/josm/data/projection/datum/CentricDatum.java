@@ -31,6 +31,15 @@ public class CentricDatum extends AbstractDatum {
         return this.ellps.cart2LatLon(Ellipsoid.WGS84.latLon2Cart(ll));
     }
 
+    @Override
+    public void fromWGS84(double[] latLon, double[] result, int count) {
+        double[] xyz = new double[3];
+        for (int i = 0; i < count; i++) {
+            Ellipsoid.WGS84.latLon2Cart(latLon[2 * i], latLon[2 * i + 1], xyz);
+            this.ellps.cart2LatLon(xyz[0], xyz[1], xyz[2], result, 2 * i);
+        }
+    }
+
     @Override
     public String toString() {
         return "CentricDatum{ellipsoid="+ellps+'}';
@@ -42,4 +42,19 @@ public interface Datum {
      * @return converted lat/lon in this datum
      */
     LatLon fromWGS84(LatLon ll);
+
+    /**
+     * Convert lat/lon coordinates from {@link Ellipsoid#WGS84} to this datum, without allocating a {@link LatLon} for each
+     * of them if the datum supports it.
+     * @param latLon original latitudes and longitudes in WGS84, in degrees and alternating
+     * @param result the array to store the converted latitudes and longitudes in, may be {@code latLon} itself
+     * @param count the number of coordinates to convert
+     */
+    default void fromWGS84(double[] latLon, double[] result, int count) {
+        for (int i = 0; i < count; i++) {
+            LatLon ll = fromWGS84(new LatLon(latLon[2 * i], latLon[2 * i + 1]));
+            result[2 * i] = ll.lat();
+            result[2 * i + 1] = ll.lon();
+        }
+    }
 }
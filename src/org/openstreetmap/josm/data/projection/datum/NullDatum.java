@@ -29,4 +29,11 @@ public class NullDatum extends AbstractDatum {
         return ll;
     }
 
+    @Override
+    public void fromWGS84(double[] latLon, double[] result, int count) {
+        if (latLon != result) {
+            System.arraycopy(latLon, 0, result, 0, 2 * count);
+        }
+    }
+
 }
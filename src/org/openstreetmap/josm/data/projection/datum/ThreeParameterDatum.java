@@ -46,4 +46,13 @@ public class ThreeParameterDatum extends AbstractDatum {
         return this.ellps.cart2LatLon(xyz);
     }
 
+    @Override
+    public void fromWGS84(double[] latLon, double[] result, int count) {
+        double[] xyz = new double[3];
+        for (int i = 0; i < count; i++) {
+            Ellipsoid.WGS84.latLon2Cart(latLon[2 * i], latLon[2 * i + 1], xyz);
+            this.ellps.cart2LatLon(xyz[0] - dx, xyz[1] - dy, xyz[2] - dz, result, 2 * i);
+        }
+    }
+
 }
@@ -0,0 +1,497 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.validation;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+
+import javax.json.Json;
+import javax.json.stream.JsonGenerator;
+
+import org.openstreetmap.josm.cli.CLIModule;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.visitor.paint.relations.MultipolygonCache;
+import org.openstreetmap.josm.data.preferences.JosmBaseDirectories;
+import org.openstreetmap.josm.data.preferences.JosmUrls;
+import org.openstreetmap.josm.data.preferences.sources.ValidatorPrefHelper;
+import org.openstreetmap.josm.data.projection.ProjectionRegistry;
+import org.openstreetmap.josm.data.projection.Projections;
+import org.openstreetmap.josm.data.validation.tests.MapCSSTagChecker;
+import org.openstreetmap.josm.data.validation.tests.MapCSSTagChecker.ParseResult;
+import org.openstreetmap.josm.gui.mappaint.mapcss.parsergen.ParseException;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.io.Compression;
+import org.openstreetmap.josm.io.IllegalDataException;
+import org.openstreetmap.josm.io.OsmChangeReader;
+import org.openstreetmap.josm.io.OsmJsonReader;
+import org.openstreetmap.josm.io.OsmReader;
+import org.openstreetmap.josm.io.ValidatorErrorWriter;
+import org.openstreetmap.josm.spi.preferences.Config;
+import org.openstreetmap.josm.spi.preferences.MemoryPreferences;
+import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.OptionParser;
+import org.openstreetmap.josm.tools.OptionParser.OptionCount;
+import org.openstreetmap.josm.tools.OptionParser.OptionParseException;
+import org.openstreetmap.josm.tools.Utils;
+import org.openstreetmap.josm.tools.date.DateUtils;
+
+/**
+ * Command line interface for validating OSM data files.
+ * <p>
+ * The enabled validator tests are run on each file, several tests at the same time on all available processors.
+ * The errors found are written as JSON or as XML (see {@link ValidatorErrorWriter}), the time spent in each test
+ * is reported on the console.
+ */
+public class ValidatorCLI implements CLIModule {
+
+    /** The unique instance **/
+    public static final ValidatorCLI INSTANCE = new ValidatorCLI();
+
+    /** Exit code when no error of the failure severity (or above) has been found */
+    public static final int EXIT_OK = 0;
+    /** Exit code when validation could not be performed: invalid arguments, unreadable input or rules file, failed test */
+    public static final int EXIT_FAILURE = 1;
+    /** Exit code when errors of the failure severity (or above) have been found */
+    public static final int EXIT_ERRORS_FOUND = 2;
+
+    private final List<String> argInput = new ArrayList<>();
+    private final List<String> argRules = new ArrayList<>();
+    private final List<String> argExclude = new ArrayList<>();
+    private String argOutput;
+    private String argFormat;
+    private String argFailOn = "error";
+    private boolean argDebug;
+
+    /**
+     * Time spent in a validator test and errors found, over all validated files.
+     */
+    static final class TestTiming {
+        final Test test;
+        long nanos;
+        int errors;
+
+        TestTiming(Test test) {
+            this.test = test;
+        }
+    }
+
+    /**
+     * Result of the validation of one file.
+     */
+    static final class FileResult {
+        final String file;
+        final int primitives;
+        final List<TestError> errors;
+        /** Tests which failed with an exception, their errors are missing */
+        final List<Test> failedTests = new ArrayList<>();
+
+        FileResult(String file, int primitives, List<TestError> errors) {
+            this.file = file;
+            this.primitives = primitives;
+            this.errors = errors;
+        }
+    }
+
+    @Override
+    public String getActionKeyword() {
+        return "validate";
+    }
+
+    @Override
+    public void processArguments(String[] argArray) {
+        int exitCode;
+        try {
+            parseArguments(argArray);
+            initialize();
+            Map<Test, TestTiming> timings = new LinkedHashMap<>();
+            List<FileResult> results = validate(argInput, timings);
+            writeErrors(results, timings);
+            printTimings(timings);
+            exitCode = getExitCode(results, getSeverity(argFailOn));
+        } catch (IllegalArgumentException | IllegalDataException | IOException | ParseException e) {
+            exitCode = CLIModule.reportError(e, argDebug);
+        }
+        System.exit(exitCode);
+    }
+
+    /**
+     * Parse command line arguments and do some low-level error checking.
+     * @param argArray the arguments array
+     */
+    void parseArguments(String[] argArray) {
+        List<String> positionalArguments = new OptionParser("JOSM validation")
+            .addFlagParameter("help", ValidatorCLI::showHelp)
+            .addShortAlias("help", "h")
+            .addFlagParameter("debug", () -> argDebug = true)
+            .addArgumentParameter("input", OptionCount.MULTIPLE, argInput::add)
+            .addShortAlias("input", "i")
+            .addArgumentParameter("output", OptionCount.OPTIONAL, arg -> argOutput = arg)
+            .addShortAlias("output", "o")
+            .addArgumentParameter("format", OptionCount.OPTIONAL, arg -> {
+                if (!"json".equals(arg) && !"xml".equals(arg)) {
+                    throw new OptionParseException(tr("Expected {0} or {1} for option {2}, but got ''{3}''", "json", "xml", "--format", arg));
+                }
+                argFormat = arg;
+            })
+            .addShortAlias("format", "f")
+            .addArgumentParameter("rules", OptionCount.MULTIPLE, argRules::add)
+            .addShortAlias("rules", "r")
+            .addArgumentParameter("exclude", OptionCount.MULTIPLE, argExclude::add)
+            .addShortAlias("exclude", "x")
+            .addArgumentParameter("fail-on", OptionCount.OPTIONAL, arg -> {
+                if (!Arrays.asList("error", "warning", "other", "never").contains(arg)) {
+                    throw new OptionParseException(tr("Unknown severity for option {0}: ''{1}''", "--fail-on", arg));
+                }
+                argFailOn = arg;
+            })
+            .parseOptionsOrExit(Arrays.asList(argArray));
+        argInput.addAll(positionalArguments);
+        if (argInput.isEmpty()) {
+            throw new IllegalArgumentException(tr("Missing argument - input data file ({0})", "--input|-i"));
+        }
+        if (argFormat == null) {
+            argFormat = argOutput != null && argOutput.toLowerCase(Locale.ENGLISH).endsWith(".json") ? "json" : "xml";
+        }
+    }
+
+    /**
+     * Displays help on the console
+     */
+    private static void showHelp() {
+        System.out.println(getHelp());
+        System.exit(0);
+    }
+
+    private static String getHelp() {
+        return tr("JOSM validation command line interface")+"\n\n"+
+                tr("Usage")+":\n"+
+                "\tjava -jar josm.jar validate [options] <file>...\n\n"+
+                tr("Description")+":\n"+
+                tr("Runs the enabled validator tests on OSM data files (.osm, .osc or .json, optionally compressed) "
+                        + "and writes the errors found.")+"\n\n"+
+                tr("Options")+":\n"+
+                "\t--help|-h                 "+tr("Show this help")+"\n"+
+                "\t--input|-i <file>         "+tr("Input data file name, may be repeated")+"\n"+
+                "\t--output|-o <file>        "+tr("Output file name (default: standard output)")+"\n"+
+                "\t--format|-f json|xml      "+tr("Output format (default: from the output file extension, else xml)")+"\n"+
+                "\t--rules|-r <file>         "+tr("Additional MapCSS validator rules file or URL, may be repeated")+"\n"+
+                "\t--exclude|-x <test>       "+tr("Skip a test, given by its class name (e.g. {0}), may be repeated",
+                        "ApiCapabilitiesTest")+"\n"+
+                "\t--fail-on error|warning|other|never\n"+
+                "\t                          "+tr("Lowest severity of errors causing a non-zero exit code (default: error)")+"\n"+
+                "\t--debug                   "+tr("Print debugging messages and stack traces of errors")+"\n\n"+
+                tr("Exit codes")+":\n"+
+                "\t"+EXIT_OK+"  "+tr("no error of the failure severity found")+"\n"+
+                "\t"+EXIT_FAILURE+"  "+tr("validation could not be performed")+"\n"+
+                "\t"+EXIT_ERRORS_FOUND+"  "+tr("errors of the failure severity found")+"\n\n"+
+                tr("Examples")+":\n"+
+                "  java -jar josm.jar validate -o errors.json extract.osm.bz2\n"+
+                "  java -jar josm.jar validate -r my-rules.validator.mapcss -x ApiCapabilitiesTest data.osm\n";
+    }
+
+    /**
+     * Initialization.
+     * @throws IOException if a rules file cannot be read
+     * @throws ParseException if a rules file cannot be parsed
+     */
+    void initialize() throws IOException, ParseException {
+        Logging.setLogLevel(argDebug ? Level.ALL : Level.WARNING);
+
+        Config.setBaseDirectoriesProvider(JosmBaseDirectories.getInstance());
+        Config.setPreferencesInstance(new MemoryPreferences());
+        Config.setUrlsProvider(JosmUrls.getInstance());
+        ProjectionRegistry.setProjection(Projections.getProjectionByCode("EPSG:3857"));
+        Config.getPref().putList(ValidatorPrefHelper.PREF_SKIP_TESTS, getTestClassNames(argExclude));
+
+        OsmValidator.initializeGridDetail();
+        OsmValidator.initializeTests();
+        MapCSSTagChecker tagChecker = OsmValidator.getTest(MapCSSTagChecker.class);
+        for (String rules : argRules) {
+            ParseResult result = tagChecker.addMapCSS(new File(rules).isFile() ? new File(rules).getAbsolutePath() : rules);
+            if (!result.parseErrors.isEmpty()) {
+                throw new IllegalArgumentException(tr("Unable to parse rules file ''{0}'': {1}", rules,
+                        result.parseErrors.iterator().next().getMessage()));
+            }
+        }
+    }
+
+    /**
+     * Returns the full class names of the given tests.
+     * @param tests simple class names of tests, e.g. {@code DuplicateNode} or {@code CrossingWays.Ways}
+     * @return the full class names of the tests, as used by {@link OsmValidator#getAllTestsMap()}
+     * @throws IllegalArgumentException if a test is unknown
+     */
+    static List<String> getTestClassNames(List<String> tests) {
+        List<String> result = new ArrayList<>(tests.size());
+        for (String test : tests) {
+            String className = OsmValidator.getAllTestsMap().keySet().stream()
+                    .filter(name -> name.replace('$', '.').endsWith('.' + test))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException(tr("Unknown test: {0}", test)));
+            result.add(className);
+        }
+        return result;
+    }
+
+    /**
+     * Validates the given files with the enabled tests.
+     * @param files names of the files to validate
+     * @param timings receives the time spent in each test, accumulated over all files
+     * @return the errors found in each file
+     * @throws IOException if a file cannot be read
+     * @throws IllegalDataException if a file cannot be parsed
+     */
+    static List<FileResult> validate(List<String> files, Map<Test, TestTiming> timings) throws IOException, IllegalDataException {
+        List<Test> tests = new ArrayList<>(OsmValidator.getEnabledTests(false));
+        for (Test test : tests) {
+            timings.computeIfAbsent(test, TestTiming::new);
+        }
+        ForkJoinPool pool = Utils.newForkJoinPool("validator.numberOfThreads", "validator-%d", Thread.NORM_PRIORITY);
+        try {
+            List<FileResult> results = new ArrayList<>(files.size());
+            for (String file : files) {
+                DataSet ds = loadDataSet(new File(file));
+                List<OsmPrimitive> primitives = new ArrayList<>(ds.allPrimitives().size());
+                primitives.addAll(ds.getNodes());
+                primitives.addAll(ds.getWays());
+                primitives.addAll(ds.getRelations());
+                FileResult result = new FileResult(file, primitives.size(), new ArrayList<>());
+                validate(pool, tests, primitives, timings, result);
+                results.add(result);
+                MultipolygonCache.getInstance().clear(ds);
+            }
+            return results;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Runs the given tests at the same time. Each test is run on a single thread, as tests are not thread safe.
+     * The primitives are not split into chunks validated in parallel: many tests compare primitives with each other
+     * (duplicates, crossings, overlaps) and collect them in {@link Test#endTest()}, so chunks would miss errors.
+     * @param pool the thread pool running the tests
+     * @param tests the tests to run
+     * @param primitives the primitives to validate
+     * @param timings receives the time spent in each test
+     * @param result receives the errors found and the tests which failed
+     */
+    private static void validate(ForkJoinPool pool, List<Test> tests, List<OsmPrimitive> primitives,
+            Map<Test, TestTiming> timings, FileResult result) {
+        Collection<OsmPrimitive> validated = Collections.unmodifiableList(primitives);
+        List<Callable<List<TestError>>> tasks = new ArrayList<>(tests.size());
+        for (Test test : tests) {
+            TestTiming timing = timings.get(test);
+            tasks.add(() -> {
+                long start = System.nanoTime();
+                try {
+                    test.setPartialSelection(false);
+                    test.startTest(NullProgressMonitor.INSTANCE);
+                    test.visit(validated);
+                    test.endTest();
+                    List<TestError> errors = new ArrayList<>(test.getErrors());
+                    test.clear();
+                    return errors;
+                } finally {
+                    timing.nanos += System.nanoTime() - start;
+                }
+            });
+        }
+        List<Future<List<TestError>>> futures = pool.invokeAll(tasks);
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                List<TestError> testErrors = futures.get(i).get();
+                timings.get(tests.get(i)).errors += testErrors.size();
+                result.errors.addAll(testErrors);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            } catch (ExecutionException e) {
+                System.err.println(tr("Error: test ''{0}'' failed on ''{1}'': {2}", tests.get(i).getName(), result.file, e.getCause()));
+                Logging.error(e.getCause());
+                result.failedTests.add(tests.get(i));
+            }
+        }
+    }
+
+    private static DataSet loadDataSet(File file) throws IOException, IllegalDataException {
+        String name = file.getName().toLowerCase(Locale.ENGLISH);
+        if (Compression.byExtension(name) != Compression.NONE) {
+            name = name.substring(0, name.lastIndexOf('.'));
+        }
+        try (InputStream in = Compression.getUncompressedFileInputStream(file)) {
+            if (name.endsWith(".osc")) {
+                return OsmChangeReader.parseDataSet(in, NullProgressMonitor.INSTANCE);
+            } else if (name.endsWith(".json")) {
+                return OsmJsonReader.parseDataSet(in, NullProgressMonitor.INSTANCE);
+            }
+            return OsmReader.parseDataSet(in, NullProgressMonitor.INSTANCE);
+        } catch (IllegalDataException e) {
+            throw new IllegalDataException(tr("In data file ''{0}'' - ", file) + e.getMessage(), e);
+        }
+    }
+
+    private static Severity getSeverity(String name) {
+        return "never".equals(name) ? null : Severity.valueOf(name.toUpperCase(Locale.ENGLISH));
+    }
+
+    /**
+     * Determines the exit code for the given validation results.
+     * @param results validation results
+     * @param failOn lowest severity of errors causing a failure. {@code null} to never fail
+     * @return {@link #EXIT_FAILURE} if a test has failed, {@link #EXIT_ERRORS_FOUND} if an error of severity
+     * {@code failOn} or above has been found, {@link #EXIT_OK} otherwise
+     */
+    static int getExitCode(List<FileResult> results, Severity failOn) {
+        if (results.stream().anyMatch(result -> !result.failedTests.isEmpty())) {
+            return EXIT_FAILURE;
+        }
+        if (failOn != null) {
+            for (FileResult result : results) {
+                for (TestError error : result.errors) {
+                    if (error.getSeverity().getLevel() <= failOn.getLevel()) {
+                        return EXIT_ERRORS_FOUND;
+                    }
+                }
+            }
+        }
+        return EXIT_OK;
+    }
+
+    private void writeErrors(List<FileResult> results, Map<Test, TestTiming> timings) throws IOException {
+        OutputStream out = argOutput != null ? Files.newOutputStream(new File(argOutput).toPath()) : System.out;
+        try (PrintWriter writer = new PrintWriter(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)))) {
+            if ("json".equals(argFormat)) {
+                writeJson(writer, results, timings);
+            } else {
+                List<TestError> errors = new ArrayList<>();
+                for (FileResult result : results) {
+                    errors.addAll(result.errors);
+                }
+                new ValidatorErrorWriter(writer).write(errors);
+            }
+            if (writer.checkError()) {
+                throw new IOException(tr("Error while writing output file"));
+            }
+        }
+    }
+
+    /**
+     * Writes validation results as JSON.
+     * @param writer the writer
+     * @param results validation results
+     * @param timings time spent in each test
+     */
+    static void writeJson(PrintWriter writer, List<FileResult> results, Map<Test, TestTiming> timings) {
+        Map<String, Object> config = Collections.singletonMap(JsonGenerator.PRETTY_PRINTING, true);
+        try (JsonGenerator json = Json.createGeneratorFactory(config).createGenerator(writer)) {
+            json.writeStartObject()
+                .write("generator", "JOSM")
+                .write("timestamp", DateUtils.fromDate(new Date()))
+                .writeStartArray("files");
+            for (FileResult result : results) {
+                json.writeStartObject()
+                    .write("file", result.file)
+                    .write("primitives", result.primitives)
+                    .writeStartArray("errors");
+                for (TestError error : result.errors) {
+                    writeJson(json, error);
+                }
+                json.writeEnd();
+                if (!result.failedTests.isEmpty()) {
+                    json.writeStartArray("failedTests");
+                    for (Test test : result.failedTests) {
+                        json.write(getTestClassName(test));
+                    }
+                    json.writeEnd();
+                }
+                json.writeEnd();
+            }
+            json.writeEnd().writeStartArray("timings");
+            List<TestTiming> sorted = new ArrayList<>(timings.values());
+            sorted.sort((t1, t2) -> Long.compare(t2.nanos, t1.nanos));
+            for (TestTiming timing : sorted) {
+                json.writeStartObject()
+                    .write("test", getTestClassName(timing.test))
+                    .write("name", timing.test.getName())
+                    .write("milliseconds", timing.nanos / 1_000_000)
+                    .write("errors", timing.errors)
+                    .writeEnd();
+            }
+            json.writeEnd().writeEnd();
+        }
+    }
+
+    /**
+     * Returns the class name of a test, without package, as accepted by {@link #getTestClassNames}.
+     * @param test a test, or a test created by a registered test (e.g. for a MapCSS rule)
+     * @return the class name of the registered test, e.g. {@code DuplicateNode} or {@code CrossingWays.Ways}
+     */
+    static String getTestClassName(Test test) {
+        Class<?> c = test.getClass();
+        while (c.getSuperclass() != Test.class && OsmValidator.getTest(c.asSubclass(Test.class)) == null) {
+            c = c.getSuperclass();
+        }
+        return c.getName().substring(c.getName().lastIndexOf('.') + 1).replace('$', '.');
+    }
+
+    private static void writeJson(JsonGenerator json, TestError error) {
+        json.writeStartObject()
+            .write("test", getTestClassName(error.getTester()))
+            .write("code", error.getCode())
+            .write("severity", error.getSeverity().name().toLowerCase(Locale.ENGLISH))
+            .write("message", error.getMessage());
+        if (error.getDescription() != null) {
+            json.write("description", error.getDescription());
+        }
+        Collection<? extends OsmPrimitive> primitives = error.getPrimitives();
+        if (!primitives.isEmpty()) {
+            LatLon ll = primitives.iterator().next().getBBox().getCenter();
+            json.write("lat", ll.lat()).write("lon", ll.lon());
+        }
+        json.writeStartArray("primitives");
+        for (OsmPrimitive p : primitives) {
+            json.writeStartObject()
+                .write("type", p.getType().getAPIName())
+                .write("id", p.getUniqueId())
+                .writeEnd();
+        }
+        json.writeEnd().writeEnd();
+    }
+
+    private static void printTimings(Map<Test, TestTiming> timings) {
+        List<TestTiming> sorted = new ArrayList<>(timings.values());
+        sorted.sort((t1, t2) -> Long.compare(t2.nanos, t1.nanos));
+        long total = 0;
+        for (TestTiming timing : sorted) {
+            total += timing.nanos;
+            System.err.println(String.format(Locale.ENGLISH, "%10.1f ms %8d  %s",
+                    timing.nanos / 1e6, timing.errors, timing.test.getName()));
+        }
+        System.err.println(tr("Total time spent in tests: {0}", Utils.getDurationString(total / 1_000_000)));
+    }
+}
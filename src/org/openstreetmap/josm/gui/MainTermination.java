@@ -42,6 +42,11 @@ public class MainTermination implements Runnable {
         // Remove all layers because somebody may rely on layerRemoved events (like AutosaveTask)
         MainApplication.getLayerManager().resetState();
         ImageProvider.shutdown(false);
+        try {
+            Preferences.main().flush();
+        } catch (IOException | InvalidPathException ex) {
+            Logging.log(Logging.LEVEL_WARN, tr("Failed to save preferences."), ex);
+        }
         try {
             Preferences.main().saveDefaults();
         } catch (IOException | InvalidPathException ex) {
@@ -27,9 +27,13 @@ import java.util.HashMap;
 import java.util.IdentityHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.swing.AbstractButton;
@@ -44,8 +48,11 @@ import org.openstreetmap.josm.data.coor.EastNorth;
 import org.openstreetmap.josm.data.osm.DataSelectionListener;
 import org.openstreetmap.josm.data.osm.event.SelectionEventManager;
 import org.openstreetmap.josm.data.osm.visitor.paint.PaintColors;
+import org.openstreetmap.josm.data.osm.visitor.paint.RenderProfile;
 import org.openstreetmap.josm.data.osm.visitor.paint.Rendering;
+import org.openstreetmap.josm.data.osm.visitor.paint.SimplifiedGeometryCache;
 import org.openstreetmap.josm.data.osm.visitor.paint.relations.MultipolygonCache;
+import org.openstreetmap.josm.data.preferences.BooleanProperty;
 import org.openstreetmap.josm.data.projection.ProjectionRegistry;
 import org.openstreetmap.josm.gui.MapViewState.MapViewRectangle;
 import org.openstreetmap.josm.gui.autofilter.AutoFilterManager;
@@ -71,6 +78,7 @@ import org.openstreetmap.josm.gui.layer.markerlayer.PlayHeadMarker;
 import org.openstreetmap.josm.gui.mappaint.MapPaintStyles;
 import org.openstreetmap.josm.gui.mappaint.MapPaintStyles.MapPaintSylesUpdateListener;
 import org.openstreetmap.josm.gui.util.GuiHelper;
+import org.openstreetmap.josm.gui.widgets.OSDLabel;
 import org.openstreetmap.josm.io.audio.AudioPlayer;
 import org.openstreetmap.josm.spi.preferences.Config;
 import org.openstreetmap.josm.spi.preferences.PreferenceChangeEvent;
@@ -101,6 +109,8 @@ LayerManager.LayerChangeListener, MainLayerManager.ActiveLayerChangeListener {
         MapPaintStyles.addMapPaintSylesUpdateListener(new MapPaintSylesUpdateListener() {
             @Override
             public void mapPaintStylesUpdated() {
+                // the profiled rules belong to the old styles
+                RenderProfile.getInstance().reset();
                 SwingUtilities.invokeLater(() -> {
                     // Trigger a repaint of all data layers
                     MainApplication.getLayerManager().getLayers()
@@ -117,6 +127,22 @@ LayerManager.LayerChangeListener, MainLayerManager.ActiveLayerChangeListener {
         });
     }
 
+    /**
+     * Property to paint the layers that allow it concurrently, see {@link LayerPainter#isConcurrent()}
+     */
+    static final BooleanProperty PROP_CONCURRENT_LAYERS = new BooleanProperty("mappaint.concurrent-layers", true);
+
+    private static final ForkJoinPool LAYER_PAINT_POOL = newForkJoinPool();
+
+    private static ForkJoinPool newForkJoinPool() {
+        try {
+            return Utils.newForkJoinPool("mappaint.concurrent-layers.numberOfThreads", "map-view-layer-%d", Thread.NORM_PRIORITY);
+        } catch (SecurityException e) {
+            Logging.log(Logging.LEVEL_ERROR, "Unable to create new ForkJoinPool", e);
+            return null;
+        }
+    }
+
     /**
      * An invalidation listener that simply calls repaint() for now.
      * @author Michael Zangl
@@ -234,6 +260,8 @@ LayerManager.LayerChangeListener, MainLayerManager.ActiveLayerChangeListener {
     private transient BufferedImage offscreenBuffer;
     // Layers that wasn't changed since last paint
     private final transient List<Layer> nonChangedLayers = new ArrayList<>();
+    // Images for the layers painted concurrently, reused while the map view is painted and freed afterwards, see paintLayers
+    private final transient List<BufferedImage> layerBufferPool = new ArrayList<>();
     private int lastViewID;
     private final AtomicBoolean paintPreferencesChanged = new AtomicBoolean(true);
     private Rectangle lastClipBounds = new Rectangle();
@@ -249,6 +277,11 @@ LayerManager.LayerChangeListener, MainLayerManager.ActiveLayerChangeListener {
      */
     private final HashMap<Layer, LayerPainter> registeredLayers = new HashMap<>();
 
+    /**
+     * The label showing the render profile on the map, see {@link RenderProfile}.
+     */
+    private OSDLabel lblRenderProfile;
+
     /**
      * Constructs a new {@code MapView}.
      * @param layerManager The layers to display.
@@ -466,13 +499,96 @@ LayerManager.LayerChangeListener, MainLayerManager.ActiveLayerChangeListener {
             if (layer.getOpacity() < 1) {
                 g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, (float) layer.getOpacity()));
             }
+            long start = System.nanoTime();
             painter.paint(paintGraphics);
+            if (RenderProfile.isEnabled()) {
+                RenderProfile.getInstance().addLayer(layer.getName(), System.nanoTime() - start);
+            }
             g.setPaintMode();
         } catch (JosmRuntimeException | IllegalArgumentException | IllegalStateException t) {
             BugReport.intercept(t).put("layer", layer).warn();
         }
     }
 
+    /**
+     * Paints the given layers in z-order. The layers whose painters allow it are painted concurrently to separate images,
+     * while the other layers are painted in this thread. The images are then drawn in z-order. This gives the same result
+     * as painting all layers one after another, since the layers only draw over what is painted before them.
+     * @param layers the layers, bottom-most first
+     * @param g the graphics to paint to
+     * @param width the width of the image painted to
+     * @param height the height of the image painted to
+     */
+    private void paintLayers(List<Layer> layers, Graphics2D g, int width, int height) {
+        if (layers.size() < 2 || LAYER_PAINT_POOL == null || !PROP_CONCURRENT_LAYERS.get()) {
+            // nothing to paint at the same time as a single layer, so it is painted without an image in between
+            layers.forEach(layer -> paintLayer(layer, g));
+            return;
+        }
+        Map<Layer, Future<BufferedImage>> concurrent = new IdentityHashMap<>();
+        AffineTransform transform = g.getTransform();
+        Shape clip = g.getClip() != null ? g.getClip() : new Rectangle(0, 0, width, height);
+        for (Layer layer : layers) {
+            LayerPainter painter = registeredLayers.get(layer);
+            if (painter != null && painter.isConcurrent()) {
+                BufferedImage buffer = takeLayerBuffer(width, height);
+                concurrent.put(layer, LAYER_PAINT_POOL.submit(() -> paintLayerBuffer(layer, buffer, transform, clip), buffer));
+            }
+        }
+        for (Layer layer : layers) {
+            Future<BufferedImage> buffer = concurrent.get(layer);
+            if (buffer == null) {
+                paintLayer(layer, g);
+                continue;
+            }
+            try {
+                g.setTransform(new AffineTransform());
+                BufferedImage image = buffer.get();
+                g.drawImage(image, 0, 0, null);
+                layerBufferPool.add(image);
+            } catch (ExecutionException e) {
+                BugReport.intercept(e.getCause()).put("layer", layer).warn();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                Logging.trace(e);
+            } finally {
+                g.setTransform(transform);
+            }
+        }
+    }
+
+    private BufferedImage takeLayerBuffer(int width, int height) {
+        if (layerBufferPool.isEmpty()) {
+            return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+        }
+        return layerBufferPool.remove(layerBufferPool.size() - 1);
+    }
+
+    private void paintLayerBuffer(Layer layer, BufferedImage buffer, AffineTransform transform, Shape clip) {
+        Graphics2D bg = buffer.createGraphics();
+        try {
+            bg.setTransform(transform);
+            bg.setClip(clip);
+            bg.setComposite(AlphaComposite.Clear);
+            bg.fill(clip);
+            bg.setPaintMode();
+            paintLayer(layer, bg);
+        } finally {
+            bg.dispose();
+        }
+    }
+
+    private void drawRenderProfile(Graphics2D g) {
+        if (lblRenderProfile == null) {
+            lblRenderProfile = new OSDLabel("");
+        }
+        lblRenderProfile.setText(RenderProfile.getInstance().getSummary(8));
+        lblRenderProfile.setSize(lblRenderProfile.getPreferredSize());
+        g.translate(15, 15);
+        lblRenderProfile.paintComponent(g);
+        g.translate(-15, -15);
+    }
+
     /**
      * Draw the component.
      */
@@ -554,18 +670,14 @@ LayerManager.LayerChangeListener, MainLayerManager.ActiveLayerChangeListener {
             g2.setColor(PaintColors.getBackgroundColor());
             g2.fillRect(0, 0, width, height);
 
-            for (int i = 0; i < nonChangedLayersCount; i++) {
-                paintLayer(visibleLayers.get(i), g2);
-            }
+            paintLayers(visibleLayers.subList(0, nonChangedLayersCount), g2, width, height);
         } else {
             // Maybe there were more unchanged layers then last time - draw them to buffer
             if (nonChangedLayers.size() != nonChangedLayersCount) {
                 Graphics2D g2 = nonChangedLayersBuffer.createGraphics();
                 g2.setClip(scaledClip);
                 g2.setTransform(trDef);
-                for (int i = nonChangedLayers.size(); i < nonChangedLayersCount; i++) {
-                    paintLayer(visibleLayers.get(i), g2);
-                }
+                paintLayers(visibleLayers.subList(nonChangedLayers.size(), nonChangedLayersCount), g2, width, height);
             }
         }
 
@@ -580,9 +692,9 @@ LayerManager.LayerChangeListener, MainLayerManager.ActiveLayerChangeListener {
         tempG.drawImage(nonChangedLayersBuffer, 0, 0, null);
         tempG.setTransform(trDef);
 
-        for (int i = nonChangedLayersCount; i < visibleLayers.size(); i++) {
-            paintLayer(visibleLayers.get(i), tempG);
-        }
+        paintLayers(visibleLayers.subList(nonChangedLayersCount, visibleLayers.size()), tempG, width, height);
+        // a layer image is as large as the map view, do not keep them until the next paint
+        layerBufferPool.clear();
 
         try {
             drawTemporaryLayers(tempG, getLatLonBounds(new Rectangle(
@@ -611,6 +723,10 @@ LayerManager.LayerChangeListener, MainLayerManager.ActiveLayerChangeListener {
             playHeadMarker.paint(tempG, this);
         }
 
+        if (RenderProfile.isEnabled()) {
+            drawRenderProfile(tempG);
+        }
+
         try {
             g.setTransform(new AffineTransform(1, 0, 0, 1, trOrig.getTranslateX(), trOrig.getTranslateY()));
             g.drawImage(offscreenBuffer, 0, 0, null);
@@ -799,6 +915,7 @@ LayerManager.LayerChangeListener, MainLayerManager.ActiveLayerChangeListener {
         Config.getPref().removePreferenceChangeListener(this);
         SelectionEventManager.getInstance().removeSelectionListener(repaintSelectionChangedListener);
         MultipolygonCache.getInstance().clear();
+        SimplifiedGeometryCache.getInstance().clear();
         if (mapMover != null) {
             mapMover.destroy();
         }
@@ -31,6 +31,7 @@ import org.openstreetmap.josm.data.preferences.BooleanProperty;
 import org.openstreetmap.josm.gui.MainApplication;
 import org.openstreetmap.josm.gui.MapFrame;
 import org.openstreetmap.josm.gui.util.GuiHelper;
+import org.openstreetmap.josm.io.TiledBoundingBoxDownloader;
 import org.openstreetmap.josm.spi.preferences.Config;
 import org.openstreetmap.josm.tools.GBC;
 import org.openstreetmap.josm.tools.ImageProvider;
@@ -301,6 +302,9 @@ public class OSMDownloadSource implements DownloadSource<OSMDownloadSource.OSMDo
             } else if (isDownloadNotes() && !isDownloadOsmData() && !isDownloadGpxData()) {
                 // see max_note_request_area in https://github.com/openstreetmap/openstreetmap-website/blob/master/config/example.application.yml
                 isAreaTooLarge = bbox.getArea() > Config.getPref().getDouble("osm-server.max-request-area-notes", 25);
+            } else if (!isDownloadNotes() && isDownloadOsmData() && !isDownloadGpxData() && TiledBoundingBoxDownloader.TILED.get()) {
+                // large areas are split into several requests, up to a limit
+                isAreaTooLarge = TiledBoundingBoxDownloader.isAreaTooLarge(bbox, DownloadOsmTask.estimateDensity(bbox));
             } else {
                 // see max_request_area in https://github.com/openstreetmap/openstreetmap-website/blob/master/config/example.application.yml
                 isAreaTooLarge = bbox.getArea() > Config.getPref().getDouble("osm-server.max-request-area", 0.25);
@@ -61,6 +61,15 @@ public abstract class FileImporter implements Comparable<FileImporter> {
         return false;
     }
 
+    /**
+     * Determines if the files read together by this batch importer are recorded individually in the file history,
+     * like the files of importers reading one file at a time.
+     * @return {@code true} if the files of a batch import are added to the file history
+     */
+    public boolean isBatchRecordedInHistory() {
+        return false;
+    }
+
     /**
      * Needs to be implemented if isBatchImporter() returns false.
      * @param file file to import
@@ -2,15 +2,23 @@
 package org.openstreetmap.josm.gui.io.importexport;
 
 import static org.openstreetmap.josm.tools.I18n.tr;
+import static org.openstreetmap.josm.tools.I18n.trn;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.swing.JOptionPane;
 
 import org.openstreetmap.josm.actions.ExtensionFileFilter;
 import org.openstreetmap.josm.data.gpx.GpxData;
+import org.openstreetmap.josm.data.preferences.BooleanProperty;
 import org.openstreetmap.josm.gui.MainApplication;
 import org.openstreetmap.josm.gui.layer.GpxLayer;
 import org.openstreetmap.josm.gui.layer.markerlayer.MarkerLayer;
@@ -20,6 +28,7 @@ import org.openstreetmap.josm.io.Compression;
 import org.openstreetmap.josm.io.GpxReader;
 import org.openstreetmap.josm.spi.preferences.Config;
 import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.Utils;
 import org.xml.sax.SAXException;
 
 /**
@@ -28,6 +37,11 @@ import org.xml.sax.SAXException;
  */
 public class GpxImporter extends FileImporter {
 
+    /**
+     * Property to determine if GPX files opened together are merged into a single layer.
+     */
+    public static final BooleanProperty MERGE_FILES = new BooleanProperty("gpx.import.merge-files", false);
+
     /**
      * Utility class containing imported GPX and marker layers, and a task to run after they are added to MapView.
      */
@@ -101,15 +115,108 @@ public class GpxImporter extends FileImporter {
     @Override
     public void importData(File file, ProgressMonitor progressMonitor) throws IOException {
         final String fileName = file.getName();
+        ParsedFile parsedFile = parse(file);
+        addLayers(loadLayers(parsedFile.data, parsedFile.parsedProperly, fileName, tr("Markers from {0}", fileName)));
+    }
+
+    @Override
+    public boolean isBatchImporter() {
+        return true;
+    }
+
+    @Override
+    public boolean isBatchRecordedInHistory() {
+        // GPX files are imported together to be parsed concurrently, but are still remembered individually
+        return true;
+    }
+
+    /**
+     * A parsed GPX file.
+     */
+    private static final class ParsedFile {
+        private final GpxData data;
+        private final boolean parsedProperly;
+
+        ParsedFile(GpxData data, boolean parsedProperly) {
+            this.data = data;
+            this.parsedProperly = parsedProperly;
+        }
+    }
 
+    private static ParsedFile parse(File file) throws IOException {
         try (InputStream is = Compression.getUncompressedFileInputStream(file)) {
             GpxReader r = new GpxReader(is);
             boolean parsedProperly = r.parse(true);
             r.getGpxData().storageFile = file;
-            addLayers(loadLayers(r.getGpxData(), parsedProperly, fileName, tr("Markers from {0}", fileName)));
+            return new ParsedFile(r.getGpxData(), parsedProperly);
         } catch (SAXException e) {
             Logging.error(e);
-            throw new IOException(tr("Parsing data for layer ''{0}'' failed", fileName), e);
+            throw new IOException(tr("Parsing data for layer ''{0}'' failed", file.getName()), e);
+        }
+    }
+
+    /**
+     * Imports several GPX files, parsed concurrently. Depending on {@link #MERGE_FILES}, one layer is created
+     * for each file or all files are merged into a single layer.
+     */
+    @Override
+    public void importData(List<File> files, ProgressMonitor progressMonitor) throws IOException {
+        if (files.size() == 1) {
+            importData(files.get(0), progressMonitor);
+            return;
+        }
+        progressMonitor.beginTask(trn("Opening {0} file...", "Opening {0} files...", files.size(), files.size()), files.size());
+        int threadsNumber = Config.getPref().getInt("gpx.import.threads", Runtime.getRuntime().availableProcessors());
+        threadsNumber = Utils.clamp(threadsNumber, 1, files.size());
+        final ExecutorService exec = Executors.newFixedThreadPool(
+                threadsNumber, Utils.newThreadFactory(getClass() + "-%d", Thread.NORM_PRIORITY));
+        List<ParsedFile> parsedFiles = new ArrayList<>(files.size());
+        List<String> failedFiles = new ArrayList<>();
+        try {
+            List<Future<ParsedFile>> futures = new ArrayList<>(files.size());
+            for (File file : files) {
+                futures.add(exec.submit(() -> parse(file)));
+            }
+            for (int i = 0; i < files.size() && !progressMonitor.isCanceled(); i++) {
+                progressMonitor.subTask(tr("Opening file ''{0}'' ...", files.get(i).getName()));
+                try {
+                    parsedFiles.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    Logging.error(e);
+                    failedFiles.add(files.get(i).getName());
+                }
+                progressMonitor.worked(1);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } finally {
+            exec.shutdownNow();
+            progressMonitor.finishTask();
+        }
+        if (progressMonitor.isCanceled()) {
+            return;
+        }
+        if (MERGE_FILES.get() && !parsedFiles.isEmpty()) {
+            GpxData merged = new GpxData();
+            boolean parsedProperly = true;
+            for (ParsedFile parsedFile : parsedFiles) {
+                merged.mergeFrom(parsedFile.data);
+                parsedProperly &= parsedFile.parsedProperly;
+            }
+            // the merged data does not belong to any of the files
+            merged.storageFile = null;
+            String name = trn("{0} merged GPX file", "{0} merged GPX files", parsedFiles.size(), parsedFiles.size());
+            addLayers(loadLayers(merged, parsedProperly, name, tr("Markers from {0}", name)));
+        } else {
+            for (ParsedFile parsedFile : parsedFiles) {
+                String fileName = parsedFile.data.storageFile.getName();
+                addLayers(loadLayers(parsedFile.data, parsedFile.parsedProperly, fileName, tr("Markers from {0}", fileName)));
+            }
+        }
+        if (!failedFiles.isEmpty()) {
+            throw new IOException(trn("Could not read file {0}", "Could not read files {0}", failedFiles.size(),
+                    String.join(", ", failedFiles)));
         }
     }
 
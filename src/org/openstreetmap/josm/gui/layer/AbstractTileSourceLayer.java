@@ -162,7 +162,9 @@ implements ImageObserver, TileLoaderListener, ZoomChangeListener, FilterChangeLi
 
     //public static final BooleanProperty PROP_DRAW_DEBUG = new BooleanProperty(PREFERENCE_PREFIX + ".draw_debug", false);
     /** Zoomlevel at which tiles is currently downloaded. Initial zoom lvl is set to bestZoom */
-    private int currentZoomLevel;
+    private volatile int currentZoomLevel;
+    /** Guards changes of the zoom level, which is also set while painting, possibly in another thread than the event dispatch thread */
+    private final Object zoomLock = new Object();
 
     private final AttributionSupport attribution = new AttributionSupport();
 
@@ -786,15 +788,16 @@ implements ImageObserver, TileLoaderListener, ZoomChangeListener, FilterChangeLi
      * @return    true, if zoom increasing was successful, false otherwise
      */
     public boolean increaseZoomLevel() {
-        if (zoomIncreaseAllowed()) {
+        synchronized (zoomLock) {
+            if (!zoomIncreaseAllowed()) {
+                Logging.warn("Current zoom level ("+currentZoomLevel+") could not be increased. "+
+                        "Max.zZoom Level "+this.getMaxZoomLvl()+" reached.");
+                return false;
+            }
             currentZoomLevel++;
             Logging.debug("increasing zoom level to: {0}", currentZoomLevel);
-            zoomChanged();
-        } else {
-            Logging.warn("Current zoom level ("+currentZoomLevel+") could not be increased. "+
-                    "Max.zZoom Level "+this.getMaxZoomLvl()+" reached.");
-            return false;
         }
+        zoomChanged();
         return true;
     }
 
@@ -817,10 +820,12 @@ implements ImageObserver, TileLoaderListener, ZoomChangeListener, FilterChangeLi
     }
 
     private boolean setZoomLevel(int zoom, boolean invalidate) {
-        if (zoom == currentZoomLevel) return true;
-        if (zoom > this.getMaxZoomLvl()) return false;
-        if (zoom < this.getMinZoomLvl()) return false;
-        currentZoomLevel = zoom;
+        synchronized (zoomLock) {
+            if (zoom == currentZoomLevel) return true;
+            if (zoom > this.getMaxZoomLvl()) return false;
+            if (zoom < this.getMinZoomLvl()) return false;
+            currentZoomLevel = zoom;
+        }
         zoomChanged(invalidate);
         return true;
     }
@@ -842,13 +847,14 @@ implements ImageObserver, TileLoaderListener, ZoomChangeListener, FilterChangeLi
      * @return    true, if zoom increasing was successful, false othervise
      */
     public boolean decreaseZoomLevel() {
-        if (zoomDecreaseAllowed()) {
+        synchronized (zoomLock) {
+            if (!zoomDecreaseAllowed()) {
+                return false;
+            }
             Logging.debug("decreasing zoom level to: {0}", currentZoomLevel);
             currentZoomLevel--;
-            zoomChanged();
-        } else {
-            return false;
         }
+        zoomChanged();
         return true;
     }
 
@@ -1918,6 +1924,12 @@ implements ImageObserver, TileLoaderListener, ZoomChangeListener, FilterChangeLi
             }
         }
 
+        @Override
+        public boolean isConcurrent() {
+            // tiles are loaded by worker threads, the tile cache is synchronized and so are changes of the zoom level
+            return true;
+        }
+
         private void doPaint(MapViewGraphics graphics) {
             try {
                 drawInViewArea(graphics.getDefaultGraphics(), graphics.getMapView(), graphics.getClipBounds().getProjectionBounds());
@@ -83,6 +83,19 @@ public interface MapViewPaintable {
          */
         void paint(MapViewGraphics graphics);
 
+        /**
+         * Determines if this painter can be called in a worker thread, concurrently with the painters of other layers of the
+         * same map view. The layer is then painted to a transparent image, which is drawn over the layers below it.
+         * <p>
+         * This requires that the painter only draws over what is painted before it (e.g. it does not use a composite other than
+         * {@link java.awt.AlphaComposite#SRC_OVER}), that it does not wait for the event dispatch thread and that it does not
+         * modify state shared with other layers. The event dispatch thread waits for the painter to finish.
+         * @return {@code true} if this painter can paint concurrently with the painters of other layers
+         */
+        default boolean isConcurrent() {
+            return false;
+        }
+
         /**
          * Called when the layer is removed from the map view and this painter is not used any more.
          * <p>
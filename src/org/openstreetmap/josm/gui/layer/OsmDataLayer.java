@@ -31,10 +31,12 @@ import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
 import java.util.regex.Pattern;
 
 import javax.swing.AbstractAction;
@@ -83,7 +85,11 @@ import org.openstreetmap.josm.data.osm.event.DataSetListenerAdapter.Listener;
 import org.openstreetmap.josm.data.osm.visitor.BoundingXYVisitor;
 import org.openstreetmap.josm.data.osm.visitor.OsmPrimitiveVisitor;
 import org.openstreetmap.josm.data.osm.visitor.paint.AbstractMapRenderer;
+import org.openstreetmap.josm.data.osm.visitor.paint.LabelCollisionIndex;
 import org.openstreetmap.josm.data.osm.visitor.paint.MapRendererFactory;
+import org.openstreetmap.josm.data.osm.visitor.paint.SimplifiedGeometryCache;
+import org.openstreetmap.josm.data.osm.visitor.paint.StyledMapRenderer;
+import org.openstreetmap.josm.data.osm.visitor.paint.WireframeMapRenderer;
 import org.openstreetmap.josm.data.osm.visitor.paint.relations.MultipolygonCache;
 import org.openstreetmap.josm.data.preferences.BooleanProperty;
 import org.openstreetmap.josm.data.preferences.IntegerProperty;
@@ -96,6 +102,7 @@ import org.openstreetmap.josm.gui.MainApplication;
 import org.openstreetmap.josm.gui.MapFrame;
 import org.openstreetmap.josm.gui.MapView;
 import org.openstreetmap.josm.gui.MapViewState.MapViewPoint;
+import org.openstreetmap.josm.gui.NavigatableComponent;
 import org.openstreetmap.josm.gui.datatransfer.ClipboardUtils;
 import org.openstreetmap.josm.gui.datatransfer.data.OsmLayerTransferData;
 import org.openstreetmap.josm.gui.dialogs.LayerListDialog;
@@ -265,6 +272,42 @@ public class OsmDataLayer extends AbstractOsmDataLayer implements Listener, Data
         }
     }
 
+    /**
+     * The parameters the rendering of the data depends on, besides the map view and the data itself.
+     * @see #getRenderingParameters
+     */
+    static final class RenderingParameters {
+        /** Whether the layer is the active one */
+        final boolean active;
+        /** Whether the layer is drawn in the inactive color */
+        final boolean inactive;
+        /** Whether virtual nodes are drawn */
+        final boolean virtual;
+        /** Whether slow operations like drawing labels are enabled */
+        final boolean slowOperations;
+
+        RenderingParameters(boolean active, boolean inactive, boolean virtual, boolean slowOperations) {
+            this.active = active;
+            this.inactive = inactive;
+            this.virtual = virtual;
+            this.slowOperations = slowOperations;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            RenderingParameters that = (RenderingParameters) o;
+            return active == that.active && inactive == that.inactive && virtual == that.virtual
+                    && slowOperations == that.slowOperations;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(active, inactive, virtual, slowOperations);
+        }
+    }
+
     /**
      * A listener that counts the number of primitives it encounters
      */
@@ -363,6 +406,11 @@ public class OsmDataLayer extends AbstractOsmDataLayer implements Listener, Data
     public final DataSet data;
     private DataSetListenerAdapter dataSetListenerAdapter;
 
+    /**
+     * The painters of this layer, which are notified of changes before the layer is invalidated.
+     */
+    private final CopyOnWriteArrayList<OsmDataLayerPainter> painters = new CopyOnWriteArrayList<>();
+
     /**
      * a texture for non-downloaded area
      */
@@ -419,6 +467,7 @@ public class OsmDataLayer extends AbstractOsmDataLayer implements Listener, Data
         this.setAssociatedFile(associatedFile);
         data.addDataSetListener(dataSetListenerAdapter);
         data.addDataSetListener(MultipolygonCache.getInstance());
+        data.addDataSetListener(SimplifiedGeometryCache.getInstance());
         data.addHighlightUpdateListener(this);
         data.addSelectionListener(this);
         if (name != null && name.startsWith(createLayerName("")) && Character.isDigit(
@@ -477,10 +526,43 @@ public class OsmDataLayer extends AbstractOsmDataLayer implements Listener, Data
      * Draw nodes last to overlap the ways they belong to.
      */
     @Override public void paint(final Graphics2D g, final MapView mv, Bounds box) {
+        paintDataSourceBounds(g, mv);
+        paintData(g, mv, box, null, null);
+        paintConflicts(g, mv);
+    }
+
+    @Override
+    protected LayerPainter createMapViewPainter(MapViewEvent event) {
+        OsmDataLayerPainter painter = new OsmDataLayerPainter(this);
+        painters.add(painter);
+        return painter;
+    }
+
+    void removePainter(OsmDataLayerPainter painter) {
+        painters.remove(painter);
+    }
+
+    /**
+     * Gets the parameters the rendering of the data depends on.
+     * @param mv The map view
+     * @return the rendering parameters
+     */
+    RenderingParameters getRenderingParameters(MapView mv) {
         boolean active = mv.getLayerManager().getActiveLayer() == this;
         boolean inactive = !active && Config.getPref().getBoolean("draw.data.inactive_color", true);
         boolean virtual = !inactive && mv.isVirtualNodesEnabled();
+        boolean slowOperations = mv.getMapMover() == null || !mv.getMapMover().movementInProgress()
+                || !PROPERTY_HIDE_LABELS_WHILE_DRAGGING.get();
+        return new RenderingParameters(active, inactive, virtual, slowOperations);
+    }
 
+    /**
+     * Draws the hatched area for non-downloaded regions, if this layer is the active one.
+     * @param g The graphics to draw on
+     * @param mv The map view
+     */
+    void paintDataSourceBounds(final Graphics2D g, final MapView mv) {
+        boolean active = mv.getLayerManager().getActiveLayer() == this;
         // draw the hatched area for non-downloaded region. only draw if we're the active
         // and bounds are defined; don't draw for inactive layers or loaded GPX files etc
         if (active && DrawingPreference.SOURCE_BOUNDS_PROP.get() && !data.getDataSources().isEmpty()) {
@@ -516,11 +598,71 @@ public class OsmDataLayer extends AbstractOsmDataLayer implements Listener, Data
                 Logging.error(e);
             }
         }
+    }
 
-        AbstractMapRenderer painter = MapRendererFactory.getInstance().createActiveRenderer(g, mv, inactive);
-        painter.enableSlowOperations(mv.getMapMover() == null || !mv.getMapMover().movementInProgress()
-                || !PROPERTY_HIDE_LABELS_WHILE_DRAGGING.get());
-        painter.render(data, virtual, box);
+    /**
+     * Draws the primitives of this layer.
+     * @param g The graphics to draw on
+     * @param mv The map view
+     * @param box The area to draw
+     * @param target The image {@code g} draws on, or {@code null} if unknown
+     * @param labels The index of the labels drawn before, or {@code null} to draw all labels from scratch
+     */
+    void paintData(final Graphics2D g, final MapView mv, Bounds box, BufferedImage target, LabelCollisionIndex labels) {
+        paintData(g, mv, getRenderingParameters(mv), box, target, labels, null, null);
+    }
+
+    /**
+     * Draws the primitives of this layer, unless the drawing becomes obsolete.
+     * @param g The graphics to draw on
+     * @param nc The view to draw
+     * @param parameters The rendering parameters, see {@link #getRenderingParameters}
+     * @param box The area to draw
+     * @param target The image {@code g} draws on, or {@code null} if unknown
+     * @param labels The index of the labels drawn before, or {@code null} to draw all labels from scratch
+     * @param regions The regions of {@code target} to draw if the styled renderer is active, see {@link StyledMapRenderer#setRegions},
+     * or {@code null} to draw the whole clip of {@code g}
+     * @param cancelCheck Tells if the drawing is obsolete and should stop, or {@code null} to always draw completely
+     * @return {@code false} if the drawing has been canceled and is incomplete
+     * @see AbstractMapRenderer#setCancelCheck
+     */
+    boolean paintData(final Graphics2D g, final NavigatableComponent nc, RenderingParameters parameters, Bounds box,
+            BufferedImage target, LabelCollisionIndex labels, List<Rectangle> regions, BooleanSupplier cancelCheck) {
+        AbstractMapRenderer painter = MapRendererFactory.getInstance().createActiveRenderer(g, nc, parameters.inactive);
+        painter.enableSlowOperations(parameters.slowOperations);
+        if (painter instanceof StyledMapRenderer) {
+            ((StyledMapRenderer) painter).setTargetImage(target);
+            ((StyledMapRenderer) painter).setLabelCollisionIndex(labels);
+            ((StyledMapRenderer) painter).setRegions(regions);
+        }
+        painter.setCancelCheck(cancelCheck);
+        painter.render(data, parameters.virtual, box);
+        return !painter.isCanceled();
+    }
+
+    /**
+     * Draws a quick preview of the primitives of this layer with the wireframe renderer.
+     * @param g The graphics to draw on
+     * @param nc The view to draw
+     * @param parameters The rendering parameters, see {@link #getRenderingParameters}
+     * @param box The area to draw
+     * @param cancelCheck Tells if the drawing is obsolete and should stop, or {@code null} to always draw completely
+     * @return {@code false} if the drawing has been canceled and is incomplete
+     */
+    boolean paintPreview(final Graphics2D g, final NavigatableComponent nc, RenderingParameters parameters, Bounds box,
+            BooleanSupplier cancelCheck) {
+        WireframeMapRenderer painter = new WireframeMapRenderer(g, nc, parameters.inactive);
+        painter.setCancelCheck(cancelCheck);
+        painter.render(data, parameters.virtual, box);
+        return !painter.isCanceled();
+    }
+
+    /**
+     * Draws the conflicts of the map frame.
+     * @param g The graphics to draw on
+     * @param mv The map view
+     */
+    void paintConflicts(final Graphics2D g, final MapView mv) {
         MainApplication.getMap().conflictDialog.paintConflicts(g, mv);
     }
 
@@ -1063,6 +1205,7 @@ public class OsmDataLayer extends AbstractOsmDataLayer implements Listener, Data
         data.removeHighlightUpdateListener(this);
         data.removeDataSetListener(dataSetListenerAdapter);
         data.removeDataSetListener(MultipolygonCache.getInstance());
+        data.removeDataSetListener(SimplifiedGeometryCache.getInstance());
         removeClipboardDataFor(this);
         recentRelations.clear();
     }
@@ -1083,6 +1226,7 @@ public class OsmDataLayer extends AbstractOsmDataLayer implements Listener, Data
 
     @Override
     public void processDatasetEvent(AbstractDatasetChangedEvent event) {
+        painters.forEach(p -> p.processDatasetEvent(event));
         invalidate();
         setRequiresSaveToFile(true);
         setRequiresUploadToServer(event.getDataset().requiresUploadToServer());
@@ -1090,13 +1234,15 @@ public class OsmDataLayer extends AbstractOsmDataLayer implements Listener, Data
 
     @Override
     public void selectionChanged(SelectionChangeEvent event) {
+        painters.forEach(p -> p.selectionChanged(event));
         invalidate();
     }
 
     @Override
     public void projectionChanged(Projection oldValue, Projection newValue) {
-         // No reprojection required. The dataset itself is registered as projection
-         // change listener and already got notified.
+         // The dataset itself is registered as projection change listener and already got notified.
+         // Its nodes are projected on demand, but large datasets are better projected in parallel beforehand.
+         ReprojectionTask.schedule(this);
     }
 
     @Override
@@ -1222,6 +1368,7 @@ public class OsmDataLayer extends AbstractOsmDataLayer implements Listener, Data
 
     @Override
     public void highlightUpdated(HighlightUpdateEvent e) {
+        painters.forEach(p -> p.highlightUpdated(e));
         invalidate();
     }
 
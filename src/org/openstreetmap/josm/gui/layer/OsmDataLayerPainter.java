@@ -0,0 +1,760 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.layer;
+
+import java.awt.AlphaComposite;
+import java.awt.EventQueue;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.Toolkit;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseEvent;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Area;
+import java.awt.geom.NoninvertibleTransformException;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+
+import javax.swing.Timer;
+
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.BBox;
+import org.openstreetmap.josm.data.osm.DataSelectionListener.SelectionChangeEvent;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.HighlightUpdateListener.HighlightUpdateEvent;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.WaySegment;
+import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataChangedEvent;
+import org.openstreetmap.josm.data.osm.visitor.paint.LabelCollisionIndex;
+import org.openstreetmap.josm.data.osm.visitor.paint.MapRendererFactory;
+import org.openstreetmap.josm.data.preferences.BooleanProperty;
+import org.openstreetmap.josm.data.preferences.IntegerProperty;
+import org.openstreetmap.josm.data.preferences.NamedColorProperty;
+import org.openstreetmap.josm.gui.MapView;
+import org.openstreetmap.josm.gui.MapViewState;
+import org.openstreetmap.josm.gui.MapViewState.MapViewPoint;
+import org.openstreetmap.josm.gui.layer.MapViewPaintable.LayerPainter;
+import org.openstreetmap.josm.gui.layer.MapViewPaintable.MapViewEvent;
+import org.openstreetmap.josm.gui.layer.MapViewPaintable.PaintableInvalidationEvent;
+import org.openstreetmap.josm.gui.layer.MapViewPaintable.PaintableInvalidationListener;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer.RenderingParameters;
+import org.openstreetmap.josm.spi.preferences.Config;
+import org.openstreetmap.josm.spi.preferences.PreferenceChangeEvent;
+import org.openstreetmap.josm.spi.preferences.PreferenceChangedListener;
+import org.openstreetmap.josm.tools.Logging;
+
+/**
+ * Paints an {@link OsmDataLayer} using a retained image of the rendered data.
+ * <p>
+ * The image is kept between paint calls. Changes of the data, the selection and the highlighting only mark
+ * the screen regions of the affected primitives as dirty, and only these regions are rendered again.
+ * When the map is panned, the image is moved and only the newly exposed strips are rendered.
+ * Everything else (zoom, projection, styles, rendering preferences, active layer) causes a full repaint.
+ * <p>
+ * The old position of a moved primitive is only known if its bounds have been recorded before, which is done for
+ * the selected primitives and the primitives affected by earlier changes. Moving other primitives causes a full repaint.
+ * <p>
+ * A full repaint is canceled as soon as user input that is likely to move the map is waiting. If a full repaint has been
+ * canceled or if the last one was slow, the data is drawn as a quick wireframe preview instead. The preview is refined
+ * with the full styles once the map view has been idle for a short time, by the timer rather than in a paint call.
+ * It is rendered into a separate image, so that the preview remains visible if the refinement is canceled as well.
+ * Both checks for waiting input while the styles are computed, so that the event dispatch thread is not blocked long.
+ * <p>
+ * The image is rendered by the event dispatch thread, since computing the styles reads the selection, the highlighting
+ * and the multipolygon cache, which the event dispatch thread changes without locking the dataset.
+ */
+final class OsmDataLayerPainter implements LayerPainter, PaintableInvalidationListener, PreferenceChangedListener {
+
+    /**
+     * Property to enable the retained image of data layers
+     */
+    static final BooleanProperty PROP_RETAINED_IMAGE = new BooleanProperty("mappaint.retained-image", true);
+    /**
+     * The distance in pixels a style element may be painted outside of the bounds of its primitive,
+     * e.g. for icons or labels. Dirty regions are grown by this margin.
+     */
+    static final IntegerProperty PROP_DIRTY_MARGIN = new IntegerProperty("mappaint.retained-image.margin", 150);
+    /**
+     * Property for the duration in milliseconds of the last full repaint, above which the data is first drawn as a preview.
+     * A negative value disables the preview.
+     */
+    static final IntegerProperty PROP_PREVIEW_THRESHOLD = new IntegerProperty("mappaint.retained-image.preview-threshold", 200);
+    /**
+     * Property for the time in milliseconds the map view has to be idle before the preview is refined
+     */
+    static final IntegerProperty PROP_REFINE_DELAY = new IntegerProperty("mappaint.retained-image.refine-delay", 150);
+
+    /** If more primitives than this are affected by a change, the whole image is repainted */
+    private static final int MAX_DIRTY_PRIMITIVES = 10_000;
+    /** If there are more dirty regions than this, their bounding box is repainted, since each region is drawn separately */
+    private static final int MAX_DIRTY_REGIONS = 8;
+    /** A distance in pixels that is far outside of the image */
+    private static final double OUTSIDE_IMAGE = 1e6;
+    /** The number of primitives whose painted bounds are remembered */
+    private static final int MAX_KNOWN_BOUNDS = 20_000;
+    /** The prefixes of the keys of the preferences that affect the rendering of the data, including the colors */
+    private static final String[] RENDERING_PREFERENCE_PREFIXES = {"mappaint.", "draw.", NamedColorProperty.NAMED_COLOR_PREFIX};
+
+    private final OsmDataLayer layer;
+
+    private BufferedImage image;
+    private MapViewState imageState;
+    private AffineTransform imageTransform;
+    private RenderingParameters imageParameters;
+    private Area lastRepaint;
+    private LabelCollisionIndex labels = new LabelCollisionIndex();
+
+    /** The duration of the last full repaint with styles in nanoseconds, {@code -1} if unknown */
+    private long fullRepaintNanos = -1;
+    /** Set if the image only contains the wireframe preview of the data */
+    private boolean preview;
+    private final Timer refineTimer;
+    private MapView mapView;
+
+    // guarded by this, may be changed by dataset events from any thread
+    private boolean fullRepaint = true;
+    private boolean changeReported;
+    private final List<BBox> dirty = new ArrayList<>();
+    private final Map<OsmPrimitive, BBox> knownBounds = new LinkedHashMap<OsmPrimitive, BBox>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<OsmPrimitive, BBox> eldest) {
+            return size() > MAX_KNOWN_BOUNDS;
+        }
+    };
+    private Collection<WaySegment> highlightedSegments = Collections.emptyList();
+
+    /**
+     * Constructs a new {@code OsmDataLayerPainter}.
+     * @param layer The layer to paint
+     */
+    OsmDataLayerPainter(OsmDataLayer layer) {
+        this.layer = layer;
+        refineTimer = new Timer(PROP_REFINE_DELAY.get(), e -> refinementDue());
+        refineTimer.setRepeats(false);
+        layer.addInvalidationListener(this);
+        Config.getPref().addPreferenceChangeListener(this);
+    }
+
+    @Override
+    public void paint(MapViewGraphics graphics) {
+        Graphics2D g = graphics.getDefaultGraphics();
+        MapView mv = graphics.getMapView();
+        if (ReprojectionTask.isPending(layer.getDataSet()) && drawStaleImage(g)) {
+            return;
+        }
+        if (!PROP_RETAINED_IMAGE.get() || ReprojectionTask.isPending(layer.getDataSet())) {
+            layer.paint(g, mv, graphics.getClipBounds().getLatLonBoundsBox());
+            return;
+        }
+        layer.paintDataSourceBounds(g, mv);
+        mapView = mv;
+        AffineTransform transform = g.getTransform();
+        AffineTransform scale = AffineTransform.getScaleInstance(transform.getScaleX(), transform.getScaleY());
+        MapViewState state = mv.getState();
+        updateImage(scale, mv, layer.getRenderingParameters(mv), () -> isObsolete(mv, state));
+        g.setTransform(AffineTransform.getTranslateInstance(transform.getTranslateX(), transform.getTranslateY()));
+        g.drawImage(image, 0, 0, null);
+        g.setTransform(transform);
+        layer.paintConflicts(g, mv);
+    }
+
+    /**
+     * Draws the last image as it is, while the nodes are projected after a projection change.
+     * @param g the graphics
+     * @return {@code false} if there is no image
+     */
+    private boolean drawStaleImage(Graphics2D g) {
+        if (image == null) {
+            return false;
+        }
+        AffineTransform transform = g.getTransform();
+        g.setTransform(AffineTransform.getTranslateInstance(transform.getTranslateX(), transform.getTranslateY()));
+        g.drawImage(image, 0, 0, null);
+        g.setTransform(transform);
+        return true;
+    }
+
+    /**
+     * Brings the retained image up to date with the state of the map view.
+     * @param transform the scale of the graphics the image is painted to
+     * @param mv the map view
+     * @param parameters the rendering parameters
+     * @param obsolete tells if a full repaint is obsolete, so that a preview is drawn instead
+     */
+    private void updateImage(AffineTransform transform, MapView mv, RenderingParameters parameters, BooleanSupplier obsolete) {
+        MapViewState state = mv.getState();
+        int width = (int) Math.round(state.getViewWidth() * transform.getScaleX());
+        int height = (int) Math.round(state.getViewHeight() * transform.getScaleY());
+
+        lastRepaint = null;
+        boolean full;
+        List<BBox> dirtyBoxes;
+        synchronized (this) {
+            full = fullRepaint;
+            dirtyBoxes = new ArrayList<>(dirty);
+            fullRepaint = false;
+            dirty.clear();
+        }
+        if (image == null || image.getWidth() != width || image.getHeight() != height) {
+            image = width > 0 && height > 0 ? new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE) : null;
+            full = true;
+        }
+        Rectangle imageBounds = new Rectangle(0, 0, width, height);
+        full |= !transform.equals(imageTransform) || !parameters.equals(imageParameters) || imageState == null
+                || imageState.getScale() != state.getScale() || !Objects.equals(imageState.getProjecting(), state.getProjecting());
+
+        List<Rectangle2D> regions = new ArrayList<>();
+        if (!full && !imageState.equalsInWindow(state)) {
+            MapViewPoint oldOrigin = state.getPointFor(imageState.getForView(0, 0).getEastNorth());
+            double dx = oldOrigin.getInViewX() * transform.getScaleX();
+            double dy = oldOrigin.getInViewY() * transform.getScaleY();
+            full = Math.abs(dx - Math.rint(dx)) > 1e-3 || Math.abs(dy - Math.rint(dy)) > 1e-3
+                    || !moveImage((int) Math.rint(dx), (int) Math.rint(dy), regions);
+            if (!full) {
+                labels.translate(Math.rint(dx) / transform.getScaleX(), Math.rint(dy) / transform.getScaleY(),
+                        new Rectangle2D.Double(0, 0, state.getViewWidth(), state.getViewHeight()));
+            }
+        }
+        imageState = state;
+        imageTransform = transform;
+        imageParameters = parameters;
+        if (image == null) {
+            return;
+        }
+
+        if (!full) {
+            double margin = PROP_DIRTY_MARGIN.get();
+            for (BBox box : dirtyBoxes) {
+                Rectangle2D region = getViewBounds(state, box);
+                if (region != null) {
+                    region.setRect(region.getX() - margin, region.getY() - margin,
+                            region.getWidth() + 2 * margin, region.getHeight() + 2 * margin);
+                    // labels reaching into the region may move, so they are painted again completely
+                    regions.add(transform.createTransformedShape(labels.forget(region)).getBounds2D());
+                }
+            }
+            full = getArea(regions) > 0.5 * width * height;
+        }
+
+        List<Rectangle> clips;
+        if (full) {
+            clips = Collections.singletonList(imageBounds);
+            labels.clear();
+        } else {
+            clips = mergeRegions(regions, imageBounds);
+            if (clips.size() > MAX_DIRTY_REGIONS) {
+                Rectangle union = clips.get(0);
+                clips.forEach(union::add);
+                clips = Collections.singletonList(union);
+            }
+        }
+        if (clips.isEmpty()) {
+            return;
+        }
+        lastRepaint = new Area();
+        clips.forEach(clip -> lastRepaint.add(new Area(clip)));
+        List<Rectangle2D> viewRegions = full ? null : getViewRegions(clips, imageBounds, transform);
+        labels.setRegions(viewRegions);
+        if (full) {
+            preview = isPreviewRequired();
+            long start = System.nanoTime();
+            if (!preview) {
+                preview = !renderData(image, labels, mv, parameters, transform, clips, false, obsolete);
+                if (!preview) {
+                    fullRepaintNanos = System.nanoTime() - start;
+                }
+            }
+            if (preview) {
+                labels.clear();
+                renderData(image, labels, mv, parameters, transform, clips, true, null);
+                scheduleRefinement();
+            }
+        } else {
+            renderData(image, labels, mv, parameters, transform, clips, preview, null);
+        }
+        labels.setRegions(null);
+    }
+
+    /**
+     * Gets the regions labels may be placed in. Regions at the border of the image extend beyond it, since a label
+     * reaching outside of the image is not cut by a later repaint.
+     * @param clips the regions that are painted again, in image coordinates
+     * @param imageBounds the bounds of the image
+     * @param transform the transform from map view to image coordinates
+     * @return the regions in view coordinates
+     */
+    private static List<Rectangle2D> getViewRegions(List<Rectangle> clips, Rectangle imageBounds, AffineTransform transform) {
+        List<Rectangle2D> regions = new ArrayList<>(clips.size());
+        try {
+            AffineTransform inverse = transform.createInverse();
+            for (Rectangle clip : clips) {
+                Rectangle2D region = inverse.createTransformedShape(clip).getBounds2D();
+                double minX = clip.x <= imageBounds.x ? -OUTSIDE_IMAGE : region.getMinX();
+                double minY = clip.y <= imageBounds.y ? -OUTSIDE_IMAGE : region.getMinY();
+                double maxX = clip.getMaxX() >= imageBounds.getMaxX() ? OUTSIDE_IMAGE : region.getMaxX();
+                double maxY = clip.getMaxY() >= imageBounds.getMaxY() ? OUTSIDE_IMAGE : region.getMaxY();
+                region.setFrameFromDiagonal(minX, minY, maxX, maxY);
+                regions.add(region);
+            }
+        } catch (NoninvertibleTransformException e) {
+            Logging.error(e);
+        }
+        return regions;
+    }
+
+    private boolean isPreviewRequired() {
+        int threshold = PROP_PREVIEW_THRESHOLD.get();
+        return threshold >= 0 && fullRepaintNanos >= threshold * 1_000_000L
+                && !MapRendererFactory.getInstance().isWireframeMapRendererActive();
+    }
+
+    /**
+     * Determines if a repaint has become obsolete, because the map view has changed or because user input
+     * that is likely to change it is waiting to be processed.
+     * @param mv the map view
+     * @param state the state of the map view the repaint was started for
+     * @return {@code true} if the repaint is obsolete
+     */
+    private static boolean isObsolete(MapView mv, MapViewState state) {
+        if (mv.getState() != state) {
+            return true;
+        }
+        EventQueue queue = Toolkit.getDefaultToolkit().getSystemEventQueue();
+        return queue.peekEvent(MouseEvent.MOUSE_DRAGGED) != null || queue.peekEvent(MouseEvent.MOUSE_WHEEL) != null
+                || queue.peekEvent(KeyEvent.KEY_PRESSED) != null;
+    }
+
+    private void scheduleRefinement() {
+        refineTimer.setInitialDelay(PROP_REFINE_DELAY.get());
+        refineTimer.restart();
+    }
+
+    /**
+     * Called when the map view has been idle long enough to refine the preview.
+     * The preview is refined right away, unless the map view has changed since it was drawn.
+     */
+    void refinementDue() {
+        MapView mv = mapView;
+        if (mv == null || !preview || image == null) {
+            return;
+        }
+        MapViewState state = imageState;
+        RenderingParameters parameters = layer.getRenderingParameters(mv);
+        if (mv.getState() != state || !parameters.equals(imageParameters)) {
+            scheduleRefinement();
+            return;
+        }
+        refine(mv, parameters, () -> isObsolete(mv, state));
+        if (!preview) {
+            mv.repaint();
+        }
+    }
+
+    /**
+     * Replaces the preview with the data drawn with the full styles, unless the map view changes in the meantime.
+     * @param mv the map view
+     * @param parameters the rendering parameters
+     * @param obsolete tells if the refinement is obsolete
+     */
+    private void refine(MapView mv, RenderingParameters parameters, BooleanSupplier obsolete) {
+        BufferedImage refined = new BufferedImage(image.getWidth(), image.getHeight(), image.getType());
+        LabelCollisionIndex refinedLabels = new LabelCollisionIndex();
+        Rectangle clip = new Rectangle(0, 0, image.getWidth(), image.getHeight());
+        long start = System.nanoTime();
+        if (renderData(refined, refinedLabels, mv, parameters, imageTransform, Collections.singletonList(clip), false, obsolete)) {
+            fullRepaintNanos = System.nanoTime() - start;
+            image = refined;
+            labels = refinedLabels;
+            preview = false;
+            lastRepaint = new Area(clip);
+        } else {
+            scheduleRefinement();
+        }
+    }
+
+    /**
+     * Merges overlapping regions into their bounding box, unless it is larger than both regions together, e.g. for the L-shaped
+     * region exposed by a diagonal pan.
+     * <p>
+     * The regions are drawn one by one, each with a rectangular clip. Java2D rasterizes translucent and antialiased
+     * shapes slightly differently with a clip made of several rectangles, so the result would not match a full repaint.
+     * @param regions the dirty regions
+     * @param imageBounds the bounds of the image
+     * @return the regions within the image
+     */
+    private static List<Rectangle> mergeRegions(List<Rectangle2D> regions, Rectangle imageBounds) {
+        List<Rectangle> merged = new ArrayList<>();
+        for (Rectangle2D region : regions) {
+            Rectangle r = region.getBounds().intersection(imageBounds);
+            if (r.isEmpty()) {
+                continue;
+            }
+            boolean overlaps = true;
+            while (overlaps) {
+                overlaps = false;
+                for (Iterator<Rectangle> it = merged.iterator(); it.hasNext();) {
+                    Rectangle other = it.next();
+                    Rectangle union = r.union(other);
+                    if (other.intersects(r) && getArea(union) <= getArea(r) + getArea(other)) {
+                        r = union;
+                        it.remove();
+                        overlaps = true;
+                    }
+                }
+            }
+            merged.add(r);
+        }
+        return merged;
+    }
+
+    /**
+     * Renders the data within regions of an image.
+     * <p>
+     * The styled renderer computes the styles once and draws all regions in one pass. Other renderers draw the regions one by one.
+     * @param target the image
+     * @param index the index of the labels in the image
+     * @param mv the map view
+     * @param parameters the rendering parameters
+     * @param transform the transform from map view to image coordinates
+     * @param clips the regions, in image coordinates
+     * @param wireframe {@code true} to draw a wireframe preview
+     * @param cancelCheck tells if the rendering is obsolete and should stop, or {@code null}
+     * @return {@code false} if the rendering has been canceled
+     */
+    private boolean renderData(BufferedImage target, LabelCollisionIndex index, MapView mv, RenderingParameters parameters,
+            AffineTransform transform, List<Rectangle> clips, boolean wireframe, BooleanSupplier cancelCheck) {
+        if (wireframe || MapRendererFactory.getInstance().isWireframeMapRendererActive()) {
+            boolean complete = true;
+            for (Iterator<Rectangle> it = clips.iterator(); it.hasNext() && complete;) {
+                complete = renderData(target, index, mv, parameters, transform, it.next(), null, wireframe, cancelCheck);
+            }
+            return complete;
+        }
+        Rectangle bounds = new Rectangle(clips.get(0));
+        clips.forEach(bounds::add);
+        List<Rectangle> regions = bounds.equals(new Rectangle(target.getWidth(), target.getHeight())) ? null : clips;
+        return renderData(target, index, mv, parameters, transform, bounds, regions, false, cancelCheck);
+    }
+
+    /**
+     * Renders the data within a region of an image.
+     * @param target the image
+     * @param index the index of the labels in the image
+     * @param mv the map view
+     * @param parameters the rendering parameters
+     * @param transform the transform from map view to image coordinates
+     * @param clip the region, in image coordinates
+     * @param regions the regions within the clip to draw with the styled renderer, or {@code null} to draw the whole clip
+     * @param wireframe {@code true} to draw a wireframe preview
+     * @param cancelCheck tells if the rendering is obsolete and should stop, or {@code null}
+     * @return {@code false} if the rendering has been canceled
+     */
+    private boolean renderData(BufferedImage target, LabelCollisionIndex index, MapView mv, RenderingParameters parameters,
+            AffineTransform transform, Rectangle clip, List<Rectangle> regions, boolean wireframe, BooleanSupplier cancelCheck) {
+        Graphics2D g = target.createGraphics();
+        try {
+            g.setClip(clip);
+            g.setComposite(AlphaComposite.Clear);
+            (regions != null ? regions : Collections.singletonList(clip)).forEach(g::fill);
+            g.setComposite(AlphaComposite.SrcOver);
+            g.setTransform(transform);
+            // also render primitives just outside of the clip, their labels and icons may reach into it
+            Rectangle2D search = transform.createInverse().createTransformedShape(clip).getBounds2D();
+            double margin = PROP_DIRTY_MARGIN.get();
+            search.setRect(search.getX() - margin, search.getY() - margin,
+                    search.getWidth() + 2 * margin, search.getHeight() + 2 * margin);
+            Bounds box = mv.getState().getViewArea(search).getLatLonBoundsBox();
+            if (wireframe) {
+                return layer.paintPreview(g, mv, parameters, box, cancelCheck);
+            } else {
+                return layer.paintData(g, mv, parameters, box, target, index, regions, cancelCheck);
+            }
+        } catch (NoninvertibleTransformException e) {
+            Logging.error(e);
+        } finally {
+            g.dispose();
+        }
+        return true;
+    }
+
+    /**
+     * Moves the content of the image.
+     * @param dx the horizontal offset in pixels
+     * @param dy the vertical offset in pixels
+     * @param exposed the list to add the regions to that are exposed by the move
+     * @return {@code false} if nothing of the old content remains visible
+     */
+    private boolean moveImage(int dx, int dy, List<Rectangle2D> exposed) {
+        WritableRaster raster = image.getRaster();
+        int width = raster.getWidth() - Math.abs(dx);
+        int height = raster.getHeight() - Math.abs(dy);
+        if (width <= 0 || height <= 0) {
+            return false;
+        }
+        int sourceX = Math.max(0, -dx);
+        int sourceY = Math.max(0, -dy);
+        int targetX = Math.max(0, dx);
+        int targetY = Math.max(0, dy);
+        Object row = null;
+        // copy row by row, in an order that does not overwrite rows that still need to be copied
+        for (int i = 0; i < height; i++) {
+            int y = dy > 0 ? height - 1 - i : i;
+            row = raster.getDataElements(sourceX, sourceY + y, width, 1, row);
+            raster.setDataElements(targetX, targetY + y, width, 1, row);
+        }
+        if (dx != 0) {
+            exposed.add(new Rectangle(dx > 0 ? 0 : width, 0, Math.abs(dx), raster.getHeight()));
+        }
+        if (dy != 0) {
+            exposed.add(new Rectangle(0, dy > 0 ? 0 : height, raster.getWidth(), Math.abs(dy)));
+        }
+        return true;
+    }
+
+    /**
+     * Estimates the area covered by the regions, which usually overlap a lot.
+     * @param regions the regions
+     * @return the smaller of the summed area and the area of the union bounds
+     */
+    private static double getArea(List<Rectangle2D> regions) {
+        if (regions.isEmpty()) {
+            return 0;
+        }
+        Rectangle2D union = new Rectangle2D.Double();
+        union.setRect(regions.get(0));
+        regions.forEach(union::add);
+        return Math.min(regions.stream().mapToDouble(r -> r.getWidth() * r.getHeight()).sum(), union.getWidth() * union.getHeight());
+    }
+
+    private static double getArea(Rectangle r) {
+        return (double) r.width * r.height;
+    }
+
+    private static Rectangle2D getViewBounds(MapViewState state, BBox box) {
+        if (!box.isValid()) {
+            return null;
+        }
+        LatLon topLeft = box.getTopLeft();
+        LatLon bottomRight = box.getBottomRight();
+        Rectangle2D bounds = null;
+        for (LatLon ll : new LatLon[] {topLeft, bottomRight,
+                new LatLon(topLeft.lat(), bottomRight.lon()), new LatLon(bottomRight.lat(), topLeft.lon())}) {
+            MapViewPoint p = state.getPointFor(ll);
+            if (bounds == null) {
+                bounds = new Rectangle2D.Double(p.getInViewX(), p.getInViewY(), 0, 0);
+            } else {
+                bounds.add(p.getInViewX(), p.getInViewY());
+            }
+        }
+        return bounds;
+    }
+
+    /**
+     * Marks the regions affected by a dataset change as dirty.
+     * @param event the dataset event
+     */
+    synchronized void processDatasetEvent(AbstractDatasetChangedEvent event) {
+        changeReported = true;
+        if (!fullRepaint) {
+            fullRepaint = !addDirty(event);
+        }
+    }
+
+    private boolean addDirty(AbstractDatasetChangedEvent event) {
+        switch (event.getType()) {
+        case DATA_CHANGED:
+            List<AbstractDatasetChangedEvent> events = ((DataChangedEvent) event).getEvents();
+            return events != null && events.stream().allMatch(this::addDirty);
+        case NODE_MOVED:
+        case WAY_NODES_CHANGED:
+        case RELATION_MEMBERS_CHANGED:
+            return addDirty(event.getPrimitives(), true);
+        case PRIMITIVES_ADDED:
+        case PRIMITIVES_REMOVED:
+        case TAGS_CHANGED:
+        case PRIMITIVE_FLAGS_CHANGED:
+            return addDirty(event.getPrimitives(), false);
+        case CHANGESET_ID_CHANGED:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Marks the regions of primitives as dirty.
+     * @param primitives the changed primitives
+     * @param geometryChanged {@code true} if the geometry of the primitives has changed, so that their old bounds are dirty as well
+     * @return {@code false} if the old bounds of a primitive are unknown, or if too many primitives are affected
+     */
+    private boolean addDirty(Collection<? extends OsmPrimitive> primitives, boolean geometryChanged) {
+        Set<OsmPrimitive> affected = getAffected(primitives);
+        if (affected == null) {
+            return false;
+        }
+        for (OsmPrimitive osm : affected) {
+            if (geometryChanged) {
+                BBox old = knownBounds.get(osm);
+                if (old != null) {
+                    dirty.add(old);
+                } else if (!(osm instanceof Node && osm.getReferrers().stream().anyMatch(Way.class::isInstance))) {
+                    // the old position of a node is in the old bounds of its ways
+                    return false;
+                }
+            }
+            BBox box = osm.getBBox();
+            dirty.add(box);
+            if (geometryChanged || knownBounds.containsKey(osm)) {
+                knownBounds.put(osm, box);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the primitives whose rendering may depend on the given ones: the primitives itself, the parent ways and relations
+     * and the parent relations of the parent ways.
+     * @param primitives the primitives
+     * @return the affected primitives, or {@code null} if there are too many of them
+     */
+    private static Set<OsmPrimitive> getAffected(Collection<? extends OsmPrimitive> primitives) {
+        if (primitives.size() > MAX_DIRTY_PRIMITIVES) {
+            return null;
+        }
+        Set<OsmPrimitive> affected = new HashSet<>(primitives);
+        for (OsmPrimitive osm : primitives) {
+            for (OsmPrimitive parent : osm.getReferrers()) {
+                affected.add(parent);
+                if (parent instanceof Way) {
+                    parent.getReferrers().stream().filter(Relation.class::isInstance).forEach(affected::add);
+                }
+            }
+        }
+        return affected.size() > MAX_DIRTY_PRIMITIVES ? null : affected;
+    }
+
+    /**
+     * Marks the regions of selected and unselected primitives as dirty and remembers the bounds of the selected ones,
+     * since they are the ones that are likely to be moved.
+     * @param event the selection change event
+     */
+    synchronized void selectionChanged(SelectionChangeEvent event) {
+        changeReported = true;
+        if (fullRepaint) {
+            return;
+        }
+        Set<OsmPrimitive> changed = new HashSet<>(event.getAdded());
+        changed.addAll(event.getRemoved());
+        fullRepaint = changed.size() > MAX_DIRTY_PRIMITIVES;
+        if (!fullRepaint) {
+            changed.forEach(osm -> dirty.add(osm.getBBox()));
+            remember(event.getAdded());
+        }
+    }
+
+    private void remember(Collection<OsmPrimitive> selected) {
+        Set<OsmPrimitive> primitives = new HashSet<>(selected);
+        for (OsmPrimitive osm : selected) {
+            if (osm instanceof Way) {
+                primitives.addAll(((Way) osm).getNodes());
+            }
+        }
+        Set<OsmPrimitive> affected = getAffected(primitives);
+        if (affected != null) {
+            affected.forEach(osm -> knownBounds.put(osm, osm.getBBox()));
+        }
+    }
+
+    /**
+     * Marks the region of the primitive or the way segments whose highlighting changed as dirty.
+     * @param event the highlight update event
+     */
+    synchronized void highlightUpdated(HighlightUpdateEvent event) {
+        changeReported = true;
+        OsmPrimitive osm = event.getPrimitive();
+        if (osm != null) {
+            if (!fullRepaint) {
+                dirty.add(osm.getBBox());
+            }
+            return;
+        }
+        DataSet data = event.getDataSet();
+        Collection<WaySegment> newSegments = new ArrayList<>(data.getHighlightedWaySegments());
+        newSegments.addAll(data.getHighlightedVirtualNodes());
+        if (!fullRepaint) {
+            Set<OsmPrimitive> changed = new HashSet<>();
+            highlightedSegments.forEach(ws -> changed.add(ws.way));
+            newSegments.forEach(ws -> changed.add(ws.way));
+            fullRepaint = changed.size() > MAX_DIRTY_PRIMITIVES;
+            changed.forEach(way -> dirty.add(way.getBBox()));
+        }
+        highlightedSegments = newSegments;
+    }
+
+    /**
+     * Gets the region of the image that was rendered again by the last paint call. For unit tests.
+     * @return the region, or {@code null} if nothing was rendered
+     */
+    Area getLastRepaint() {
+        return lastRepaint;
+    }
+
+    /**
+     * Determines if the image only contains the wireframe preview of the data. For unit tests.
+     * @return {@code true} if the preview has not been refined yet
+     */
+    boolean isPreview() {
+        return preview;
+    }
+
+    @Override
+    public synchronized void paintableInvalidated(PaintableInvalidationEvent event) {
+        // invalidations that do not follow a change reported to this painter come from style changes or other external causes
+        if (!changeReported) {
+            fullRepaint = true;
+        }
+        changeReported = false;
+    }
+
+    @Override
+    public synchronized void preferenceChanged(PreferenceChangeEvent e) {
+        if (isRenderingPreference(e.getKey())) {
+            fullRepaint = true;
+        }
+    }
+
+    private static boolean isRenderingPreference(String key) {
+        for (String prefix : RENDERING_PREFERENCE_PREFIXES) {
+            if (key.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void detachFromMapView(MapViewEvent event) {
+        layer.removeInvalidationListener(this);
+        Config.getPref().removePreferenceChangeListener(this);
+        layer.removePainter(this);
+        refineTimer.stop();
+        mapView = null;
+        image = null;
+    }
+}
@@ -0,0 +1,76 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.layer;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.projection.ProjectionRegistry;
+import org.openstreetmap.josm.gui.MainApplication;
+import org.openstreetmap.josm.gui.PleaseWaitRunnable;
+import org.openstreetmap.josm.gui.progress.ProgressMonitor;
+import org.openstreetmap.josm.tools.Logging;
+
+/**
+ * Projects the nodes of a large data layer in parallel after a projection change, see {@link DataSet#reproject}.
+ * <p>
+ * Otherwise the first repaint would project all visible nodes one by one in the event dispatch thread. Until this task
+ * is finished, the layer shows the image it rendered last. If there is none, the data is drawn, projecting the visible
+ * nodes on demand.
+ */
+final class ReprojectionTask extends PleaseWaitRunnable {
+
+    /**
+     * Data sets with fewer primitives are simply projected on demand
+     */
+    private static final int MIN_PRIMITIVES = 50_000;
+
+    private static final Set<DataSet> PENDING = ConcurrentHashMap.newKeySet();
+
+    private final OsmDataLayer layer;
+
+    private ReprojectionTask(OsmDataLayer layer) {
+        super(tr("Projecting layer {0}", layer.getName()), true);
+        this.layer = layer;
+    }
+
+    /**
+     * Schedules the projection of the nodes of the given layer, if it is large enough.
+     * @param layer the data layer
+     */
+    static void schedule(OsmDataLayer layer) {
+        if (layer.getDataSet().allPrimitives().size() >= MIN_PRIMITIVES && PENDING.add(layer.getDataSet())) {
+            MainApplication.worker.submit(new ReprojectionTask(layer));
+        }
+    }
+
+    /**
+     * Determines if the nodes of the given data set are waiting to be projected.
+     * @param ds the data set
+     * @return {@code true} if a reprojection task is pending for this data set
+     */
+    static boolean isPending(DataSet ds) {
+        return PENDING.contains(ds);
+    }
+
+    @Override
+    protected void realRun() {
+        long start = System.nanoTime();
+        int projected = layer.getDataSet().reproject(ProjectionRegistry.getProjection(),
+                getProgressMonitor().createSubTaskMonitor(ProgressMonitor.ALL_TICKS, false));
+        Logging.debug("Projected {0} nodes of {1} in {2} ms", projected, layer.getName(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @Override
+    protected void finish() {
+        PENDING.remove(layer.getDataSet());
+        layer.invalidate();
+    }
+
+    @Override
+    protected void cancel() {
+        // The data set checks the progress monitor. Nodes that have not been projected are projected on demand.
+    }
+}
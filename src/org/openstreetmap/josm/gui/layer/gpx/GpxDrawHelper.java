@@ -23,9 +23,10 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.Date;
-import java.util.LinkedList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Random;
 
@@ -36,6 +37,7 @@ import org.openstreetmap.josm.data.PreferencesUtils;
 import org.openstreetmap.josm.data.SystemOfMeasurement;
 import org.openstreetmap.josm.data.SystemOfMeasurement.SoMChangeListener;
 import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.gpx.ColumnarGpxTrackSegment;
 import org.openstreetmap.josm.data.gpx.GpxConstants;
 import org.openstreetmap.josm.data.gpx.GpxData;
 import org.openstreetmap.josm.data.gpx.GpxData.GpxDataChangeEvent;
@@ -43,6 +45,8 @@ import org.openstreetmap.josm.data.gpx.GpxData.GpxDataChangeListener;
 import org.openstreetmap.josm.data.gpx.Line;
 import org.openstreetmap.josm.data.gpx.WayPoint;
 import org.openstreetmap.josm.data.preferences.NamedColorProperty;
+import org.openstreetmap.josm.data.projection.Projection;
+import org.openstreetmap.josm.data.projection.ProjectionRegistry;
 import org.openstreetmap.josm.gui.MapView;
 import org.openstreetmap.josm.gui.MapViewState;
 import org.openstreetmap.josm.gui.layer.GpxLayer;
@@ -349,45 +353,60 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
 
     @Override
     public void paint(MapViewGraphics graphics) {
-        List<WayPoint> visibleSegments = listVisibleSegments(graphics.getClipBounds().getLatLonBoundsBox());
-        if (!visibleSegments.isEmpty()) {
-            readPreferences(layer.getName());
-            drawAll(graphics.getDefaultGraphics(), graphics.getMapView(), visibleSegments);
+        // colors are computed first, as they determine the lines that are drawn
+        readPreferences(layer.getName());
+        checkCache();
+        if (!computeCacheInSync) {
+            calculateColors();
+        }
+        VisiblePoints visiblePoints = listVisiblePoints(graphics.getClipBounds().getLatLonBoundsBox());
+        if (!visiblePoints.isEmpty()) {
+            drawAll(graphics.getDefaultGraphics(), graphics.getMapView(), visiblePoints);
             if (graphics.getMapView().getLayerManager().getActiveLayer() == layer) {
                 drawColorBar(graphics.getDefaultGraphics(), graphics.getMapView());
             }
         }
     }
 
-    private List<WayPoint> listVisibleSegments(Bounds box) {
-        WayPoint last = null;
-        LinkedList<WayPoint> visibleSegments = new LinkedList<>();
+    @Override
+    public boolean isConcurrent() {
+        // the caches of this helper are only used by its layer
+        return true;
+    }
+
+    private VisiblePoints listVisiblePoints(Bounds box) {
+        VisiblePoints visiblePoints = new VisiblePoints();
+        boolean hasLast = false;
+        boolean lastVisible = false;
+        double lastLat = Double.NaN;
+        double lastLon = Double.NaN;
 
         ensureTrackVisibilityLength();
         for (Line segment : data.getLinesIterable(layer.trackVisibility)) {
-
-            for (WayPoint pt : segment) {
-                Bounds b = new Bounds(pt.getCoor());
-                if (pt.drawLine && last != null) {
-                    b.extend(last.getCoor());
+            LinePoints points = LinePoints.of(segment);
+            while (points.next()) {
+                double lat = points.getLat();
+                double lon = points.getLon();
+                Bounds b = new Bounds(lat, lon, true);
+                if (points.isDrawLine() && hasLast) {
+                    b.extend(lastLat, lastLon);
                 }
-                if (b.intersects(box)) {
-                    if (last != null && (visibleSegments.isEmpty()
-                            || visibleSegments.getLast() != last)) {
-                        if (last.drawLine) {
-                            WayPoint l = new WayPoint(last);
-                            l.drawLine = false;
-                            visibleSegments.add(l);
-                        } else {
-                            visibleSegments.add(last);
-                        }
-                    }
-                    visibleSegments.add(pt);
+                boolean visible = b.intersects(box);
+                if (visible && hasLast && !lastVisible) {
+                    // the line to the previous point is drawn, but not the line before it
+                    visiblePoints.addLast(false);
+                }
+                points.setLast(visiblePoints);
+                if (visible) {
+                    visiblePoints.addLast(true);
                 }
-                last = pt;
+                hasLast = true;
+                lastVisible = visible;
+                lastLat = lat;
+                lastLon = lon;
             }
         }
-        return visibleSegments;
+        return visiblePoints;
     }
 
     /** ensures the trackVisibility array has the correct length without losing data.
@@ -412,6 +431,15 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
      * @param visibleSegments segments visible in the current scope of mv
      */
     public void drawAll(Graphics2D g, MapView mv, List<WayPoint> visibleSegments) {
+        VisiblePoints visiblePoints = new VisiblePoints();
+        for (WayPoint trkPnt : visibleSegments) {
+            visiblePoints.setLast(trkPnt);
+            visiblePoints.addLast(true);
+        }
+        drawAll(g, mv, visiblePoints);
+    }
+
+    private void drawAll(Graphics2D g, MapView mv, VisiblePoints visiblePoints) {
 
         final long timeStart = System.currentTimeMillis();
 
@@ -422,8 +450,6 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
             calculateColors();
         }
 
-        fixColors(visibleSegments);
-
         // backup the environment
         Composite oldComposite = g.getComposite();
         Stroke oldStroke = g.getStroke();
@@ -451,13 +477,13 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
 
         // use heatmap background layer
         if (useHeatMap) {
-            drawHeatMap(g, mv, visibleSegments);
+            drawHeatMap(g, mv, visiblePoints);
         } else {
             // use normal line style or alpha-blending lines
             if (!alphaLines) {
-                drawLines(g, mv, visibleSegments);
+                drawLines(g, mv, visiblePoints);
             } else {
-                drawLinesAlpha(g, mv, visibleSegments, layerAlpha);
+                drawLinesAlpha(g, mv, visiblePoints, layerAlpha);
             }
         }
 
@@ -467,8 +493,8 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
         }
 
         // normal overlays
-        drawArrows(g, mv, visibleSegments);
-        drawPoints(g, mv, visibleSegments);
+        drawArrows(g, mv, visiblePoints);
+        drawPoints(g, mv, visiblePoints);
 
         // restore environment
         g.setPaint(oldPaint);
@@ -476,14 +502,14 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
         g.setComposite(oldComposite);
 
         // show some debug info
-        if (Logging.isDebugEnabled() && !visibleSegments.isEmpty()) {
+        if (Logging.isDebugEnabled() && !visiblePoints.isEmpty()) {
             final long timeDiff = System.currentTimeMillis() - timeStart;
 
             Logging.debug("gpxdraw::draw takes " +
                          Utils.getDurationString(timeDiff) +
                          "(" +
-                         "segments= " + visibleSegments.size() +
-                         ", per 10000 = " + Utils.getDurationString(10_000 * timeDiff / visibleSegments.size()) +
+                         "segments= " + visiblePoints.size() +
+                         ", per 10000 = " + Utils.getDurationString(10_000 * timeDiff / visiblePoints.size()) +
                          ")"
               );
         }
@@ -495,25 +521,29 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
     public void calculateColors() {
         double minval = +1e10;
         double maxval = -1e10;
-        WayPoint oldWp = null;
+        LatLon oldCoor = null;
+        long oldTime = 0;
 
         if (colorModeDynamic) {
             if (colored == ColorMode.VELOCITY) {
                 final List<Double> velocities = new ArrayList<>();
                 for (Line segment : data.getLinesIterable(null)) {
                     if (!forceLines) {
-                        oldWp = null;
+                        oldCoor = null;
                     }
-                    for (WayPoint trkPnt : segment) {
-                        if (!trkPnt.isLatLonKnown()) {
+                    LinePoints points = LinePoints.of(segment);
+                    while (points.next()) {
+                        LatLon c = points.getCoor();
+                        if (!c.isLatLonKnown()) {
                             continue;
                         }
-                        if (oldWp != null && trkPnt.getTimeInMillis() > oldWp.getTimeInMillis()) {
-                            double vel = trkPnt.getCoor().greatCircleDistance(oldWp.getCoor())
-                                    / (trkPnt.getTime() - oldWp.getTime());
+                        long time = points.getTimeInMillis();
+                        if (oldCoor != null && time > oldTime) {
+                            double vel = c.greatCircleDistance(oldCoor) / ((time - oldTime) / 1000.);
                             velocities.add(vel);
                         }
-                        oldWp = trkPnt;
+                        oldCoor = c;
+                        oldTime = time;
                     }
                 }
                 Collections.sort(velocities);
@@ -526,8 +556,9 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
                 }
             } else if (colored == ColorMode.HDOP) {
                 for (Line segment : data.getLinesIterable(null)) {
-                    for (WayPoint trkPnt : segment) {
-                        Object val = trkPnt.get(GpxConstants.PT_HDOP);
+                    LinePoints points = LinePoints.of(segment);
+                    while (points.next()) {
+                        Object val = points.get(GpxConstants.PT_HDOP);
                         if (val != null) {
                             double hdop = ((Float) val).doubleValue();
                             if (hdop > maxval) {
@@ -545,7 +576,7 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
                     hdopScale.setRange(minval, maxval);
                 }
             }
-            oldWp = null;
+            oldCoor = null;
         } else { // color mode not dynamic
             velocityScale.setRange(0, colorTracksTune);
             hdopScale.setRange(0, hdoprange);
@@ -566,27 +597,31 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
         // Now the colors for all the points will be assigned
         for (Line segment : data.getLinesIterable(null)) {
             if (!forceLines) { // don't draw lines between segments, unless forced to
-                oldWp = null;
+                oldCoor = null;
             }
-            for (WayPoint trkPnt : segment) {
-                LatLon c = trkPnt.getCoor();
-                trkPnt.customColoring = neutralColor;
+            LinePoints points = LinePoints.of(segment);
+            while (points.next()) {
+                LatLon c = points.getCoor();
                 if (Double.isNaN(c.lat()) || Double.isNaN(c.lon())) {
+                    points.setDrawing(neutralColor, false, 0);
                     continue;
                 }
                 // now we are sure some color will be assigned
                 Color color = null;
+                boolean drawLine = false;
+                int dir = 0;
+                long time = points.getTimeInMillis();
 
                 if (colored == ColorMode.HDOP) {
-                    Float hdop = (Float) trkPnt.get(GpxConstants.PT_HDOP);
+                    Float hdop = (Float) points.get(GpxConstants.PT_HDOP);
                     color = hdopScale.getColor(hdop);
                 }
-                if (oldWp != null) { // other coloring modes need segment for calcuation
-                    double dist = c.greatCircleDistance(oldWp.getCoor());
+                if (oldCoor != null) { // other coloring modes need segment for calcuation
+                    double dist = c.greatCircleDistance(oldCoor);
                     boolean noDraw = false;
                     switch (colored) {
                     case VELOCITY:
-                        double dtime = trkPnt.getTime() - oldWp.getTime();
+                        double dtime = (time - oldTime) / 1000.;
                         if (dtime > 0) {
                             color = velocityScale.getColor(dist / dtime);
                         } else {
@@ -594,11 +629,11 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
                         }
                         break;
                     case DIRECTION:
-                        double dirColor = oldWp.getCoor().bearing(trkPnt.getCoor());
+                        double dirColor = oldCoor.bearing(c);
                         color = directionScale.getColor(dirColor);
                         break;
                     case TIME:
-                        double t = trkPnt.getTime();
+                        double t = time / 1000.;
                         // skip bad timestamps and very short tracks
                         if (t > 0 && t <= now && maxval - minval > minTrackDurationForTimeColoring) {
                             color = dateScale.getColor(t);
@@ -609,20 +644,16 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
                     default: // Do nothing
                     }
                     if (!noDraw && !segment.isUnordered() && (maxLineLength == -1 || dist <= maxLineLength)) {
-                        trkPnt.drawLine = true;
-                        double bearing = oldWp.getCoor().bearing(trkPnt.getCoor());
-                        trkPnt.dir = ((int) (bearing / Math.PI * 4 + 1.5)) % 8;
-                    } else {
-                        trkPnt.drawLine = false;
+                        drawLine = true;
+                        double bearing = oldCoor.bearing(c);
+                        dir = ((int) (bearing / Math.PI * 4 + 1.5)) % 8;
                     }
                 } else { // make sure we reset outdated data
-                    trkPnt.drawLine = false;
                     color = neutralColor;
                 }
-                if (color != null) {
-                    trkPnt.customColoring = color;
-                }
-                oldWp = trkPnt;
+                points.setDrawing(color != null ? color : neutralColor, drawLine, dir);
+                oldCoor = c;
+                oldTime = time;
             }
         }
 
@@ -644,20 +675,20 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
      * Draw all GPX ways segments
      * @param g               the common draw object to use
      * @param mv              the meta data to current displayed area
-     * @param visibleSegments segments visible in the current scope of mv
+     * @param visiblePoints   points visible in the current scope of mv
      */
-    private void drawLines(Graphics2D g, MapView mv, List<WayPoint> visibleSegments) {
+    private void drawLines(Graphics2D g, MapView mv, VisiblePoints visiblePoints) {
         if (lines) {
             Point old = null;
-            for (WayPoint trkPnt : visibleSegments) {
-                if (!trkPnt.isLatLonKnown()) {
+            for (int i = 0; i < visiblePoints.size(); i++) {
+                if (!visiblePoints.isLatLonKnown(i)) {
                     old = null;
                     continue;
                 }
-                Point screen = mv.getPoint(trkPnt);
+                Point screen = visiblePoints.getPoint(mv, i);
                 // skip points that are on the same screenposition
-                if (trkPnt.drawLine && old != null && ((old.x != screen.x) || (old.y != screen.y))) {
-                    g.setColor(trkPnt.customColoring);
+                if (visiblePoints.isDrawLine(i) && old != null && ((old.x != screen.x) || (old.y != screen.y))) {
+                    g.setColor(visiblePoints.getColor(i));
                     g.drawLine(old.x, old.y, screen.x, screen.y);
                 }
                 old = screen;
@@ -669,27 +700,27 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
      * Draw all GPX arrays
      * @param g               the common draw object to use
      * @param mv              the meta data to current displayed area
-     * @param visibleSegments segments visible in the current scope of mv
+     * @param visiblePoints   points visible in the current scope of mv
      */
-    private void drawArrows(Graphics2D g, MapView mv, List<WayPoint> visibleSegments) {
+    private void drawArrows(Graphics2D g, MapView mv, VisiblePoints visiblePoints) {
         /****************************************************************
          ********** STEP 3b - DRAW NICE ARROWS **************************
          ****************************************************************/
         if (lines && direction && !alternateDirection) {
             Point old = null;
             Point oldA = null; // last arrow painted
-            for (WayPoint trkPnt : visibleSegments) {
-                if (!trkPnt.isLatLonKnown()) {
+            for (int i = 0; i < visiblePoints.size(); i++) {
+                if (!visiblePoints.isLatLonKnown(i)) {
                     old = null;
                     continue;
                 }
-                if (trkPnt.drawLine) {
-                    Point screen = mv.getPoint(trkPnt);
+                if (visiblePoints.isDrawLine(i)) {
+                    Point screen = visiblePoints.getPoint(mv, i);
                     // skip points that are on the same screenposition
                     if (old != null
                             && (oldA == null || screen.x < oldA.x - delta || screen.x > oldA.x + delta
                             || screen.y < oldA.y - delta || screen.y > oldA.y + delta)) {
-                        g.setColor(trkPnt.customColoring);
+                        g.setColor(visiblePoints.getColor(i));
                         double t = Math.atan2((double) screen.y - old.y, (double) screen.x - old.x) + Math.PI;
                         g.drawLine(screen.x, screen.y, (int) (screen.x + 10 * Math.cos(t - PHI)),
                                 (int) (screen.y + 10 * Math.sin(t - PHI)));
@@ -708,22 +739,22 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
         if (lines && direction && alternateDirection) {
             Point old = null;
             Point oldA = null; // last arrow painted
-            for (WayPoint trkPnt : visibleSegments) {
-                LatLon c = trkPnt.getCoor();
-                if (Double.isNaN(c.lat()) || Double.isNaN(c.lon())) {
+            for (int i = 0; i < visiblePoints.size(); i++) {
+                if (!visiblePoints.isLatLonKnown(i)) {
                     continue;
                 }
-                if (trkPnt.drawLine) {
-                    Point screen = mv.getPoint(trkPnt);
+                if (visiblePoints.isDrawLine(i)) {
+                    Point screen = visiblePoints.getPoint(mv, i);
                     // skip points that are on the same screenposition
                     if (old != null
                             && (oldA == null || screen.x < oldA.x - delta || screen.x > oldA.x + delta
                             || screen.y < oldA.y - delta || screen.y > oldA.y + delta)) {
-                        g.setColor(trkPnt.customColoring);
-                        g.drawLine(screen.x, screen.y, screen.x + dir[trkPnt.dir][0], screen.y
-                                + dir[trkPnt.dir][1]);
-                        g.drawLine(screen.x, screen.y, screen.x + dir[trkPnt.dir][2], screen.y
-                                + dir[trkPnt.dir][3]);
+                        int d = visiblePoints.getDir(i);
+                        g.setColor(visiblePoints.getColor(i));
+                        g.drawLine(screen.x, screen.y, screen.x + dir[d][0], screen.y
+                                + dir[d][1]);
+                        g.drawLine(screen.x, screen.y, screen.x + dir[d][2], screen.y
+                                + dir[d][3]);
                         oldA = screen;
                     }
                     old = screen;
@@ -736,44 +767,43 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
      * Draw all GPX points
      * @param g               the common draw object to use
      * @param mv              the meta data to current displayed area
-     * @param visibleSegments segments visible in the current scope of mv
+     * @param visiblePoints   points visible in the current scope of mv
      */
-    private void drawPoints(Graphics2D g, MapView mv, List<WayPoint> visibleSegments) {
+    private void drawPoints(Graphics2D g, MapView mv, VisiblePoints visiblePoints) {
         /****************************************************************
          ********** STEP 3d - DRAW LARGE POINTS AND HDOP CIRCLE *********
          ****************************************************************/
         if (large || hdopCircle) {
             final int halfSize = largesize/2;
-            for (WayPoint trkPnt : visibleSegments) {
-                LatLon c = trkPnt.getCoor();
-                if (Double.isNaN(c.lat()) || Double.isNaN(c.lon())) {
+            for (int i = 0; i < visiblePoints.size(); i++) {
+                if (!visiblePoints.isLatLonKnown(i)) {
                     continue;
                 }
-                Point screen = mv.getPoint(trkPnt);
+                Point screen = visiblePoints.getPoint(mv, i);
+                Color customColoring = visiblePoints.getColor(i);
+                Object hdopValue = visiblePoints.get(i, GpxConstants.PT_HDOP);
 
-                if (hdopCircle && trkPnt.get(GpxConstants.PT_HDOP) != null) {
+                if (hdopCircle && hdopValue != null) {
                     // hdop value
-                    float hdop = (Float) trkPnt.get(GpxConstants.PT_HDOP);
+                    float hdop = (Float) hdopValue;
                     if (hdop < 0) {
                         hdop = 0;
                     }
-                    Color customColoringTransparent = hdopAlpha < 0 ? trkPnt.customColoring :
-                        new Color((trkPnt.customColoring.getRGB() & 0x00ffffff) | (hdopAlpha << 24), true);
+                    Color customColoringTransparent = hdopAlpha < 0 ? customColoring :
+                        new Color((customColoring.getRGB() & 0x00ffffff) | (hdopAlpha << 24), true);
                     g.setColor(customColoringTransparent);
                     // hdop circles
                     int hdopp = mv.getPoint(new LatLon(
-                            trkPnt.getCoor().lat(),
-                            trkPnt.getCoor().lon() + 2d*6*hdop*360/40000000d)).x - screen.x;
+                            visiblePoints.getLat(i),
+                            visiblePoints.getLon(i) + 2d*6*hdop*360/40000000d)).x - screen.x;
                     g.drawArc(screen.x-hdopp/2, screen.y-hdopp/2, hdopp, hdopp, 0, 360);
                 }
                 if (large) {
                     // color the large GPS points like the gps lines
-                    if (trkPnt.customColoring != null) {
-                        Color customColoringTransparent = largePointAlpha < 0 ? trkPnt.customColoring :
-                            new Color((trkPnt.customColoring.getRGB() & 0x00ffffff) | (largePointAlpha << 24), true);
+                    Color customColoringTransparent = largePointAlpha < 0 ? customColoring :
+                        new Color((customColoring.getRGB() & 0x00ffffff) | (largePointAlpha << 24), true);
 
-                        g.setColor(customColoringTransparent);
-                    }
+                    g.setColor(customColoringTransparent);
                     g.fillRect(screen.x-halfSize, screen.y-halfSize, largesize, largesize);
                 }
             } // end for trkpnt
@@ -784,13 +814,12 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
          ****************************************************************/
         if (!large && lines) {
             g.setColor(neutralColor);
-            for (WayPoint trkPnt : visibleSegments) {
-                LatLon c = trkPnt.getCoor();
-                if (Double.isNaN(c.lat()) || Double.isNaN(c.lon())) {
+            for (int i = 0; i < visiblePoints.size(); i++) {
+                if (!visiblePoints.isLatLonKnown(i)) {
                     continue;
                 }
-                if (!trkPnt.drawLine) {
-                    Point screen = mv.getPoint(trkPnt);
+                if (!visiblePoints.isDrawLine(i)) {
+                    Point screen = visiblePoints.getPoint(mv, i);
                     g.drawRect(screen.x, screen.y, 0, 0);
                 }
             } // end for trkpnt
@@ -801,13 +830,12 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
          ****************************************************************/
         if (!large && !lines) {
             g.setColor(neutralColor);
-            for (WayPoint trkPnt : visibleSegments) {
-                LatLon c = trkPnt.getCoor();
-                if (Double.isNaN(c.lat()) || Double.isNaN(c.lon())) {
+            for (int i = 0; i < visiblePoints.size(); i++) {
+                if (!visiblePoints.isLatLonKnown(i)) {
                     continue;
                 }
-                Point screen = mv.getPoint(trkPnt);
-                g.setColor(trkPnt.customColoring);
+                Point screen = visiblePoints.getPoint(mv, i);
+                g.setColor(visiblePoints.getColor(i));
                 g.drawRect(screen.x, screen.y, 0, 0);
             } // end for trkpnt
         } // end if large
@@ -817,10 +845,10 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
      * Draw GPX lines by using alpha blending
      * @param g               the common draw object to use
      * @param mv              the meta data to current displayed area
-     * @param visibleSegments segments visible in the current scope of mv
+     * @param visiblePoints   points visible in the current scope of mv
      * @param layerAlpha      the color alpha value set for that operation
      */
-    private void drawLinesAlpha(Graphics2D g, MapView mv, List<WayPoint> visibleSegments, float layerAlpha) {
+    private void drawLinesAlpha(Graphics2D g, MapView mv, VisiblePoints visiblePoints, float layerAlpha) {
 
         // 1st. backup the paint environment ----------------------------------
         Composite oldComposite = g.getComposite();
@@ -853,16 +881,16 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
         // 5th draw the layer ---------------------------------------------------
 
         // for all points
-        for (WayPoint trkPnt : visibleSegments) {
+        for (int i = 0; i < visiblePoints.size(); i++) {
 
             // transform coordinates
-            final Point paintPnt = mv.getPoint(trkPnt);
+            final Point paintPnt = visiblePoints.getPoint(mv, i);
 
             // skip single points
-            if (lastPaintPnt != null && trkPnt.drawLine && !lastPaintPnt.equals(paintPnt)) {
+            if (lastPaintPnt != null && visiblePoints.isDrawLine(i) && !lastPaintPnt.equals(paintPnt)) {
 
                 // set different color
-                g.setColor(trkPnt.customColoring);
+                g.setColor(visiblePoints.getColor(i));
 
                 // draw it
                 g.drawLine(lastPaintPnt.x, lastPaintPnt.y, paintPnt.x, paintPnt.y);
@@ -1092,13 +1120,13 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
      * Draw gray heat map with current Graphics2D setting
      * @param gB              the common draw object to use
      * @param mv              the meta data to current displayed area
-     * @param listSegm        segments visible in the current scope of mv
+     * @param listSegm        points visible in the current scope of mv
      * @param foreComp        composite use to draw foreground objects
      * @param foreStroke      stroke use to draw foreground objects
      * @param backComp        composite use to draw background objects
      * @param backStroke      stroke use to draw background objects
      */
-    private void drawHeatGrayLineMap(Graphics2D gB, MapView mv, List<WayPoint> listSegm,
+    private void drawHeatGrayLineMap(Graphics2D gB, MapView mv, VisiblePoints listSegm,
                                      Composite foreComp, Stroke foreStroke,
                                      Composite backComp, Stroke backStroke) {
 
@@ -1108,17 +1136,17 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
         // set initial values
         gB.setStroke(backStroke); gB.setComposite(backComp);
 
-        // get last point in list
-        final WayPoint lastPnt = !listSegm.isEmpty() ? listSegm.get(listSegm.size() - 1) : null;
+        // index of last point in list
+        final int lastPnt = listSegm.size() - 1;
 
         // for all points, draw single lines by using optimized drawing
-        for (WayPoint trkPnt : listSegm) {
+        for (int i = 0; i < listSegm.size(); i++) {
 
             // get transformed coordinates
-            final Point paintPnt = mv.getPoint(trkPnt);
+            final Point paintPnt = listSegm.getPoint(mv, i);
 
             // end of line segment or end of list reached
-            if (!trkPnt.drawLine || (lastPnt == trkPnt)) {
+            if (!listSegm.isDrawLine(i) || (lastPnt == i)) {
 
                 // convert to primitive type
                 final int[] polyXArr = heatMapPolyX.stream().mapToInt(Integer::intValue).toArray();
@@ -1245,9 +1273,9 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
      * Collect and draw GPS segments and displays a heat-map
      * @param g               the common draw object to use
      * @param mv              the meta data to current displayed area
-     * @param visibleSegments segments visible in the current scope of mv
+     * @param visiblePoints   points visible in the current scope of mv
      */
-    private void drawHeatMap(Graphics2D g, MapView mv, List<WayPoint> visibleSegments) {
+    private void drawHeatMap(Graphics2D g, MapView mv, VisiblePoints visiblePoints) {
 
         // get bounds of screen image and projection, zoom and adjust input parameters
         final Rectangle screenBounds = new Rectangle(mv.getWidth(), mv.getHeight());
@@ -1316,10 +1344,10 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
             // point or line blending
             if (heatMapDrawPointMode) {
                 heatMapGraph2d.setComposite(AlphaComposite.SrcOver.derive(lineAlphaBPoint));
-                drawHeatGrayDotMap(heatMapGraph2d, mv, visibleSegments, lineWidthB);
+                drawHeatGrayDotMap(heatMapGraph2d, mv, visiblePoints, lineWidthB);
 
             } else {
-                drawHeatGrayLineMap(heatMapGraph2d, mv, visibleSegments,
+                drawHeatGrayLineMap(heatMapGraph2d, mv, visiblePoints,
                                     lineWidthF > 1 ? AlphaComposite.SrcOver.derive(lineAlphaFLine) : null,
                                     new BasicStroke(lineWidthF, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND),
                                     AlphaComposite.SrcOver.derive(lineAlphaBLine),
@@ -1341,10 +1369,10 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
      *
      * @param gB              the common draw object to use
      * @param mv              the meta data to current displayed area
-     * @param listSegm        segments visible in the current scope of mv
+     * @param listSegm        points visible in the current scope of mv
      * @param drawSize        draw size of draw element
      */
-    private static void drawHeatGrayDotMap(Graphics2D gB, MapView mv, List<WayPoint> listSegm, int drawSize) {
+    private static void drawHeatGrayDotMap(Graphics2D gB, MapView mv, VisiblePoints listSegm, int drawSize) {
 
         // typical rendering rate -> use realtime preview instead of accurate display
         final double maxSegm = 25_000, nrSegms = listSegm.size();
@@ -1362,13 +1390,13 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
         Point lastPnt = null;
 
         // for all points, draw single lines
-        for (WayPoint trkPnt : listSegm) {
+        for (int i = 0; i < listSegm.size(); i++) {
 
             // get transformed coordinates
-            final Point paintPnt = mv.getPoint(trkPnt);
+            final Point paintPnt = listSegm.getPoint(mv, i);
 
             // end of line segment or end of list reached
-            if (trkPnt.drawLine && null != lastPnt) {
+            if (listSegm.isDrawLine(i) && null != lastPnt) {
                 drawHeatSurfaceLine(gB, paintPnt, lastPnt, drawSize, pixelRmsX, pixelRmsY, randomDrop);
             }
 
@@ -1436,18 +1464,6 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
         }
     }
 
-    /**
-     * Apply default color configuration to way segments
-     * @param visibleSegments segments visible in the current scope of mv
-     */
-    private void fixColors(List<WayPoint> visibleSegments) {
-        for (WayPoint trkPnt : visibleSegments) {
-            if (trkPnt.customColoring == null) {
-                trkPnt.customColoring = neutralColor;
-            }
-        }
-    }
-
     /**
      * Check cache validity set necessary flags
      */
@@ -1517,4 +1533,249 @@ public class GpxDrawHelper implements SoMChangeListener, MapViewPaintable.LayerP
         layer.removeInvalidationListener(this);
         data.removeChangeListener(this);
     }
+
+    /**
+     * Sequential access to the points of a line and to their drawing information, without copying the line.
+     * Points of compact segments are read from their columns, without creating {@link WayPoint} objects.
+     */
+    private abstract static class LinePoints {
+
+        static LinePoints of(Line line) {
+            if (line.getTrackSegment() instanceof ColumnarGpxTrackSegment) {
+                return new ColumnarPoints((ColumnarGpxTrackSegment) line.getTrackSegment());
+            }
+            return new WayPoints(line.iterator());
+        }
+
+        /**
+         * Moves to the next point of the line, which becomes the current point.
+         * @return {@code false} if there is no more point
+         */
+        abstract boolean next();
+
+        abstract double getLat();
+
+        abstract double getLon();
+
+        abstract LatLon getCoor();
+
+        abstract long getTimeInMillis();
+
+        abstract Object get(String key);
+
+        abstract boolean isDrawLine();
+
+        abstract void setDrawing(Color color, boolean drawLine, int dir);
+
+        /**
+         * Sets the current point as the last point seen by the visible points.
+         * @param visiblePoints the visible points
+         */
+        abstract void setLast(VisiblePoints visiblePoints);
+    }
+
+    private static final class WayPoints extends LinePoints {
+        private final Iterator<WayPoint> it;
+        private WayPoint current;
+
+        WayPoints(Iterator<WayPoint> it) {
+            this.it = it;
+        }
+
+        @Override
+        boolean next() {
+            current = it.hasNext() ? it.next() : null;
+            return current != null;
+        }
+
+        @Override
+        double getLat() {
+            return current.lat();
+        }
+
+        @Override
+        double getLon() {
+            return current.lon();
+        }
+
+        @Override
+        LatLon getCoor() {
+            return current.getCoor();
+        }
+
+        @Override
+        long getTimeInMillis() {
+            return current.getTimeInMillis();
+        }
+
+        @Override
+        Object get(String key) {
+            return current.get(key);
+        }
+
+        @Override
+        boolean isDrawLine() {
+            return current.drawLine;
+        }
+
+        @Override
+        void setDrawing(Color color, boolean drawLine, int dir) {
+            current.customColoring = color;
+            current.drawLine = drawLine;
+            current.dir = dir;
+        }
+
+        @Override
+        void setLast(VisiblePoints visiblePoints) {
+            visiblePoints.setLast(current);
+        }
+    }
+
+    private static final class ColumnarPoints extends LinePoints {
+        private final ColumnarGpxTrackSegment segment;
+        private int index = -1;
+
+        ColumnarPoints(ColumnarGpxTrackSegment segment) {
+            this.segment = segment;
+        }
+
+        @Override
+        boolean next() {
+            return ++index < segment.size();
+        }
+
+        @Override
+        double getLat() {
+            return segment.getLat(index);
+        }
+
+        @Override
+        double getLon() {
+            return segment.getLon(index);
+        }
+
+        @Override
+        LatLon getCoor() {
+            return segment.getCoor(index);
+        }
+
+        @Override
+        long getTimeInMillis() {
+            return segment.getTimeInMillis(index);
+        }
+
+        @Override
+        Object get(String key) {
+            return segment.getAttribute(index, key);
+        }
+
+        @Override
+        boolean isDrawLine() {
+            return segment.isDrawLine(index);
+        }
+
+        @Override
+        void setDrawing(Color color, boolean drawLine, int dir) {
+            segment.setDrawing(index, color, drawLine, dir);
+        }
+
+        @Override
+        void setLast(VisiblePoints visiblePoints) {
+            visiblePoints.setLast(segment, index);
+        }
+    }
+
+    /**
+     * The points visible in the current view, in drawing order. Points of compact segments are referenced by their index,
+     * their projected coordinates being cached by the segment.
+     */
+    private final class VisiblePoints {
+        private WayPoint[] wayPoints = new WayPoint[64];
+        private ColumnarGpxTrackSegment[] segments = new ColumnarGpxTrackSegment[64];
+        private int[] indexes = new int[64];
+        /** Points before which no line is drawn, as the line comes from a point that is not visible */
+        private final BitSet lineStarts = new BitSet();
+        private int size;
+
+        private WayPoint lastWayPoint;
+        private ColumnarGpxTrackSegment lastSegment;
+        private int lastIndex;
+
+        void setLast(WayPoint wpt) {
+            lastWayPoint = wpt;
+            lastSegment = null;
+        }
+
+        void setLast(ColumnarGpxTrackSegment segment, int index) {
+            lastWayPoint = null;
+            lastSegment = segment;
+            lastIndex = index;
+        }
+
+        /**
+         * Adds the last point seen.
+         * @param drawLine {@code false} if the line before the point must not be drawn
+         */
+        void addLast(boolean drawLine) {
+            if (size == indexes.length) {
+                int capacity = size + (size >> 1);
+                wayPoints = Arrays.copyOf(wayPoints, capacity);
+                segments = Arrays.copyOf(segments, capacity);
+                indexes = Arrays.copyOf(indexes, capacity);
+            }
+            wayPoints[size] = lastWayPoint;
+            segments[size] = lastSegment;
+            indexes[size] = lastIndex;
+            if (!drawLine) {
+                lineStarts.set(size);
+            }
+            size++;
+        }
+
+        int size() {
+            return size;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        double getLat(int i) {
+            return wayPoints[i] != null ? wayPoints[i].lat() : segments[i].getLat(indexes[i]);
+        }
+
+        double getLon(int i) {
+            return wayPoints[i] != null ? wayPoints[i].lon() : segments[i].getLon(indexes[i]);
+        }
+
+        boolean isLatLonKnown(int i) {
+            return !Double.isNaN(getLat(i)) && !Double.isNaN(getLon(i));
+        }
+
+        Point getPoint(MapView mv, int i) {
+            Projection projection = ProjectionRegistry.getProjection();
+            return mv.getPoint(wayPoints[i] != null ? wayPoints[i].getEastNorth(projection)
+                    : segments[i].getEastNorth(indexes[i], projection));
+        }
+
+        boolean isDrawLine(int i) {
+            if (lineStarts.get(i)) {
+                return false;
+            }
+            return wayPoints[i] != null ? wayPoints[i].drawLine : segments[i].isDrawLine(indexes[i]);
+        }
+
+        Color getColor(int i) {
+            Color color = wayPoints[i] != null ? wayPoints[i].customColoring : segments[i].getCustomColoring(indexes[i]);
+            return color != null ? color : neutralColor;
+        }
+
+        int getDir(int i) {
+            return wayPoints[i] != null ? wayPoints[i].dir : segments[i].getDirection(indexes[i]);
+        }
+
+        Object get(int i, String key) {
+            return wayPoints[i] != null ? wayPoints[i].get(key) : segments[i].getAttribute(indexes[i], key);
+        }
+    }
 }
@@ -9,7 +9,9 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.openstreetmap.josm.data.osm.INode;
 import org.openstreetmap.josm.data.osm.IPrimitive;
@@ -19,6 +21,8 @@ import org.openstreetmap.josm.data.osm.Relation;
 import org.openstreetmap.josm.data.osm.visitor.paint.PaintColors;
 import org.openstreetmap.josm.data.osm.visitor.paint.relations.Multipolygon;
 import org.openstreetmap.josm.data.osm.visitor.paint.relations.MultipolygonCache;
+import org.openstreetmap.josm.data.preferences.AbstractProperty;
+import org.openstreetmap.josm.data.preferences.BooleanProperty;
 import org.openstreetmap.josm.gui.MainApplication;
 import org.openstreetmap.josm.gui.NavigatableComponent;
 import org.openstreetmap.josm.gui.layer.OsmDataLayer;
@@ -61,6 +65,17 @@ import org.openstreetmap.josm.tools.Utils;
  * Use {@link #setStyleSources(Collection)} to select the StyleSources that are applied.
  */
 public class ElemStyles implements PreferenceChangedListener {
+
+    /**
+     * Preference to share the styles of context free nodes and ways with identical tags, see {@link #isContextFree}.
+     */
+    public static final AbstractProperty<Boolean> PREFERENCE_SHARE_STYLES = new BooleanProperty("mappaint.style.share", true).cached();
+
+    /**
+     * Maximum number of distinct tag sets whose styles are shared. The cache is cleared when it is exceeded.
+     */
+    private static final int MAX_SHARED_STYLES = 100_000;
+
     private final List<StyleSource> styleSources;
     private boolean drawMultipolygon;
 
@@ -76,6 +91,11 @@ public class ElemStyles implements PreferenceChangedListener {
 
     private volatile Color backgroundColorCache;
 
+    /**
+     * Styles of context free nodes and ways, shared by all primitives with the same type, tags and closedness.
+     */
+    private final Map<SharedStyleKey, StyleCache> sharedStyles = new ConcurrentHashMap<>();
+
     /**
      * Constructs a new {@code ElemStyles}.
      */
@@ -92,6 +112,7 @@ public class ElemStyles implements PreferenceChangedListener {
         GuiHelper.runInEDT(() -> {
             cacheIdx++;
             preferenceCache.clear();
+            sharedStyles.clear();
             backgroundColorCache = null;
             MainApplication.getLayerManager().getLayersOfType(OsmDataLayer.class).forEach(
                     dl -> dl.data.clearMappaintCache());
@@ -237,9 +258,9 @@ public class ElemStyles implements PreferenceChangedListener {
      */
     private Pair<StyleElementList, Range> getImpl(IPrimitive osm, double scale, NavigatableComponent nc) {
         if (osm instanceof INode)
-            return generateStyles(osm, scale, false);
+            return generateSharedStyles(osm, scale);
         else if (osm instanceof IWay) {
-            Pair<StyleElementList, Range> p = generateStyles(osm, scale, false);
+            Pair<StyleElementList, Range> p = generateSharedStyles(osm, scale);
 
             boolean isOuterWayOfSomeMP = false;
             Color wayColor = null;
@@ -321,7 +342,7 @@ public class ElemStyles implements PreferenceChangedListener {
                 final Multipolygon multipolygon = MultipolygonCache.getInstance().get((Relation) ref);
 
                 if (multipolygon.getInnerWays().contains(osm)) {
-                    p = generateStyles(osm, scale, false);
+                    p = generateSharedStyles(osm, scale);
                     boolean hasIndependentElemStyle = false;
                     for (StyleElement s : p.a) {
                         if (s.isProperLineStyle() || s instanceof AreaElement) {
@@ -353,6 +374,89 @@ public class ElemStyles implements PreferenceChangedListener {
         return null;
     }
 
+    /**
+     * Create the list of styles and its valid scale range for one node or way, using the styles of a primitive with the
+     * same type, tags and closedness if the styles of this primitive are context free.
+     *
+     * @param osm the primitive to create styles for
+     * @param scale the scale (in meters per 100 px), must be &gt; 0
+     * @return the generated styles and the valid range as a pair
+     */
+    private Pair<StyleElementList, Range> generateSharedStyles(IPrimitive osm, double scale) {
+        if (!PREFERENCE_SHARE_STYLES.get() || !isContextFree(osm)) {
+            return generateStyles(osm, scale, false);
+        }
+        SharedStyleKey key = new SharedStyleKey(osm);
+        boolean selected = osm.isSelected();
+        StyleCache shared = sharedStyles.get(key);
+        if (shared != null) {
+            Pair<StyleElementList, Range> p = shared.getWithRange(scale, selected);
+            if (p.a != null) {
+                return new Pair<>(p.a, p.b);
+            }
+        }
+        Pair<StyleElementList, Range> p = generateStyles(osm, scale, false);
+        if (sharedStyles.size() >= MAX_SHARED_STYLES) {
+            sharedStyles.clear();
+        }
+        sharedStyles.compute(key, (k, c) -> {
+            StyleCache cache = c != null ? c : StyleCache.EMPTY_STYLECACHE;
+            // another thread may have computed the same styles in the meantime
+            return cache.getWithRange(scale, selected).a != null ? cache : cache.put(p.a, p.b, selected);
+        });
+        return p;
+    }
+
+    /**
+     * Determines if the styles of the given primitive only depend on its type, its tags, its selected state and
+     * whether it is closed.
+     * Untagged primitives are not considered, most of them are way nodes matched by child selectors.
+     * @param osm the primitive
+     * @return {@code true} if the primitive is a tagged node or way and all active style sources consider it context free
+     * @see StyleSource#isContextFree(IPrimitive)
+     */
+    private boolean isContextFree(IPrimitive osm) {
+        if (!(osm instanceof INode || osm instanceof IWay) || !osm.isTagged()) {
+            return false;
+        }
+        for (StyleSource s : styleSources) {
+            if (s.active && !s.isContextFree(osm)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Key of {@link #sharedStyles}.
+     */
+    private static final class SharedStyleKey {
+        private final boolean node;
+        private final boolean closed;
+        private final Map<String, String> tags;
+        private final int hash;
+
+        SharedStyleKey(IPrimitive osm) {
+            node = osm instanceof INode;
+            closed = osm instanceof IWay && ((IWay<?>) osm).isClosed();
+            tags = osm.getKeys();
+            hash = Objects.hash(node, closed, tags);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (obj == null || getClass() != obj.getClass()) return false;
+            SharedStyleKey that = (SharedStyleKey) obj;
+            return node == that.node && closed == that.closed && tags.equals(that.tags);
+        }
+    }
+
     /**
      * Create the list of styles and its valid scale range for one primitive.
      *
@@ -490,6 +594,7 @@ public class ElemStyles implements PreferenceChangedListener {
      * remove all style sources; only accessed from MapPaintStyles
      */
     void clear() {
+        sharedStyles.clear();
         styleSources.clear();
     }
 
@@ -498,6 +603,7 @@ public class ElemStyles implements PreferenceChangedListener {
      * @param style style source to add
      */
     void add(StyleSource style) {
+        sharedStyles.clear();
         styleSources.add(style);
     }
 
@@ -507,6 +613,7 @@ public class ElemStyles implements PreferenceChangedListener {
      * @return {@code true} if this list contained the specified element
      */
     boolean remove(StyleSource style) {
+        sharedStyles.clear();
         return styleSources.remove(style);
     }
 
@@ -515,6 +622,7 @@ public class ElemStyles implements PreferenceChangedListener {
      * @param sources new style sources
      */
     void setStyleSources(Collection<StyleSource> sources) {
+        sharedStyles.clear();
         styleSources.clear();
         styleSources.addAll(sources);
     }
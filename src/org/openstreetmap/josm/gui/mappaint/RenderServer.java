@@ -0,0 +1,494 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.mappaint;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.imageio.ImageIO;
+
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.visitor.paint.SimplifiedGeometryCache;
+import org.openstreetmap.josm.data.osm.visitor.paint.relations.MultipolygonCache;
+import org.openstreetmap.josm.gui.mappaint.RenderingHelper.StyleData;
+import org.openstreetmap.josm.gui.mappaint.TileRenderingHelper.TileRange;
+import org.openstreetmap.josm.io.IllegalDataException;
+import org.openstreetmap.josm.io.OsmReader;
+import org.openstreetmap.josm.tools.CheckParameterUtil;
+import org.openstreetmap.josm.tools.JosmRuntimeException;
+import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * Local HTTP server rendering osm data to web map tiles, requested as {@code /<zoom>/<x>/<y>.png}.
+ * <p>
+ * The styles are loaded once and the data set is kept in memory. The data file is loaded again when it has been
+ * modified, so that local edits can be previewed in other tools. Requests are processed at the same time by a pool of
+ * worker threads. Tiles are rendered in blocks of {@link TileRenderingHelper#METATILE_SIZE} tiles in each direction,
+ * and all tiles of a block are kept in a bounded cache. The number of requests and their latency are served as text
+ * on {@code /metrics}.
+ * <p>
+ * Like {@link TileRenderingHelper}, the styles of a zoom level are computed for all primitives once, for the scale at
+ * the center of the data, before tiles of that zoom level are rendered. Tiles are rendered in parallel while holding
+ * the read lock of the data, the styles of a new zoom level are computed and modified data is replaced while holding
+ * the write lock, since the style cache of the primitives is not thread safe.
+ * <p>
+ * The server only listens on the loopback interface. The current projection must be the web Mercator projection
+ * (EPSG:3857).
+ * @see TileRenderingHelper
+ */
+public class RenderServer {
+
+    /**
+     * The time in milliseconds to wait for the request of a client
+     */
+    private static final int REQUEST_TIMEOUT = 30_000;
+
+    private static final Pattern TILE_PATTERN = Pattern.compile("/(\\d{1,2})/(\\d{1,10})/(\\d{1,10})\\.png");
+
+    private final File input;
+    private final ElemStyles elemStyles;
+    private final int cacheSize;
+    private final ServerSocket server;
+    private final ExecutorService executor;
+    private final Thread acceptor;
+
+    /** Guards the data set and the styles computed for it, see the class description */
+    private final ReadWriteLock dataLock = new ReentrantReadWriteLock();
+    /** Serializes the loading of the modified data file */
+    private final Object reloadLock = new Object();
+
+    // guarded by dataLock
+    private DataSet ds;
+    /** The distance in meter that corresponds to 100 px, for each zoom level whose styles have been computed */
+    private final Map<Integer, Double> circums = new HashMap<>();
+    private volatile long lastModified;
+
+    // guarded by tiles
+    private final Map<String, byte[]> tiles = new LinkedHashMap<String, byte[]>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+            return size() > cacheSize;
+        }
+    };
+    /** The blocks of tiles being rendered, so that concurrent requests for tiles of the same block wait for it */
+    private final Map<String, CompletableFuture<Map<String, byte[]>>> rendering = new HashMap<>();
+    private final Latency cached = new Latency();
+    private final Latency rendered = new Latency();
+    private final Latency failed = new Latency();
+
+    /**
+     * Latency statistics of one kind of request.
+     */
+    private static final class Latency {
+        private long count;
+        private long totalNanos;
+        private long maxNanos;
+
+        void add(long nanos) {
+            count++;
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%d requests, mean %.1f ms, max %.1f ms",
+                    count, count == 0 ? 0 : totalNanos / 1e6 / count, maxNanos / 1e6);
+        }
+    }
+
+    /**
+     * Constructs a new {@code RenderServer}, loads the data and the styles, and opens the server socket.
+     * @param input the .osm data file to render
+     * @param styles the styles to use for rendering
+     * @param port the port to listen on, {@code 0} for any free port
+     * @param threads the number of requests processed at the same time
+     * @param cacheSize the maximum number of rendered tiles kept in memory
+     * @throws IOException in case of an IOException
+     * @throws IllegalDataException when illegal data is encountered (data or style has errors, etc.)
+     */
+    public RenderServer(File input, Collection<StyleData> styles, int port, int threads, int cacheSize)
+            throws IOException, IllegalDataException {
+        CheckParameterUtil.ensureParameterNotNull(input, "input");
+        CheckParameterUtil.ensureParameterNotNull(styles, "styles");
+        this.input = input;
+        this.cacheSize = cacheSize;
+        this.lastModified = input.lastModified();
+        this.ds = loadDataSet(input);
+        this.elemStyles = RenderingHelper.loadStyles(styles);
+        this.server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        this.executor = Executors.newFixedThreadPool(threads, Utils.newThreadFactory("render-server-%d", Thread.NORM_PRIORITY));
+        this.acceptor = new Thread(this::accept, "Render server");
+        acceptor.setDaemon(true);
+    }
+
+    /**
+     * Starts to accept requests.
+     */
+    public void start() {
+        acceptor.start();
+        Logging.info(tr("Render server listening on http://{0}:{1}/'{'z'}'/'{'x'}'/'{'y'}'.png",
+                server.getInetAddress().getHostAddress(), Integer.toString(getPort())));
+    }
+
+    /**
+     * Waits until the server has been stopped.
+     * @throws InterruptedException if the current thread has been interrupted
+     */
+    public void join() throws InterruptedException {
+        acceptor.join();
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Stops the server. Requests being processed are completed.
+     * @throws IOException if any I/O error occurs
+     */
+    public void stop() throws IOException {
+        server.close();
+        executor.shutdown();
+    }
+
+    /**
+     * Replies the port the server listens on.
+     * @return the local port
+     */
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    private void accept() {
+        while (!server.isClosed()) {
+            try {
+                Socket socket = server.accept();
+                try {
+                    executor.execute(() -> process(socket));
+                } catch (RejectedExecutionException e) {
+                    Logging.trace(e);
+                    socket.close();
+                }
+            } catch (SocketException e) {
+                if (!server.isClosed()) {
+                    Logging.error(e);
+                }
+            } catch (IOException e) {
+                Logging.error(e);
+            }
+        }
+    }
+
+    private void process(Socket socket) {
+        try (Socket s = socket;
+             InputStream in = s.getInputStream();
+             OutputStream out = s.getOutputStream()) {
+            s.setSoTimeout(REQUEST_TIMEOUT);
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.US_ASCII));
+            String requestLine = reader.readLine();
+            if (requestLine == null)
+                return;
+            String header;
+            do {
+                header = reader.readLine();
+            } while (header != null && !header.isEmpty());
+
+            String[] request = requestLine.split(" ");
+            if (request.length < 2) {
+                send(out, "400 Bad Request", "text/plain", "Bad Request".getBytes(StandardCharsets.UTF_8), false);
+                return;
+            }
+            boolean head = "HEAD".equals(request[0]);
+            if (!head && !"GET".equals(request[0])) {
+                send(out, "405 Method Not Allowed", "text/plain", "Method Not Allowed".getBytes(StandardCharsets.UTF_8), false);
+                return;
+            }
+            String path = request[1].split("\\?", -1)[0];
+            if ("/metrics".equals(path)) {
+                send(out, "200 OK", "text/plain; charset=utf-8", getMetrics().getBytes(StandardCharsets.UTF_8), head);
+                return;
+            }
+            Matcher m = TILE_PATTERN.matcher(path);
+            int zoom = m.matches() ? Integer.parseInt(m.group(1)) : -1;
+            long x = zoom >= 0 ? Long.parseLong(m.group(2)) : -1;
+            long y = zoom >= 0 ? Long.parseLong(m.group(3)) : -1;
+            if (zoom < 0 || zoom > TileRenderingHelper.MAX_ZOOM || x >= 1L << zoom || y >= 1L << zoom) {
+                send(out, "404 Not Found", "text/plain", "Not Found".getBytes(StandardCharsets.UTF_8), false);
+                return;
+            }
+            byte[] png;
+            try {
+                png = getTile(zoom, (int) x, (int) y);
+            } catch (IOException | IllegalDataException | RuntimeException e) {
+                Logging.log(Logging.LEVEL_WARN, tr("Render server: unable to render tile {0}: {1}", path, e.getMessage()), e);
+                send(out, "500 Internal Server Error", "text/plain", "Internal Server Error".getBytes(StandardCharsets.UTF_8), false);
+                return;
+            }
+            send(out, "200 OK", "image/png", png, head);
+        } catch (IOException | RuntimeException e) {
+            Logging.log(Logging.LEVEL_WARN, tr("Render server request failed: {0}", e.getMessage()), e);
+        }
+    }
+
+    private static void send(OutputStream out, String status, String contentType, byte[] content, boolean head)
+            throws IOException {
+        String headers = "HTTP/1.1 " + status + "\r\n" +
+                "Server: JOSM render server\r\n" +
+                "Content-Type: " + contentType + "\r\n" +
+                "Content-Length: " + content.length + "\r\n" +
+                "Cache-Control: no-cache\r\n" +
+                "Connection: close\r\n\r\n";
+        out.write(headers.getBytes(StandardCharsets.US_ASCII));
+        if (!head) {
+            out.write(content);
+        }
+        out.flush();
+    }
+
+    /**
+     * Gets a rendered tile, from the cache if possible. Otherwise the block of tiles containing it is rendered,
+     * or the request waits for the block if it is already being rendered.
+     * @param zoom the zoom level
+     * @param x the tile x number
+     * @param y the tile y number
+     * @return the PNG image of the tile
+     * @throws IOException in case of an IOException
+     * @throws IllegalDataException if the modified data file cannot be loaded
+     */
+    byte[] getTile(int zoom, int x, int y) throws IOException, IllegalDataException {
+        long start = System.nanoTime();
+        String key = getKey(zoom, x, y);
+        boolean success = false;
+        boolean hit = false;
+        try {
+            reloadIfModified();
+            TileRange metatile = getMetatile(zoom, x, y);
+            String metatileKey = getKey(zoom, metatile.minX, metatile.minY);
+            CompletableFuture<Map<String, byte[]>> future;
+            boolean render = false;
+            synchronized (tiles) {
+                byte[] png = tiles.get(key);
+                if (png != null) {
+                    hit = true;
+                    success = true;
+                    return png;
+                }
+                future = rendering.get(metatileKey);
+                if (future == null) {
+                    future = new CompletableFuture<>();
+                    rendering.put(metatileKey, future);
+                    render = true;
+                }
+            }
+            if (render) {
+                try {
+                    future.complete(render(metatile, key));
+                } catch (IOException | RuntimeException e) {
+                    future.completeExceptionally(e);
+                } finally {
+                    synchronized (tiles) {
+                        rendering.remove(metatileKey);
+                    }
+                }
+            }
+            byte[] png = await(future).get(key);
+            success = true;
+            return png;
+        } finally {
+            long nanos = System.nanoTime() - start;
+            synchronized (tiles) {
+                (success ? (hit ? cached : rendered) : failed).add(nanos);
+            }
+            Logging.debug("Render server: tile {0} {1} in {2} ms", key, hit ? "cached" : "rendered", nanos / 1_000_000);
+        }
+    }
+
+    private static String getKey(int zoom, int x, int y) {
+        return zoom + "/" + x + '/' + y;
+    }
+
+    /**
+     * Gets the block of tiles containing a tile.
+     * @param zoom the zoom level
+     * @param x the tile x number
+     * @param y the tile y number
+     * @return the block of tiles
+     */
+    static TileRange getMetatile(int zoom, int x, int y) {
+        int size = Math.min(TileRenderingHelper.METATILE_SIZE, 1 << zoom);
+        int minX = x / size * size;
+        int minY = y / size * size;
+        return new TileRange(zoom, minX, minY, minX + size - 1, minY + size - 1);
+    }
+
+    private static Map<String, byte[]> await(CompletableFuture<Map<String, byte[]>> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JosmRuntimeException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new JosmRuntimeException(e.getCause());
+        }
+    }
+
+    /**
+     * Renders a block of tiles and adds them to the cache.
+     * @param range the tiles
+     * @param key the key of the requested tile, which is added to the cache last so that it is not evicted first
+     * @return the PNG images of the tiles, by key
+     * @throws IOException in case of an IOException
+     */
+    private Map<String, byte[]> render(TileRange range, String key) throws IOException {
+        while (true) {
+            dataLock.readLock().lock();
+            try {
+                Double circum = circums.get(range.zoom);
+                if (circum != null) {
+                    Map<String, byte[]> result = render(ds, range, circum);
+                    synchronized (tiles) {
+                        tiles.putAll(result);
+                        tiles.put(key, result.get(key));
+                    }
+                    return result;
+                }
+            } finally {
+                dataLock.readLock().unlock();
+            }
+            computeStyles(range.zoom);
+        }
+    }
+
+    private Map<String, byte[]> render(DataSet data, TileRange range, double circum) throws IOException {
+        BufferedImage image = TileRenderingHelper.renderMetatile(data, elemStyles, circum, range);
+        Map<String, byte[]> result = new HashMap<>();
+        for (int x = range.minX; x <= range.maxX; x++) {
+            for (int y = range.minY; y <= range.maxY; y++) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                ImageIO.write(TileRenderingHelper.getTile(image, range, x, y), "png", out);
+                result.put(getKey(range.zoom, x, y), out.toByteArray());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Computes the styles of all primitives for a zoom level, unless this has been done before.
+     * @param zoom the zoom level
+     */
+    private void computeStyles(int zoom) {
+        dataLock.writeLock().lock();
+        try {
+            if (!circums.containsKey(zoom)) {
+                TileRange range = new TileRange(zoom, getBounds(ds));
+                double circum = TileRenderingHelper.getDist100Pixel(range);
+                TileRenderingHelper.computeStyles(ds, elemStyles, circum, range);
+                circums.put(zoom, circum);
+            }
+        } finally {
+            dataLock.writeLock().unlock();
+        }
+    }
+
+    private static Bounds getBounds(DataSet data) {
+        Bounds bounds = null;
+        for (Node n : data.getNodes()) {
+            if (n.isLatLonKnown()) {
+                if (bounds == null) {
+                    bounds = new Bounds(n.getCoor());
+                } else {
+                    bounds.extend(n.getCoor());
+                }
+            }
+        }
+        return bounds != null ? bounds : new Bounds(LatLon.ZERO);
+    }
+
+    /**
+     * Loads the data file again if it has been modified. The data set is replaced once no tile of the old one is being
+     * rendered anymore.
+     * @throws IOException in case of an IOException
+     * @throws IllegalDataException if the data file cannot be parsed
+     */
+    private void reloadIfModified() throws IOException, IllegalDataException {
+        long modified = input.lastModified();
+        if (modified == lastModified) {
+            return;
+        }
+        synchronized (reloadLock) {
+            if (modified == lastModified) {
+                return;
+            }
+            Logging.info(tr("Render server: loading modified data file ''{0}''", input));
+            DataSet data = loadDataSet(input);
+            dataLock.writeLock().lock();
+            try {
+                DataSet old = ds;
+                ds = data;
+                lastModified = modified;
+                circums.clear();
+                synchronized (tiles) {
+                    tiles.clear();
+                }
+                MultipolygonCache.getInstance().clear(old);
+                SimplifiedGeometryCache.getInstance().clear(old);
+            } finally {
+                dataLock.writeLock().unlock();
+            }
+        }
+    }
+
+    private static DataSet loadDataSet(File file) throws IOException, IllegalDataException {
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            return OsmReader.parseDataSet(in, null);
+        } catch (IllegalDataException e) {
+            throw new IllegalDataException(tr("In .osm data file ''{0}'' - ", file) + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Gets the number of tiles in the cache and the latency of the requests.
+     * @return the metrics, as text
+     */
+    public String getMetrics() {
+        synchronized (tiles) {
+            return "cached tiles: " + tiles.size() + '/' + cacheSize + '\n' +
+                    "cache hits: " + cached + '\n' +
+                    "rendered: " + rendered + '\n' +
+                    "failed: " + failed + '\n';
+        }
+    }
+}
@@ -0,0 +1,142 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.mappaint;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.Set;
+
+import org.openstreetmap.josm.cli.CLIModule;
+import org.openstreetmap.josm.io.IllegalDataException;
+import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.OptionParser.OptionParseException;
+
+/**
+ * Command line interface for serving osm data as rendered web map tiles over HTTP.
+ * <p>
+ * The options are parsed and the environment is initialized like in {@link RenderingCLI}.
+ * @see RenderServer
+ */
+public class RenderServerCLI extends RenderingCLI {
+
+    /**
+     * The singleton instance of this class.
+     */
+    public static final RenderServerCLI INSTANCE = new RenderServerCLI();
+
+    private static final int DEFAULT_PORT = 8112;
+    private static final int DEFAULT_CACHE_SIZE = 1000;
+
+    private static final Set<Option> OPTIONS = EnumSet.of(Option.HELP, Option.DEBUG, Option.TRACE, Option.INPUT, Option.STYLE,
+            Option.SETTING, Option.PORT, Option.THREADS, Option.CACHE_SIZE);
+
+    private int argPort = DEFAULT_PORT;
+    private int argCacheSize = DEFAULT_CACHE_SIZE;
+
+    RenderServerCLI() {
+        // hide constructor (package private access for unit tests)
+        super("JOSM render server");
+    }
+
+    @Override
+    public String getActionKeyword() {
+        return "render-server";
+    }
+
+    @Override
+    public void processArguments(String[] argArray) {
+        try {
+            parseArguments(argArray);
+            initialize();
+            if (argInput == null)
+                throw new IllegalArgumentException(tr("Missing argument - input data file ({0})", "--input|-i"));
+            if (argStyles.isEmpty())
+                throw new IllegalArgumentException(tr("Missing argument - at least one style expected ({0})", "--style"));
+            int threads = argThreads != null ? argThreads : Runtime.getRuntime().availableProcessors();
+            RenderServer server = new RenderServer(new File(argInput), argStyles, argPort, threads, argCacheSize);
+            server.start();
+            server.join();
+        } catch (IllegalArgumentException | IllegalDataException | IOException e) {
+            System.exit(CLIModule.reportError(e, Logging.isDebugEnabled()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Logging.trace(e);
+        }
+        System.exit(0);
+    }
+
+    @Override
+    boolean isSupported(Option o) {
+        return OPTIONS.contains(o);
+    }
+
+    @Override
+    void handleOption(Option o, String arg) {
+        switch (o) {
+        case PORT:
+            argPort = parseInteger("--port", arg, 0);
+            if (argPort > 65535) {
+                throw new OptionParseException(
+                        tr("Expected integer number <= {0} for option {1}, but got ''{2}''", 65535, "--port", arg));
+            }
+            break;
+        case CACHE_SIZE:
+            argCacheSize = parseInteger("--cache-size", arg, 0);
+            break;
+        default:
+            super.handleOption(o, arg);
+        }
+    }
+
+    private static int parseInteger(String option, String arg, int min) {
+        int value;
+        try {
+            value = Integer.parseInt(arg);
+        } catch (NumberFormatException nfe) {
+            throw new OptionParseException(
+                    tr("Expected integer number for option {0}, but got ''{1}''", option, arg), nfe);
+        }
+        if (value < min) {
+            throw new OptionParseException(
+                    tr("Expected integer number >= {0} for option {1}, but got ''{2}''", min, option, arg));
+        }
+        return value;
+    }
+
+    @Override
+    String getHelpText() {
+        return getHelp();
+    }
+
+    /**
+     * Displays help on the console
+     */
+    public static void showHelp() {
+        System.out.println(getHelp());
+    }
+
+    private static String getHelp() {
+        return tr("JOSM render server command line interface")+"\n\n"+
+                tr("Usage")+":\n"+
+                "\tjava -jar josm.jar render-server <options>\n\n"+
+                tr("Description")+":\n"+
+                tr("Serves the rendered data as web map tiles on {0}.", "http://localhost:<port>/<zoom>/<x>/<y>.png")+"\n"+
+                tr("The data file is loaded again when it is modified. Request statistics are served on {0}.", "/metrics")+"\n\n"+
+                tr("Options")+":\n"+
+                "\t--help|-h                 "+tr("Show this help")+"\n"+
+                "\t--input|-i <file>         "+tr("Input data file name (.osm)")+"\n"+
+                "\t--style|-s <file>         "+tr("Style file to use for rendering (.mapcss or .zip)")+"\n"+
+                "\t                          "+tr("This option can be repeated to load multiple styles.")+"\n"+
+                "\t--setting <key>:<value>   "+tr("Style setting (in JOSM accessible in the style list dialog right click menu)")+"\n"+
+                "\t                          "+tr("Applies to the last style loaded with the {0} option.", "--style")+"\n"+
+                "\t--port|-p <number>        "+tr("Port to listen on, default value: {0}", Integer.toString(DEFAULT_PORT))+"\n"+
+                "\t--threads <number>        "+tr("Number of tiles rendered at the same time, default value: number of processors")+"\n"+
+                "\t--cache-size <number>     "+tr("Maximum number of rendered tiles kept in memory, default value: {0}",
+                                                  Integer.toString(DEFAULT_CACHE_SIZE))+"\n\n"+
+                tr("Examples")+":\n"+
+                "  java -jar josm.jar render-server -i data.osm -s style.mapcss\n"+
+                "  josm render-server -i data.osm -s elemstyles.mapcss --setting hide_icons:false -p 8080\n";
+    }
+}
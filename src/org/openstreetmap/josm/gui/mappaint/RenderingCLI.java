@@ -6,7 +6,6 @@ import static org.openstreetmap.josm.tools.I18n.tr;
 import java.awt.Dimension;
 import java.awt.image.BufferedImage;
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
@@ -28,6 +27,7 @@ import org.openstreetmap.josm.data.coor.EastNorth;
 import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.data.coor.conversion.LatLonParser;
 import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.visitor.paint.RenderProfile;
 import org.openstreetmap.josm.data.preferences.JosmBaseDirectories;
 import org.openstreetmap.josm.data.preferences.JosmUrls;
 import org.openstreetmap.josm.data.projection.Projection;
@@ -62,9 +62,9 @@ public class RenderingCLI implements CLIModule {
 
     private boolean argDebug;
     private boolean argTrace;
-    private String argInput;
+    String argInput;
     private String argOutput;
-    private List<StyleData> argStyles;
+    List<StyleData> argStyles;
     private Integer argZoom;
     private Double argScale;
     private Bounds argBounds;
@@ -75,10 +75,18 @@ public class RenderingCLI implements CLIModule {
     private Integer argHeightPx;
     private String argProjection;
     private Integer argMaxImageSize;
+    private Integer argTilesMinZoom;
+    private Integer argTilesMaxZoom;
+    Integer argThreads;
+    private Long argMaxTiles;
+    private String argProfile;
 
     private StyleData argCurrentStyle;
 
-    private enum Option {
+    /**
+     * The command line options. Subclasses support a part of them, see {@link RenderingCLI#isSupported(Option)}.
+     */
+    enum Option {
         HELP(false, 'h'),
         DEBUG(false, '*'),
         TRACE(false, '*'),
@@ -95,7 +103,13 @@ public class RenderingCLI implements CLIModule {
         WIDTH_PX(true, '*'),
         HEIGHT_PX(true, '*'),
         PROJECTION(true, '*'),
-        MAX_IMAGE_SIZE(true, '*');
+        MAX_IMAGE_SIZE(true, '*'),
+        TILES(true, '*'),
+        MAX_TILES(true, '*'),
+        THREADS(true, '*'),
+        PROFILE(true, '*'),
+        PORT(true, 'p'),
+        CACHE_SIZE(true, '*');
 
         private final String name;
         private final boolean requiresArg;
@@ -142,8 +156,19 @@ public class RenderingCLI implements CLIModule {
         public double scale; // in east-north units per pixel (unlike the --scale option, which is in meter per meter)
     }
 
+    private final String programName;
+
     RenderingCLI() {
         // hide constructor (package private access for unit tests)
+        this("JOSM rendering");
+    }
+
+    /**
+     * Constructs a new command line interface sharing the options of the rendering.
+     * @param programName the program name used in error messages about the arguments
+     */
+    RenderingCLI(String programName) {
+        this.programName = programName;
     }
 
     @Override
@@ -157,25 +182,20 @@ public class RenderingCLI implements CLIModule {
             parseArguments(argArray);
             initialize();
             DataSet ds = loadDataset();
-            RenderingArea area = determineRenderingArea(ds);
-            RenderingHelper rh = new RenderingHelper(ds, area.bounds, area.scale, argStyles);
-            checkPreconditions(rh);
-            BufferedImage image = rh.render();
-            writeImageToFile(image);
-        } catch (FileNotFoundException e) {
-            if (Logging.isDebugEnabled()) {
-                e.printStackTrace();
-            }
-            System.err.println(tr("Error - file not found: ''{0}''", e.getMessage()));
-            System.exit(1);
-        } catch (IllegalArgumentException | IllegalDataException | IOException e) {
-            if (Logging.isDebugEnabled()) {
-                e.printStackTrace();
+            if (argTilesMinZoom != null) {
+                renderTiles(ds);
+            } else {
+                RenderingArea area = determineRenderingArea(ds);
+                RenderingHelper rh = new RenderingHelper(ds, area.bounds, area.scale, argStyles);
+                checkPreconditions(rh);
+                BufferedImage image = rh.render();
+                writeImageToFile(image);
             }
-            if (e.getMessage() != null) {
-                System.err.println(tr("Error: {0}", e.getMessage()));
+            if (argProfile != null) {
+                RenderProfile.getInstance().writeFile();
             }
-            System.exit(1);
+        } catch (IllegalArgumentException | IllegalDataException | IOException e) {
+            System.exit(CLIModule.reportError(e, Logging.isDebugEnabled()));
         }
         System.exit(0);
     }
@@ -187,8 +207,11 @@ public class RenderingCLI implements CLIModule {
     void parseArguments(String[] argArray) {
         Logging.setLogLevel(Level.INFO);
 
-        OptionParser parser = new OptionParser("JOSM rendering");
+        OptionParser parser = new OptionParser(programName);
         for (Option o : Option.values()) {
+            if (!isSupported(o)) {
+                continue;
+            }
             if (o.requiresArgument()) {
                 parser.addArgumentParameter(o.getName(),
                         o == Option.SETTING ? OptionCount.MULTIPLE : OptionCount.OPTIONAL,
@@ -211,10 +234,27 @@ public class RenderingCLI implements CLIModule {
         }
     }
 
+    /**
+     * Determines if an option is supported by this command.
+     * @param o the option
+     * @return {@code true} if the option is supported
+     */
+    boolean isSupported(Option o) {
+        return o != Option.PORT && o != Option.CACHE_SIZE;
+    }
+
+    /**
+     * Replies the help text of this command.
+     * @return the help text
+     */
+    String getHelpText() {
+        return getHelp();
+    }
+
     private void handleOption(Option o) {
         switch (o) {
         case HELP:
-            showHelp();
+            System.out.println(getHelpText());
             System.exit(0);
             break;
         case DEBUG:
@@ -228,7 +268,7 @@ public class RenderingCLI implements CLIModule {
         }
     }
 
-    private void handleOption(Option o, String arg) {
+    void handleOption(Option o, String arg) {
         switch (o) {
         case INPUT:
             argInput = arg;
@@ -346,6 +386,49 @@ public class RenderingCLI implements CLIModule {
         case PROJECTION:
             argProjection = arg;
             break;
+        case TILES:
+            String[] zooms = arg.split("\\.\\.", -1);
+            try {
+                if (zooms.length > 2)
+                    throw new NumberFormatException(arg);
+                argTilesMinZoom = Integer.valueOf(zooms[0].trim());
+                argTilesMaxZoom = zooms.length == 2 ? Integer.valueOf(zooms[1].trim()) : argTilesMinZoom;
+            } catch (NumberFormatException nfe) {
+                throw new OptionParseException(
+                        tr("Expected zoom level or zoom range <min>..<max> for option {0}, but got ''{1}''", "--tiles", arg), nfe);
+            }
+            if (argTilesMinZoom < 0 || argTilesMinZoom > argTilesMaxZoom || argTilesMaxZoom > TileRenderingHelper.MAX_ZOOM) {
+                throw new OptionParseException(
+                        tr("Expected zoom levels between {0} and {1} for option {2}, but got ''{3}''", 0, TileRenderingHelper.MAX_ZOOM, "--tiles", arg));
+            }
+            break;
+        case PROFILE:
+            argProfile = arg;
+            break;
+        case THREADS:
+            try {
+                argThreads = Integer.valueOf(arg);
+            } catch (NumberFormatException nfe) {
+                throw new OptionParseException(
+                        tr("Expected integer number for option {0}, but got ''{1}''", "--threads", arg), nfe);
+            }
+            if (argThreads <= 0) {
+                throw new OptionParseException(
+                        tr("Expected integer number > 0 for option {0}, but got ''{1}''", "--threads", arg));
+            }
+            break;
+        case MAX_TILES:
+            try {
+                argMaxTiles = Long.valueOf(arg);
+            } catch (NumberFormatException nfe) {
+                throw new OptionParseException(
+                        tr("Expected integer number for option {0}, but got ''{1}''", "--max-tiles", arg), nfe);
+            }
+            if (argMaxTiles < 0) {
+                throw new OptionParseException(
+                        tr("Expected integer number >= 0 for option {0}, but got ''{1}''", "--max-tiles", arg));
+            }
+            break;
         case MAX_IMAGE_SIZE:
             try {
                 argMaxImageSize = Integer.valueOf(arg);
@@ -402,6 +485,14 @@ public class RenderingCLI implements CLIModule {
                 "\t--projection <code>       "+tr("Projection to use, default value ''{0}'' (web-Mercator)", "epsg:3857")+"\n"+
                 "\t--max-image-size <number> "+tr("Maximum image width/height in pixel (''{0}'' means no limit), default value: {1}",
                                                    0, Integer.toString(DEFAULT_MAX_IMAGE_SIZE))+"\n"+
+                "\t--tiles <min>..<max>      "+tr("Render web map tiles of the given zoom levels instead of a single image")+"\n"+
+                "\t                          "+tr("The tiles are written to a <zoom>/<x>/<y>.png tree in the output directory, default value ''{0}''",
+                                                  "tiles")+"\n"+
+                "\t                          "+tr("Only options {0} and {1} define the rendered area.", "--bounds", "--tiles")+"\n"+
+                "\t--max-tiles <number>      "+tr("Maximum number of tiles (''{0}'' means no limit), default value: {1}",
+                                                   0, Long.toString(TileRenderingHelper.DEFAULT_MAX_TILES))+"\n"+
+                "\t--threads <number>        "+tr("Number of tiles rendered at the same time, default value: number of processors")+"\n"+
+                "\t--profile <file>          "+tr("Write the time spent in each style rule and style element type to a JSON file")+"\n"+
                 "\n"+
                 tr("To specify the rendered area and scale, the options can be combined in various ways")+":\n"+
                 "  * --bounds (--zoom|--scale|--width-px|--height-px)\n"+
@@ -420,7 +511,8 @@ public class RenderingCLI implements CLIModule {
                 "  josm render -i data.osm -s style.mapcss --bounds 21.151,51.401,21.152,51.402 -z 16\n"+
                 "  josm render -i data.osm -s style.mapcss --anchor 21.151,51.401 --width-m 500 --height-m 300 -z 16\n"+
                 "  josm render -i data.osm -s style.mapcss --anchor 21.151,51.401 --width-m 500 --height-m 300 --width-px 1800\n"+
-                "  josm render -i data.osm -s style.mapcss --scale 5000 --projection epsg:4326\n";
+                "  josm render -i data.osm -s style.mapcss --scale 5000 --projection epsg:4326\n"+
+                "  josm render -i data.osm -s style.mapcss --tiles 12..16 -o tiles\n";
     }
 
     /**
@@ -435,6 +527,10 @@ public class RenderingCLI implements CLIModule {
         Config.setPreferencesInstance(new MemoryPreferences());
         Config.setUrlsProvider(JosmUrls.getInstance());
         Config.getPref().putBoolean("mappaint.auto_reload_local_styles", false); // unnecessary to listen for external changes
+        if (argProfile != null) {
+            Config.getPref().putBoolean("mappaint.render.profile", true);
+            Config.getPref().put("mappaint.render.profile.file", argProfile);
+        }
         String projCode = Optional.ofNullable(argProjection).orElse("epsg:3857");
         ProjectionRegistry.setProjection(Projections.getProjectionByCode(projCode.toUpperCase(Locale.US)));
 
@@ -574,6 +670,50 @@ public class RenderingCLI implements CLIModule {
         }
     }
 
+    /**
+     * Find the area to render in tile mode, given certain command line options and the dataset.
+     * @param ds the dataset
+     * @return area to render
+     */
+    Bounds determineTilesArea(DataSet ds) {
+        if (argZoom != null || argScale != null || argAnchor != null || argWidthM != null || argHeightM != null
+                || argWidthPx != null || argHeightPx != null) {
+            throw new IllegalArgumentException(tr("Option {0} can only be combined with option {1} to specify the rendered area",
+                    "--tiles", "--bounds"));
+        }
+        if (argProjection != null && !"epsg:3857".equalsIgnoreCase(argProjection)) {
+            throw new IllegalArgumentException(tr("Option {0} requires projection {1}", "--tiles", "epsg:3857"));
+        }
+        if (argBounds != null) {
+            return argBounds;
+        }
+        if (ds.getDataSourceBounds().isEmpty()) {
+            throw new IllegalArgumentException(
+                    tr("{0} mode, but no bounds found in osm data input file", "--bounds=auto"));
+        }
+        Bounds bounds = new Bounds(ds.getDataSourceBounds().get(0));
+        ds.getDataSourceBounds().forEach(bounds::extend);
+        return bounds;
+    }
+
+    private void renderTiles(DataSet ds) throws IOException, IllegalDataException {
+        Bounds bounds = determineTilesArea(ds);
+        if (argStyles.isEmpty())
+            throw new IllegalArgumentException(tr("Missing argument - at least one style expected ({0})", "--style"));
+        TileRenderingHelper trh = new TileRenderingHelper(ds, bounds, argStyles);
+        if (argThreads != null) {
+            trh.setThreads(argThreads);
+        }
+        if (argMaxTiles != null) {
+            trh.setMaxTiles(argMaxTiles);
+        }
+        long start = System.nanoTime();
+        long count = trh.render(argTilesMinZoom, argTilesMaxZoom, new File(Optional.ofNullable(argOutput).orElse("tiles")));
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println(tr("Rendered {0} tiles in {1} s ({2} tiles/s)", count,
+                String.format("%.1f", seconds), String.format("%.1f", count / seconds)));
+    }
+
     private void checkPreconditions(RenderingHelper rh) {
         if (argStyles.isEmpty())
             throw new IllegalArgumentException(tr("Missing argument - at least one style expected ({0})", "--style"));
@@ -108,7 +108,36 @@ public class RenderingHelper {
      * @throws IllegalDataException when illegal data is encountered (style has errors, etc.)
      */
     public BufferedImage render() throws IOException, IllegalDataException {
-        // load the styles
+        ElemStyles elemStyles = loadStyles(styles);
+
+        Dimension imgDimPx = getImageSize();
+        NavigatableComponent nc = createNavigatableComponent(imgDimPx);
+        nc.zoomTo(projBounds.getCenter(), scale);
+
+        // render the data
+        BufferedImage image = new BufferedImage(imgDimPx.width, imgDimPx.height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        setRenderingHints(g);
+
+        if (fillBackground) {
+            g.setColor(Optional.ofNullable(backgroundColor).orElse(elemStyles.getBackgroundColor()));
+            g.fillRect(0, 0, imgDimPx.width, imgDimPx.height);
+        }
+        StyledMapRenderer smr = new StyledMapRenderer(g, nc, false);
+        smr.setStyles(elemStyles);
+        smr.setTargetImage(image);
+        smr.render(ds, false, bounds);
+        return image;
+    }
+
+    /**
+     * Loads the styles and applies their settings.
+     * @param styles the styles to load
+     * @return the loaded styles
+     * @throws IOException in case of an IOException
+     * @throws IllegalDataException when a style has errors
+     */
+    static ElemStyles loadStyles(Collection<StyleData> styles) throws IOException, IllegalDataException {
         ElemStyles elemStyles = new ElemStyles();
         MapCSSStyleSource.STYLE_SOURCE_LOCK.writeLock().lock();
         try {
@@ -140,11 +169,29 @@ public class RenderingHelper {
         } finally {
             MapCSSStyleSource.STYLE_SOURCE_LOCK.writeLock().unlock();
         }
+        return elemStyles;
+    }
 
-        Dimension imgDimPx = getImageSize();
-        NavigatableComponent nc = new NavigatableComponent() {
+    /**
+     * Creates a component that is not displayed, to define the view of the renderer.
+     * @param size the size of the rendered image
+     * @return a new component of the given size
+     */
+    static NavigatableComponent createNavigatableComponent(Dimension size) {
+        return createNavigatableComponent(size, Double.NaN);
+    }
+
+    /**
+     * Creates a component that is not displayed, to define the view of the renderer.
+     * @param size the size of the rendered image
+     * @param dist100Pixel the fixed distance in meter that correspond to 100 px, used to select the styles,
+     * or {@code NaN} to compute it from the view
+     * @return a new component of the given size
+     */
+    static NavigatableComponent createNavigatableComponent(Dimension size, double dist100Pixel) {
+        return new NavigatableComponent() {
             {
-                setBounds(0, 0, imgDimPx.width, imgDimPx.height);
+                setBounds(0, 0, size.width, size.height);
                 updateLocationState();
             }
 
@@ -157,14 +204,19 @@ public class RenderingHelper {
             public Point getLocationOnScreen() {
                 return new Point(0, 0);
             }
-        };
-        nc.zoomTo(projBounds.getCenter(), scale);
 
-        // render the data
-        BufferedImage image = new BufferedImage(imgDimPx.width, imgDimPx.height, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g = image.createGraphics();
+            @Override
+            public double getDist100Pixel(boolean alwaysPositive) {
+                return Double.isNaN(dist100Pixel) ? super.getDist100Pixel(alwaysPositive) : dist100Pixel;
+            }
+        };
+    }
 
-        // Force all render hints to be defaults - do not use platform values
+    /**
+     * Forces all render hints to be defaults - do not use platform values.
+     * @param g the graphics to render to
+     */
+    static void setRenderingHints(Graphics2D g) {
         g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
         g.setRenderingHint(RenderingHints.KEY_ALPHA_INTERPOLATION, RenderingHints.VALUE_ALPHA_INTERPOLATION_QUALITY);
         g.setRenderingHint(RenderingHints.KEY_COLOR_RENDERING, RenderingHints.VALUE_COLOR_RENDER_QUALITY);
@@ -174,15 +226,6 @@ public class RenderingHelper {
         g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
         g.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_NORMALIZE);
         g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
-
-        if (fillBackground) {
-            g.setColor(Optional.ofNullable(backgroundColor).orElse(elemStyles.getBackgroundColor()));
-            g.fillRect(0, 0, imgDimPx.width, imgDimPx.height);
-        }
-        StyledMapRenderer smr = new StyledMapRenderer(g, nc, false);
-        smr.setStyles(elemStyles);
-        smr.render(ds, false, bounds);
-        return image;
     }
 
 }
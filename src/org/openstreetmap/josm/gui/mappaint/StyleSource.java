@@ -99,6 +99,17 @@ public abstract class StyleSource extends SourceEntry {
      */
     public abstract void apply(MultiCascade mc, IPrimitive osm, double scale, boolean pretendWayIsClosed);
 
+    /**
+     * Determines if the styles of the given node or way only depend on its type, its tags, its selected state and
+     * whether it is closed, i.e., if no rule depending on parent or child primitives or on the geometry applies to it.
+     * Such primitives share the styles computed for other primitives with the same properties, see {@link ElemStyles}.
+     * @param osm the node or way
+     * @return {@code true} if the styles of the primitive are context free
+     */
+    public boolean isContextFree(IPrimitive osm) {
+        return false;
+    }
+
     /**
      * Loads the complete style source.
      */
@@ -0,0 +1,361 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.mappaint;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.imageio.ImageIO;
+
+import org.openstreetmap.gui.jmapviewer.OsmMercator;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.osm.BBox;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.visitor.paint.StyledMapRenderer;
+import org.openstreetmap.josm.data.projection.Projection;
+import org.openstreetmap.josm.data.projection.ProjectionRegistry;
+import org.openstreetmap.josm.gui.NavigatableComponent;
+import org.openstreetmap.josm.gui.mappaint.RenderingHelper.StyleData;
+import org.openstreetmap.josm.io.IllegalDataException;
+import org.openstreetmap.josm.tools.CheckParameterUtil;
+import org.openstreetmap.josm.tools.JosmRuntimeException;
+import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * Class to render osm data to a pyramid of web map tiles, in a {@code z/x/y.png} directory tree.
+ * <p>
+ * The styles are loaded once, and the tiles are rendered in parallel, each worker thread with its own
+ * {@link StyledMapRenderer} over the shared data set, which is only read. Tiles are rendered in blocks of
+ * {@link #METATILE_SIZE}x{@link #METATILE_SIZE} tiles with a buffer around them, so that labels and icons are not
+ * cut at the tile borders.
+ * <p>
+ * The style cache of the primitives is not thread safe. The styles of a zoom level are therefore computed before the
+ * tiles are rendered, for a fixed scale per zoom level, so that the workers only read the cached styles.
+ * <p>
+ * The current projection must be the web Mercator projection (EPSG:3857).
+ */
+public class TileRenderingHelper {
+
+    /**
+     * The width and height of a tile in pixel
+     */
+    public static final int TILE_SIZE = OsmMercator.DEFAUL_TILE_SIZE;
+
+    /**
+     * The number of tiles in each direction rendered at once
+     */
+    public static final int METATILE_SIZE = 8;
+
+    /**
+     * The highest zoom level that can be rendered
+     */
+    public static final int MAX_ZOOM = 30;
+
+    /**
+     * The default maximum number of tiles rendered at once, see {@link #setMaxTiles}
+     */
+    public static final long DEFAULT_MAX_TILES = 1_000_000;
+
+    /**
+     * The buffer in pixel rendered around a metatile
+     */
+    private static final int BUFFER = 128;
+
+    /**
+     * The width and height of the world in east/north units
+     */
+    private static final double WORLD_SIZE = OsmMercator.EARTH_RADIUS * Math.PI * 2;
+
+    private final DataSet ds;
+    private final Bounds bounds;
+    private final Collection<StyleData> styles;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private long maxTiles = DEFAULT_MAX_TILES;
+
+    /**
+     * Construct a new {@code TileRenderingHelper}.
+     * @param ds the dataset to render
+     * @param bounds the bounds of the area to render, all tiles intersecting it are rendered
+     * @param styles the styles to use for rendering
+     */
+    public TileRenderingHelper(DataSet ds, Bounds bounds, Collection<StyleData> styles) {
+        CheckParameterUtil.ensureParameterNotNull(ds, "ds");
+        CheckParameterUtil.ensureParameterNotNull(bounds, "bounds");
+        CheckParameterUtil.ensureParameterNotNull(styles, "styles");
+        this.ds = ds;
+        this.bounds = bounds;
+        this.styles = styles;
+    }
+
+    /**
+     * Sets the number of tiles rendered at the same time.
+     * @param threads the number of worker threads, defaults to the number of available processors
+     */
+    public void setThreads(int threads) {
+        if (threads <= 0)
+            throw new IllegalArgumentException(tr("Expected number of threads > 0, but got {0}", threads));
+        this.threads = threads;
+    }
+
+    /**
+     * Sets the maximum number of tiles rendered at once. Rendering more tiles is refused, since the number of tiles
+     * grows by a factor of four with each zoom level.
+     * @param maxTiles the maximum number of tiles of all zoom levels, {@code 0} means no limit
+     */
+    public void setMaxTiles(long maxTiles) {
+        if (maxTiles < 0)
+            throw new IllegalArgumentException(tr("Expected maximum number of tiles >= 0, but got {0}", maxTiles));
+        this.maxTiles = maxTiles;
+    }
+
+    /**
+     * Gets the number of tiles intersecting the bounds, for the given zoom levels.
+     * @param minZoom the lowest zoom level
+     * @param maxZoom the highest zoom level
+     * @return the number of tiles
+     */
+    public long getTileCount(int minZoom, int maxZoom) {
+        long count = 0;
+        for (int zoom = minZoom; zoom <= maxZoom; zoom++) {
+            count += new TileRange(zoom, bounds).getTileCount();
+        }
+        return count;
+    }
+
+    /**
+     * Tile range of one zoom level, in tile numbers (inclusive).
+     */
+    static final class TileRange {
+        final int zoom;
+        final int minX;
+        final int minY;
+        final int maxX;
+        final int maxY;
+
+        TileRange(int zoom, Bounds bounds) {
+            this.zoom = zoom;
+            Projection proj = ProjectionRegistry.getProjection();
+            EastNorth min = proj.latlon2eastNorth(bounds.getMin());
+            EastNorth max = proj.latlon2eastNorth(bounds.getMax());
+            double tileSize = getTileSize(zoom);
+            int last = (1 << zoom) - 1;
+            minX = Utils.clamp((int) Math.floor((min.east() + WORLD_SIZE / 2) / tileSize), 0, last);
+            maxX = Utils.clamp((int) Math.floor((max.east() + WORLD_SIZE / 2) / tileSize), 0, last);
+            minY = Utils.clamp((int) Math.floor((WORLD_SIZE / 2 - max.north()) / tileSize), 0, last);
+            maxY = Utils.clamp((int) Math.floor((WORLD_SIZE / 2 - min.north()) / tileSize), 0, last);
+        }
+
+        TileRange(int zoom, int minX, int minY, int maxX, int maxY) {
+            this.zoom = zoom;
+            this.minX = minX;
+            this.minY = minY;
+            this.maxX = maxX;
+            this.maxY = maxY;
+        }
+
+        long getTileCount() {
+            return (maxX - minX + 1L) * (maxY - minY + 1L);
+        }
+
+        EastNorth getCenter() {
+            return getEastNorth(zoom, (minX + maxX + 1) / 2.0, (minY + maxY + 1) / 2.0);
+        }
+
+        double getScale() {
+            return getTileSize(zoom) / TILE_SIZE;
+        }
+    }
+
+    /**
+     * Renders all tiles intersecting the bounds, for the given zoom levels.
+     * @param minZoom the lowest zoom level to render
+     * @param maxZoom the highest zoom level to render
+     * @param directory the root directory of the tiles
+     * @return the number of tiles written
+     * @throws IOException in case of an IOException
+     * @throws IllegalDataException when illegal data is encountered (style has errors, etc.)
+     * @throws IllegalArgumentException if the zoom range is invalid or if there are more tiles than allowed, see {@link #setMaxTiles}
+     */
+    public long render(int minZoom, int maxZoom, File directory) throws IOException, IllegalDataException {
+        if (minZoom < 0 || minZoom > maxZoom || maxZoom > MAX_ZOOM)
+            throw new IllegalArgumentException(tr("Invalid zoom range {0}..{1}", minZoom, maxZoom));
+        long tiles = getTileCount(minZoom, maxZoom);
+        if (maxTiles != 0 && tiles > maxTiles)
+            throw new IllegalArgumentException(tr("Number of tiles ({0}) exceeds the maximum number of tiles {1}", tiles, maxTiles));
+        ElemStyles elemStyles = RenderingHelper.loadStyles(styles);
+        ExecutorService executor = Executors.newFixedThreadPool(threads,
+                Utils.newThreadFactory("render-tiles-%d", Thread.NORM_PRIORITY));
+        try {
+            long count = 0;
+            for (int zoom = minZoom; zoom <= maxZoom; zoom++) {
+                long start = System.nanoTime();
+                TileRange range = new TileRange(zoom, bounds);
+                renderZoom(executor, elemStyles, range, directory);
+                count += range.getTileCount();
+                double seconds = (System.nanoTime() - start) / 1e9;
+                Logging.info(tr("Rendered {0} tiles of zoom level {1} in {2} s ({3} tiles/s)", range.getTileCount(), zoom,
+                        String.format("%.1f", seconds), String.format("%.1f", range.getTileCount() / seconds)));
+            }
+            return count;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void renderZoom(ExecutorService executor, ElemStyles elemStyles, TileRange range, File directory)
+            throws IOException {
+        // select the styles with the scale at the center of the area, for all tiles of the zoom level
+        double circum = getDist100Pixel(range);
+        computeStyles(ds, elemStyles, circum, range);
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int mx = range.minX / METATILE_SIZE; mx <= range.maxX / METATILE_SIZE; mx++) {
+            for (int my = range.minY / METATILE_SIZE; my <= range.maxY / METATILE_SIZE; my++) {
+                TileRange metatile = new TileRange(range.zoom,
+                        Math.max(range.minX, mx * METATILE_SIZE),
+                        Math.max(range.minY, my * METATILE_SIZE),
+                        Math.min(range.maxX, mx * METATILE_SIZE + METATILE_SIZE - 1),
+                        Math.min(range.maxY, my * METATILE_SIZE + METATILE_SIZE - 1));
+                Callable<Void> task = () -> {
+                    writeTiles(renderMetatile(ds, elemStyles, circum, metatile), metatile, directory);
+                    return null;
+                };
+                futures.add(executor.submit(task));
+            }
+        }
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JosmRuntimeException(e);
+        } catch (ExecutionException e) {
+            futures.forEach(f -> f.cancel(true));
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new JosmRuntimeException(e.getCause());
+        }
+    }
+
+    private static void writeTiles(BufferedImage image, TileRange range, File directory) throws IOException {
+        for (int x = range.minX; x <= range.maxX; x++) {
+            File column = new File(directory, range.zoom + File.separator + x);
+            if (!column.isDirectory() && !column.mkdirs() && !column.isDirectory()) {
+                throw new IOException(tr("Unable to create directory ''{0}''", column));
+            }
+            for (int y = range.minY; y <= range.maxY; y++) {
+                ImageIO.write(getTile(image, range, x, y), "png", new File(column, y + ".png"));
+            }
+        }
+    }
+
+    /**
+     * Gets the distance in meter that correspond to 100 px at the center of the tiles, used to select the styles.
+     * @param range the tiles
+     * @return the distance in meter that correspond to 100 px
+     */
+    static double getDist100Pixel(TileRange range) {
+        NavigatableComponent nc = RenderingHelper.createNavigatableComponent(new Dimension(TILE_SIZE, TILE_SIZE));
+        nc.zoomTo(range.getCenter(), range.getScale());
+        return nc.getDist100Pixel();
+    }
+
+    /**
+     * Computes the styles of the primitives of the tiles and their buffer, so that the renderers only read them.
+     * The style cache of the primitives is not thread safe, callers must make sure that this method is not called
+     * while other styles of the same data set are computed.
+     * @param ds the data set
+     * @param elemStyles the styles
+     * @param circum the distance in meter that correspond to 100 px, see {@link #getDist100Pixel(TileRange)}
+     * @param range the tiles
+     */
+    static void computeStyles(DataSet ds, ElemStyles elemStyles, double circum, TileRange range) {
+        NavigatableComponent nc = RenderingHelper.createNavigatableComponent(new Dimension(TILE_SIZE, TILE_SIZE), circum);
+        nc.zoomTo(range.getCenter(), range.getScale());
+
+        Projection proj = ProjectionRegistry.getProjection();
+        double buffer = BUFFER * range.getScale();
+        EastNorth topLeft = getEastNorth(range.zoom, range.minX, range.minY);
+        EastNorth bottomRight = getEastNorth(range.zoom, range.maxX + 1, range.maxY + 1);
+        Bounds area = new Bounds(proj.eastNorth2latlon(topLeft.add(-buffer, buffer)), false);
+        area.extend(proj.eastNorth2latlon(bottomRight.add(buffer, -buffer)));
+        BBox bbox = area.toBBox();
+        List<OsmPrimitive> primitives = new ArrayList<>(ds.searchRelations(bbox));
+        primitives.addAll(ds.searchWays(bbox));
+        primitives.addAll(ds.searchNodes(bbox));
+        for (OsmPrimitive osm : primitives) {
+            if (osm.isDrawable()) {
+                elemStyles.get(osm, circum, nc);
+            }
+        }
+    }
+
+    /**
+     * Renders a block of tiles with a buffer around them.
+     * @param ds the data set
+     * @param elemStyles the styles
+     * @param circum the distance in meter that correspond to 100 px, see {@link #getDist100Pixel(TileRange)}
+     * @param range the tiles
+     * @return the rendered image, see {@link #getTile}
+     */
+    static BufferedImage renderMetatile(DataSet ds, ElemStyles elemStyles, double circum, TileRange range) {
+        int width = (range.maxX - range.minX + 1) * TILE_SIZE + 2 * BUFFER;
+        int height = (range.maxY - range.minY + 1) * TILE_SIZE + 2 * BUFFER;
+        NavigatableComponent nc = RenderingHelper.createNavigatableComponent(new Dimension(width, height), circum);
+        nc.zoomTo(range.getCenter(), range.getScale());
+
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            RenderingHelper.setRenderingHints(g);
+            g.setColor(elemStyles.getBackgroundColor());
+            g.fillRect(0, 0, width, height);
+            StyledMapRenderer smr = new StyledMapRenderer(g, nc, false);
+            smr.setStyles(elemStyles);
+            smr.setTargetImage(image);
+            smr.render(ds, false, nc.getRealBounds());
+        } finally {
+            g.dispose();
+        }
+        return image;
+    }
+
+    /**
+     * Gets one tile of a rendered block of tiles.
+     * @param image the image returned by {@link #renderMetatile}
+     * @param range the tiles of the image
+     * @param x the tile x number
+     * @param y the tile y number
+     * @return the tile image, sharing the data of the block
+     */
+    static BufferedImage getTile(BufferedImage image, TileRange range, int x, int y) {
+        return image.getSubimage(BUFFER + (x - range.minX) * TILE_SIZE, BUFFER + (y - range.minY) * TILE_SIZE,
+                TILE_SIZE, TILE_SIZE);
+    }
+
+    private static double getTileSize(int zoom) {
+        return Math.scalb(WORLD_SIZE, -zoom);
+    }
+
+    private static EastNorth getEastNorth(int zoom, double x, double y) {
+        double tileSize = getTileSize(zoom);
+        return new EastNorth(x * tileSize - WORLD_SIZE / 2, WORLD_SIZE / 2 - y * tileSize);
+    }
+}
@@ -18,6 +18,16 @@ public interface Condition {
      */
     boolean applies(Environment e);
 
+    /**
+     * Determines if this condition only depends on the type, the tags, the selected state and the closedness of
+     * the primitive, and on the cascade built by previous rules. Such conditions never look at parent or child
+     * primitives or at the geometry.
+     * @return {@code true} if the condition is context free
+     */
+    default boolean isContextFree() {
+        return false;
+    }
+
     /**
      * Context, where the condition applies.
      */
@@ -5,6 +5,7 @@ import java.lang.reflect.Method;
 import java.text.MessageFormat;
 import java.util.Arrays;
 import java.util.EnumSet;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
@@ -31,6 +32,7 @@ import org.openstreetmap.josm.gui.mappaint.mapcss.Condition.Context;
 import org.openstreetmap.josm.gui.mappaint.mapcss.Condition.ToTagConvertable;
 import org.openstreetmap.josm.tools.CheckParameterUtil;
 import org.openstreetmap.josm.tools.JosmRuntimeException;
+import org.openstreetmap.josm.tools.Logging;
 import org.openstreetmap.josm.tools.Utils;
 
 /**
@@ -180,8 +182,12 @@ public final class ConditionFactory {
 
         static final Set<Op> NEGATED_OPS = EnumSet.of(NEQ, NREGEX);
 
+        private static final Pattern ONE_OF_SEPARATOR = Pattern.compile("\\s*;\\s*");
+
         private final BiPredicate<String, String> function;
 
+        private final IntFunction<Boolean> comparison;
+
         private final boolean negated;
 
         /**
@@ -190,6 +196,7 @@ public final class ConditionFactory {
          */
         Op(BiPredicate<String, String> func) {
             this.function = func;
+            this.comparison = null;
             negated = false;
         }
 
@@ -210,6 +217,7 @@ public final class ConditionFactory {
                 int res = Float.compare(testFloat, prototypeFloat);
                 return comparatorResult.apply(res);
             };
+            this.comparison = comparatorResult;
             negated = false;
         }
 
@@ -219,6 +227,7 @@ public final class ConditionFactory {
          */
         Op(Op negate) {
             this.function = (a, b) -> !negate.function.test(a, b);
+            this.comparison = null;
             negated = true;
         }
 
@@ -234,6 +243,55 @@ public final class ConditionFactory {
             else
                 return function.test(testString, prototypeString);
         }
+
+        /**
+         * Returns a predicate that is equivalent to {@link #eval(String, String)} with a fixed reference string.
+         * The reference is parsed only once, i.e., numbers are parsed and regular expressions are compiled here.
+         * @param prototypeString The reference string
+         * @return predicate accepting the value (may be <code>null</code>)
+         */
+        public Predicate<String> compile(String prototypeString) {
+            Predicate<String> predicate;
+            try {
+                predicate = compileFunction(prototypeString);
+            } catch (IllegalArgumentException e) {
+                // Invalid number or regular expression, fail on evaluation as before
+                Logging.trace(e);
+                return test -> eval(test, prototypeString);
+            }
+            return test -> test == null ? negated : predicate.test(test);
+        }
+
+        private Predicate<String> compileFunction(String prototypeString) {
+            switch (this) {
+            case EQ:
+                return prototypeString::equals;
+            case NEQ:
+                return test -> !prototypeString.equals(test);
+            case GREATER_OR_EQUAL:
+            case GREATER:
+            case LESS_OR_EQUAL:
+            case LESS:
+                float prototypeFloat = Float.parseFloat(prototypeString);
+                return test -> {
+                    float testFloat;
+                    try {
+                        testFloat = Float.parseFloat(test);
+                    } catch (NumberFormatException e) {
+                        return false;
+                    }
+                    return comparison.apply(Float.compare(testFloat, prototypeFloat));
+                };
+            case REGEX:
+                return Pattern.compile(prototypeString).asPredicate();
+            case NREGEX:
+                return Pattern.compile(prototypeString).asPredicate().negate();
+            case ONE_OF:
+                return test -> Arrays.asList(ONE_OF_SEPARATOR.split(test)).contains(prototypeString);
+            default:
+                return test -> function.test(test, prototypeString);
+            }
+        }
     }
 
     /**
@@ -266,6 +324,11 @@ public final class ConditionFactory {
             return v.equals(e.osm.get(k));
         }
 
+        @Override
+        public boolean isContextFree() {
+            return true;
+        }
+
         @Override
         public Tag asTag(OsmPrimitive primitive) {
             return new Tag(k, v);
@@ -300,6 +363,8 @@ public final class ConditionFactory {
          */
         public final boolean considerValAsKey;
 
+        private final Predicate<String> predicate;
+
         /**
          * <p>Creates a key/value-condition.</p>
          *
@@ -313,11 +378,17 @@ public final class ConditionFactory {
             this.v = v;
             this.op = op;
             this.considerValAsKey = considerValAsKey;
+            this.predicate = considerValAsKey ? null : op.compile(v);
         }
 
         @Override
         public boolean applies(Environment env) {
-            return op.eval(env.osm.get(k), considerValAsKey ? env.osm.get(v) : v);
+            return considerValAsKey ? op.eval(env.osm.get(k), env.osm.get(v)) : predicate.test(env.osm.get(k));
+        }
+
+        @Override
+        public boolean isContextFree() {
+            return true;
         }
 
         @Override
@@ -406,6 +477,7 @@ public final class ConditionFactory {
     public static class RoleCondition implements Condition {
         final String role;
         final Op op;
+        private final Predicate<String> predicate;
 
         /**
          * Constructs a new {@code RoleCondition}.
@@ -415,13 +487,14 @@ public final class ConditionFactory {
         public RoleCondition(String role, Op op) {
             this.role = role;
             this.op = op;
+            this.predicate = op.compile(role);
         }
 
         @Override
         public boolean applies(Environment env) {
             String testRole = env.getRole();
             if (testRole == null) return false;
-            return op.eval(testRole, role);
+            return predicate.test(testRole);
         }
     }
 
@@ -552,6 +625,11 @@ public final class ConditionFactory {
             }
         }
 
+        @Override
+        public boolean isContextFree() {
+            return true;
+        }
+
         /**
          * Get the matched key and the corresponding value.
          * <p>
@@ -601,6 +679,11 @@ public final class ConditionFactory {
             return cascade != null && (not ^ cascade.containsKey(id));
         }
 
+        @Override
+        public boolean isContextFree() {
+            return true;
+        }
+
         @Override
         public String toString() {
             return (not ? "!" : "") + '.' + id;
@@ -784,6 +867,12 @@ public final class ConditionFactory {
      */
     public static class PseudoClassCondition implements Condition {
 
+        /**
+         * Pseudo classes which only depend on the type, tags, selected state and closedness of a way
+         */
+        private static final Set<String> CONTEXT_FREE = new HashSet<>(Arrays.asList(
+                "closed", "closed2", "tagged", "selected", "completely_downloaded"));
+
         final Method method;
         final boolean not;
 
@@ -832,6 +921,11 @@ public final class ConditionFactory {
             }
         }
 
+        @Override
+        public boolean isContextFree() {
+            return method != null && CONTEXT_FREE.contains(method.getName());
+        }
+
         @Override
         public String toString() {
             return (not ? "!" : "") + ':' + method.getName();
@@ -886,6 +980,11 @@ public final class ConditionFactory {
             return b != null && b;
         }
 
+        @Override
+        public boolean isContextFree() {
+            return e.isContextFree();
+        }
+
         @Override
         public String toString() {
             return '[' + e.toString() + ']';
@@ -20,4 +20,13 @@ public interface Expression {
      * primitive type or wrapper classes of a primitive type.
      */
     Object evaluate(Environment env);
+
+    /**
+     * Determines if the result of this expression only depends on the tags of the primitive, on the cascade and
+     * on preferences, see {@link Condition#isContextFree()}.
+     * @return {@code true} if the expression is context free
+     */
+    default boolean isContextFree() {
+        return false;
+    }
 }
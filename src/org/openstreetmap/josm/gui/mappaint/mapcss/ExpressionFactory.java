@@ -6,17 +6,21 @@ import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Array;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Objects;
+import java.util.Set;
 import java.util.TreeSet;
 import java.util.function.Function;
 import java.util.regex.Matcher;
@@ -63,6 +67,17 @@ public final class ExpressionFactory {
     private static final List<Method> parameterFunctions = new ArrayList<>();
     private static final List<Method> parameterFunctionsEnv = new ArrayList<>();
 
+    /**
+     * Functions without environment which must not be evaluated when the style is loaded, see {@link #foldConstants}.
+     */
+    private static final Set<String> impureFunctions = new HashSet<>(Arrays.asList("random", "print", "println"));
+
+    /**
+     * Functions with environment which only read the tags of the primitive, the cascade or preferences.
+     */
+    private static final Set<String> contextFreeFunctions = new HashSet<>(Arrays.asList(
+            "prop", "is_prop_set", "tag", "has_tag_key", "number_of_tags", "JOSM_pref", "setting"));
+
     static {
         for (Method m : Functions.class.getDeclaredMethods()) {
             Class<?>[] paramTypes = m.getParameterTypes();
@@ -1080,6 +1095,10 @@ public final class ExpressionFactory {
      * returns {@link NullExpression#INSTANCE}.
      */
     public static Expression createFunctionExpression(String name, List<Expression> args) {
+        return foldConstants(name, args, createFunctionExpressionInternal(name, args));
+    }
+
+    private static Expression createFunctionExpressionInternal(String name, List<Expression> args) {
         if ("cond".equals(name) && args.size() == 3)
             return new CondOperator(args.get(0), args.get(1), args.get(2));
         else if ("and".equals(name))
@@ -1108,6 +1127,69 @@ public final class ExpressionFactory {
         return NullExpression.INSTANCE;
     }
 
+    /**
+     * Evaluates the given function expression once if all its arguments are constant and it does not depend on
+     * the environment. The result replaces the expression if it is an immutable value.
+     * @param name the name of the function or operator
+     * @param args the list of arguments (as expressions)
+     * @param e the function expression
+     * @return a {@link ConstantFunction} holding the result, or {@code e} if it cannot be folded
+     */
+    static Expression foldConstants(String name, List<Expression> args, Expression e) {
+        if (e instanceof NullExpression || impureFunctions.contains(name)
+                || (e instanceof ParameterFunction && ((ParameterFunction) e).needsEnvironment)
+                || !args.stream().allMatch(arg -> arg instanceof LiteralExpression || arg instanceof ConstantFunction)) {
+            return e;
+        }
+        Object value;
+        try {
+            value = e.evaluate(null);
+        } catch (RuntimeException ex) {
+            Logging.trace(ex);
+            return e;
+        }
+        if (value instanceof String || value instanceof Number || value instanceof Boolean || value instanceof Color) {
+            return new ConstantFunction(e, value);
+        }
+        return e;
+    }
+
+    private static boolean isContextFree(List<Expression> args) {
+        return args.stream().allMatch(Expression::isContextFree);
+    }
+
+    /**
+     * Returns a method handle to invoke the given static method with an array of arguments.
+     * @param m method
+     * @return method handle of type {@code (Object[])Object}
+     */
+    private static MethodHandle spreadInvoker(Method m) {
+        try {
+            return MethodHandles.publicLookup().unreflect(m).asFixedArity()
+                    .asSpreader(Object[].class, m.getParameterTypes().length)
+                    .asType(MethodType.methodType(Object.class, Object[].class));
+        } catch (IllegalAccessException ex) {
+            throw new JosmRuntimeException(ex);
+        }
+    }
+
+    /**
+     * Invokes a function. Exceptions thrown by the function are logged.
+     * @param handle method handle returned by {@link #spreadInvoker}
+     * @param convertedArgs the arguments
+     * @return the result of the function, or {@code null} if it threw an exception
+     */
+    private static Object invoke(MethodHandle handle, Object[] convertedArgs) {
+        try {
+            return (Object) handle.invokeExact(convertedArgs);
+        } catch (Error ex) {
+            throw ex;
+        } catch (Throwable ex) { // NOPMD
+            Logging.error(ex);
+            return null;
+        }
+    }
+
     /**
      * Expression that always evaluates to null.
      */
@@ -1122,6 +1204,55 @@ public final class ExpressionFactory {
         public Object evaluate(Environment env) {
             return null;
         }
+
+        @Override
+        public boolean isContextFree() {
+            return true;
+        }
+    }
+
+    /**
+     * Function with constant arguments that has been evaluated when the style was loaded.
+     * <p>
+     * In contrast to a {@link LiteralExpression}, it is not treated as tag key in a {@code text} declaration.
+     */
+    public static class ConstantFunction implements Expression {
+
+        private final Expression function;
+        private final Object value;
+
+        /**
+         * Constructs a new {@code ConstantFunction}.
+         * @param function the evaluated function
+         * @param value the result of the function
+         */
+        public ConstantFunction(Expression function, Object value) {
+            this.function = function;
+            this.value = value;
+        }
+
+        /**
+         * Returns the evaluated function.
+         * @return the evaluated function
+         */
+        public final Expression getFunction() {
+            return function;
+        }
+
+        @Override
+        public Object evaluate(Environment env) {
+            return value;
+        }
+
+        @Override
+        public boolean isContextFree() {
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return function.toString();
+        }
     }
 
     /**
@@ -1151,6 +1282,11 @@ public final class ExpressionFactory {
             else
                 return secondOption.evaluate(env);
         }
+
+        @Override
+        public boolean isContextFree() {
+            return condition.isContextFree() && firstOption.isContextFree() && secondOption.isContextFree();
+        }
     }
 
     /**
@@ -1178,6 +1314,11 @@ public final class ExpressionFactory {
             }
             return Boolean.TRUE;
         }
+
+        @Override
+        public boolean isContextFree() {
+            return ExpressionFactory.isContextFree(args);
+        }
     }
 
     /**
@@ -1205,6 +1346,11 @@ public final class ExpressionFactory {
             }
             return Boolean.FALSE;
         }
+
+        @Override
+        public boolean isContextFree() {
+            return ExpressionFactory.isContextFree(args);
+        }
     }
 
     /**
@@ -1237,6 +1383,11 @@ public final class ExpressionFactory {
                 return s.length();
             return null;
         }
+
+        @Override
+        public boolean isContextFree() {
+            return arg.isContextFree();
+        }
     }
 
     /**
@@ -1275,17 +1426,23 @@ public final class ExpressionFactory {
                 l = Utils.transform(args, (Function<Expression, Object>) x -> x.evaluate(env));
             return aggregateList(l);
         }
+
+        @Override
+        public boolean isContextFree() {
+            return ExpressionFactory.isContextFree(args);
+        }
     }
 
     /**
      * Function that takes a certain number of argument with specific type.
      *
-     * Implementation is based on a Method object.
+     * Implementation is based on a Method object, invoked through a method handle.
      * If any of the arguments evaluate to null, the result will also be null.
      */
     public static class ParameterFunction implements Expression {
 
         private final Method m;
+        private final MethodHandle handle;
         private final boolean nullable;
         private final List<Expression> args;
         private final Class<?>[] expectedParameterTypes;
@@ -1299,6 +1456,7 @@ public final class ExpressionFactory {
          */
         public ParameterFunction(Method m, List<Expression> args, boolean needsEnvironment) {
             this.m = m;
+            this.handle = spreadInvoker(m);
             this.nullable = m.getAnnotation(NullableArguments.class) != null;
             this.args = args;
             this.expectedParameterTypes = m.getParameterTypes();
@@ -1345,16 +1503,12 @@ public final class ExpressionFactory {
                     }
                 }
             }
-            Object result = null;
-            try {
-                result = m.invoke(null, convertedArgs);
-            } catch (IllegalAccessException | IllegalArgumentException ex) {
-                throw new JosmRuntimeException(ex);
-            } catch (InvocationTargetException ex) {
-                Logging.error(ex);
-                return null;
-            }
-            return result;
+            return invoke(handle, convertedArgs);
+        }
+
+        @Override
+        public boolean isContextFree() {
+            return (!needsEnvironment || contextFreeFunctions.contains(m.getName())) && ExpressionFactory.isContextFree(args);
         }
 
         @Override
@@ -1385,6 +1539,7 @@ public final class ExpressionFactory {
     public static class ArrayFunction implements Expression {
 
         private final Method m;
+        private final MethodHandle handle;
         private final boolean nullable;
         private final List<Expression> args;
         private final Class<?>[] expectedParameterTypes;
@@ -1397,6 +1552,7 @@ public final class ExpressionFactory {
          */
         public ArrayFunction(Method m, List<Expression> args) {
             this.m = m;
+            this.handle = spreadInvoker(m);
             this.nullable = m.getAnnotation(NullableArguments.class) != null;
             this.args = args;
             this.expectedParameterTypes = m.getParameterTypes();
@@ -1416,16 +1572,12 @@ public final class ExpressionFactory {
             }
             convertedArgs[0] = arrayArg;
 
-            Object result = null;
-            try {
-                result = m.invoke(null, convertedArgs);
-            } catch (IllegalAccessException | IllegalArgumentException ex) {
-                throw new JosmRuntimeException(ex);
-            } catch (InvocationTargetException ex) {
-                Logging.error(ex);
-                return null;
-            }
-            return result;
+            return invoke(handle, convertedArgs);
+        }
+
+        @Override
+        public boolean isContextFree() {
+            return ExpressionFactory.isContextFree(args);
         }
 
         @Override
@@ -36,6 +36,11 @@ public class LiteralExpression implements Expression {
         return literal;
     }
 
+    @Override
+    public boolean isContextFree() {
+        return true;
+    }
+
     @Override
     public String toString() {
         if (literal instanceof float[]) {
@@ -6,6 +6,7 @@ import java.util.Objects;
 
 import org.openstreetmap.josm.gui.mappaint.Environment;
 import org.openstreetmap.josm.gui.mappaint.StyleSource;
+import org.openstreetmap.josm.gui.mappaint.mapcss.Instruction.AssignmentInstruction;
 import org.openstreetmap.josm.tools.Utils;
 
 /**
@@ -26,6 +27,8 @@ public class MapCSSRule implements Comparable<MapCSSRule> {
      */
     public final Declaration declaration;
 
+    private final boolean contextFree;
+
     /**
      * A declaration is a set of {@link Instruction}s
      */
@@ -62,6 +65,24 @@ public class MapCSSRule implements Comparable<MapCSSRule> {
             }
         }
 
+        /**
+         * Determines if the instructions only depend on the tags of the primitive, on the cascade and on preferences.
+         * @return {@code true} if all instructions are context free
+         * @see Condition#isContextFree()
+         */
+        public boolean isContextFree() {
+            for (Instruction i : instructions) {
+                if (!(i instanceof AssignmentInstruction)) {
+                    return false;
+                }
+                Object val = ((AssignmentInstruction) i).val;
+                if (val instanceof Expression && !((Expression) val).isContextFree()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
         @Override
         public int hashCode() {
             return Objects.hash(instructions, idx);
@@ -90,6 +111,16 @@ public class MapCSSRule implements Comparable<MapCSSRule> {
     public MapCSSRule(Selector selector, Declaration declaration) {
         this.selector = selector;
         this.declaration = declaration;
+        this.contextFree = selector.isContextFree() && declaration.isContextFree();
+    }
+
+    /**
+     * Determines if the result of this rule only depends on the type, the tags, the selected state and the closedness
+     * of the primitive and on the cascade built by previous rules, see {@link Condition#isContextFree()}.
+     * @return {@code true} if the rule is context free
+     */
+    public boolean isContextFree() {
+        return contextFree;
     }
 
     /**
@@ -23,8 +23,10 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
@@ -37,6 +39,7 @@ import org.openstreetmap.josm.data.osm.KeyValueVisitor;
 import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.data.osm.OsmUtils;
 import org.openstreetmap.josm.data.osm.Tagged;
+import org.openstreetmap.josm.data.osm.visitor.paint.RenderProfile;
 import org.openstreetmap.josm.data.preferences.sources.SourceEntry;
 import org.openstreetmap.josm.gui.mappaint.Cascade;
 import org.openstreetmap.josm.gui.mappaint.Environment;
@@ -167,6 +170,11 @@ public class MapCSSStyleSource extends StyleSource {
      * all rules that might be applied to that primitive.
      */
     public static class MapCSSRuleIndex {
+        /**
+         * Maximum number of sets of rule candidates whose context dependent rules are cached.
+         */
+        private static final int MAX_CANDIDATE_SETS = 10_000;
+
         /**
          * This is an iterator over all rules that are marked as possible in the bitset.
          *
@@ -268,6 +276,10 @@ public class MapCSSStyleSource extends StyleSource {
          * Rules that do not require any key to be present. Only the index in the {@link #rules} array is stored.
          */
         private final BitSet remaining = new BitSet();
+        /**
+         * The rules which are not context free, for each set of rule candidates. See {@link #getContextDependentCandidates}.
+         */
+        private final Map<BitSet, List<MapCSSRule>> contextDependentCandidates = new ConcurrentHashMap<>();
 
         /**
          * Add a rule to this index. This needs to be called before {@link #initIndex()} is called.
@@ -369,6 +381,27 @@ public class MapCSSStyleSource extends StyleSource {
             return candidatesIterator;
         }
 
+        /**
+         * Get the rules that might match the primitive and are not {@linkplain MapCSSRule#isContextFree() context free}.
+         * The result is cached for each set of rule candidates, i.e. it is only computed once for primitives whose
+         * tags lead to the same candidates.
+         * <p>
+         * You must have a read lock of STYLE_SOURCE_LOCK when calling this method.
+         *
+         * @param osm the primitive to match
+         * @return the context dependent rule candidates in the right order
+         */
+        List<MapCSSRule> getContextDependentCandidates(IPrimitive osm) {
+            final BitSet ruleCandidates = new BitSet(rules.size());
+            ruleCandidates.or(remaining);
+            osm.visitKeys(new RuleCandidatesIterator(ruleCandidates));
+            if (contextDependentCandidates.size() >= MAX_CANDIDATE_SETS) {
+                contextDependentCandidates.clear();
+            }
+            return contextDependentCandidates.computeIfAbsent(ruleCandidates, c -> c.stream()
+                    .mapToObj(rules::get).filter(r -> !r.isContextFree()).collect(Collectors.toList()));
+        }
+
         /**
          * Clear the index.
          * <p>
@@ -378,6 +411,7 @@ public class MapCSSStyleSource extends StyleSource {
             rules.clear();
             index.clear();
             remaining.clear();
+            contextDependentCandidates.clear();
         }
     }
 
@@ -644,40 +678,96 @@ public class MapCSSStyleSource extends StyleSource {
         return backgroundColorOverride;
     }
 
-    @Override
-    public void apply(MultiCascade mc, IPrimitive osm, double scale, boolean pretendWayIsClosed) {
-        MapCSSRuleIndex matchingRuleIndex;
+    private MapCSSRuleIndex getMatchingRuleIndex(IPrimitive osm) {
         if (osm instanceof INode) {
-            matchingRuleIndex = nodeRules;
+            return nodeRules;
         } else if (osm instanceof IWay) {
             if (OsmUtils.isFalse(osm.get("area"))) {
-                matchingRuleIndex = wayNoAreaRules;
+                return wayNoAreaRules;
             } else {
-                matchingRuleIndex = wayRules;
+                return wayRules;
             }
         } else if (osm instanceof IRelation) {
             if (((IRelation<?>) osm).isMultipolygon()) {
-                matchingRuleIndex = multipolygonRules;
+                return multipolygonRules;
             } else if (osm.hasKey("#canvas")) {
-                matchingRuleIndex = canvasRules;
+                return canvasRules;
             } else {
-                matchingRuleIndex = relationRules;
+                return relationRules;
             }
         } else {
             throw new IllegalArgumentException("Unsupported type: " + osm);
         }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The selectors of all candidate rules which are not {@linkplain MapCSSRule#isContextFree() context free} are
+     * evaluated. These rules are only looked up once for each set of candidates, and a primitive without such candidates
+     * is context free without matching any selector. The primitive is context free if none of them matches.
+     * The cascade is not known at this point, so a selector which reads the cascade is assumed to match.
+     * You must have a read lock of STYLE_SOURCE_LOCK when calling this method.
+     */
+    @Override
+    public boolean isContextFree(IPrimitive osm) {
+        if (osm instanceof IRelation) {
+            return false;
+        }
+        List<MapCSSRule> candidates = getMatchingRuleIndex(osm).getContextDependentCandidates(osm);
+        if (candidates.isEmpty()) {
+            return true;
+        }
+        AccessRecordingMultiCascade mc = new AccessRecordingMultiCascade();
+        Environment env = new Environment(osm, mc, null, this);
+        for (MapCSSRule r : candidates) {
+            env.clearSelectorMatchingInformation();
+            env.layer = Environment.DEFAULT_LAYER;
+            if (r.selector.matches(env) || mc.accessed) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Multi cascade which records whether it has been accessed, see {@link MapCSSStyleSource#isContextFree}.
+     */
+    private static class AccessRecordingMultiCascade extends MultiCascade {
+        boolean accessed;
+
+        @Override
+        public Cascade getOrCreateCascade(String layer) {
+            accessed = true;
+            return super.getOrCreateCascade(layer);
+        }
+
+        @Override
+        public Cascade getCascade(String layer) {
+            accessed = true;
+            return super.getCascade(layer);
+        }
+    }
+
+    @Override
+    public void apply(MultiCascade mc, IPrimitive osm, double scale, boolean pretendWayIsClosed) {
+        MapCSSRuleIndex matchingRuleIndex = getMatchingRuleIndex(osm);
 
         Environment env = new Environment(osm, mc, null, this);
         // the declaration indices are sorted, so it suffices to save the last used index
         int lastDeclUsed = -1;
 
-        Iterator<MapCSSRule> candidates = matchingRuleIndex.getRuleCandidates(osm);
+        RenderProfile.RuleTimer timer = RenderProfile.isEnabled()
+                ? RenderProfile.getInstance().timeRules(this, matchingRuleIndex.getRuleCandidates(osm)) : null;
+        Iterator<MapCSSRule> candidates = timer != null ? timer : matchingRuleIndex.getRuleCandidates(osm);
         while (candidates.hasNext()) {
             MapCSSRule r = candidates.next();
             env.clearSelectorMatchingInformation();
             env.layer = r.selector.getSubpart().getId(env);
             String sub = env.layer;
             if (r.selector.matches(env)) { // as side effect env.parent will be set (if s is a child selector)
+                if (timer != null)
+                    timer.matched();
                 Selector s = r.selector;
                 if (s.getRange().contains(scale)) {
                     mc.range = Range.cut(mc.range, s.getRange());
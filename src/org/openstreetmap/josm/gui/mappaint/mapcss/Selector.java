@@ -114,6 +114,15 @@ public interface Selector {
      */
     Selector optimizedBaseCheck();
 
+    /**
+     * Determines if the selector only matches depending on the type, the tags, the selected state and the closedness
+     * of the primitive and on the cascade, see {@link Condition#isContextFree()}.
+     * @return {@code true} if the selector is context free
+     */
+    default boolean isContextFree() {
+        return false;
+    }
+
     /**
      * The type of child of parent selector.
      * @see ChildOrParentSelector
@@ -627,6 +636,11 @@ public interface Selector {
             this(s.base, s.range, s.conds, s.subpart);
         }
 
+        @Override
+        public boolean isContextFree() {
+            return subpart.isContextFree() && (conds == null || conds.stream().allMatch(Condition::isContextFree));
+        }
+
         @Override
         public Subpart getSubpart() {
             return subpart;
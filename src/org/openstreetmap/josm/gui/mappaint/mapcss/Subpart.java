@@ -18,6 +18,15 @@ public interface Subpart {
      */
     String getId(Environment env);
 
+    /**
+     * Determines if the ID only depends on the tags of the primitive and on the cascade.
+     * @return {@code true} if the subpart is context free
+     * @see Condition#isContextFree()
+     */
+    default boolean isContextFree() {
+        return false;
+    }
+
     /**
      * The default subpart for normal rules
      */
@@ -40,6 +49,11 @@ public interface Subpart {
             return id;
         }
 
+        @Override
+        public boolean isContextFree() {
+            return true;
+        }
+
         @Override
         public String toString() {
             return id;
@@ -63,6 +77,11 @@ public interface Subpart {
             return Cascade.convertTo(id.evaluate(env), String.class);
         }
 
+        @Override
+        public boolean isContextFree() {
+            return id.isContextFree();
+        }
+
         @Override
         public String toString() {
             return String.valueOf(id);
@@ -273,6 +273,13 @@ public class BoxTextElement extends StyleElement {
         }
     }
 
+    @Override
+    public double getPaintExtent(StyledMapRenderer painter) {
+        Rectangle box = getBox();
+        double halo = text.haloRadius == null ? 0 : text.haloRadius;
+        return box.height / 2.0 + Math.abs(yOffset) + 2 * text.font.getSize() + halo;
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (this == obj) return true;
@@ -175,6 +175,15 @@ public class LineElement extends StyleElement {
         }
     }
 
+    @Override
+    public double getPaintExtent(StyledMapRenderer painter) {
+        float width = line.getLineWidth();
+        if (realWidth > 0) {
+            width = Math.max(width, (int) (100 / (float) (painter.getCircum() / realWidth)));
+        }
+        return width / 2 + Math.abs(offset);
+    }
+
     @Override
     public boolean isProperLineStyle() {
         return !isModifier;
@@ -12,7 +12,8 @@ import java.util.Objects;
 import javax.swing.ImageIcon;
 
 import org.openstreetmap.josm.gui.MainApplication;
-import org.openstreetmap.josm.gui.MapView;
+import org.openstreetmap.josm.gui.layer.Layer;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
 import org.openstreetmap.josm.gui.mappaint.MapPaintStyles;
 import org.openstreetmap.josm.gui.mappaint.StyleSource;
 import org.openstreetmap.josm.gui.mappaint.styleelement.BoxTextElement.BoxProvider;
@@ -149,9 +150,8 @@ public class MapImage {
                         }
                         if (temporary) {
                             disabledImgCache = null;
-                            MapView mapView = MainApplication.getMap().mapView;
-                            mapView.preferenceChanged(null); // otherwise repaint is ignored, because layer hasn't changed
-                            mapView.repaint();
+                            // repaint the data layers, their retained images contain the temporary image
+                            MainApplication.getLayerManager().getLayersOfType(OsmDataLayer.class).forEach(Layer::invalidate);
                         }
                         temporary = false;
                     }
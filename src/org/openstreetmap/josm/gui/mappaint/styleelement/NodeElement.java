@@ -335,6 +335,16 @@ public class NodeElement extends StyleElement {
         }
     }
 
+    @Override
+    public double getPaintExtent(StyledMapRenderer painter) {
+        if (mapImage != null) {
+            // the image may be rotated
+            int size = Math.max(mapImage.width, mapImage.height);
+            return size <= 0 ? -1 : size + Math.abs(mapImage.offsetY);
+        }
+        return symbol != null ? symbol.size : -1;
+    }
+
     private static int max(int... elements) {
         return IntStream.of(elements).max().orElseThrow(IllegalStateException::new);
     }
@@ -101,6 +101,15 @@ public abstract class StyleElement implements StyleKeys {
         return false;
     }
 
+    /**
+     * Gets the maximum vertical distance in pixels this element may be painted away from the nodes of its primitive.
+     * @param painter painter
+     * @return the distance, or a negative value if it is not known
+     */
+    public double getPaintExtent(StyledMapRenderer painter) {
+        return -1;
+    }
+
     /**
      * Get a property value of type Width
      * @param c the cascade
@@ -29,6 +29,7 @@ public class OverpassServerPreference implements SubPreferenceSetting {
 
     private final HistoryComboBox overpassServer = new HistoryComboBox();
     private final JCheckBox forMultiFetch = new JCheckBox(tr("Use Overpass server for object downloads"));
+    private final JCheckBox streaming = new JCheckBox(tr("Display Overpass results progressively while downloading"));
 
     /**
      * Factory used to create a new {@link OverpassServerPreference}.
@@ -58,6 +59,9 @@ public class OverpassServerPreference implements SubPreferenceSetting {
         panel.add(forMultiFetch, GBC.eop());
         forMultiFetch.setSelected(OverpassDownloadReader.FOR_MULTI_FETCH.get());
 
+        panel.add(streaming, GBC.eop());
+        streaming.setSelected(OverpassDownloadReader.STREAMING.get());
+
         panel.add(Box.createVerticalGlue(), GBC.eol().fill());
 
         getTabPreferenceSetting(gui).addSubTab(this, tr("Overpass server"), panel);
@@ -68,6 +72,7 @@ public class OverpassServerPreference implements SubPreferenceSetting {
         OverpassDownloadReader.OVERPASS_SERVER.put(overpassServer.getText());
         OverpassDownloadReader.OVERPASS_SERVER_HISTORY.put(overpassServer.getHistory());
         OverpassDownloadReader.FOR_MULTI_FETCH.put(forMultiFetch.isSelected());
+        OverpassDownloadReader.STREAMING.put(streaming.isSelected());
         return false;
     }
 
@@ -211,6 +211,30 @@ public class Capabilities {
         return -1;
     }
 
+    /**
+     * Returns the max area (in square degrees) of a bounding box request. -1 if either the capabilities
+     * don't include this parameter or if the parameter value is illegal (not a number,
+     * a negative number)
+     *
+     * @return the max area of a bounding box request
+     */
+    public double getMaxArea() {
+        String v = get("area", "maximum");
+        if (v != null) {
+            try {
+                double area = Double.parseDouble(v);
+                if (area <= 0 || Double.isNaN(area)) {
+                    warnIllegalValue("area", "maximum", area);
+                } else {
+                    return area;
+                }
+            } catch (NumberFormatException e) {
+                warnIllegalValue("area", "maximum", v);
+            }
+        }
+        return -1;
+    }
+
     /**
      * Checks if the given URL is blacklisted by one of the of the regular expressions.
      * @param url Imagery URL to check
@@ -8,7 +8,6 @@ import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
-import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
@@ -16,10 +15,12 @@ import java.util.zip.ZipOutputStream;
 
 import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
 import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
 import org.apache.commons.compress.compressors.xz.XZCompressorInputStream;
 import org.apache.commons.compress.compressors.xz.XZCompressorOutputStream;
 import org.openstreetmap.josm.tools.Logging;
 import org.openstreetmap.josm.tools.Utils;
+import org.tukaani.xz.LZMA2Options;
 
 /**
  * An enum representing the compression type of a resource.
@@ -136,16 +137,20 @@ public enum Compression {
 
     /**
      * Returns a Gzip input stream wrapping given input stream.
+     * <p>
+     * All members of a multi-member stream are read, like the output of {@link #getCompressedOutputStream}.
+     * Unlike {@link java.util.zip.GZIPInputStream}, the stream does not stop after a member if the
+     * {@linkplain InputStream#available() available} bytes of {@code in} happen to be zero.
      * @param in The raw input stream
      * @return a Gzip input stream wrapping given input stream, or {@code null} if {@code in} is {@code null}
      * @throws IOException if an I/O error has occurred
      * @since 12772 (moved from {@link Utils}, there since 7119)
      */
-    public static GZIPInputStream getGZipInputStream(InputStream in) throws IOException {
+    public static GzipCompressorInputStream getGZipInputStream(InputStream in) throws IOException {
         if (in == null) {
             return null;
         }
-        return new GZIPInputStream(in);
+        return new GzipCompressorInputStream(in, true);
     }
 
     /**
@@ -186,6 +191,10 @@ public enum Compression {
 
     /**
      * Returns a compressing {@link OutputStream} for {@code out}.
+     * <p>
+     * Gzip, bzip2 and xz data is compressed on several threads, as a concatenation of independently compressed
+     * chunks which standard tools decompress as a whole. The number of threads is bounded by the free heap memory,
+     * each xz compressor using about 94 MiB.
      * @param out raw output stream
      * @return compressing output stream
      *
@@ -194,13 +203,16 @@ public enum Compression {
     public OutputStream getCompressedOutputStream(OutputStream out) throws IOException {
         switch (this) {
             case BZIP2:
-                return new BZip2CompressorOutputStream(out);
+                // one chunk per bzip2 block, which are compressed independently anyway; about 8 MiB per compressor
+                return ParallelCompressorOutputStream.create(out, BZip2CompressorOutputStream::new, 900_000, 8 << 20);
             case GZIP:
-                return new GZIPOutputStream(out);
+                return ParallelCompressorOutputStream.create(out, GZIPOutputStream::new, 1 << 20, 1 << 20);
             case ZIP:
                 return new ZipOutputStream(out, StandardCharsets.UTF_8);
             case XZ:
-                return new XZCompressorOutputStream(out);
+                // the dictionary size of the default preset, larger chunks would not compress much better
+                return ParallelCompressorOutputStream.create(out, XZCompressorOutputStream::new, 8 << 20,
+                        new LZMA2Options().getEncoderMemoryUsage() * 1024L);
             case NONE:
             default:
                 return out;
@@ -0,0 +1,726 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+
+import javax.json.Json;
+import javax.json.JsonArrayBuilder;
+import javax.json.stream.JsonGenerator;
+
+import org.apache.commons.compress.utils.CountingInputStream;
+import org.apache.commons.compress.utils.CountingOutputStream;
+import org.openstreetmap.josm.cli.CLIModule;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.NodeData;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.osm.PrimitiveData;
+import org.openstreetmap.josm.data.osm.RelationData;
+import org.openstreetmap.josm.data.osm.RelationMemberData;
+import org.openstreetmap.josm.data.osm.UploadPolicy;
+import org.openstreetmap.josm.data.osm.User;
+import org.openstreetmap.josm.data.osm.WayData;
+import org.openstreetmap.josm.data.osm.search.SearchCompiler;
+import org.openstreetmap.josm.data.osm.search.SearchCompiler.AbstractBinaryMatch;
+import org.openstreetmap.josm.data.osm.search.SearchCompiler.Match;
+import org.openstreetmap.josm.data.osm.search.SearchCompiler.Not;
+import org.openstreetmap.josm.data.osm.search.SearchCompiler.TaggedMatch;
+import org.openstreetmap.josm.data.osm.search.SearchParseError;
+import org.openstreetmap.josm.data.preferences.JosmBaseDirectories;
+import org.openstreetmap.josm.data.preferences.JosmUrls;
+import org.openstreetmap.josm.data.projection.ProjectionRegistry;
+import org.openstreetmap.josm.data.projection.Projections;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.spi.preferences.Config;
+import org.openstreetmap.josm.spi.preferences.MemoryPreferences;
+import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.OptionParser;
+import org.openstreetmap.josm.tools.OptionParser.OptionCount;
+import org.openstreetmap.josm.tools.OptionParser.OptionParseException;
+import org.openstreetmap.josm.tools.date.DateUtils;
+
+/**
+ * Command line interface for converting OSM data between file formats.
+ * <p>
+ * When possible, data is converted primitive by primitive without building a {@link DataSet}, so that files of any
+ * size can be converted with bounded memory. This is the case when reading OSM XML files and writing OSM XML,
+ * osmChange or OSM JSON files, with an optional bounding box filter and a search filter only depending on tags.
+ * Other conversions read the whole input file into a data set first.
+ * <p>
+ * With a search filter, the nodes of the selected ways are kept as well. As nodes come before ways in OSM XML
+ * files, the input file is then read twice when streaming: first to find these nodes, then to convert it.
+ * <p>
+ * An osmChange file only contains the new, modified and deleted primitives of the input.
+ */
+public class ConvertCLI implements CLIModule {
+
+    /** The unique instance **/
+    public static final ConvertCLI INSTANCE = new ConvertCLI();
+
+    private String argInput;
+    private String argOutput;
+    private Bounds argBounds;
+    private String argSearch;
+    private boolean argDebug;
+
+    /**
+     * File formats supported by the converter, determined by file extension (compression extension excluded).
+     */
+    enum Format {
+        /** OSM XML, {@code .osm} */
+        OSM,
+        /** osmChange, {@code .osc} */
+        OSM_CHANGE,
+        /** OSM JSON, {@code .json} */
+        OSM_JSON,
+        /** GeoJSON, {@code .geojson}. Output only */
+        GEOJSON;
+
+        static Format of(String fileName) {
+            String name = fileName.toLowerCase(Locale.ENGLISH);
+            if (Compression.byExtension(name) != Compression.NONE) {
+                name = name.substring(0, name.lastIndexOf('.'));
+            }
+            if (name.endsWith(".osm")) {
+                return OSM;
+            } else if (name.endsWith(".osc")) {
+                return OSM_CHANGE;
+            } else if (name.endsWith(".geojson")) {
+                return GEOJSON;
+            } else if (name.endsWith(".json")) {
+                return OSM_JSON;
+            }
+            throw new IllegalArgumentException(tr("Unsupported file format: {0}", fileName));
+        }
+    }
+
+    @Override
+    public String getActionKeyword() {
+        return "convert";
+    }
+
+    @Override
+    public void processArguments(String[] argArray) {
+        try {
+            parseArguments(argArray);
+            initialize();
+            Match match = argSearch != null ? SearchCompiler.compile(argSearch) : null;
+            Statistics stats = convert(new File(argInput), new File(argOutput), argBounds, match);
+            System.err.println(stats);
+        } catch (IllegalArgumentException | IllegalDataException | IOException | SearchParseError e) {
+            System.exit(CLIModule.reportError(e, argDebug));
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Parse command line arguments and do some low-level error checking.
+     * @param argArray the arguments array
+     */
+    void parseArguments(String[] argArray) {
+        new OptionParser("JOSM convert")
+            .addFlagParameter("help", ConvertCLI::showHelp)
+            .addShortAlias("help", "h")
+            .addFlagParameter("debug", () -> argDebug = true)
+            .addArgumentParameter("input", OptionCount.REQUIRED, arg -> argInput = arg)
+            .addShortAlias("input", "i")
+            .addArgumentParameter("output", OptionCount.REQUIRED, arg -> argOutput = arg)
+            .addShortAlias("output", "o")
+            .addArgumentParameter("bounds", OptionCount.OPTIONAL, arg -> {
+                try {
+                    argBounds = new Bounds(arg, ",", Bounds.ParseMethod.LEFT_BOTTOM_RIGHT_TOP, false);
+                } catch (IllegalArgumentException iae) { // NOPMD
+                    throw new OptionParseException(
+                            tr("Unable to parse {0} parameter: {1}", "--bounds", iae.getMessage()), iae);
+                }
+            })
+            .addShortAlias("bounds", "b")
+            .addArgumentParameter("search", OptionCount.OPTIONAL, arg -> argSearch = arg)
+            .addShortAlias("search", "s")
+            .parseOptionsOrExit(Arrays.asList(argArray));
+    }
+
+    /**
+     * Displays help on the console
+     */
+    private static void showHelp() {
+        System.out.println(getHelp());
+        System.exit(0);
+    }
+
+    private static String getHelp() {
+        return tr("JOSM conversion command line interface")+"\n\n"+
+                tr("Usage")+":\n"+
+                "\tjava -jar josm.jar convert -i <file> -o <file> [options]\n\n"+
+                tr("Description")+":\n"+
+                tr("Converts OSM data from one file format to another, optionally keeping only part of the data.")+"\n"+
+                tr("The format of each file is determined by its extension: .osm (OSM XML), .osc (osmChange), "
+                        + ".json (OSM JSON) or .geojson (GeoJSON, output only), followed by an optional "
+                        + ".gz, .bz2 or .xz extension for compressed files.")+"\n"+
+                tr("OSM XML input is converted primitive by primitive with bounded memory, "
+                        + "unless GeoJSON output or a search expression which does not only depend on tags "
+                        + "require to read the whole file first.")+"\n"+
+                tr("osmChange output only contains new, modified and deleted objects.")+"\n\n"+
+                tr("Options")+":\n"+
+                "\t--help|-h                 "+tr("Show this help")+"\n"+
+                "\t--input|-i <file>         "+tr("Input data file name")+"\n"+
+                "\t--output|-o <file>        "+tr("Output data file name")+"\n"+
+                "\t--bounds|-b <min_lon>,<min_lat>,<max_lon>,<max_lat>\n"+
+                "\t                          "+tr("Only keep nodes inside the area, ways with at least one of these nodes, "
+                        + "and relations with at least one of the kept members")+"\n"+
+                "\t--search|-s <expression>  "+tr("Only keep primitives matching the search expression, "
+                        + "and the nodes of kept ways. OSM XML input is then read twice")+"\n"+
+                "\t--debug                   "+tr("Print stack traces of errors")+"\n\n"+
+                tr("Examples")+":\n"+
+                "  java -jar josm.jar convert -i planet.osm.bz2 -o highways.osm.gz -s highway=*\n"+
+                "  java -jar josm.jar convert -i data.osm -o data.json -b 21.151,51.401,21.152,51.402\n";
+    }
+
+    /**
+     * Initialization.
+     */
+    void initialize() {
+        Logging.setLogLevel(argDebug ? Level.ALL : Level.INFO);
+
+        Config.setBaseDirectoriesProvider(JosmBaseDirectories.getInstance());
+        Config.setPreferencesInstance(new MemoryPreferences());
+        Config.setUrlsProvider(JosmUrls.getInstance());
+        ProjectionRegistry.setProjection(Projections.getProjectionByCode("EPSG:3857"));
+    }
+
+    /**
+     * Converts a file.
+     * @param input input file
+     * @param output output file
+     * @param bounds if not null, only keep primitives inside these bounds
+     * @param match if not null, only keep primitives matching this search expression
+     * @return conversion statistics
+     * @throws IOException if any I/O error occurs
+     * @throws IllegalDataException if the input file cannot be parsed
+     */
+    Statistics convert(File input, File output, Bounds bounds, Match match) throws IOException, IllegalDataException {
+        Format inputFormat = Format.of(input.getName());
+        Format outputFormat = Format.of(output.getName());
+        if (inputFormat == Format.GEOJSON) {
+            throw new IllegalArgumentException(tr("Unsupported input file format: {0}", input.getName()));
+        }
+        if (Compression.byExtension(output.getName()) == Compression.ZIP) {
+            throw new IllegalArgumentException(tr("Unsupported output file format: {0}", output.getName()));
+        }
+        Filter filter = new Filter(bounds, match);
+        Statistics stats = new Statistics();
+        long start = System.nanoTime();
+        stats.streamed = inputFormat == Format.OSM && outputFormat != Format.GEOJSON && filter.isTagOnly();
+        if (stats.streamed && filter.hasMatch()) {
+            // first pass, to find the nodes of the selected ways
+            Filter wayFilter = filter;
+            try (InputStream in = Compression.getUncompressedFileInputStream(input)) {
+                new OsmStreamReader(data -> wayFilter.test(data, null)).parse(in, NullProgressMonitor.INSTANCE);
+            }
+            filter = wayFilter.withWayNodes();
+        }
+        try (CountingInputStream fileIn = new CountingInputStream(new BufferedInputStream(Files.newInputStream(input.toPath())));
+             CountingOutputStream fileOut = new CountingOutputStream(Files.newOutputStream(output.toPath()))) {
+            InputStream in = Compression.byExtension(input.getName()).getUncompressedInputStream(fileIn);
+            OutputStream out = Compression.byExtension(output.getName()).getCompressedOutputStream(fileOut);
+            if (stats.streamed) {
+                convertStream(in, out, outputFormat, filter, stats);
+            } else {
+                convertDataSet(readDataSet(in, inputFormat), out, outputFormat, filter, stats);
+            }
+            stats.bytesRead = fileIn.getBytesRead();
+            stats.bytesWritten = fileOut.getBytesWritten();
+        }
+        stats.nanos = System.nanoTime() - start;
+        return stats;
+    }
+
+    private static DataSet readDataSet(InputStream in, Format format) throws IllegalDataException {
+        switch (format) {
+        case OSM_CHANGE:
+            return OsmChangeReader.parseDataSet(in, NullProgressMonitor.INSTANCE);
+        case OSM_JSON:
+            return OsmJsonReader.parseDataSet(in, NullProgressMonitor.INSTANCE);
+        case OSM:
+        default:
+            return OsmReader.parseDataSet(in, NullProgressMonitor.INSTANCE);
+        }
+    }
+
+    private static void convertStream(InputStream in, OutputStream out, Format outputFormat, Filter filter, Statistics stats)
+            throws IOException, IllegalDataException {
+        Pipeline pipeline = new Pipeline(filter, stats);
+        OsmStreamReader reader = new OsmStreamReader(pipeline);
+        try (PrimitiveSink sink = createSink(outputFormat, createWriter(out), reader::getDataSet)) {
+            pipeline.sink = sink;
+            reader.parse(in, NullProgressMonitor.INSTANCE);
+        }
+    }
+
+    private static void convertDataSet(DataSet ds, OutputStream out, Format outputFormat, Filter dataSetFilter, Statistics stats)
+            throws IOException {
+        List<OsmPrimitive> primitives = new ArrayList<>(ds.allPrimitives().size());
+        primitives.addAll(sortById(ds.getNodes()));
+        primitives.addAll(sortById(ds.getWays()));
+        primitives.addAll(sortById(ds.getRelations()));
+        Filter filter = dataSetFilter;
+        if (filter.hasMatch()) {
+            // first pass, to find the nodes of the selected ways
+            for (OsmPrimitive p : primitives) {
+                filter.test(p.save(), p);
+            }
+            filter = filter.withWayNodes();
+        }
+        if (outputFormat == Format.GEOJSON) {
+            Set<OsmPrimitive> selected = new HashSet<>();
+            for (OsmPrimitive p : primitives) {
+                stats.count(stats.read, p.getType());
+                if (filter.test(p.save(), p)) {
+                    stats.count(stats.written, p.getType());
+                    selected.add(p);
+                }
+            }
+            try (PrintWriter writer = createWriter(out)) {
+                writer.print(new GeoJSONWriter(ds) {
+                    @Override
+                    protected void appendPrimitive(OsmPrimitive p, JsonArrayBuilder array) {
+                        if (selected.contains(p)) {
+                            super.appendPrimitive(p, array);
+                        }
+                    }
+                }.write());
+                checkError(writer);
+            }
+        } else {
+            Pipeline pipeline = new Pipeline(filter, stats);
+            try (PrimitiveSink sink = createSink(outputFormat, createWriter(out), () -> ds)) {
+                pipeline.sink = sink;
+                for (OsmPrimitive p : primitives) {
+                    pipeline.accept(p.save(), p);
+                }
+            }
+        }
+    }
+
+    private static <T extends OsmPrimitive> List<T> sortById(Collection<T> primitives) {
+        List<T> result = new ArrayList<>(primitives);
+        result.sort(OsmWriter.byIdComparator);
+        return result;
+    }
+
+    private static PrintWriter createWriter(OutputStream out) {
+        return new PrintWriter(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)));
+    }
+
+    private static void checkError(PrintWriter writer) throws IOException {
+        if (writer.checkError()) {
+            throw new IOException(tr("Error while writing output file"));
+        }
+    }
+
+    private static PrimitiveSink createSink(Format format, PrintWriter writer, Supplier<DataSet> dataSources) {
+        switch (format) {
+        case OSM_CHANGE:
+            return new OsmChangeSink(writer);
+        case OSM_JSON:
+            return new OsmJsonSink(writer);
+        case OSM:
+        default:
+            return new OsmSink(writer, dataSources);
+        }
+    }
+
+    /**
+     * Determines if a search expression only depends on tags, so that it can be evaluated on primitive data.
+     * @param match search expression
+     * @return {@code true} if the search expression only depends on tags
+     */
+    static boolean isTagOnly(Match match) {
+        if (match instanceof TaggedMatch) {
+            return true;
+        } else if (match instanceof Not) {
+            return isTagOnly(((Not) match).getOperand());
+        } else if (match instanceof AbstractBinaryMatch) {
+            return isTagOnly(((AbstractBinaryMatch) match).getLhs()) && isTagOnly(((AbstractBinaryMatch) match).getRhs());
+        }
+        return false;
+    }
+
+    /**
+     * Selects the primitives to write. Primitives must be tested in file order: nodes, ways, then relations.
+     * <p>
+     * With bounds, nodes inside the bounds are kept, as well as ways with at least one of these nodes and relations
+     * with at least one member already kept because of the bounds. Only the ids of these primitives are remembered.
+     * <p>
+     * With a search expression, the nodes of the selected ways are kept as well, even if they do not match it.
+     * As nodes are tested before ways, all primitives must first be tested by a filter collecting the nodes of the
+     * selected ways, then by the filter returned by {@link #withWayNodes()}.
+     */
+    static final class Filter {
+        private final Bounds bounds;
+        private final Match match;
+        private final Set<Long> nodesInBounds = new HashSet<>();
+        private final Set<Long> waysInBounds = new HashSet<>();
+        private final Set<Long> relationsInBounds = new HashSet<>();
+        /** Nodes of the selected ways, collected by this filter */
+        private final Set<Long> selectedWayNodes = new HashSet<>();
+        /** Nodes of the selected ways, collected by a previous filter */
+        private final Set<Long> wayNodes;
+
+        Filter(Bounds bounds, Match match) {
+            this(bounds, match, Collections.emptySet());
+        }
+
+        private Filter(Bounds bounds, Match match, Set<Long> wayNodes) {
+            this.bounds = bounds;
+            this.match = match;
+            this.wayNodes = wayNodes;
+        }
+
+        boolean isTagOnly() {
+            return match == null || ConvertCLI.isTagOnly(match);
+        }
+
+        boolean hasMatch() {
+            return match != null;
+        }
+
+        /**
+         * Returns a new filter keeping the nodes of the ways selected by this one.
+         * All primitives must have been tested by this filter.
+         * @return a new filter keeping the nodes of the ways selected by this one
+         */
+        Filter withWayNodes() {
+            return new Filter(bounds, match, selectedWayNodes);
+        }
+
+        /**
+         * Determines if the given primitive must be written.
+         * @param data primitive data
+         * @param primitive the primitive, if it belongs to a data set. {@code null} when streaming
+         * @return {@code true} if the primitive must be written
+         */
+        boolean test(PrimitiveData data, OsmPrimitive primitive) {
+            if (bounds != null && !isInBounds(data)) {
+                return false;
+            }
+            if (match == null) {
+                return true;
+            } else if (data instanceof NodeData && wayNodes.contains(data.getUniqueId())) {
+                return true;
+            }
+            boolean result = primitive != null ? match.match(primitive) : match.match(data);
+            if (result && data instanceof WayData && wayNodes.isEmpty()) {
+                selectedWayNodes.addAll(((WayData) data).getNodeIds());
+            }
+            return result;
+        }
+
+        private boolean isInBounds(PrimitiveData data) {
+            long id = data.getUniqueId();
+            if (data instanceof NodeData) {
+                LatLon ll = ((NodeData) data).getCoor();
+                return ll != null && bounds.contains(ll) && nodesInBounds.add(id);
+            } else if (data instanceof WayData) {
+                for (long nodeId : ((WayData) data).getNodeIds()) {
+                    if (nodesInBounds.contains(nodeId)) {
+                        return waysInBounds.add(id);
+                    }
+                }
+            } else if (data instanceof RelationData) {
+                for (RelationMemberData m : ((RelationData) data).getMembers()) {
+                    if (getSet(m.getMemberType()).contains(m.getMemberId())) {
+                        return relationsInBounds.add(id);
+                    }
+                }
+            }
+            return false;
+        }
+
+        private Set<Long> getSet(OsmPrimitiveType type) {
+            switch (type) {
+            case NODE:
+                return nodesInBounds;
+            case WAY:
+                return waysInBounds;
+            default:
+                return relationsInBounds;
+            }
+        }
+    }
+
+    /**
+     * Passes primitives to a sink if they are selected by a filter, counting them.
+     */
+    private static final class Pipeline implements Consumer<PrimitiveData> {
+        private final Filter filter;
+        private final Statistics stats;
+        private PrimitiveSink sink;
+
+        Pipeline(Filter filter, Statistics stats) {
+            this.filter = filter;
+            this.stats = stats;
+        }
+
+        @Override
+        public void accept(PrimitiveData data) {
+            accept(data, null);
+        }
+
+        void accept(PrimitiveData data, OsmPrimitive primitive) {
+            stats.count(stats.read, data.getType());
+            if (filter.test(data, primitive) && sink.accepts(data)) {
+                stats.count(stats.written, data.getType());
+                sink.write(data);
+            }
+        }
+    }
+
+    /**
+     * Writes primitives one at a time.
+     */
+    private interface PrimitiveSink extends Closeable {
+        default boolean accepts(PrimitiveData data) {
+            return true;
+        }
+
+        void write(PrimitiveData data);
+    }
+
+    /**
+     * Writes OSM XML. The header is written with the first primitive, when the data sources of the input are known.
+     */
+    private static final class OsmSink implements PrimitiveSink {
+        private final PrintWriter out;
+        private final Supplier<DataSet> dataSources;
+        private OsmWriter writer;
+
+        OsmSink(PrintWriter out, Supplier<DataSet> dataSources) {
+            this.out = out;
+            this.dataSources = dataSources;
+        }
+
+        private void start() {
+            DataSet ds = dataSources.get();
+            writer = OsmWriterFactory.createOsmWriter(out, false, OsmWriter.DEFAULT_API_VERSION);
+            writer.header(ds.getDownloadPolicy(), ds.getUploadPolicy(), ds.isLocked());
+            writer.writeDataSources(ds);
+            writer.setWithVisible(UploadPolicy.NORMAL == ds.getUploadPolicy());
+        }
+
+        @Override
+        public void write(PrimitiveData data) {
+            if (writer == null) {
+                start();
+            }
+            data.accept(writer);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                if (writer == null) {
+                    start();
+                }
+                writer.footer();
+                checkError(out);
+            } finally {
+                out.close();
+            }
+        }
+    }
+
+    /**
+     * Writes an osmChange document. Primitives which are not new, modified or deleted are not part of the changes.
+     */
+    private static final class OsmChangeSink implements PrimitiveSink {
+        private final PrintWriter out;
+        private final OsmChangeBuilder builder;
+
+        OsmChangeSink(PrintWriter out) {
+            this.out = out;
+            this.builder = new OsmChangeBuilder(null, null, out);
+            builder.start();
+        }
+
+        @Override
+        public boolean accepts(PrimitiveData data) {
+            return data.isNew() || data.isModified() || data.isDeleted();
+        }
+
+        @Override
+        public void write(PrimitiveData data) {
+            builder.append(data);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                builder.finish();
+                checkError(out);
+            } finally {
+                out.close();
+            }
+        }
+    }
+
+    /**
+     * Writes OSM JSON, as read by {@link OsmJsonReader}.
+     */
+    private static final class OsmJsonSink implements PrimitiveSink {
+        private final PrintWriter out;
+        private final JsonGenerator generator;
+
+        OsmJsonSink(PrintWriter out) {
+            this.out = out;
+            this.generator = Json.createGenerator(out);
+            generator.writeStartObject()
+                .write("version", new BigDecimal(OsmWriter.DEFAULT_API_VERSION))
+                .write("generator", "JOSM")
+                .writeStartArray("elements");
+        }
+
+        @Override
+        public void write(PrimitiveData data) {
+            generator.writeStartObject()
+                .write("type", data.getType().getAPIName())
+                .write("id", data.getUniqueId());
+            if (data instanceof NodeData) {
+                LatLon ll = ((NodeData) data).getCoor();
+                if (ll != null) {
+                    generator.write("lat", ll.lat()).write("lon", ll.lon());
+                }
+            } else if (data instanceof WayData) {
+                generator.writeStartArray("nodes");
+                for (long nodeId : ((WayData) data).getNodeIds()) {
+                    generator.write(nodeId);
+                }
+                generator.writeEnd();
+            } else if (data instanceof RelationData) {
+                generator.writeStartArray("members");
+                for (RelationMemberData m : ((RelationData) data).getMembers()) {
+                    generator.writeStartObject()
+                        .write("type", m.getMemberType().getAPIName())
+                        .write("ref", m.getMemberId())
+                        .write("role", m.getRole())
+                        .writeEnd();
+                }
+                generator.writeEnd();
+            }
+            writeCommon(data);
+            if (data.hasKeys()) {
+                generator.writeStartObject("tags");
+                for (Entry<String, String> e : data.getKeys().entrySet()) {
+                    generator.write(e.getKey(), e.getValue());
+                }
+                generator.writeEnd();
+            }
+            generator.writeEnd();
+        }
+
+        private void writeCommon(PrimitiveData data) {
+            if (data.getRawTimestamp() != 0) {
+                generator.write("timestamp", DateUtils.fromTimestamp(data.getRawTimestamp()));
+            }
+            if (data.getVersion() != 0) {
+                generator.write("version", data.getVersion());
+            }
+            if (data.getChangesetId() != 0) {
+                generator.write("changeset", data.getChangesetId());
+            }
+            User user = data.getUser();
+            if (user != null) {
+                generator.write("user", user.getName());
+                if (user.isOsmUser()) {
+                    generator.write("uid", user.getId());
+                }
+            }
+            if (!data.isVisible()) {
+                generator.write("visible", false);
+            }
+            if (data.isDeleted()) {
+                generator.write("action", "delete");
+            } else if (data.isModified()) {
+                generator.write("action", "modify");
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                generator.writeEnd().writeEnd();
+                generator.close();
+                checkError(out);
+            } finally {
+                out.close();
+            }
+        }
+    }
+
+    /**
+     * Statistics of a conversion.
+     */
+    static final class Statistics {
+        /** Number of nodes, ways and relations read */
+        final long[] read = new long[3];
+        /** Number of nodes, ways and relations written */
+        final long[] written = new long[3];
+        /** Number of bytes read from the input file */
+        long bytesRead;
+        /** Number of bytes written to the output file */
+        long bytesWritten;
+        /** Duration of the conversion, in nanoseconds */
+        long nanos;
+        /** Whether data has been converted without building a data set */
+        boolean streamed;
+
+        void count(long[] counts, OsmPrimitiveType type) {
+            counts[type.ordinal()]++;
+        }
+
+        long total(long[] counts) {
+            return counts[0] + counts[1] + counts[2];
+        }
+
+        @Override
+        public String toString() {
+            double seconds = Math.max(nanos, 1) / 1e9;
+            double mb = 1024 * 1024;
+            return String.join("\n", Arrays.asList(
+                    tr("Read {0} nodes, {1} ways and {2} relations ({3,number,#.##} MB)",
+                            read[0], read[1], read[2], bytesRead / mb),
+                    tr("Wrote {0} nodes, {1} ways and {2} relations ({3,number,#.##} MB)",
+                            written[0], written[1], written[2], bytesWritten / mb),
+                    tr("Converted in {0,number,#.##} s: {1,number,#} objects/s, {2,number,#.##} MB/s read ({3})",
+                            seconds, total(read) / seconds, bytesRead / mb / seconds,
+                            streamed ? tr("streamed") : tr("data set"))));
+        }
+    }
+}
@@ -13,20 +13,27 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Stack;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import javax.xml.parsers.ParserConfigurationException;
 
 import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.gpx.ColumnarGpxTrackSegment;
 import org.openstreetmap.josm.data.gpx.Extensions;
 import org.openstreetmap.josm.data.gpx.GpxConstants;
 import org.openstreetmap.josm.data.gpx.GpxData;
 import org.openstreetmap.josm.data.gpx.GpxLink;
 import org.openstreetmap.josm.data.gpx.GpxRoute;
+import org.openstreetmap.josm.data.gpx.GpxTrackSegment;
 import org.openstreetmap.josm.data.gpx.ImmutableGpxTrack;
 import org.openstreetmap.josm.data.gpx.WayPoint;
 import org.openstreetmap.josm.tools.Logging;
 import org.openstreetmap.josm.tools.UncheckedParseException;
+import org.openstreetmap.josm.tools.Utils;
 import org.openstreetmap.josm.tools.XmlUtils;
 import org.openstreetmap.josm.tools.date.DateUtils;
 import org.xml.sax.Attributes;
@@ -59,6 +66,46 @@ public class GpxReader implements GpxConstants, IGpxReader {
         COPYRIGHT
     }
 
+    /** Pool computing track segments, concurrently with the parsing of the rest of the file */
+    private static final ForkJoinPool THREAD_POOL = newForkJoinPool();
+
+    private static ForkJoinPool newForkJoinPool() {
+        try {
+            return Utils.newForkJoinPool("gpx.reader.numberOfThreads", "gpx-reader-%d", Thread.NORM_PRIORITY);
+        } catch (SecurityException e) {
+            Logging.log(Logging.LEVEL_ERROR, "Unable to create new ForkJoinPool", e);
+            return null;
+        }
+    }
+
+    /**
+     * A track whose segments are being computed.
+     */
+    private static final class PendingTrack {
+        private final List<Future<ColumnarGpxTrackSegment>> segments;
+        private final Map<String, Object> attributes;
+
+        PendingTrack(List<Future<ColumnarGpxTrackSegment>> segments, Map<String, Object> attributes) {
+            this.segments = segments;
+            this.attributes = attributes;
+        }
+
+        ImmutableGpxTrack get() throws SAXException {
+            List<GpxTrackSegment> result = new ArrayList<>(segments.size());
+            try {
+                for (Future<ColumnarGpxTrackSegment> segment : segments) {
+                    result.add(segment.get());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SAXException(e);
+            } catch (ExecutionException e) {
+                throw new SAXException(e);
+            }
+            return new ImmutableGpxTrack(result, attributes);
+        }
+    }
+
     private String version;
     /** The resulting gpx data */
     private GpxData gpxData;
@@ -67,9 +114,11 @@ public class GpxReader implements GpxConstants, IGpxReader {
     private class Parser extends DefaultHandler {
 
         private GpxData data;
-        private Collection<Collection<WayPoint>> currentTrack;
+        private List<Future<ColumnarGpxTrackSegment>> currentTrack;
         private Map<String, Object> currentTrackAttr;
-        private Collection<WayPoint> currentTrackSeg;
+        private ColumnarGpxTrackSegment.Builder currentTrackSeg;
+        private String currentTrackPointTime;
+        private final List<PendingTrack> pendingTracks = new ArrayList<>();
         private GpxRoute currentRoute;
         private WayPoint currentWayPoint;
 
@@ -218,7 +267,7 @@ public class GpxReader implements GpxConstants, IGpxReader {
                 case "trkseg":
                     states.push(currentState);
                     currentState = State.TRKSEG;
-                    currentTrackSeg = new ArrayList<>();
+                    currentTrackSeg = new ColumnarGpxTrackSegment.Builder();
                     break;
                 case "link":
                     states.push(currentState);
@@ -445,6 +494,11 @@ public class GpxReader implements GpxConstants, IGpxReader {
                     }
                     break;
                 case PT_TIME:
+                    if (states.peek() == State.TRKSEG) {
+                        // track point times are parsed with their segment
+                        currentTrackPointTime = accumulator.toString();
+                        break;
+                    }
                     try {
                         currentWayPoint.setTimeInMillis(DateUtils.tsFromString(accumulator.toString()));
                     } catch (UncheckedParseException e) {
@@ -459,7 +513,8 @@ public class GpxReader implements GpxConstants, IGpxReader {
                 case "trkpt":
                     currentState = states.pop();
                     convertUrlToLink(currentWayPoint.attr);
-                    currentTrackSeg.add(currentWayPoint);
+                    currentTrackSeg.add(currentWayPoint, currentTrackPointTime);
+                    currentTrackPointTime = null;
                     break;
                 case "wpt":
                     currentState = states.pop();
@@ -475,7 +530,13 @@ public class GpxReader implements GpxConstants, IGpxReader {
             case TRKSEG:
                 if ("trkseg".equals(localName)) {
                     currentState = states.pop();
-                    currentTrack.add(currentTrackSeg);
+                    if (!currentTrackSeg.isEmpty()) {
+                        // parse times and compute bounds in a worker thread while parsing goes on
+                        ColumnarGpxTrackSegment.Builder builder = currentTrackSeg;
+                        currentTrack.add(THREAD_POOL != null
+                                ? THREAD_POOL.submit(builder::build) : CompletableFuture.completedFuture(builder.build()));
+                    }
+                    currentTrackSeg = null;
                 }
                 break;
             case TRK:
@@ -483,7 +544,7 @@ public class GpxReader implements GpxConstants, IGpxReader {
                 case "trk":
                     currentState = states.pop();
                     convertUrlToLink(currentTrackAttr);
-                    data.addTrack(new ImmutableGpxTrack(currentTrack, currentTrackAttr));
+                    pendingTracks.add(new PendingTrack(currentTrack, currentTrackAttr));
                     break;
                 case "name":
                 case "cmt":
@@ -525,6 +586,10 @@ public class GpxReader implements GpxConstants, IGpxReader {
         public void endDocument() throws SAXException {
             if (!states.empty())
                 throw new SAXException(tr("Parse error: invalid document structure for GPX document."));
+            for (PendingTrack track : pendingTracks) {
+                data.addTrack(track.get());
+            }
+            pendingTracks.clear();
             Extensions metaExt = (Extensions) data.get(META_EXTENSIONS);
             if (metaExt != null && "true".equals(metaExt.get("from-server"))) {
                 data.fromServer = true;
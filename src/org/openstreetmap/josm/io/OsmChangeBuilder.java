@@ -40,9 +40,28 @@ public class OsmChangeBuilder {
      * @param apiVersion OSM API version
      */
     public OsmChangeBuilder(Changeset changeset, String apiVersion) {
+        this(changeset, apiVersion, new StringWriter());
+    }
+
+    /**
+     * Constructs a new {@code OsmChangeBuilder} writing the document directly to the given writer,
+     * without keeping it in memory.
+     * @param changeset changeset
+     * @param apiVersion OSM API version
+     * @param writer the writer receiving the document. {@link #getDocument()} returns {@code null}
+     */
+    public OsmChangeBuilder(Changeset changeset, String apiVersion, PrintWriter writer) {
+        this(changeset, apiVersion, null, writer);
+    }
+
+    private OsmChangeBuilder(Changeset changeset, String apiVersion, StringWriter swriter) {
+        this(changeset, apiVersion, swriter, new PrintWriter(swriter));
+    }
+
+    private OsmChangeBuilder(Changeset changeset, String apiVersion, StringWriter swriter, PrintWriter writer) {
         this.apiVersion = apiVersion == null ? DEFAULT_API_VERSION : apiVersion;
-        swriter = new StringWriter();
-        writer = new PrintWriter(swriter);
+        this.swriter = swriter;
+        this.writer = writer;
         osmwriter = OsmWriterFactory.createOsmWriter(writer, false, apiVersion);
         osmwriter.setChangeset(changeset);
         osmwriter.setIsOsmChange(true);
@@ -144,9 +163,9 @@ public class OsmChangeBuilder {
 
     /**
      * Returns XML document.
-     * @return XML document
+     * @return XML document, or {@code null} if it has been written to a writer given at construction time
      */
     public String getDocument() {
-        return swriter.toString();
+        return swriter != null ? swriter.toString() : null;
     }
 }
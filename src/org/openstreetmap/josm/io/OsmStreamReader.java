@@ -0,0 +1,86 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.function.Consumer;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.PrimitiveData;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationData;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.WayData;
+import org.openstreetmap.josm.gui.progress.ProgressMonitor;
+
+/**
+ * Reads OSM XML data primitive by primitive, without building a {@link DataSet}.
+ * <p>
+ * Each primitive is passed to a consumer as soon as it has been parsed, in file order, then forgotten, so that
+ * files of any size can be processed with bounded memory. References between primitives are not resolved:
+ * ways only carry node ids and relations member ids.
+ * <p>
+ * The data set returned by {@link #parse} only contains the data sources (bounds) of the file. While parsing,
+ * it is available through {@link #getDataSet()} and contains the data sources parsed so far.
+ */
+public class OsmStreamReader extends OsmReader {
+
+    private final Consumer<PrimitiveData> consumer;
+
+    /**
+     * Constructs a new {@code OsmStreamReader}.
+     * @param consumer receives the parsed primitives, in file order
+     */
+    public OsmStreamReader(Consumer<PrimitiveData> consumer) {
+        this.consumer = consumer;
+    }
+
+    @Override
+    protected Node parseNode() throws XMLStreamException {
+        Node n = super.parseNode();
+        if (n != null) {
+            externalIdMap.clear();
+            consumer.accept(n.save());
+        }
+        return n;
+    }
+
+    @Override
+    protected Way parseWay() throws XMLStreamException {
+        Way w = super.parseWay();
+        if (w != null) {
+            WayData data = w.save();
+            data.setNodeIds(new ArrayList<>(ways.remove(w.getUniqueId())));
+            externalIdMap.clear();
+            consumer.accept(data);
+        }
+        return w;
+    }
+
+    @Override
+    protected Relation parseRelation() throws XMLStreamException {
+        Relation r = super.parseRelation();
+        if (r != null) {
+            RelationData data = r.save();
+            data.setMembers(new ArrayList<>(relations.remove(r.getUniqueId())));
+            externalIdMap.clear();
+            consumer.accept(data);
+        }
+        return r;
+    }
+
+    /**
+     * Parses the given input source, passing each primitive to the consumer.
+     * @param source the source input stream. Must not be null.
+     * @param progressMonitor the progress monitor. If null, {@link org.openstreetmap.josm.gui.progress.NullProgressMonitor#INSTANCE}
+     * is assumed
+     * @return a data set containing the data sources of the file, but no primitive
+     * @throws IllegalDataException if an error was found while parsing the data from the source
+     */
+    public DataSet parse(InputStream source, ProgressMonitor progressMonitor) throws IllegalDataException {
+        return doParseDataSet(source, progressMonitor);
+    }
+}
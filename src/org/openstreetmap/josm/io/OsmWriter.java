@@ -107,7 +107,13 @@ public class OsmWriter extends XmlWriter implements PrimitiveVisitor {
         header(download, upload, false);
     }
 
-    private void header(DownloadPolicy download, UploadPolicy upload, boolean locked) {
+    /**
+     * Writes OSM header with given download upload policies and locked flag.
+     * @param download download policy
+     * @param upload upload policy
+     * @param locked whether the data is locked
+     */
+    public void header(DownloadPolicy download, UploadPolicy upload, boolean locked) {
         out.println("<?xml version='1.0' encoding='UTF-8'?>");
         out.print("<osm version='");
         out.print(version);
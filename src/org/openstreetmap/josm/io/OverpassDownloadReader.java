@@ -2,6 +2,7 @@
 package org.openstreetmap.josm.io;
 
 import static org.openstreetmap.josm.tools.I18n.tr;
+import static org.openstreetmap.josm.tools.I18n.trn;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -10,7 +11,9 @@ import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.Period;
 import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.EnumMap;
 import java.util.List;
 import java.util.Locale;
@@ -19,6 +22,7 @@ import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -30,9 +34,16 @@ import org.openstreetmap.josm.data.DataSource;
 import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.data.osm.BBox;
 import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
 import org.openstreetmap.josm.data.osm.PrimitiveId;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.RelationMemberData;
+import org.openstreetmap.josm.data.osm.Way;
 import org.openstreetmap.josm.data.preferences.BooleanProperty;
+import org.openstreetmap.josm.data.preferences.IntegerProperty;
 import org.openstreetmap.josm.data.preferences.ListProperty;
 import org.openstreetmap.josm.data.preferences.StringProperty;
 import org.openstreetmap.josm.gui.progress.ProgressMonitor;
@@ -66,10 +77,18 @@ public class OverpassDownloadReader extends BoundingBoxDownloader {
      * @since 12816
      */
     public static final BooleanProperty FOR_MULTI_FETCH = new BooleanProperty("download.overpass.for-multi-fetch", false);
+    /**
+     * Property to determine if Overpass API results should be merged progressively into the target layer while downloading.
+     */
+    public static final BooleanProperty STREAMING = new BooleanProperty("download.overpass.streaming", false);
+    /**
+     * Property for the number of primitives handed over at once when streaming Overpass API results.
+     */
+    public static final IntegerProperty STREAMING_BATCH_SIZE = new IntegerProperty("download.overpass.streaming.batch-size", 10_000);
 
     private static final String DATA_PREFIX = "?data=";
 
-    static final class OverpassOsmReader extends OsmReader {
+    static class OverpassOsmReader extends OsmReader {
         @Override
         protected void parseUnknown(boolean printWarning) throws XMLStreamException {
             if ("remark".equals(parser.getLocalName()) && parser.getEventType() == XMLStreamConstants.START_ELEMENT) {
@@ -82,6 +101,140 @@ public class OverpassDownloadReader extends BoundingBoxDownloader {
         }
     }
 
+    /**
+     * Overpass XML reader handing over completed primitives in batches while the response is still being parsed.
+     * <p>
+     * Each batch is a standalone {@link DataSet} holding the parsed primitives, which are then forgotten by the reader:
+     * the data set returned at the end only holds the data sources and the remark. Nodes, ways or relation members
+     * referenced by a batch but not part of it are added as incomplete primitives, so that batches can be merged one
+     * after the other into a target data set using their ids. Overpass API only returns primitives with positive ids,
+     * new primitives are thus not handed over.
+     */
+    static final class OverpassStreamingOsmReader extends OverpassOsmReader {
+
+        private final Consumer<DataSet> batchConsumer;
+        private final int batchSize;
+        private final List<OsmPrimitive> pending = new ArrayList<>();
+        private ProgressMonitor progressMonitor;
+        private int count;
+
+        OverpassStreamingOsmReader(Consumer<DataSet> batchConsumer, int batchSize) {
+            this.batchConsumer = Objects.requireNonNull(batchConsumer);
+            this.batchSize = Math.max(1, batchSize);
+        }
+
+        @Override
+        protected void parse() throws XMLStreamException {
+            try {
+                super.parse();
+            } finally {
+                // Also hand over what has been parsed so far if the download is canceled
+                flush();
+            }
+        }
+
+        @Override
+        protected Node parseNode() throws XMLStreamException {
+            return addPending(super.parseNode());
+        }
+
+        @Override
+        protected Way parseWay() throws XMLStreamException {
+            return addPending(super.parseWay());
+        }
+
+        @Override
+        protected Relation parseRelation() throws XMLStreamException {
+            return addPending(super.parseRelation());
+        }
+
+        private <T extends OsmPrimitive> T addPending(T p) {
+            if (p != null && !p.isNew()) {
+                pending.add(p);
+                if (pending.size() >= batchSize) {
+                    flush();
+                }
+            }
+            return p;
+        }
+
+        private void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            DataSet batch = new DataSet();
+            batch.beginUpdate();
+            try {
+                for (OsmPrimitive p : pending) {
+                    // the primitives are handed over, so that the complete data is not kept until the end of the download
+                    externalIdMap.remove(p.getPrimitiveId());
+                    if (p instanceof Node) {
+                        batch.addPrimitive(p);
+                    }
+                }
+                for (OsmPrimitive p : pending) {
+                    if (p instanceof Way) {
+                        addWay(batch, (Way) p);
+                    } else if (p instanceof Relation) {
+                        batch.addPrimitive(p);
+                    }
+                }
+                for (OsmPrimitive p : pending) {
+                    if (p instanceof Relation) {
+                        setMembers(batch, (Relation) p);
+                    }
+                }
+            } finally {
+                batch.endUpdate();
+            }
+            count += pending.size();
+            pending.clear();
+            if (progressMonitor != null) {
+                progressMonitor.setCustomText(trn("{0} object downloaded", "{0} objects downloaded", count, count));
+            }
+            batchConsumer.accept(batch);
+        }
+
+        private static OsmPrimitive getOrCreateIncomplete(DataSet batch, long id, OsmPrimitiveType type) {
+            OsmPrimitive p = batch.getPrimitiveById(id, type);
+            if (p == null) {
+                p = type.newInstance(id, false);
+                batch.addPrimitive(p);
+            }
+            return p;
+        }
+
+        private void addWay(DataSet batch, Way w) {
+            Collection<Long> nodeIds = ways.remove(w.getUniqueId());
+            if (nodeIds != null) {
+                List<Node> nodes = new ArrayList<>(nodeIds.size());
+                for (long id : nodeIds) {
+                    nodes.add((Node) getOrCreateIncomplete(batch, id, OsmPrimitiveType.NODE));
+                }
+                w.setNodes(nodes);
+            }
+            batch.addPrimitive(w);
+        }
+
+        private void setMembers(DataSet batch, Relation r) {
+            Collection<RelationMemberData> members = relations.remove(r.getUniqueId());
+            if (members != null) {
+                List<RelationMember> relationMembers = new ArrayList<>(members.size());
+                for (RelationMemberData rm : members) {
+                    relationMembers.add(new RelationMember(rm.getRole(),
+                            getOrCreateIncomplete(batch, rm.getMemberId(), rm.getMemberType())));
+                }
+                r.setMembers(relationMembers);
+            }
+        }
+
+        @Override
+        protected DataSet doParseDataSet(InputStream source, ProgressMonitor progressMonitor) throws IllegalDataException {
+            this.progressMonitor = progressMonitor;
+            return super.doParseDataSet(source, progressMonitor);
+        }
+    }
+
     static final class OverpassOsmJsonReader extends OsmJsonReader {
 
     }
@@ -141,6 +294,8 @@ public class OverpassDownloadReader extends BoundingBoxDownloader {
     final String overpassServer;
     final String overpassQuery;
 
+    private Consumer<DataSet> batchConsumer;
+
     /**
      * Constructs a new {@code OverpassDownloadReader}.
      *
@@ -171,6 +326,20 @@ public class OverpassDownloadReader extends BoundingBoxDownloader {
         registerOverpassOutpoutFormatReader(OverpassOutpoutFormat.OSM_JSON, OverpassOsmJsonReader.class);
     }
 
+    /**
+     * Enables the progressive handing over of the parsed data while the Overpass response is being read.
+     * <p>
+     * The consumer is called from the download thread with standalone data sets of at most
+     * {@link #STREAMING_BATCH_SIZE} primitives, which are meant to be merged in order into the target data set.
+     * The primitives handed over are not part of the data set returned by {@link #parseOsm}, which only holds
+     * the data sources and the remark. If the download is canceled, the data parsed so far is still handed over.
+     * This only applies to the OSM XML output format.
+     * @param batchConsumer consumer of the parsed batches, or {@code null} to parse the whole response at once
+     */
+    public void setBatchConsumer(Consumer<DataSet> batchConsumer) {
+        this.batchConsumer = batchConsumer;
+    }
+
     @Override
     protected String getBaseUrl() {
         return overpassServer;
@@ -364,8 +533,12 @@ public class OverpassDownloadReader extends BoundingBoxDownloader {
     protected DataSet parseDataSet(InputStream source, ProgressMonitor progressMonitor) throws IllegalDataException {
         AbstractReader reader = null;
         Matcher m = OUTPUT_FORMAT_STATEMENT.matcher(overpassQuery);
-        if (m.matches()) {
-            Class<? extends AbstractReader> readerClass = outputFormatReaders.get(OverpassOutpoutFormat.from(m.group(1)));
+        OverpassOutpoutFormat format = m.matches() ? OverpassOutpoutFormat.from(m.group(1)) : OverpassOutpoutFormat.OSM_XML;
+        if (batchConsumer != null && format == OverpassOutpoutFormat.OSM_XML
+                && outputFormatReaders.get(format) == OverpassOsmReader.class) {
+            reader = new OverpassStreamingOsmReader(batchConsumer, STREAMING_BATCH_SIZE.get());
+        } else if (m.matches()) {
+            Class<? extends AbstractReader> readerClass = outputFormatReaders.get(format);
             if (readerClass != null) {
                 try {
                     reader = readerClass.getDeclaredConstructor().newInstance();
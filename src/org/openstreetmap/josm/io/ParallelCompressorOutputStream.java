@@ -0,0 +1,229 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * An output stream compressing data on several threads.
+ * <p>
+ * Data is split into chunks which are compressed independently, each one into a complete compressed stream
+ * (a gzip member, a bzip2 stream or a xz stream). Compressed chunks are written in order, so that the output is
+ * the concatenation of several compressed streams. This is valid for the gzip, bzip2 and xz formats: standard tools
+ * and {@link Compression#getUncompressedInputStream} decompress it as a whole.
+ * <p>
+ * Each chunk being compressed costs its uncompressed and compressed data, plus the memory of a compressor (about
+ * 94 MiB for the default xz preset). The number of chunks compressed at the same time is therefore bounded by the
+ * free heap memory, and by the number of threads.
+ * <p>
+ * This class is not thread safe.
+ */
+final class ParallelCompressorOutputStream extends OutputStream {
+
+    /**
+     * Creates a compressing stream writing a complete compressed stream to {@code out} when closed.
+     */
+    @FunctionalInterface
+    interface CompressorFactory {
+        /**
+         * Creates a compressing stream.
+         * @param out raw output stream
+         * @return compressing output stream
+         * @throws IOException if any I/O error occurs
+         */
+        OutputStream create(OutputStream out) throws IOException;
+    }
+
+    private static final ForkJoinPool THREAD_POOL = newForkJoinPool();
+
+    /** Part of the free heap memory that compressing chunks may use */
+    private static final int FREE_MEMORY_DIVISOR = 4;
+
+    private static ForkJoinPool newForkJoinPool() {
+        try {
+            return Utils.newForkJoinPool("compression.numberOfThreads", "compression-%d", Thread.NORM_PRIORITY);
+        } catch (SecurityException e) {
+            Logging.log(Logging.LEVEL_ERROR, "Unable to create new ForkJoinPool", e);
+            return null;
+        }
+    }
+
+    private final OutputStream out;
+    private final CompressorFactory factory;
+    private final ExecutorService executor;
+    private final int chunkSize;
+    /** Maximum number of chunks compressed at the same time */
+    private final int maxPending;
+    private final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+    private byte[] buffer;
+    private int count;
+    private boolean chunkSubmitted;
+    private boolean closed;
+
+    /**
+     * Constructs a new {@code ParallelCompressorOutputStream}.
+     * @param out raw output stream
+     * @param factory creates the compressing stream of each chunk
+     * @param chunkSize size of uncompressed chunks, in bytes
+     * @param executor executor compressing chunks
+     * @param workers maximum number of chunks compressed at the same time
+     */
+    ParallelCompressorOutputStream(OutputStream out, CompressorFactory factory, int chunkSize, ExecutorService executor, int workers) {
+        this.out = out;
+        this.factory = factory;
+        this.executor = executor;
+        this.chunkSize = chunkSize;
+        this.maxPending = workers;
+        this.buffer = new byte[chunkSize];
+    }
+
+    /**
+     * Returns a stream compressing data on several threads if possible, a single-threaded compressing stream otherwise.
+     * @param out raw output stream
+     * @param factory creates the compressing stream of each chunk
+     * @param chunkSize size of uncompressed chunks, in bytes
+     * @param compressorMemory memory used by one compressing stream, in bytes
+     * @return compressing output stream
+     * @throws IOException if any I/O error occurs
+     */
+    static OutputStream create(OutputStream out, CompressorFactory factory, int chunkSize, long compressorMemory) throws IOException {
+        if (THREAD_POOL == null) {
+            return factory.create(out);
+        }
+        Runtime runtime = Runtime.getRuntime();
+        long freeMemory = runtime.maxMemory() - runtime.totalMemory() + runtime.freeMemory();
+        int workers = getWorkers(THREAD_POOL.getParallelism(), chunkSize, compressorMemory, freeMemory);
+        if (workers < 2) {
+            return factory.create(out);
+        }
+        return new ParallelCompressorOutputStream(out, factory, chunkSize, THREAD_POOL, workers);
+    }
+
+    /**
+     * Returns the number of chunks which can be compressed at the same time.
+     * @param threads number of compressing threads
+     * @param chunkSize size of uncompressed chunks, in bytes
+     * @param compressorMemory memory used by one compressing stream, in bytes
+     * @param freeMemory free heap memory, in bytes
+     * @return the number of chunks which can be compressed at the same time, at most {@code threads}
+     */
+    static int getWorkers(int threads, int chunkSize, long compressorMemory, long freeMemory) {
+        // the chunk being filled is not compressed yet; each other chunk has its uncompressed data,
+        // compressed data of about the same size at worst, and a compressor
+        long available = freeMemory / FREE_MEMORY_DIVISOR - chunkSize;
+        long perWorker = 2L * chunkSize + compressorMemory;
+        return (int) Math.max(0, Math.min(threads, available / perWorker));
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        if (count == chunkSize) {
+            submitChunk();
+        }
+        buffer[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        int remaining = len;
+        int offset = off;
+        while (remaining > 0) {
+            if (count == chunkSize) {
+                submitChunk();
+            }
+            int n = Math.min(remaining, chunkSize - count);
+            System.arraycopy(b, offset, buffer, count, n);
+            count += n;
+            offset += n;
+            remaining -= n;
+        }
+    }
+
+    private byte[] compress(byte[] chunk, int length) throws IOException {
+        ByteArrayOutputStream result = new ByteArrayOutputStream(Math.max(32, length / 4));
+        try (OutputStream compressor = factory.create(result)) {
+            compressor.write(chunk, 0, length);
+        }
+        return result.toByteArray();
+    }
+
+    private void submitChunk() throws IOException {
+        final byte[] chunk = buffer;
+        final int length = count;
+        pending.add(executor.submit(() -> compress(chunk, length)));
+        chunkSubmitted = true;
+        buffer = closed ? null : new byte[chunkSize];
+        count = 0;
+        while (pending.size() > maxPending) {
+            writeFirstPending();
+        }
+    }
+
+    private void writeFirstPending() throws IOException {
+        try {
+            out.write(pending.removeFirst().get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Writes the chunks compressed so far. Data of the current chunk is not written, as the compressed streams
+     * only support being finished.
+     */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        while (!pending.isEmpty()) {
+            writeFirstPending();
+        }
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (count > 0 || !chunkSubmitted) {
+                submitChunk();
+            }
+            while (!pending.isEmpty()) {
+                writeFirstPending();
+            }
+        } finally {
+            for (Future<byte[]> f : pending) {
+                f.cancel(true);
+            }
+            pending.clear();
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,396 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+import static org.openstreetmap.josm.tools.I18n.trn;
+
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.DataSource;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.DataSetMerger;
+import org.openstreetmap.josm.data.preferences.BooleanProperty;
+import org.openstreetmap.josm.data.preferences.DoubleProperty;
+import org.openstreetmap.josm.data.preferences.IntegerProperty;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.gui.progress.ProgressMonitor;
+import org.openstreetmap.josm.spi.preferences.Config;
+import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * Read content from OSM server for a bounding box too large for a single {@code map} call.
+ * <p>
+ * The area is split into a set of tiles, each one small enough to be accepted by the API with respect to its area limit
+ * and, if the expected data density is known, to its node limit. Tiles are downloaded concurrently by up to
+ * {@link OsmApi#MAX_DOWNLOAD_THREADS} connections and merged into a single data set, primitives shared by several tiles
+ * being merged by id. A tile rejected by the server because it contains too many nodes is bisected and downloaded again.
+ * The number of requests is limited by {@link #MAX_TILES}, larger areas are refused.
+ * <p>
+ * If the area fits into a single tile, this reader behaves exactly like {@link BoundingBoxDownloader}.
+ */
+public class TiledBoundingBoxDownloader extends BoundingBoxDownloader {
+
+    /**
+     * Property to determine if large bounding boxes are downloaded in several tiles. Disabled by default, as it allows
+     * to download areas larger than the area limit of the API by sending several requests to the server.
+     */
+    public static final BooleanProperty TILED = new BooleanProperty("osm.download.tiled", false);
+    /**
+     * Property for the expected number of nodes per square degree, used to size tiles. 0 if unknown.
+     */
+    public static final DoubleProperty EXPECTED_DENSITY = new DoubleProperty("osm.download.tiled.expected-density", 0);
+    /**
+     * Property for the max number of times a tile rejected by the server is bisected.
+     */
+    public static final IntegerProperty MAX_BISECTIONS = new IntegerProperty("osm.download.tiled.max-bisections", 8);
+    /**
+     * Property for the max number of tiles of a download, including the tiles resulting from bisections.
+     */
+    public static final IntegerProperty MAX_TILES = new IntegerProperty("osm.download.tiled.max-tiles", 16);
+
+    /** Origin of the data source of the whole area, as for data sources parsed from the server response */
+    private static final String SOURCE = "OpenStreetMap server";
+    /** Fraction of the node limit targeted for a tile, leaving room for errors in the expected density */
+    private static final double NODE_LIMIT_USAGE = 0.8;
+
+    private final Bounds downloadArea;
+    private final Set<BoundingBoxDownloader> activeReaders = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger tileCount = new AtomicInteger();
+    private double expectedDensity = EXPECTED_DENSITY.get();
+
+    /**
+     * Constructs a new {@code TiledBoundingBoxDownloader}.
+     * @param downloadArea The area to download
+     */
+    public TiledBoundingBoxDownloader(Bounds downloadArea) {
+        super(downloadArea);
+        this.downloadArea = new Bounds(downloadArea);
+    }
+
+    /**
+     * Sets the expected data density of the area, used to size tiles.
+     * @param nodesPerSquareDegree expected number of nodes per square degree, 0 if unknown to use {@link #EXPECTED_DENSITY}
+     * @see #estimateDensity
+     */
+    public void setExpectedDensity(double nodesPerSquareDegree) {
+        this.expectedDensity = nodesPerSquareDegree > 0 ? nodesPerSquareDegree : EXPECTED_DENSITY.get();
+    }
+
+    /**
+     * Estimates the data density of an area from the data already downloaded in its neighbourhood.
+     * @param ds data set holding previously downloaded data
+     * @param area area to download
+     * @return the number of nodes per square degree in the downloaded areas intersecting {@code area}, 0 if unknown
+     */
+    public static double estimateDensity(DataSet ds, Bounds area) {
+        double sourcesArea = 0;
+        long nodes = 0;
+        for (DataSource source : ds.getDataSources()) {
+            if (source.bounds.intersects(area) && !source.bounds.crosses180thMeridian()) {
+                sourcesArea += source.bounds.getArea();
+                nodes += ds.searchNodes(source.bounds.toBBox()).size();
+            }
+        }
+        return sourcesArea > 0 ? nodes / sourcesArea : 0;
+    }
+
+    /**
+     * Returns the max area of a bounding box request, as advertised by the server capabilities.
+     * @return the max area of a bounding box request, in square degrees
+     */
+    static double getMaxArea() {
+        Capabilities capabilities = OsmApi.getOsmApi().getCapabilities();
+        double maxArea = capabilities != null ? capabilities.getMaxArea() : -1;
+        return maxArea > 0 ? maxArea : Config.getPref().getDouble("osm-server.max-request-area", 0.25);
+    }
+
+    /**
+     * Returns the max number of nodes returned by a bounding box request.
+     * @return the max number of nodes returned by a bounding box request
+     */
+    static long getMaxNodes() {
+        return Config.getPref().getLong("osm-server.max-request-nodes", 50_000);
+    }
+
+    /**
+     * Determines if an area is too large to be downloaded, even in several tiles.
+     * @param area area to download
+     * @param density expected number of nodes per square degree, 0 if unknown
+     * @return {@code true} if the area needs more than {@link #MAX_TILES} requests
+     */
+    public static boolean isAreaTooLarge(Bounds area, double density) {
+        return countTiles(area, getMaxArea(), getMaxNodes(), density > 0 ? density : EXPECTED_DENSITY.get()) > MAX_TILES.get();
+    }
+
+    private static double getTileArea(double maxArea, long maxNodes, double density) {
+        return density > 0 ? Math.min(maxArea, maxNodes * NODE_LIMIT_USAGE / density) : maxArea;
+    }
+
+    /**
+     * Counts the tiles of an area, without building them.
+     * @param area area to download
+     * @param maxArea max area of a tile, in square degrees
+     * @param maxNodes max number of nodes of a tile
+     * @param density expected number of nodes per square degree, 0 if unknown
+     * @return the number of tiles returned by {@link #planTiles}
+     */
+    static long countTiles(Bounds area, double maxArea, long maxNodes, double density) {
+        if (area.crosses180thMeridian()) {
+            return countTiles(new Bounds(area.getMinLat(), area.getMinLon(), area.getMaxLat(), 180.0), maxArea, maxNodes, density)
+                 + countTiles(new Bounds(area.getMinLat(), -180.0, area.getMaxLat(), area.getMaxLon()), maxArea, maxNodes, density);
+        }
+        double tileArea = getTileArea(maxArea, maxNodes, density);
+        double width = area.getWidth();
+        double height = area.getHeight();
+        if (width * height <= tileArea) {
+            return 1;
+        }
+        long cols = Math.max(1, (long) Math.ceil(width / Math.sqrt(tileArea)));
+        long rows = Math.max(1, (long) Math.ceil((width / cols) * height / tileArea));
+        return cols * rows;
+    }
+
+    /**
+     * Splits an area into tiles.
+     * @param area area to download
+     * @param maxArea max area of a tile, in square degrees
+     * @param maxNodes max number of nodes of a tile
+     * @param density expected number of nodes per square degree, 0 if unknown
+     * @return the tiles covering {@code area}
+     */
+    static List<Bounds> planTiles(Bounds area, double maxArea, long maxNodes, double density) {
+        if (area.crosses180thMeridian()) {
+            List<Bounds> tiles = new ArrayList<>(planTiles(
+                    new Bounds(area.getMinLat(), area.getMinLon(), area.getMaxLat(), 180.0), maxArea, maxNodes, density));
+            tiles.addAll(planTiles(
+                    new Bounds(area.getMinLat(), -180.0, area.getMaxLat(), area.getMaxLon()), maxArea, maxNodes, density));
+            return tiles;
+        }
+        double tileArea = getTileArea(maxArea, maxNodes, density);
+        double width = area.getWidth();
+        double height = area.getHeight();
+        if (width * height <= tileArea) {
+            return Collections.singletonList(area);
+        }
+        // Prefer square tiles, then use the remaining area allowance on the other axis
+        int cols = Math.max(1, (int) Math.ceil(width / Math.sqrt(tileArea)));
+        int rows = Math.max(1, (int) Math.ceil((width / cols) * height / tileArea));
+        List<Bounds> tiles = new ArrayList<>(cols * rows);
+        for (int r = 0; r < rows; r++) {
+            double minLat = area.getMinLat() + height * r / rows;
+            double maxLat = r == rows - 1 ? area.getMaxLat() : area.getMinLat() + height * (r + 1) / rows;
+            for (int c = 0; c < cols; c++) {
+                double minLon = area.getMinLon() + width * c / cols;
+                double maxLon = c == cols - 1 ? area.getMaxLon() : area.getMinLon() + width * (c + 1) / cols;
+                tiles.add(new Bounds(minLat, minLon, maxLat, maxLon));
+            }
+        }
+        return tiles;
+    }
+
+    /**
+     * Splits a tile in two halves along its longest side.
+     * @param tile tile to split
+     * @return the two halves
+     */
+    static List<Bounds> bisect(Bounds tile) {
+        if (tile.getWidth() >= tile.getHeight()) {
+            double lon = (tile.getMinLon() + tile.getMaxLon()) / 2;
+            return Arrays.asList(
+                    new Bounds(tile.getMinLat(), tile.getMinLon(), tile.getMaxLat(), lon),
+                    new Bounds(tile.getMinLat(), lon, tile.getMaxLat(), tile.getMaxLon()));
+        } else {
+            double lat = (tile.getMinLat() + tile.getMaxLat()) / 2;
+            return Arrays.asList(
+                    new Bounds(tile.getMinLat(), tile.getMinLon(), lat, tile.getMaxLon()),
+                    new Bounds(lat, tile.getMinLon(), tile.getMaxLat(), tile.getMaxLon()));
+        }
+    }
+
+    /**
+     * Determines if the server rejected a request because the requested area or data was too large.
+     * @param e the exception sent back by the server
+     * @return {@code true} if a smaller request may succeed
+     */
+    static boolean isRequestTooLarge(OsmApiException e) {
+        if (e.getResponseCode() != HttpURLConnection.HTTP_BAD_REQUEST) {
+            return false;
+        }
+        String message = (e.getErrorHeader() + ' ' + e.getErrorBody()).toLowerCase(Locale.ENGLISH);
+        return message.contains("too many nodes") || message.contains("maximum bbox size");
+    }
+
+    /**
+     * The result of a tile download: either the downloaded data, or the halves to download instead.
+     */
+    private static final class TileResult {
+        private final DataSet dataSet;
+        private final List<Bounds> bisection;
+        private final int depth;
+
+        TileResult(DataSet dataSet, List<Bounds> bisection, int depth) {
+            this.dataSet = dataSet;
+            this.bisection = bisection;
+            this.depth = depth;
+        }
+    }
+
+    /**
+     * Downloads one tile.
+     * @param tile the tile to download
+     * @return the downloaded data
+     * @throws OsmTransferException if the download failed
+     */
+    protected DataSet downloadTile(Bounds tile) throws OsmTransferException {
+        BoundingBoxDownloader reader = new BoundingBoxDownloader(tile);
+        activeReaders.add(reader);
+        try {
+            return reader.parseOsm(NullProgressMonitor.INSTANCE);
+        } finally {
+            activeReaders.remove(reader);
+        }
+    }
+
+    /**
+     * Determines if a rejected tile can be bisected, and counts the additional tile if so.
+     * @param e the exception sent back by the server
+     * @param depth the number of bisections which led to the tile
+     * @return {@code true} if the tile can be bisected
+     */
+    private boolean canBisect(OsmApiException e, int depth) {
+        return isRequestTooLarge(e) && depth < MAX_BISECTIONS.get() && tileCount.incrementAndGet() <= MAX_TILES.get();
+    }
+
+    private Callable<TileResult> tileDownload(Bounds tile, int depth) {
+        return () -> {
+            if (isCanceled()) {
+                return new TileResult(null, Collections.emptyList(), depth);
+            }
+            try {
+                return new TileResult(downloadTile(tile), Collections.emptyList(), depth);
+            } catch (OsmApiException e) {
+                if (canBisect(e, depth)) {
+                    Logging.info(tr("Server rejected download of {0}, splitting it: {1}", tile, e.getMessage()));
+                    return new TileResult(null, bisect(tile), depth + 1);
+                }
+                throw e;
+            }
+        };
+    }
+
+    @Override
+    public DataSet parseOsm(ProgressMonitor progressMonitor) throws OsmTransferException {
+        OsmApi.getOsmApi().initialize(progressMonitor);
+        long count = countTiles(downloadArea, getMaxArea(), getMaxNodes(), expectedDensity);
+        if (count > MAX_TILES.get()) {
+            throw new OsmTransferException(tr("The download area would need {0} requests, more than the limit of {1}. "
+                    + "Please select a smaller area.", count, MAX_TILES.get()));
+        }
+        List<Bounds> tiles = planTiles(downloadArea, getMaxArea(), getMaxNodes(), expectedDensity);
+        tileCount.set(tiles.size());
+        if (tiles.size() == 1 && !downloadArea.crosses180thMeridian()) {
+            try {
+                return super.parseOsm(progressMonitor);
+            } catch (OsmApiException e) {
+                if (!canBisect(e, 0)) {
+                    throw e;
+                }
+                Logging.info(tr("Server rejected download of {0}, splitting it: {1}", downloadArea, e.getMessage()));
+                tiles = bisect(downloadArea);
+            }
+        }
+        return downloadTiles(tiles, progressMonitor);
+    }
+
+    /**
+     * Creates the data set into which tiles are merged, with a single data source for the whole area.
+     * The data sources of the tiles, contained in it, are then not added.
+     * @return the data set into which tiles are merged
+     */
+    private DataSet createResult() {
+        DataSet result = new DataSet();
+        if (downloadArea.crosses180thMeridian()) {
+            result.addDataSource(new DataSource(
+                    new Bounds(downloadArea.getMinLat(), downloadArea.getMinLon(), downloadArea.getMaxLat(), 180.0), SOURCE));
+            result.addDataSource(new DataSource(
+                    new Bounds(downloadArea.getMinLat(), -180.0, downloadArea.getMaxLat(), downloadArea.getMaxLon()), SOURCE));
+        } else {
+            result.addDataSource(new DataSource(downloadArea, SOURCE));
+        }
+        return result;
+    }
+
+    private DataSet downloadTiles(List<Bounds> tiles, ProgressMonitor progressMonitor) throws OsmTransferException {
+        progressMonitor.beginTask(getTaskName(), tiles.size());
+        int threadsNumber = Config.getPref().getInt("osm.download.threads", OsmApi.MAX_DOWNLOAD_THREADS);
+        threadsNumber = Utils.clamp(threadsNumber, 1, OsmApi.MAX_DOWNLOAD_THREADS);
+        final ExecutorService exec = Executors.newFixedThreadPool(
+                threadsNumber, Utils.newThreadFactory(getClass() + "-%d", Thread.NORM_PRIORITY));
+        CompletionService<TileResult> ecs = new ExecutorCompletionService<>(exec);
+        DataSet result = createResult();
+        try {
+            int pending = 0;
+            for (Bounds tile : tiles) {
+                ecs.submit(tileDownload(tile, 0));
+                pending++;
+            }
+            int done = 0;
+            while (pending > 0 && !isCanceled()) {
+                progressMonitor.subTask(trn("Downloading {0} part of the area...", "Downloading {0} parts of the area...",
+                        pending, pending));
+                TileResult tile = ecs.take().get();
+                pending--;
+                if (!tile.bisection.isEmpty()) {
+                    progressMonitor.setTicksCount(progressMonitor.getTicksCount() + tile.bisection.size() - 1);
+                    for (Bounds half : tile.bisection) {
+                        ecs.submit(tileDownload(half, tile.depth));
+                        pending++;
+                    }
+                } else if (tile.dataSet != null) {
+                    new DataSetMerger(result, tile.dataSet).merge();
+                    progressMonitor.setTicks(++done);
+                }
+            }
+            return isCanceled() ? null : result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OsmTransferCanceledException(e);
+        } catch (ExecutionException e) {
+            if (isCanceled()) {
+                return null;
+            }
+            Throwable cause = e.getCause();
+            if (cause instanceof OsmTransferException) {
+                throw (OsmTransferException) cause;
+            }
+            throw new OsmTransferException(cause);
+        } finally {
+            exec.shutdownNow();
+            progressMonitor.finishTask();
+        }
+    }
+
+    @Override
+    public void cancel() {
+        super.cancel();
+        for (BoundingBoxDownloader reader : activeReaders) {
+            reader.cancel();
+        }
+    }
+}
@@ -9,17 +9,19 @@ import java.nio.charset.StandardCharsets;
 import java.text.ParsePosition;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.List;
 import java.util.Locale;
 import java.util.Objects;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.gpx.ColumnarGpxTrackSegment;
 import org.openstreetmap.josm.data.gpx.GpxConstants;
 import org.openstreetmap.josm.data.gpx.GpxData;
+import org.openstreetmap.josm.data.gpx.GpxTrackSegment;
 import org.openstreetmap.josm.data.gpx.ImmutableGpxTrack;
 import org.openstreetmap.josm.data.gpx.WayPoint;
 import org.openstreetmap.josm.io.IGpxReader;
@@ -230,7 +232,6 @@ public class NmeaReader implements IGpxReader {
     public boolean parse(boolean tryToFinish) throws SAXException, IOException {
         // create the data tree
         data = new GpxData();
-        Collection<Collection<WayPoint>> currentTrack = new ArrayList<>();
 
         try (BufferedReader rd = new BufferedReader(new InputStreamReader(source, StandardCharsets.UTF_8))) {
             StringBuilder sb = new StringBuilder(1024);
@@ -259,7 +260,11 @@ public class NmeaReader implements IGpxReader {
                     sb.append((char) c);
                 }
             }
-            currentTrack.add(ps.waypoints);
+            ps.flushWayPoint();
+            List<GpxTrackSegment> currentTrack = new ArrayList<>();
+            if (!ps.waypoints.isEmpty()) {
+                currentTrack.add(ps.waypoints.build());
+            }
             data.tracks.add(new ImmutableGpxTrack(currentTrack, Collections.<String, Object>emptyMap()));
 
         } catch (IllegalDataException e) {
@@ -270,10 +275,12 @@ public class NmeaReader implements IGpxReader {
     }
 
     private static class NMEAParserState {
-        protected Collection<WayPoint> waypoints = new ArrayList<>();
+        protected ColumnarGpxTrackSegment.Builder waypoints = new ColumnarGpxTrackSegment.Builder();
         protected String pTime;
         protected String pDate;
         protected WayPoint pWp;
+        /** last added waypoint, still completed by the following sentences */
+        protected WayPoint lastWp;
 
         protected int success; // number of successfully parsed sentences
         protected int malformed;
@@ -281,6 +288,22 @@ public class NmeaReader implements IGpxReader {
         protected int noChecksum;
         protected int unknown;
         protected int zeroCoord;
+
+        /**
+         * Adds a waypoint. It is stored when the next one is added, as the following sentences may complete it.
+         * @param wp waypoint to add
+         */
+        void addWayPoint(WayPoint wp) {
+            flushWayPoint();
+            lastWp = wp;
+        }
+
+        void flushWayPoint() {
+            if (lastWp != null) {
+                waypoints.add(lastWp);
+                lastWp = null;
+            }
+        }
     }
 
     /**
@@ -527,7 +550,7 @@ public class NmeaReader implements IGpxReader {
                     ps.pWp.getDate();
                 }
                 ps.pWp = currentwp;
-                ps.waypoints.add(currentwp);
+                ps.addWayPoint(currentwp);
                 ps.success++;
                 return true;
             }
@@ -16,7 +16,7 @@ import org.openstreetmap.josm.tools.Logging;
 public abstract class AbstractPreferences implements IPreferences {
 
     @Override
-    public synchronized String get(final String key, final String def) {
+    public String get(final String key, final String def) {
         return getSetting(key, new StringSetting(def), StringSetting.class).getValue();
     }
 
@@ -36,7 +36,7 @@ public abstract class AbstractPreferences implements IPreferences {
     }
 
     @Override
-    public synchronized int getInt(String key, int def) {
+    public int getInt(String key, int def) {
         String v = get(key, Integer.toString(def));
         if (v.isEmpty())
             return def;
@@ -76,7 +76,7 @@ public abstract class AbstractPreferences implements IPreferences {
     }
 
     @Override
-    public synchronized double getDouble(String key, double def) {
+    public double getDouble(String key, double def) {
         String v = get(key, Double.toString(def));
         if (null == v)
             return def;
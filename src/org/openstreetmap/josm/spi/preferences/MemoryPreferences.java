@@ -2,11 +2,11 @@
 package org.openstreetmap.josm.spi.preferences;
 
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Preferences implementation that keeps all settings in memory.
@@ -18,7 +18,7 @@ import java.util.TreeMap;
  */
 public class MemoryPreferences extends AbstractPreferences {
 
-    private final Map<String, Setting<?>> settings = new HashMap<>();
+    private final Map<String, Setting<?>> settings = new ConcurrentHashMap<>();
 
     @Override
     public boolean putSetting(String key, Setting<?> setting) {
@@ -0,0 +1,176 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.tools;
+
+import java.awt.Image;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.ToLongFunction;
+
+import javax.swing.ImageIcon;
+
+/**
+ * A cache of images that evicts the least recently used entries when the estimated size of the cached images
+ * exceeds a limit.
+ * <p>
+ * The size of an entry is estimated again each time the entry is used, since some values cache variants of
+ * the image themselves, see {@link ImageResource}.
+ * <p>
+ * This class is thread safe. The cache is locked while a missing value is computed.
+ * @param <K> the type of keys
+ * @param <V> the type of cached values
+ */
+final class ImageCache<K, V> {
+
+    private static final class Entry<V> {
+        final V value;
+        long size;
+
+        Entry(V value, long size) {
+            this.value = value;
+            this.size = size;
+        }
+    }
+
+    private final String name;
+    private final ToLongFunction<V> sizer;
+    private final LongSupplier maxSize;
+    // guarded by this
+    private final LinkedHashMap<K, Entry<V>> map = new LinkedHashMap<>(16, 0.75f, true);
+    private long size;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Constructs a new {@code ImageCache}.
+     * @param name the name of the cache, for the statistics
+     * @param sizer estimates the size of a value in bytes
+     * @param maxSize gives the maximum size of all values in bytes
+     */
+    ImageCache(String name, ToLongFunction<V> sizer, LongSupplier maxSize) {
+        this.name = name;
+        this.sizer = sizer;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Estimates the memory used by the pixels of an image.
+     * @param image the image
+     * @return the estimated size in bytes
+     */
+    static long getSize(Image image) {
+        return image == null ? 0 : 4L * Math.max(0, image.getWidth(null)) * Math.max(0, image.getHeight(null));
+    }
+
+    /**
+     * Estimates the memory used by the pixels of an icon.
+     * @param icon the icon
+     * @return the estimated size in bytes
+     */
+    static long getSize(ImageIcon icon) {
+        return icon == null ? 0 : 4L * Math.max(0, icon.getIconWidth()) * Math.max(0, icon.getIconHeight());
+    }
+
+    /**
+     * Gets a cached value and marks it as most recently used.
+     * @param key the key
+     * @return the cached value, or {@code null}
+     */
+    synchronized V get(K key) {
+        Entry<V> entry = map.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        long newSize = sizer.applyAsLong(entry.value);
+        size += newSize - entry.size;
+        entry.size = newSize;
+        evict();
+        return entry.value;
+    }
+
+    /**
+     * Adds a value to the cache, evicting the least recently used values if the cache is full.
+     * @param key the key
+     * @param value the value
+     */
+    synchronized void put(K key, V value) {
+        Entry<V> entry = new Entry<>(value, sizer.applyAsLong(value));
+        Entry<V> old = map.put(key, entry);
+        if (old != null) {
+            size -= old.size;
+        }
+        size += entry.size;
+        evict();
+    }
+
+    /**
+     * Gets a cached value, or computes and caches it if missing.
+     * @param key the key
+     * @param function computes the value, may return {@code null} to cache nothing
+     * @return the cached or computed value
+     */
+    synchronized V computeIfAbsent(K key, Function<? super K, ? extends V> function) {
+        V value = get(key);
+        if (value == null) {
+            value = function.apply(key);
+            if (value != null) {
+                put(key, value);
+            }
+        }
+        return value;
+    }
+
+    private void evict() {
+        long max = maxSize.getAsLong();
+        // the most recently used entry is kept, even if it is larger than the limit
+        for (Iterator<Map.Entry<K, Entry<V>>> it = map.entrySet().iterator(); size > max && map.size() > 1;) {
+            size -= it.next().getValue().size;
+            it.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Removes all values.
+     */
+    synchronized void clear() {
+        map.clear();
+        size = 0;
+    }
+
+    /**
+     * Returns the number of cached values.
+     * @return the number of cached values
+     */
+    synchronized int getCount() {
+        return map.size();
+    }
+
+    /**
+     * Returns the estimated size of the cached values.
+     * @return the estimated size in bytes
+     */
+    synchronized long getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the number of values removed because the cache was full.
+     * @return the number of evicted values
+     */
+    synchronized long getEvictions() {
+        return evictions;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format(Locale.ROOT, "%s: %d entries, %s of %s, %d hits, %d misses, %d evicted", name, map.size(),
+                Utils.getSizeString(size, Locale.ROOT), Utils.getSizeString(maxSize.getAsLong(), Locale.ROOT), hits, misses, evictions);
+    }
+}
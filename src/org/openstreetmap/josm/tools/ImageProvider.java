@@ -36,7 +36,6 @@ import java.util.Base64;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumMap;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.Iterator;
@@ -309,18 +308,21 @@ public class ImageProvider {
     /**
      * The icon cache
      */
-    private static final Map<String, ImageResource> cache = new HashMap<>();
+    private static final ImageCache<String, ImageResource> cache = new ImageCache<>("icons",
+            ImageResource::getSize, () -> getMaxCacheSize("imageprovider.cache.max-size", 64));
 
     /**
      * Caches the image data for rotated versions of the same image.
      */
-    private static final Map<Image, Map<Long, Image>> ROTATE_CACHE = new HashMap<>();
+    private static final ImageCache<Pair<Image, Long>, Image> ROTATE_CACHE = new ImageCache<>("rotated images",
+            ImageCache::getSize, () -> getMaxCacheSize("imageprovider.rotate-cache.max-size", 16));
 
     /** small cache of critical images used in many parts of the application */
     private static final Map<OsmPrimitiveType, ImageIcon> osmPrimitiveTypeCache = new EnumMap<>(OsmPrimitiveType.class);
 
     /** larger cache of critical padded image icons used in many parts of the application */
-    private static final Map<Dimension, Map<MapImage, ImageIcon>> paddedImageCache = new HashMap<>();
+    private static final ImageCache<Pair<Dimension, MapImage>, ImageIcon> paddedImageCache = new ImageCache<>("padded icons",
+            ImageCache::getSize, () -> getMaxCacheSize("imageprovider.padded-cache.max-size", 8));
 
     private static final ExecutorService IMAGE_FETCHER =
             Executors.newSingleThreadExecutor(Utils.newThreadFactory("image-fetcher-%d", Thread.NORM_PRIORITY));
@@ -845,26 +847,44 @@ public class ImageProvider {
      * @since 11021
      */
     public static void clearCache() {
-        synchronized (cache) {
-            cache.clear();
-        }
-        synchronized (ROTATE_CACHE) {
-            ROTATE_CACHE.clear();
-        }
-        synchronized (paddedImageCache) {
-            paddedImageCache.clear();
-        }
+        cache.clear();
+        ROTATE_CACHE.clear();
+        paddedImageCache.clear();
         synchronized (osmPrimitiveTypeCache) {
             osmPrimitiveTypeCache.clear();
         }
     }
 
+    private static long getMaxCacheSize(String key, int def) {
+        return (Config.getPref() != null ? Config.getPref().getInt(key, def) : def) * 1024L * 1024L;
+    }
+
+    /**
+     * Returns the statistics of the internal image caches: the number of cached images, their estimated size,
+     * the number of hits and misses and the number of images evicted because a cache was full.
+     * @return the statistics, one line per cache
+     */
+    public static String getCacheStatistics() {
+        return cache + "\n" + ROTATE_CACHE + '\n' + paddedImageCache;
+    }
+
+    /**
+     * Enables or disables the disk cache of rasterized SVG images, which can also be disabled by the preference
+     * {@code imageprovider.svg-disk-cache}.
+     * @param enable {@code false} to disable the disk cache, e.g. so that unit tests do not write to the cache directory
+     */
+    public static void enableSvgDiskCache(boolean enable) {
+        SvgDiskCache.setEnabled(enable);
+    }
+
     /**
      * Internal implementation of the image request.
      *
      * @return the requested image or null if the request failed
      */
     private ImageResource getIfAvailableImpl() {
+        // the disk cache is only accessed once the cache is unlocked again
+        SvgDiskCache.loadIndex();
         synchronized (cache) {
             // This method is called from different thread and modifying HashMap concurrently can result
             // for example in loops in map entries (ie freeze when such entry is retrieved)
@@ -1123,12 +1143,12 @@ public class ImageProvider {
                 try (InputStream is = zipFile.getInputStream(entry)) {
                     switch (type) {
                     case SVG:
-                        SVGDiagram svg = null;
-                        synchronized (getSvgUniverse()) {
-                            URI uri = getSvgUniverse().loadSVG(is, entryName);
-                            svg = getSvgUniverse().getDiagram(uri);
+                        String source = SvgDiskCache.getSource(archive, entryName);
+                        if (source != null && SvgDiskCache.isCached(source)) {
+                            return new ImageResource(() -> loadSvgFromZip(archive, entryName), source);
                         }
-                        return svg == null ? null : new ImageResource(svg);
+                        SVGDiagram svg = loadSvg(is, entryName);
+                        return svg == null ? null : new ImageResource(svg, source);
                     case OTHER:
                         while (size > 0) {
                             int l = is.read(buf, offs, size);
@@ -1153,6 +1173,51 @@ public class ImageProvider {
         return null;
     }
 
+    private static SVGDiagram loadSvg(InputStream is, String name) throws IOException {
+        synchronized (getSvgUniverse()) {
+            URI uri = getSvgUniverse().loadSVG(is, name);
+            return getSvgUniverse().getDiagram(uri);
+        }
+    }
+
+    private static SVGDiagram loadSvgFromZip(File archive, String entryName) {
+        try (ZipFile zipFile = new ZipFile(archive, StandardCharsets.UTF_8)) {
+            ZipEntry entry = zipFile.getEntry(entryName);
+            if (entry != null) {
+                try (InputStream is = zipFile.getInputStream(entry)) {
+                    return loadSvg(is, entryName);
+                }
+            }
+        } catch (IOException e) {
+            Logging.log(Logging.LEVEL_WARN, tr("Failed to handle zip file ''{0}''. Exception was: {1}", archive.getName(), e.toString()), e);
+        }
+        return null;
+    }
+
+    private static SVGDiagram loadSvg(URL path) {
+        synchronized (getSvgUniverse()) {
+            try {
+                URI uri = null;
+                try {
+                    uri = getSvgUniverse().loadSVG(path);
+                } catch (InvalidPathException e) {
+                    Logging.error("Cannot open {0}: {1}", path, e.getMessage());
+                    Logging.trace(e);
+                }
+                if (uri == null && "jar".equals(path.getProtocol())) {
+                    URL betterPath = Utils.betterJarUrl(path);
+                    if (betterPath != null) {
+                        uri = getSvgUniverse().loadSVG(betterPath);
+                    }
+                }
+                return getSvgUniverse().getDiagram(uri);
+            } catch (SecurityException | IOException e) {
+                Logging.log(Logging.LEVEL_WARN, "Unable to read SVG", e);
+                return null;
+            }
+        }
+    }
+
     /**
      * Internal implementation of the image request for local images.
      *
@@ -1163,28 +1228,13 @@ public class ImageProvider {
     private static ImageResource getIfAvailableLocalURL(URL path, ImageType type) {
         switch (type) {
         case SVG:
-            SVGDiagram svg = null;
-            synchronized (getSvgUniverse()) {
-                try {
-                    URI uri = null;
-                    try {
-                        uri = getSvgUniverse().loadSVG(path);
-                    } catch (InvalidPathException e) {
-                        Logging.error("Cannot open {0}: {1}", path, e.getMessage());
-                        Logging.trace(e);
-                    }
-                    if (uri == null && "jar".equals(path.getProtocol())) {
-                        URL betterPath = Utils.betterJarUrl(path);
-                        if (betterPath != null) {
-                            uri = getSvgUniverse().loadSVG(betterPath);
-                        }
-                    }
-                    svg = getSvgUniverse().getDiagram(uri);
-                } catch (SecurityException | IOException e) {
-                    Logging.log(Logging.LEVEL_WARN, "Unable to read SVG", e);
-                }
+            // the SVG file is only parsed when needed, if it has been parsed successfully before
+            String source = SvgDiskCache.getSource(path);
+            if (source != null && SvgDiskCache.isCached(source)) {
+                return new ImageResource(() -> loadSvg(path), source);
             }
-            return svg == null ? null : new ImageResource(svg);
+            SVGDiagram svg = loadSvg(path);
+            return svg == null ? null : new ImageResource(svg, source);
         case OTHER:
             BufferedImage img = null;
             try {
@@ -1386,8 +1436,8 @@ public class ImageProvider {
         Long originalAngle = rotatedAngle != 0 && angleLong == 0 ? Long.valueOf(360L) : angleLong;
 
         synchronized (ROTATE_CACHE) {
-            Map<Long, Image> cacheByAngle = ROTATE_CACHE.computeIfAbsent(img, k -> new HashMap<>());
-            Image rotatedImg = cacheByAngle.get(originalAngle);
+            Pair<Image, Long> key = new Pair<>(img, originalAngle);
+            Image rotatedImg = ROTATE_CACHE.get(key);
 
             if (rotatedImg == null) {
                 // convert originalAngle to a value from 0 to 90
@@ -1432,7 +1482,7 @@ public class ImageProvider {
                     new ImageIcon(image); // load completely
                     return image;
                 });
-                cacheByAngle.put(originalAngle, rotatedImg);
+                ROTATE_CACHE.put(key, rotatedImg);
             }
             return rotatedImg;
         }
@@ -1587,38 +1637,45 @@ public class ImageProvider {
      * @since 14284
      */
     public static ImageIcon getPaddedIcon(MapImage mapImage, Dimension iconSize) {
-        synchronized (paddedImageCache) {
-            return paddedImageCache.computeIfAbsent(iconSize, x -> new HashMap<>()).computeIfAbsent(mapImage, icon -> {
-                int backgroundRealWidth = GuiSizesHelper.getSizeDpiAdjusted(iconSize.width);
-                int backgroundRealHeight = GuiSizesHelper.getSizeDpiAdjusted(iconSize.height);
-                int iconRealWidth = icon.getWidth();
-                int iconRealHeight = icon.getHeight();
-                BufferedImage image = new BufferedImage(backgroundRealWidth, backgroundRealHeight, BufferedImage.TYPE_INT_ARGB);
-                double scaleFactor = Math.min(
-                        backgroundRealWidth / (double) iconRealWidth,
-                        backgroundRealHeight / (double) iconRealHeight);
-                Image iconImage = icon.getImage(false);
-                Image scaledIcon;
-                final int scaledWidth;
-                final int scaledHeight;
-                if (scaleFactor < 1) {
-                    // Scale icon such that it fits on background.
-                    scaledWidth = (int) (iconRealWidth * scaleFactor);
-                    scaledHeight = (int) (iconRealHeight * scaleFactor);
-                    scaledIcon = iconImage.getScaledInstance(scaledWidth, scaledHeight, Image.SCALE_SMOOTH);
-                } else {
-                    // Use original size, don't upscale.
-                    scaledWidth = iconRealWidth;
-                    scaledHeight = iconRealHeight;
-                    scaledIcon = iconImage;
-                }
-                image.getGraphics().drawImage(scaledIcon,
-                        (backgroundRealWidth - scaledWidth) / 2,
-                        (backgroundRealHeight - scaledHeight) / 2, null);
-
-                return new ImageIcon(image);
-            });
+        Pair<Dimension, MapImage> key = new Pair<>(iconSize, mapImage);
+        ImageIcon padded = paddedImageCache.get(key);
+        if (padded == null) {
+            // not computed while the cache is locked, since the icon may have to be loaded first
+            padded = createPaddedIcon(mapImage, iconSize);
+            paddedImageCache.put(key, padded);
         }
+        return padded;
+    }
+
+    private static ImageIcon createPaddedIcon(MapImage icon, Dimension iconSize) {
+        int backgroundRealWidth = GuiSizesHelper.getSizeDpiAdjusted(iconSize.width);
+        int backgroundRealHeight = GuiSizesHelper.getSizeDpiAdjusted(iconSize.height);
+        int iconRealWidth = icon.getWidth();
+        int iconRealHeight = icon.getHeight();
+        BufferedImage image = new BufferedImage(backgroundRealWidth, backgroundRealHeight, BufferedImage.TYPE_INT_ARGB);
+        double scaleFactor = Math.min(
+                backgroundRealWidth / (double) iconRealWidth,
+                backgroundRealHeight / (double) iconRealHeight);
+        Image iconImage = icon.getImage(false);
+        Image scaledIcon;
+        final int scaledWidth;
+        final int scaledHeight;
+        if (scaleFactor < 1) {
+            // Scale icon such that it fits on background.
+            scaledWidth = (int) (iconRealWidth * scaleFactor);
+            scaledHeight = (int) (iconRealHeight * scaleFactor);
+            scaledIcon = iconImage.getScaledInstance(scaledWidth, scaledHeight, Image.SCALE_SMOOTH);
+        } else {
+            // Use original size, don't upscale.
+            scaledWidth = iconRealWidth;
+            scaledHeight = iconRealHeight;
+            scaledIcon = iconImage;
+        }
+        image.getGraphics().drawImage(scaledIcon,
+                (backgroundRealWidth - scaledWidth) / 2,
+                (backgroundRealHeight - scaledHeight) / 2, null);
+
+        return new ImageIcon(image);
     }
 
     /**
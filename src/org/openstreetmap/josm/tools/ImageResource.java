@@ -7,6 +7,7 @@ import java.awt.image.BufferedImage;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 
 import javax.swing.AbstractAction;
 import javax.swing.Action;
@@ -27,6 +28,11 @@ import com.kitfox.svg.SVGDiagram;
  */
 public class ImageResource {
 
+    /**
+     * Estimated memory used by a parsed SVG document, see {@link #getSize()}.
+     */
+    private static final long SVG_SIZE = 16 * 1024;
+
     /**
      * Caches the image data for resized versions of the same image.
      */
@@ -34,7 +40,15 @@ public class ImageResource {
     /**
      * SVG diagram information in case of SVG vector image.
      */
-    private SVGDiagram svg;
+    private volatile SVGDiagram svg;
+    /**
+     * Loads the SVG diagram when it is first needed, if the rasterized images are found in the {@link SvgDiskCache}.
+     */
+    private Supplier<SVGDiagram> svgLoader;
+    /**
+     * The source of the SVG file in the {@link SvgDiskCache}, or {@code null} if not cached.
+     */
+    private String svgSource;
     /**
      * Use this dimension to request original file dimension.
      */
@@ -70,6 +84,29 @@ public class ImageResource {
         this.svg = svg;
     }
 
+    /**
+     * Constructs a new {@code ImageResource} from SVG data whose rasterized images are cached on disk.
+     * @param svg SVG data
+     * @param svgSource the source of the SVG file in the disk cache, or {@code null}
+     */
+    ImageResource(SVGDiagram svg, String svgSource) {
+        this(svg);
+        this.svgSource = svgSource;
+    }
+
+    /**
+     * Constructs a new {@code ImageResource} from SVG data that is only loaded if the rasterized image
+     * is not found in the disk cache.
+     * @param svgLoader loads the SVG data
+     * @param svgSource the source of the SVG file in the disk cache
+     */
+    ImageResource(Supplier<SVGDiagram> svgLoader, String svgSource) {
+        CheckParameterUtil.ensureParameterNotNull(svgLoader);
+        CheckParameterUtil.ensureParameterNotNull(svgSource);
+        this.svgLoader = svgLoader;
+        this.svgSource = svgSource;
+    }
+
     /**
      * Constructs a new {@code ImageResource} from another one and sets overlays.
      * @param res the existing resource
@@ -77,7 +114,11 @@ public class ImageResource {
      * @since 8095
      */
     public ImageResource(ImageResource res, List<ImageOverlay> overlayInfo) {
-        this.svg = res.svg;
+        synchronized (res) {
+            this.svg = res.svg;
+            this.svgLoader = res.svgLoader;
+        }
+        this.svgSource = res.svgSource;
         this.baseImage = res.baseImage;
         this.overlayInfo = overlayInfo;
     }
@@ -156,11 +197,14 @@ public class ImageResource {
     public ImageIcon getImageIcon(Dimension dim, boolean multiResolution) {
         if (dim.width < -1 || dim.width == 0 || dim.height < -1 || dim.height == 0)
             throw new IllegalArgumentException(dim+" is invalid");
-        BufferedImage img = imgCache.get(dim);
+        BufferedImage img;
+        synchronized (imgCache) {
+            img = imgCache.get(dim);
+        }
         if (img == null) {
-            if (svg != null) {
+            if (isSvg()) {
                 Dimension realDim = GuiSizesHelper.getDimensionDpiAdjusted(dim);
-                img = ImageProvider.createImageFromSvg(svg, realDim);
+                img = createImageFromSvg(realDim);
                 if (img == null) {
                     return null;
                 }
@@ -198,7 +242,9 @@ public class ImageResource {
                 img = new BufferedImage(img.getWidth(), img.getHeight(), BufferedImage.TYPE_4BYTE_ABGR);
                 disabledIcon.paintIcon(new JPanel(), img.getGraphics(), 0, 0);
             }
-            imgCache.put(dim, img);
+            synchronized (imgCache) {
+                imgCache.put(dim, img);
+            }
         }
 
         if (!multiResolution)
@@ -248,9 +294,13 @@ public class ImageResource {
         float sourceHeight;
         int maxWidth = maxSize.width;
         int maxHeight = maxSize.height;
-        if (svg != null) {
-            sourceWidth = svg.getWidth();
-            sourceHeight = svg.getHeight();
+        if (isSvg()) {
+            float[] size = getSvgSize();
+            if (size == null) {
+                return null;
+            }
+            sourceWidth = size[0];
+            sourceHeight = size[1];
         } else {
             if (baseImage == null) throw new AssertionError();
             ImageIcon icon = new ImageIcon(baseImage);
@@ -276,10 +326,72 @@ public class ImageResource {
             return getImageIcon(new Dimension(-1, maxHeight), multiResolution);
     }
 
+    private boolean isSvg() {
+        return svg != null || svgSource != null;
+    }
+
+    /**
+     * Gets the SVG diagram, loading it if needed.
+     * @return the SVG diagram, or {@code null} if it cannot be loaded
+     */
+    private synchronized SVGDiagram getSvg() {
+        if (svg == null && svgLoader != null) {
+            svg = svgLoader.get();
+            svgLoader = null;
+        }
+        return svg;
+    }
+
+    private float[] getSvgSize() {
+        float[] size = svgSource != null && svg == null ? SvgDiskCache.readSize(svgSource) : null;
+        if (size == null) {
+            SVGDiagram diagram = getSvg();
+            if (diagram == null) {
+                return null;
+            }
+            size = new float[] {diagram.getWidth(), diagram.getHeight()};
+        }
+        return size;
+    }
+
+    private BufferedImage createImageFromSvg(Dimension realDim) {
+        if (svgSource != null) {
+            BufferedImage img = SvgDiskCache.readImage(svgSource, realDim);
+            if (img != null) {
+                return img;
+            }
+        }
+        SVGDiagram diagram = getSvg();
+        if (diagram == null) {
+            return null;
+        }
+        BufferedImage img = ImageProvider.createImageFromSvg(diagram, realDim);
+        if (img != null && svgSource != null) {
+            SvgDiskCache.writeSize(svgSource, diagram.getWidth(), diagram.getHeight());
+            SvgDiskCache.writeImage(svgSource, realDim, img);
+        }
+        return img;
+    }
+
+    /**
+     * Estimates the memory used by this resource and the resized versions of the image.
+     * @return the estimated size in bytes
+     */
+    long getSize() {
+        long size = svg != null ? SVG_SIZE : ImageCache.getSize(baseImage);
+        synchronized (imgCache) {
+            for (BufferedImage img : imgCache.values()) {
+                size += ImageCache.getSize(img);
+            }
+        }
+        return size;
+    }
+
     @Override
     public String toString() {
         return "ImageResource ["
                 + (svg != null ? "svg=" + svg : "")
+                + (svg == null && svgSource != null ? "svgSource=" + svgSource : "")
                 + (baseImage != null ? "baseImage=" + baseImage : "") + ']';
     }
 }
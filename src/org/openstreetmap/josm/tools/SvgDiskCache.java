@@ -0,0 +1,294 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.tools;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+
+import org.openstreetmap.josm.data.Version;
+import org.openstreetmap.josm.spi.preferences.Config;
+
+/**
+ * A disk cache of rasterized SVG images, so that SVG files do not have to be parsed and rendered again at each start.
+ * <p>
+ * Only local files and entries of local archives are cached, identified by their path, their size and their
+ * modification date. For each SVG file, the size of the SVG document and the images at the sizes it has been rasterized
+ * to (up to {@link #MAX_SIZE} pixels) are stored as PNG files. Each JOSM version uses its own directory, and the directories
+ * of versions that have not been used for {@link #MAX_AGE_DAYS} days are deleted.
+ * <p>
+ * The names of the cached files are read once, by {@link #loadIndex()}, so that {@link #isCached(String)} does not access
+ * the disk while the image cache of {@link ImageProvider} is locked.
+ */
+final class SvgDiskCache {
+
+    /** Largest width and height of the cached images */
+    static final int MAX_SIZE = 256;
+    /** The number of days after which the cache directory of another JOSM version is deleted */
+    static final int MAX_AGE_DAYS = 30;
+    /** The suffix of the files containing the size of an SVG document */
+    private static final String SIZE_SUFFIX = ".txt";
+
+    private static volatile boolean enabled = true;
+    private static volatile Index index;
+
+    /**
+     * The cache directory of this JOSM version and the names of the files in it.
+     */
+    private static final class Index {
+        final File root;
+        final File directory;
+        final Set<String> names = ConcurrentHashMap.newKeySet();
+
+        Index(File root) {
+            this.root = root;
+            this.directory = new File(root, Version.getInstance().getVersionString().replaceAll("[^\\w.-]", "_"));
+        }
+    }
+
+    private SvgDiskCache() {
+        // Hide default constructor for utilities classes
+    }
+
+    /**
+     * Determines if the disk cache is enabled.
+     * @return {@code true} if the disk cache is enabled
+     */
+    static boolean isEnabled() {
+        return enabled && Config.getPref() != null && Config.getDirs() != null
+                && Config.getPref().getBoolean("imageprovider.svg-disk-cache", true);
+    }
+
+    /**
+     * Enables or disables the disk cache.
+     * @param enable {@code false} to disable the disk cache
+     */
+    static void setEnabled(boolean enable) {
+        enabled = enable;
+    }
+
+    /**
+     * Gets the source of a local SVG file, which identifies the file and its version in the cache.
+     * @param url the URL of the file, a {@code file:} URL or a {@code jar:} URL of an entry of a local archive
+     * @return the source, or {@code null} if the file cannot be cached
+     */
+    static String getSource(URL url) {
+        try {
+            if ("file".equals(url.getProtocol())) {
+                return getSource(new File(url.toURI()), null);
+            } else if ("jar".equals(url.getProtocol())) {
+                String path = url.getPath();
+                int separator = path.indexOf("!/");
+                if (separator > 0 && path.startsWith("file:")) {
+                    return getSource(new File(new URL(path.substring(0, separator)).toURI()), path.substring(separator + 2));
+                }
+            }
+        } catch (IOException | URISyntaxException | IllegalArgumentException e) {
+            Logging.trace(e);
+        }
+        return null;
+    }
+
+    /**
+     * Gets the source of a local SVG file or of an entry of a local archive.
+     * @param file the file or archive
+     * @param entry the entry in the archive, or {@code null}
+     * @return the source, or {@code null} if the file cannot be cached
+     */
+    static String getSource(File file, String entry) {
+        if (!isEnabled() || !file.isFile()) {
+            return null;
+        }
+        return file.getAbsolutePath() + (entry != null ? "!/" + entry : "") + ':' + file.length() + ':' + file.lastModified();
+    }
+
+    /**
+     * Reads the names of the cached files, unless done before for the current cache directory, and deletes
+     * the cache directories of other JOSM versions that have expired.
+     */
+    static void loadIndex() {
+        if (!isEnabled()) {
+            return;
+        }
+        File root = new File(Config.getDirs().getCacheDirectory(false), "svg");
+        Index current = index;
+        if (current != null && current.root.equals(root)) {
+            return;
+        }
+        synchronized (SvgDiskCache.class) {
+            current = index;
+            if (current == null || !current.root.equals(root)) {
+                index = createIndex(root);
+            }
+        }
+    }
+
+    private static Index createIndex(File root) {
+        Index created = new Index(root);
+        long expired = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(MAX_AGE_DAYS);
+        File[] versions = root.listFiles();
+        if (versions != null) {
+            for (File version : versions) {
+                if (!version.equals(created.directory) && version.lastModified() < expired) {
+                    Utils.deleteDirectory(version);
+                }
+            }
+        }
+        String[] names = created.directory.list();
+        if (names != null) {
+            created.names.addAll(Arrays.asList(names));
+            // the modification date of the directory tells when this version has been used last
+            if (!created.directory.setLastModified(System.currentTimeMillis())) {
+                Logging.debug("Unable to update the modification date of {0}", created.directory);
+            }
+        }
+        return created;
+    }
+
+    private static Index getIndex() {
+        loadIndex();
+        return isEnabled() ? index : null;
+    }
+
+    /**
+     * Determines if the size of an SVG document is cached, i.e. if the SVG file has been parsed successfully before.
+     * Does not access the disk, once {@link #loadIndex()} has been called.
+     * @param source the source of the SVG file, see {@link #getSource(URL)}
+     * @return {@code true} if the size of the document is cached
+     */
+    static boolean isCached(String source) {
+        return getCachedFile(source, SIZE_SUFFIX) != null;
+    }
+
+    /**
+     * Gets a file of the cache.
+     * @param source the source of the SVG file
+     * @param suffix the suffix of the file name
+     * @return the file, or {@code null} if it is not in the cache
+     */
+    private static File getCachedFile(String source, String suffix) {
+        Index current = getIndex();
+        String name = Utils.md5Hex(source) + suffix;
+        return current != null && current.names.contains(name) ? new File(current.directory, name) : null;
+    }
+
+    private static String getImageSuffix(Dimension dim) {
+        return String.format(Locale.ROOT, "_%dx%d_%s.png", dim.width, dim.height, GuiSizesHelper.getPixelDensity());
+    }
+
+    /**
+     * Reads the size of an SVG document.
+     * @param source the source of the SVG file, see {@link #getSource(URL)}
+     * @return the width and height of the document, or {@code null} if not in the cache
+     */
+    static float[] readSize(String source) {
+        File file = getCachedFile(source, SIZE_SUFFIX);
+        if (file != null) {
+            try {
+                List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+                if (lines.size() == 1) {
+                    String[] size = lines.get(0).split(" ", -1);
+                    return new float[] {Float.parseFloat(size[0]), Float.parseFloat(size[1])};
+                }
+            } catch (IOException | NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                Logging.log(Logging.LEVEL_WARN, "Unable to read cached SVG size", e);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Writes the size of an SVG document.
+     * @param source the source of the SVG file, see {@link #getSource(URL)}
+     * @param width the width of the document
+     * @param height the height of the document
+     */
+    static void writeSize(String source, float width, float height) {
+        if (!isCached(source)) {
+            write(source, SIZE_SUFFIX, tmp -> Files.write(tmp.toPath(),
+                    Collections.singletonList(Float.toString(width) + ' ' + Float.toString(height)), StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Reads a rasterized SVG image.
+     * @param source the source of the SVG file, see {@link #getSource(URL)}
+     * @param dim the dimension the image has been rasterized to, as given to
+     * {@link ImageProvider#createImageFromSvg(com.kitfox.svg.SVGDiagram, Dimension)}
+     * @return the image, or {@code null} if not in the cache
+     */
+    static BufferedImage readImage(String source, Dimension dim) {
+        File file = getCachedFile(source, getImageSuffix(dim));
+        if (file != null) {
+            try {
+                BufferedImage image = ImageIO.read(file);
+                if (image != null && image.getType() != BufferedImage.TYPE_INT_ARGB) {
+                    BufferedImage converted = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_ARGB);
+                    converted.getGraphics().drawImage(image, 0, 0, null);
+                    image = converted;
+                }
+                return image;
+            } catch (IOException e) {
+                Logging.log(Logging.LEVEL_WARN, "Unable to read cached SVG image", e);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Writes a rasterized SVG image, unless it is larger than {@link #MAX_SIZE}.
+     * @param source the source of the SVG file, see {@link #getSource(URL)}
+     * @param dim the dimension the image has been rasterized to
+     * @param image the image
+     */
+    static void writeImage(String source, Dimension dim, BufferedImage image) {
+        if (image.getWidth() <= MAX_SIZE && image.getHeight() <= MAX_SIZE) {
+            write(source, getImageSuffix(dim), tmp -> ImageIO.write(image, "png", tmp));
+        }
+    }
+
+    @FunctionalInterface
+    private interface FileWriter {
+        void write(File file) throws IOException;
+    }
+
+    private static void write(String source, String suffix, FileWriter writer) {
+        Index current = getIndex();
+        if (current == null) {
+            return;
+        }
+        String name = Utils.md5Hex(source) + suffix;
+        // written to a temporary file first, so that other threads and instances never read a partial file
+        File tmp = null;
+        try {
+            // the directory is created on the first write, or again if it has been deleted in the meantime
+            if (!current.directory.isDirectory()) {
+                Utils.mkDirs(current.directory);
+            }
+            tmp = File.createTempFile("svg", ".tmp", current.directory);
+            writer.write(tmp);
+            Files.move(tmp.toPath(), new File(current.directory, name).toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            current.names.add(name);
+        } catch (IOException | SecurityException e) {
+            Logging.log(Logging.LEVEL_WARN, "Unable to write SVG disk cache", e);
+            if (tmp != null) {
+                Utils.deleteFile(tmp);
+            }
+        }
+    }
+}
@@ -0,0 +1,177 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.rules.Timeout;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.spi.preferences.IBaseDirectories;
+import org.openstreetmap.josm.tools.JosmRuntimeException;
+import org.xml.sax.SAXException;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * This test measures the time needed to load the preferences at startup, from the XML file or from the binary cache.
+ */
+public class PreferencesPerformanceTest {
+
+    private static final int SETTINGS = 2_000;
+    private static final int READS = 1_000_000;
+
+    /**
+     * Global timeout applied to all test methods.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public Timeout globalTimeout = Timeout.seconds(15*60);
+
+    /**
+     * Temporary directory for preference files.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Prepare the test.
+     */
+    @BeforeClass
+    public static void createJOSMFixture() {
+        JOSMFixture.createPerformanceTestFixture().init(true);
+    }
+
+    private Preferences createPreferences() {
+        File root = folder.getRoot();
+        return new Preferences(new IBaseDirectories() {
+            @Override
+            public File getPreferencesDirectory(boolean createIfMissing) {
+                return root;
+            }
+
+            @Override
+            public File getUserDataDirectory(boolean createIfMissing) {
+                return root;
+            }
+
+            @Override
+            public File getCacheDirectory(boolean createIfMissing) {
+                return root;
+            }
+        });
+    }
+
+    /**
+     * Writes preferences similar to the ones of a long-time user: many imagery entries, MapCSS style entries,
+     * toolbar and history lists.
+     * @return the preferences
+     * @throws IOException if any I/O error occurs
+     */
+    private Preferences writeLargePreferences() throws IOException {
+        Preferences pref = createPreferences();
+        pref.init(false);
+        for (int i = 0; i < SETTINGS; i++) {
+            pref.put("test.string." + i, "value " + i);
+            List<String> list = new ArrayList<>();
+            for (int j = 0; j < 10; j++) {
+                list.add("item " + i + '/' + j);
+            }
+            pref.putList("test.list." + i, list);
+            List<Map<String, String>> maps = new ArrayList<>();
+            for (int j = 0; j < 5; j++) {
+                Map<String, String> map = new LinkedHashMap<>();
+                map.put("name", "entry " + i + '/' + j);
+                map.put("url", "https://tile.example.org/" + i + '/' + j + "/{zoom}/{x}/{y}.png");
+                map.put("max-zoom", "19");
+                maps.add(map);
+            }
+            pref.putListOfMaps("test.maps." + i, maps);
+        }
+        pref.flush();
+        return pref;
+    }
+
+    private void load(int expectedSize) {
+        Preferences pref = createPreferences();
+        try {
+            pref.load();
+        } catch (IOException | SAXException | XMLStreamException e) {
+            throw new JosmRuntimeException(e);
+        }
+        assertEquals(expectedSize, pref.getAllSettings().size());
+    }
+
+    /**
+     * Measures the time needed to load the preferences from the XML file and from the binary cache.
+     * @throws IOException if any I/O error occurs
+     */
+    @Test
+    public void testLoad() throws IOException {
+        Preferences pref = writeLargePreferences();
+        int size = pref.getAllSettings().size();
+        File cache = pref.getPreferencesCacheFile();
+        assertTrue(cache.isFile());
+        File savedCache = new File(folder.getRoot(), "saved.cache");
+        assertTrue(cache.renameTo(savedCache));
+
+        PerformanceTestUtils.runPerformanceTest("load preferences from XML", () -> load(size));
+        assertTrue(savedCache.renameTo(cache));
+        PerformanceTestUtils.runPerformanceTest("load preferences from cache", () -> load(size));
+    }
+
+    /**
+     * Measures the time needed by several threads to read settings concurrently, as done by renderers and validators.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testConcurrentReads() throws Exception {
+        Preferences pref = writeLargePreferences();
+        int threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            PerformanceTestUtils.runPerformanceTest("read preferences from " + threads + " threads", () -> {
+                List<Future<Integer>> results = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    results.add(executor.submit(() -> {
+                        int count = 0;
+                        for (int i = 0; i < READS; i++) {
+                            int key = i % SETTINGS;
+                            count += pref.get("test.string." + key, "").length();
+                            count += pref.getInt("test.missing." + (key % 10), 1);
+                            count += pref.getBoolean("test.boolean", true) ? 1 : 0;
+                        }
+                        return count;
+                    }));
+                }
+                try {
+                    for (Future<Integer> result : results) {
+                        assertTrue(result.get() > 0);
+                    }
+                } catch (InterruptedException | ExecutionException e) {
+                    throw new JosmRuntimeException(e);
+                }
+            });
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.gpx;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.PerformanceTestUtils.PerformanceTestTimer;
+import org.openstreetmap.josm.data.coor.LatLon;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * This test measures the memory used by GPX track points, stored in {@link ColumnarGpxTrackSegment}
+ * or as {@link WayPoint} objects.
+ */
+public class ColumnarGpxTrackSegmentPerformanceTest {
+
+    private static final int POINTS = 10_000_000;
+    private static final int WAYPOINT_OBJECTS = 1_000_000;
+
+    /**
+     * Global timeout applied to all test methods.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public Timeout globalTimeout = Timeout.seconds(15*60);
+
+    /**
+     * Prepare the test.
+     */
+    @BeforeClass
+    public static void createJOSMFixture() {
+        JOSMFixture.createPerformanceTestFixture().init(true);
+    }
+
+    /**
+     * Generates a GPS log: a random walk with one point per second, an elevation and a precision.
+     */
+    private static final class PointGenerator {
+        private final Random random = new Random(42);
+        private double lat = 48.0;
+        private double lon = 2.0;
+        private long time = 1_500_000_000_000L;
+
+        WayPoint next() {
+            lat += (random.nextDouble() - 0.5) * 1e-4;
+            lon += (random.nextDouble() - 0.5) * 1e-4;
+            time += 1000;
+            WayPoint wpt = new WayPoint(new LatLon(lat, lon));
+            wpt.setTimeInMillis(time);
+            wpt.put(GpxConstants.PT_ELE, Double.toString(Math.round(random.nextDouble() * 10_000) / 10.0));
+            wpt.put("hdop", (float) random.nextInt(50) / 10);
+            return wpt;
+        }
+    }
+
+    @SuppressFBWarnings(value = "DM_GC", justification = "Performance test code")
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Measures the memory used by {@value #POINTS} points stored in a {@link ColumnarGpxTrackSegment}.
+     */
+    @Test
+    public void testColumnarMemory() {
+        PointGenerator generator = new PointGenerator();
+        long before = usedMemory();
+        PerformanceTestTimer timer = PerformanceTestUtils.startTimer("build columnar segment of " + POINTS + " points");
+        ColumnarGpxTrackSegment.Builder builder = new ColumnarGpxTrackSegment.Builder();
+        for (int i = 0; i < POINTS; i++) {
+            builder.add(generator.next());
+        }
+        ColumnarGpxTrackSegment segment = builder.build();
+        timer.done();
+        builder = null;
+        long used = usedMemory() - before;
+        PerformanceTestUtils.measurementPlotsPluginOutput("columnar segment memory (bytes per point)", (double) used / POINTS);
+        assertEquals(POINTS, segment.size());
+    }
+
+    /**
+     * Measures the memory used by {@value #WAYPOINT_OBJECTS} points stored as {@link WayPoint} objects,
+     * for comparison with {@link #testColumnarMemory()}.
+     */
+    @Test
+    public void testWayPointMemory() {
+        PointGenerator generator = new PointGenerator();
+        long before = usedMemory();
+        List<WayPoint> wayPoints = new ArrayList<>(WAYPOINT_OBJECTS);
+        for (int i = 0; i < WAYPOINT_OBJECTS; i++) {
+            wayPoints.add(generator.next());
+        }
+        ImmutableGpxTrackSegment segment = new ImmutableGpxTrackSegment(wayPoints);
+        wayPoints = null;
+        long used = usedMemory() - before;
+        PerformanceTestUtils.measurementPlotsPluginOutput("WayPoint segment memory (bytes per point)",
+                (double) used / WAYPOINT_OBJECTS);
+        assertEquals(WAYPOINT_OBJECTS, segment.getWayPoints().size());
+    }
+}
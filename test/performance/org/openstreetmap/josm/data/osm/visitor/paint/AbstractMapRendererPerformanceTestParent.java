@@ -42,7 +42,8 @@ public abstract class AbstractMapRendererPerformanceTestParent {
     private static DataSet dsRestriction;
     private static DataSet dsMultipolygon;
     private static DataSet dsOverpass;
-    private static DataSet dsCity;
+    @SuppressFBWarnings(value = "MS_PKGPROTECT")
+    protected static DataSet dsCity;
 
     /**
      * Global timeout applied to all test methods.
@@ -1,8 +1,14 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.data.osm.visitor.paint;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.osm.Relation;
 
 /**
  * Performance test of {@code WireframeMapRenderer}.
@@ -23,4 +29,20 @@ public class WireframeMapRendererPerformanceTest extends AbstractMapRendererPerf
     protected Rendering buildRenderer() {
         return new WireframeMapRenderer(g, nc, false);
     }
+
+    /**
+     * Part of the city with half of the relations selected, so that the ways are drawn in several colors
+     * and the members of the selected relations are drawn.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testCityPart1SelectedRelations() throws Exception {
+        List<Relation> relations = new ArrayList<>(dsCity.getRelations());
+        dsCity.setSelected(relations.subList(0, relations.size() / 2));
+        try {
+            test(250, dsCity, new Bounds(53.56, 13.25, 53.57, 13.26));
+        } finally {
+            dsCity.clearSelection();
+        }
+    }
 }
@@ -2,6 +2,7 @@
 package org.openstreetmap.josm.gui.mappaint.mapcss;
 
 import java.util.EnumSet;
+import java.util.function.Predicate;
 
 import org.junit.Test;
 import org.openstreetmap.josm.PerformanceTestUtils;
@@ -28,11 +29,59 @@ public class MapCSSConditionPerformanceTest {
         }
     }
 
+    /**
+     * Test the performance of all OP entries compiled with a fixed reference value, see {@link Op#compile}.
+     */
+    @Test
+    public void testAllOpsCompiled() {
+        for (Op op : Op.values()) {
+            getCompiledRunner(op).run();
+        }
+        for (Op op : Op.values()) {
+            PerformanceTestUtils.runPerformanceTest("Condition.Op." + op + ".compiled", getCompiledRunner(op));
+        }
+    }
+
     private void runTest(Op op) {
         Runnable r = getRunner(op);
         PerformanceTestUtils.runPerformanceTest("Condition.Op." + op, r);
     }
 
+    private Runnable getCompiledRunner(Op op) {
+        if (EnumSet.of(Op.LESS, Op.LESS_OR_EQUAL, Op.GREATER, Op.GREATER_OR_EQUAL).contains(op)) {
+            Predicate<String> p1 = op.compile("0.2");
+            Predicate<String> p2 = op.compile("192.312");
+            Predicate<String> p3 = op.compile("1000");
+            return () -> {
+                for (int i = 0; i < 10000; i++) {
+                    p1.test(null);
+                    p1.test("nan");
+                    p2.test("0.2983");
+                    p2.test("192.312");
+                    p3.test("2983");
+                    p3.test("1000");
+                }
+            };
+        } else {
+            int runs = EnumSet.of(Op.ONE_OF, Op.REGEX, Op.NREGEX).contains(op) ? 10000 : 100000;
+            Predicate<String> p1 = op.compile("v1");
+            Predicate<String> p2 = op.compile("longvaluelongvaluelongvaluelongvalue");
+            Predicate<String> p3 = op.compile("\\d+");
+            return () -> {
+                for (int i = 0; i < runs; i++) {
+                    p1.test("k1");
+                    p1.test("v1");
+                    p1.test("");
+                    p1.test(null);
+                    p2.test("extreamlylongkeyextreamlylongkeyextreamlylongkeyextreamlylongkey");
+                    p3.test("0.2983");
+                    p3.test("2983");
+                    p3.test("abc");
+                }
+            };
+        }
+    }
+
     private Runnable getRunner(Op op) {
         Runnable r;
         if (EnumSet.of(Op.LESS, Op.LESS_OR_EQUAL, Op.GREATER, Op.GREATER_OR_EQUAL).contains(op)) {
@@ -31,6 +31,7 @@ import org.openstreetmap.josm.spi.lifecycle.Lifecycle;
 import org.openstreetmap.josm.spi.preferences.Config;
 import org.openstreetmap.josm.testutils.JOSMTestRules;
 import org.openstreetmap.josm.tools.I18n;
+import org.openstreetmap.josm.tools.ImageProvider;
 import org.openstreetmap.josm.tools.JosmRuntimeException;
 import org.openstreetmap.josm.tools.Logging;
 import org.openstreetmap.josm.tools.PlatformManager;
@@ -110,6 +111,10 @@ public class JOSMFixture {
         Config.setUrlsProvider(JosmUrls.getInstance());
         pref.resetToInitialState();
         pref.enableSaveOnPut(false);
+        // do not leave a preferences cache in the test directories
+        pref.enableCache(false);
+        // nor rasterized SVG images
+        ImageProvider.enableSvgDiskCache(false);
         I18n.init();
         // initialize the plaform hook, and
         // call the really early hook before we anything else
@@ -2,9 +2,21 @@
 package org.openstreetmap.josm.data;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openstreetmap.josm.data.preferences.PreferencesCache;
+import org.openstreetmap.josm.spi.preferences.IBaseDirectories;
 import org.openstreetmap.josm.testutils.JOSMTestRules;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
@@ -21,6 +33,33 @@ public class PreferencesTest {
     @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
     public JOSMTestRules test = new JOSMTestRules().preferences().fakeAPI();
 
+    /**
+     * Temporary directory for preference files.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Preferences createPreferences() {
+        File root = folder.getRoot();
+        return new Preferences(new IBaseDirectories() {
+            @Override
+            public File getPreferencesDirectory(boolean createIfMissing) {
+                return root;
+            }
+
+            @Override
+            public File getUserDataDirectory(boolean createIfMissing) {
+                return root;
+            }
+
+            @Override
+            public File getCacheDirectory(boolean createIfMissing) {
+                return root;
+            }
+        });
+    }
+
     /**
      * Test {@link Preferences#toXML}.
      */
@@ -33,4 +72,104 @@ public class PreferencesTest {
             "</preferences>%n", Version.getInstance().getVersion()),
                 Preferences.main().toXML(true));
     }
+
+    /**
+     * Test that changes are saved asynchronously and {@link Preferences#flush()} writes pending changes, and only these.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testAsynchronousSave() throws Exception {
+        Preferences pref = createPreferences();
+        pref.init(false);
+        long length = pref.getPreferenceFile().length();
+        pref.put("test.async", "foo");
+        assertEquals(length, pref.getPreferenceFile().length());
+        pref.flush();
+        assertTrue(pref.getPreferenceFile().length() > length);
+        assertTrue(new String(Files.readAllBytes(pref.getPreferenceFile().toPath()), StandardCharsets.UTF_8).contains("josm.version"));
+
+        Preferences pref2 = createPreferences();
+        pref2.init(false);
+        assertEquals("foo", pref2.get("test.async"));
+
+        // writing the version does not schedule another save
+        assertTrue(pref.getPreferenceFile().delete());
+        pref.flush();
+        assertFalse(pref.getPreferenceFile().exists());
+    }
+
+    /**
+     * Test that {@link Preferences#save()} writes the preferences file immediately.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testSynchronousSave() throws Exception {
+        Preferences pref = createPreferences();
+        pref.init(false);
+        pref.enableSaveOnPut(false);
+        long length = pref.getPreferenceFile().length();
+        pref.put("test.sync", "foo");
+        assertEquals(length, pref.getPreferenceFile().length());
+        pref.save();
+        assertTrue(pref.getPreferenceFile().length() > length);
+    }
+
+    /**
+     * Test that preferences are loaded from the binary cache only if it is up to date.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testLoadCache() throws Exception {
+        Preferences pref = createPreferences();
+        pref.init(false);
+        pref.putList("test.list", Arrays.asList("a", "b"));
+        pref.flush();
+        assertTrue(pref.getPreferencesCacheFile().isFile());
+
+        Preferences pref2 = createPreferences();
+        pref2.load();
+        assertEquals(Arrays.asList("a", "b"), pref2.getList("test.list"));
+
+        // the XML file is modified by hand: it must be read instead of the cache
+        File xml = pref.getPreferenceFile();
+        String content = new String(Files.readAllBytes(xml.toPath()), StandardCharsets.UTF_8);
+        Files.write(xml.toPath(), content.replace("'b'", "'c'").getBytes(StandardCharsets.UTF_8));
+        long cacheLength = pref.getPreferencesCacheFile().length();
+        assertTrue(xml.setLastModified(pref.getPreferencesCacheFile().lastModified() + 2000));
+        Preferences pref3 = createPreferences();
+        pref3.load();
+        assertEquals(Arrays.asList("a", "c"), pref3.getList("test.list"));
+        // loading does not write the cache, it is written with the preferences file
+        assertEquals(cacheLength, pref.getPreferencesCacheFile().length());
+        assertFalse(new PreferencesCache(pref.getPreferencesCacheFile(), xml).isUpToDate());
+    }
+
+    /**
+     * Test that the binary cache is neither read nor written when disabled.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testCacheDisabled() throws Exception {
+        Preferences pref = createPreferences();
+        pref.enableCache(false);
+        pref.init(false);
+        pref.put("test.nocache", "foo");
+        pref.save();
+        assertFalse(pref.getPreferencesCacheFile().exists());
+    }
+
+    /**
+     * Test that listeners are notified once the new value can be read.
+     */
+    @Test
+    public void testListenerSeesNewValue() {
+        Preferences pref = createPreferences();
+        pref.enableSaveOnPut(false);
+        List<String> values = new ArrayList<>();
+        pref.addKeyPreferenceChangeListener("test.key", e -> values.add(pref.get("test.key")));
+        pref.put("test.key", "a");
+        pref.put("test.key", "b");
+        pref.put("test.key", null);
+        assertEquals(Arrays.asList("a", "b", ""), values);
+    }
 }
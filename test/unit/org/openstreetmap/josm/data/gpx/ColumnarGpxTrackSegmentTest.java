@@ -0,0 +1,165 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.gpx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.projection.Projection;
+import org.openstreetmap.josm.data.projection.Projections;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests for class {@link ColumnarGpxTrackSegment}.
+ */
+public class ColumnarGpxTrackSegmentTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules();
+
+    private static List<WayPoint> createWayPoints() {
+        List<WayPoint> result = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            WayPoint wpt = new WayPoint(new LatLon(48.0 + i * 0.001, 2.0 - i * 0.0005));
+            if (i % 10 != 3) {
+                wpt.setTimeInMillis(1_500_000_000_000L + i * 1000);
+            }
+            if (i % 7 != 0) {
+                wpt.put(GpxConstants.PT_ELE, i % 5 == 0 ? Integer.toString(i) : (i + 0.5) + "");
+            }
+            if (i % 2 == 0) {
+                wpt.put("hdop", Float.valueOf(i % 4));
+                wpt.put("sat", "0" + (i % 3));
+            }
+            result.add(wpt);
+        }
+        result.get(42).put(GpxConstants.PT_ELE, "12.30");
+        result.get(43).put(GpxConstants.GPX_NAME, "foo");
+        return result;
+    }
+
+    /**
+     * Checks that points are given back unchanged.
+     */
+    @Test
+    public void testWayPoints() {
+        List<WayPoint> wayPoints = createWayPoints();
+        ColumnarGpxTrackSegment segment = new ColumnarGpxTrackSegment.Builder().addAll(wayPoints).build();
+        assertEquals(wayPoints.size(), segment.size());
+        assertEquals(wayPoints, new ArrayList<>(segment.getWayPoints()));
+        assertEquals("12.30", new ArrayList<>(segment.getWayPoints()).get(42).getString(GpxConstants.PT_ELE));
+        assertFalse(new ArrayList<>(segment.getWayPoints()).get(3).hasDate());
+        assertNull(new ArrayList<>(segment.getWayPoints()).get(7).get(GpxConstants.PT_ELE));
+    }
+
+    /**
+     * Checks that points are created once, and are always the same objects.
+     */
+    @Test
+    public void testWayPointsIdentity() {
+        ColumnarGpxTrackSegment segment = new ColumnarGpxTrackSegment.Builder().addAll(createWayPoints()).build();
+        List<WayPoint> wayPoints = new ArrayList<>(segment.getWayPoints());
+        wayPoints.get(0).drawLine = true;
+        assertTrue(segment.getWayPoints().iterator().next().drawLine);
+        assertSame(wayPoints.get(57), new ArrayList<>(segment.getWayPoints()).get(57));
+        assertNotSame(wayPoints.get(57), segment.createWayPoint(57));
+        assertEquals(wayPoints.get(57), segment.createWayPoint(57));
+        assertEquals(0, segment.getUpdateCount());
+    }
+
+    /**
+     * Checks the access to points by index, and that drawing information is kept without creating points.
+     */
+    @Test
+    public void testColumns() {
+        List<WayPoint> wayPoints = createWayPoints();
+        ColumnarGpxTrackSegment segment = new ColumnarGpxTrackSegment.Builder().addAll(wayPoints).build();
+        assertEquals(wayPoints.get(12).lat(), segment.getLat(12), 0);
+        assertEquals(wayPoints.get(12).lon(), segment.getLon(12), 0);
+        assertEquals(wayPoints.get(12).getCoor(), segment.getCoor(12));
+        assertEquals(wayPoints.get(12).getTimeInMillis(), segment.getTimeInMillis(12));
+        assertEquals(0, segment.getTimeInMillis(13));
+        assertEquals(Float.valueOf(0), segment.getAttribute(12, "hdop"));
+        assertNull(segment.getAttribute(13, "hdop"));
+        assertTrue(segment.hasTimes());
+        assertFalse(new ColumnarGpxTrackSegment.Builder().add(new WayPoint(LatLon.ZERO)).build().hasTimes());
+
+        assertNull(segment.getCustomColoring(5));
+        assertFalse(segment.isDrawLine(5));
+        segment.setDrawing(5, Color.RED, true, 3);
+        assertEquals(Color.RED, segment.getCustomColoring(5));
+        assertTrue(segment.isDrawLine(5));
+        WayPoint wpt = new ArrayList<>(segment.getWayPoints()).get(5);
+        assertEquals(Color.RED, wpt.customColoring);
+        assertTrue(wpt.drawLine);
+        assertEquals(3, wpt.dir);
+        segment.setDrawing(5, Color.BLUE, false, 0);
+        assertEquals(Color.BLUE, wpt.customColoring);
+        assertFalse(wpt.drawLine);
+    }
+
+    /**
+     * Checks that the projected coordinates of the points are those of the points, and follow projection changes.
+     */
+    @Test
+    public void testEastNorth() {
+        List<WayPoint> wayPoints = createWayPoints();
+        ColumnarGpxTrackSegment segment = new ColumnarGpxTrackSegment.Builder().addAll(wayPoints).build();
+        for (String code : Arrays.asList("EPSG:3857", "EPSG:4326", "EPSG:3857")) {
+            Projection projection = Projections.getProjectionByCode(code);
+            for (int i : new int[] {0, 12, 99}) {
+                EastNorth expected = wayPoints.get(i).getEastNorth(projection);
+                EastNorth actual = segment.getEastNorth(i, projection);
+                assertEquals(code, expected.east(), actual.east(), 1e-9);
+                assertEquals(code, expected.north(), actual.north(), 1e-9);
+            }
+        }
+    }
+
+    /**
+     * Checks that bounds and length are those of an {@link ImmutableGpxTrackSegment}.
+     */
+    @Test
+    public void testBoundsAndLength() {
+        List<WayPoint> wayPoints = createWayPoints();
+        ColumnarGpxTrackSegment segment = new ColumnarGpxTrackSegment.Builder().addAll(wayPoints).build();
+        ImmutableGpxTrackSegment reference = new ImmutableGpxTrackSegment(wayPoints);
+        assertEquals(reference.getBounds(), segment.getBounds());
+        assertEquals(reference.length(), segment.length(), 1e-6);
+        assertNull(new ColumnarGpxTrackSegment.Builder().build().getBounds());
+    }
+
+    /**
+     * Unit test of methods {@link ColumnarGpxTrackSegment#equals} and {@link ColumnarGpxTrackSegment#hashCode}.
+     */
+    @Test
+    public void testEquals() {
+        ColumnarGpxTrackSegment segment1 = new ColumnarGpxTrackSegment.Builder().addAll(createWayPoints()).build();
+        ColumnarGpxTrackSegment segment2 = new ColumnarGpxTrackSegment.Builder().addAll(createWayPoints()).build();
+        assertEquals(segment1, segment2);
+        assertEquals(segment1.hashCode(), segment2.hashCode());
+        List<WayPoint> wayPoints = createWayPoints();
+        wayPoints.get(10).put("sat", "12");
+        assertFalse(segment1.equals(new ColumnarGpxTrackSegment.Builder().addAll(wayPoints).build()));
+        assertFalse(segment1.equals(new ColumnarGpxTrackSegment.Builder().addAll(wayPoints.subList(0, 50)).build()));
+        assertFalse(segment1.equals(new ImmutableGpxTrackSegment(Arrays.asList(new WayPoint(LatLon.ZERO)))));
+    }
+}
@@ -13,7 +13,11 @@ import java.util.List;
 import org.junit.Assert;
 import org.junit.Rule;
 import org.junit.Test;
+import org.openstreetmap.josm.data.coor.EastNorth;
 import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.projection.Projection;
+import org.openstreetmap.josm.data.projection.Projections;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
 import org.openstreetmap.josm.testutils.JOSMTestRules;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
@@ -28,7 +32,7 @@ public class DataSetTest {
      */
     @Rule
     @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
-    public JOSMTestRules test = new JOSMTestRules();
+    public JOSMTestRules test = new JOSMTestRules().projection();
 
     /**
      * Unit test of method {@link DataSet#searchRelations}.
@@ -237,6 +241,29 @@ public class DataSetTest {
         assertEquals(ds1.getVersion(), ds2.getVersion());
     }
 
+    /**
+     * Unit test of method {@link DataSet#reproject}.
+     */
+    @Test
+    public void testReproject() {
+        DataSet ds = new DataSet();
+        for (int i = 0; i < 25_000; i++) {
+            ds.addPrimitive(new Node(new LatLon(47 + i * 1e-4, 7 + i * 2e-4)));
+        }
+        ds.addPrimitive(new Node(1)); // incomplete
+        Projection projection = Projections.getProjectionByCode("EPSG:2056"); // Swiss grid
+        assertEquals(25_000, ds.reproject(projection, NullProgressMonitor.INSTANCE));
+        for (Node n : ds.getNodes()) {
+            if (n.isLatLonKnown()) {
+                EastNorth expected = projection.latlon2eastNorth(n.getCoor());
+                EastNorth actual = n.getEastNorth(projection);
+                assertEquals(expected.east(), actual.east(), 1e-6);
+                assertEquals(expected.north(), actual.north(), 1e-6);
+            }
+        }
+        assertEquals(0, ds.reproject(projection, NullProgressMonitor.INSTANCE));
+    }
+
     /**
      * Checks that enum values are defined in the correct order.
      */
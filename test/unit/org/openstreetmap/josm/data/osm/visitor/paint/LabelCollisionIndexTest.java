@@ -0,0 +1,108 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm.visitor.paint;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link LabelCollisionIndex} class.
+ */
+public class LabelCollisionIndexTest {
+
+    /**
+     * Test {@link LabelCollisionIndex#place} and {@link LabelCollisionIndex#isRejected}.
+     */
+    @Test
+    public void testPlace() {
+        LabelCollisionIndex index = new LabelCollisionIndex();
+        assertTrue(index.place("a", new Rectangle2D.Double(10, 10, 100, 20)));
+        assertFalse(index.place("b", new Rectangle2D.Double(100, 20, 50, 20)));
+        assertTrue(index.place("c", new Rectangle2D.Double(111, 20, 50, 20)));
+        // labels of the same key may overlap, e.g. for the polygons of a multipolygon
+        assertTrue(index.place("a", new Rectangle2D.Double(100, 20, 5, 5)));
+        assertFalse(index.isRejected("a"));
+        assertTrue(index.isRejected("b"));
+        assertFalse(index.isRejected("d"));
+        assertEquals(4, index.size());
+
+        index.removeKey("a");
+        assertEquals(2, index.size());
+        assertTrue(index.place("d", new Rectangle2D.Double(-1000, -1000, 1100, 1030)));
+    }
+
+    /**
+     * Test {@link LabelCollisionIndex#translate}.
+     */
+    @Test
+    public void testTranslate() {
+        LabelCollisionIndex index = new LabelCollisionIndex();
+        Rectangle2D view = new Rectangle2D.Double(0, 0, 500, 500);
+        assertTrue(index.place("a", new Rectangle2D.Double(10, 10, 100, 20)));
+        assertFalse(index.place("b", new Rectangle2D.Double(100, 15, 100, 20)));
+        assertTrue(index.place("c", new Rectangle2D.Double(300, 300, 100, 20)));
+        assertFalse(index.place("d", new Rectangle2D.Double(300, 290, 100, 20)));
+
+        index.translate(100, 0, view);
+        assertEquals(4, index.size());
+        assertFalse(index.place("e", new Rectangle2D.Double(150, 10, 10, 10)));
+        assertTrue(index.isRejected("b"));
+
+        // c moves out of the view, d might fit now
+        index.translate(0, 205, view);
+        assertTrue(index.isRejected("b"));
+        assertFalse(index.isRejected("d"));
+        assertEquals(3, index.size());
+    }
+
+    /**
+     * Test {@link LabelCollisionIndex#forget}.
+     */
+    @Test
+    public void testForget() {
+        LabelCollisionIndex index = new LabelCollisionIndex();
+        assertTrue(index.place("a", new Rectangle2D.Double(10, 10, 100, 20)));
+        assertFalse(index.place("b", new Rectangle2D.Double(100, 15, 100, 20)));
+        assertTrue(index.place("c", new Rectangle2D.Double(10, 100, 100, 20)));
+        assertEquals(new Rectangle2D.Double(0, 0, 200, 35), index.forget(new Rectangle2D.Double(0, 0, 20, 20)));
+        assertEquals(1, index.size());
+        assertTrue(index.place("b", new Rectangle2D.Double(100, 15, 100, 20)));
+
+        index.clear();
+        assertEquals(0, index.size());
+        assertTrue(index.place("a", new Rectangle2D.Double(100, 15, 100, 20)));
+    }
+
+    /**
+     * Test {@link LabelCollisionIndex#setRegions} and {@link LabelCollisionIndex#keep}.
+     */
+    @Test
+    public void testRegions() {
+        LabelCollisionIndex index = new LabelCollisionIndex();
+        assertTrue(index.place("a", new Rectangle2D.Double(10, 10, 100, 20)));
+        assertTrue(index.place("b", new Rectangle2D.Double(10, 100, 100, 20)));
+        index.setRegions(Arrays.asList(new Rectangle2D.Double(0, 0, 50, 50), new Rectangle2D.Double(0, 90, 200, 50)));
+
+        // a reaches outside of the regions and is kept, b can be placed again
+        assertTrue(index.keep("a"));
+        assertFalse(index.keep("b"));
+        index.removeKey("b");
+        assertTrue(index.place("a", new Rectangle2D.Double(10, 10, 100, 20)));
+        assertEquals(1, index.size());
+        // new labels are only placed completely inside of a region, and not remembered otherwise
+        assertFalse(index.place("c", new Rectangle2D.Double(20, 30, 50, 10)));
+        assertFalse(index.isRejected("c"));
+        // kept labels still block other labels
+        assertFalse(index.place("d", new Rectangle2D.Double(20, 20, 10, 10)));
+        assertTrue(index.place("b", new Rectangle2D.Double(40, 100, 100, 20)));
+
+        index.setRegions(null);
+        assertFalse(index.keep("a"));
+        assertTrue(index.place("c", new Rectangle2D.Double(20, 30, 50, 10)));
+    }
+}
@@ -0,0 +1,99 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm.visitor.paint;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+import java.awt.Font;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.font.TextLayout;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+import org.openstreetmap.josm.tools.Utils;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link LabelLayoutCache} class.
+ */
+public class LabelLayoutCacheTest {
+
+    /**
+     * Setup rule
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences();
+
+    private static final Font FONT = new Font("SansSerif", Font.PLAIN, 12);
+    private static final FontRenderContext FRC = new FontRenderContext(null, true, false);
+
+    /**
+     * Test that the cached layout matches the layout of the text.
+     */
+    @Test
+    public void testLayout() {
+        LabelLayoutCache cache = LabelLayoutCache.getInstance();
+        cache.clear();
+        for (String text : new String[] {"Hauptstraße", "Street רחוב 12"}) {
+            assertEquals(FONT.getStringBounds(text, FRC), cache.getStringBounds(text, FONT, FRC));
+
+            AffineTransform at = AffineTransform.getRotateInstance(0.5);
+            Rectangle2D outline = new TextLayout(text, FONT, FRC).getOutline(at).getBounds2D();
+            Rectangle2D cachedOutline = cache.getOutline(text, FONT, FRC, at).getBounds2D();
+            assertEquals(outline.getMinX(), cachedOutline.getMinX(), 1e-4);
+            assertEquals(outline.getMinY(), cachedOutline.getMinY(), 1e-4);
+            assertEquals(outline.getMaxX(), cachedOutline.getMaxX(), 1e-4);
+            assertEquals(outline.getMaxY(), cachedOutline.getMaxY(), 1e-4);
+
+            List<GlyphVector> expected = Utils.getGlyphVectorsBidi(text, FONT, FRC);
+            List<GlyphVector> actual = cache.getGlyphVectorsBidi(text, FONT, FRC);
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                GlyphVector e = expected.get(i);
+                GlyphVector a = actual.get(i);
+                int count = e.getNumGlyphs();
+                assertArrayEquals(e.getGlyphCodes(0, count, null), a.getGlyphCodes(0, count, null));
+                assertArrayEquals(e.getGlyphPositions(0, count + 1, null), a.getGlyphPositions(0, count + 1, null), 0);
+                assertEquals(e.getLogicalBounds(), a.getLogicalBounds());
+            }
+            // the glyph vectors are modified by the renderer
+            assertNotSame(actual.get(0), cache.getGlyphVectorsBidi(text, FONT, FRC).get(0));
+        }
+        assertEquals(2, cache.size());
+        assertEquals(2, cache.getMisses());
+        assertEquals(6, cache.getHits());
+    }
+
+    /**
+     * Test that the least recently used labels are removed.
+     */
+    @Test
+    public void testEviction() {
+        LabelLayoutCache cache = LabelLayoutCache.getInstance();
+        cache.clear();
+        LabelLayoutCache.PREFERENCE_SIZE.put(2);
+        try {
+            cache.getStringBounds("a", FONT, FRC);
+            cache.getStringBounds("b", FONT, FRC);
+            cache.getStringBounds("a", FONT, FRC);
+            cache.getStringBounds("c", FONT, FRC);
+            assertEquals(2, cache.size());
+            cache.getStringBounds("a", FONT, FRC);
+            assertEquals(3, cache.getMisses());
+            cache.getStringBounds("b", FONT, FRC);
+            assertEquals(4, cache.getMisses());
+            assertEquals(2, cache.getHits());
+        } finally {
+            LabelLayoutCache.PREFERENCE_SIZE.remove();
+            cache.clear();
+        }
+    }
+}
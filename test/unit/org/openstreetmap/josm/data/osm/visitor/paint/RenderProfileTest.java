@@ -0,0 +1,112 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm.visitor.paint;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.gui.mappaint.RenderingHelper;
+import org.openstreetmap.josm.gui.mappaint.RenderingHelper.StyleData;
+import org.openstreetmap.josm.io.Compression;
+import org.openstreetmap.josm.io.OsmReader;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link RenderProfile} class.
+ */
+public class RenderProfileTest {
+
+    /**
+     * Setup rule
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences().projection().rlTraffic().timeout(60000);
+
+    /**
+     * Temporary folder
+     */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * Checks that rules, style elements and frames are recorded when rendering, and that the profile is written as JSON.
+     * @throws Exception if any error occurs
+     */
+    @Test
+    public void testProfile() throws Exception {
+        DataSet ds;
+        try (InputStream in = Compression.getUncompressedFileInputStream(new File("data_nodist/neubrandenburg.osm.bz2"))) {
+            ds = OsmReader.parseDataSet(in, null);
+        }
+        StyleData style = new StyleData();
+        style.styleUrl = "resource://styles/standard/elemstyles.mapcss";
+        File file = temporaryFolder.newFile("profile.json");
+        RenderProfile profile = RenderProfile.getInstance();
+        profile.reset();
+        RenderProfile.PREFERENCE_ENABLED.put(true);
+        RenderProfile.PREFERENCE_FILE.put(file.getAbsolutePath());
+        try {
+            new RenderingHelper(ds, new Bounds(53.552, 13.246, 53.562, 13.266), 2, Collections.singletonList(style)).render();
+            // written in the background after each frame, at most every few seconds
+            profile.writeFile();
+        } finally {
+            RenderProfile.PREFERENCE_ENABLED.remove();
+            RenderProfile.PREFERENCE_FILE.remove();
+        }
+
+        JsonObject json;
+        try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8);
+             JsonReader jsonReader = Json.createReader(reader)) {
+            json = jsonReader.readObject();
+        }
+        assertEquals(1, json.getInt("frames"));
+        int candidates = json.getInt("candidates");
+        int drawn = json.getInt("drawn");
+        assertTrue(drawn > 0);
+        assertTrue(candidates > drawn);
+        assertEquals(candidates - drawn, json.getInt("culled"));
+        assertFalse(json.getJsonArray("rules").isEmpty());
+        JsonObject rule = json.getJsonArray("rules").getJsonObject(0);
+        assertTrue(rule.getString("selector"), rule.getString("selector").contains(": "));
+        assertTrue(rule.getInt("count") >= rule.getInt("matches"));
+        assertTrue(json.getJsonArray("rules").stream().anyMatch(r -> ((JsonObject) r).getInt("matches") > 0));
+        assertTrue(json.getJsonArray("elements").stream()
+                .anyMatch(e -> "LineElement".equals(((JsonObject) e).getString("type"))));
+
+        assertEquals(json, toJson(profile));
+        assertTrue(profile.getSummary(5).contains("LineElement"));
+
+        profile.reset();
+        assertEquals(0, toJson(profile).getInt("frames"));
+        assertTrue(toJson(profile).getJsonArray("rules").isEmpty());
+    }
+
+    private static JsonObject toJson(RenderProfile profile) {
+        StringWriter writer = new StringWriter();
+        profile.writeJson(writer);
+        try (JsonReader reader = Json.createReader(new StringReader(writer.toString()))) {
+            return reader.readObject();
+        }
+    }
+}
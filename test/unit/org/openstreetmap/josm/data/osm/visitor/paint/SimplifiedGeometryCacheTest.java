@@ -0,0 +1,118 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm.visitor.paint;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link SimplifiedGeometryCache} class.
+ */
+public class SimplifiedGeometryCacheTest {
+
+    /**
+     * Setup rule
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences().projection();
+
+    /**
+     * Test {@link SimplifiedGeometryCache#getTolerance}.
+     */
+    @Test
+    public void testGetTolerance() {
+        assertEquals(0.5, SimplifiedGeometryCache.getTolerance(1), 0);
+        assertEquals(0.5, SimplifiedGeometryCache.getTolerance(1.9), 0);
+        assertEquals(4, SimplifiedGeometryCache.getTolerance(10), 0);
+        assertEquals(0.125, SimplifiedGeometryCache.getTolerance(0.3), 0);
+        SimplifiedGeometryCache.PREFERENCE_LOD.put(false);
+        assertEquals(0, SimplifiedGeometryCache.getTolerance(10), 0);
+    }
+
+    /**
+     * Test the Douglas-Peucker simplification of a polyline.
+     */
+    @Test
+    public void testSimplify() {
+        double[] coordinates = {0, 0, 1, 0.1, 2, -0.1, 3, 5, 4, 0.1, 5, 0};
+        assertEquals(5, SimplifiedGeometryCache.simplify(coordinates, 6, 0.5));
+        assertArrayEquals(new double[] {0, 0, 2, -0.1, 3, 5, 4, 0.1, 5, 0}, Arrays.copyOf(coordinates, 10), 0);
+    }
+
+    /**
+     * Test the simplification of a path with a ring that would collapse.
+     */
+    @Test
+    public void testSimplifyPath() {
+        Path2D.Double path = new Path2D.Double(Path2D.WIND_EVEN_ODD);
+        path.moveTo(0, 0);
+        for (int i = 1; i <= 10; i++) {
+            path.lineTo(i, i % 2 * 0.01);
+        }
+        path.moveTo(100, 100);
+        for (int i = 1; i < 10; i++) {
+            path.lineTo(100 + i * 0.01, 100 + i % 2 * 0.01);
+        }
+        path.closePath();
+        Path2D.Double simplified = SimplifiedGeometryCache.simplify(path, 0.5);
+        assertEquals(Path2D.WIND_EVEN_ODD, simplified.getWindingRule());
+        List<Integer> types = new ArrayList<>();
+        for (PathIterator it = simplified.getPathIterator(null); !it.isDone(); it.next()) {
+            types.add(it.currentSegment(new double[6]));
+        }
+        assertEquals(2 + 10 + 1, types.size());
+        assertEquals(PathIterator.SEG_MOVETO, (int) types.get(2));
+        assertEquals(PathIterator.SEG_CLOSE, (int) types.get(12));
+    }
+
+    /**
+     * Test that the simplified geometry of a way is cached and invalidated when a node moves.
+     */
+    @Test
+    public void testCache() {
+        DataSet ds = new DataSet();
+        ds.addDataSetListener(SimplifiedGeometryCache.getInstance());
+        Way w = new Way();
+        for (int i = 0; i < 20; i++) {
+            Node n = new Node(new EastNorth(i, i % 2 * 0.1));
+            ds.addPrimitive(n);
+            w.addNode(n);
+        }
+        ds.addPrimitive(w);
+        SimplifiedGeometryCache cache = SimplifiedGeometryCache.getInstance();
+        double[] simplified = cache.get(w, 1);
+        assertNotNull(simplified);
+        assertEquals(4, simplified.length);
+        assertSame(simplified, cache.get(w, 1));
+        assertNull(cache.get(w, 0));
+        assertNull(cache.get(w, 0.01));
+
+        cache.get(w, 1);
+        w.getNode(19).setEastNorth(new EastNorth(19, 10));
+        double[] moved = cache.get(w, 1);
+        assertNotSame(simplified, moved);
+        assertEquals(10, moved[moved.length - 1], 1e-9);
+        ds.removeDataSetListener(cache);
+        cache.clear(ds);
+    }
+}
@@ -2,12 +2,34 @@
 package org.openstreetmap.josm.data.osm.visitor.paint;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.openstreetmap.josm.TestUtils;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
 import org.openstreetmap.josm.data.osm.visitor.paint.StyledMapRenderer.StyleRecord;
+import org.openstreetmap.josm.gui.mappaint.RenderingHelper;
+import org.openstreetmap.josm.gui.mappaint.RenderingHelper.StyleData;
+import org.openstreetmap.josm.io.Compression;
+import org.openstreetmap.josm.io.OsmReader;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
 
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import nl.jqno.equalsverifier.EqualsVerifier;
 import nl.jqno.equalsverifier.Warning;
 
@@ -18,6 +40,19 @@ import nl.jqno.equalsverifier.Warning;
  */
 public class StyledMapRendererTest {
 
+    /**
+     * Setup rule
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences().projection().rlTraffic().timeout(60000);
+
+    /**
+     * Temporary folder for the style
+     */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     /**
      * Tests the floatToFixed function.
      */
@@ -90,4 +125,161 @@ public class StyledMapRendererTest {
             .suppress(Warning.NONFINAL_FIELDS)
             .verify();
     }
+
+    /**
+     * Checks that drawing in tiles gives the same image as drawing sequentially.
+     * @throws Exception if any error occurs
+     */
+    @Test
+    public void testTiledDrawing() throws Exception {
+        DataSet ds;
+        try (InputStream in = Compression.getUncompressedFileInputStream(new File("data_nodist/neubrandenburg.osm.bz2"))) {
+            ds = OsmReader.parseDataSet(in, null);
+        }
+        Bounds bounds = new Bounds(53.552, 13.246, 53.562, 13.266);
+        StyleData style = new StyleData();
+        style.styleUrl = "resource://styles/standard/elemstyles.mapcss";
+        try {
+            for (boolean fillBackground : new boolean[] {true, false}) {
+                RenderingHelper helper = new RenderingHelper(ds, bounds, 2, Collections.singletonList(style));
+                helper.setFillBackground(fillBackground);
+                StyledMapRenderer.PREFERENCE_TILED_DRAWING.put(false);
+                BufferedImage expected = helper.render();
+                StyledMapRenderer.PREFERENCE_TILED_DRAWING.put(true);
+                BufferedImage actual = helper.render();
+                assertSameImage(expected, actual);
+            }
+        } finally {
+            StyledMapRenderer.PREFERENCE_TILED_DRAWING.put(false);
+        }
+    }
+
+    /**
+     * Checks that drawing in tiles gives the same image as drawing sequentially for style elements that are painted
+     * further away from their primitive than the tile margin.
+     * @throws Exception if any error occurs
+     */
+    @Test
+    public void testTiledDrawingWideElements() throws Exception {
+        DataSet ds = new DataSet();
+        Node n1 = new Node(new LatLon(53.5575, 13.251));
+        Node n2 = new Node(new LatLon(53.5575, 13.259));
+        Node label = new Node(new LatLon(53.5575, 13.255));
+        label.put("name", "label");
+        ds.addPrimitive(n1);
+        ds.addPrimitive(n2);
+        ds.addPrimitive(label);
+        Way way = new Way();
+        way.setNodes(Arrays.asList(n1, n2));
+        way.put("highway", "wide");
+        ds.addPrimitive(way);
+
+        File css = temporaryFolder.newFile("wide.mapcss");
+        Files.write(css.toPath(), ("way[highway=wide] { width: 600; color: #ff0000; }\n"
+                + "node[name] { text: name; font-size: 16; text-color: #0000ff; text-offset-y: -300; }\n")
+                .getBytes(StandardCharsets.UTF_8));
+        StyleData style = new StyleData();
+        style.styleUrl = css.getAbsolutePath();
+        RenderingHelper helper = new RenderingHelper(ds, new Bounds(53.55, 13.25, 53.56, 13.26), 2,
+                Collections.singletonList(style));
+        try {
+            StyledMapRenderer.PREFERENCE_TILED_DRAWING.put(false);
+            BufferedImage expected = helper.render();
+            StyledMapRenderer.PREFERENCE_TILED_DRAWING.put(true);
+            BufferedImage actual = helper.render();
+            assertSameImage(expected, actual);
+        } finally {
+            StyledMapRenderer.PREFERENCE_TILED_DRAWING.put(false);
+        }
+    }
+
+    /**
+     * Checks that labels overlapping other labels are skipped if {@link StyledMapRenderer#PREFERENCE_LABEL_COLLISION}
+     * is enabled, and that tiled drawing gives the same image.
+     * @throws Exception if any error occurs
+     */
+    @Test
+    public void testLabelCollision() throws Exception {
+        DataSet ds;
+        try (InputStream in = Compression.getUncompressedFileInputStream(new File("data_nodist/neubrandenburg.osm.bz2"))) {
+            ds = OsmReader.parseDataSet(in, null);
+        }
+        Bounds bounds = new Bounds(53.552, 13.246, 53.562, 13.266);
+        StyleData style = new StyleData();
+        style.styleUrl = "resource://styles/standard/elemstyles.mapcss";
+        RenderingHelper helper = new RenderingHelper(ds, bounds, 2, Collections.singletonList(style));
+        BufferedImage all = helper.render();
+        StyledMapRenderer.PREFERENCE_LABEL_COLLISION.put(true);
+        try {
+            BufferedImage expected = helper.render();
+            StyledMapRenderer.PREFERENCE_TILED_DRAWING.put(true);
+            BufferedImage actual = helper.render();
+            int w = expected.getWidth();
+            int h = expected.getHeight();
+            assertFalse(Arrays.equals(all.getRGB(0, 0, w, h, null, 0, w), expected.getRGB(0, 0, w, h, null, 0, w)));
+            assertSameImage(expected, actual);
+        } finally {
+            StyledMapRenderer.PREFERENCE_LABEL_COLLISION.put(false);
+            StyledMapRenderer.PREFERENCE_TILED_DRAWING.put(false);
+        }
+    }
+
+    /**
+     * Checks that equal text styles of one primitive on different layers are placed as separate labels.
+     * @throws Exception if any error occurs
+     */
+    @Test
+    public void testLabelCollisionEqualTextStyles() throws Exception {
+        DataSet ds = new DataSet();
+        Node label = new Node(new LatLon(53.5575, 13.255));
+        label.put("name", "label");
+        ds.addPrimitive(label);
+
+        File css = temporaryFolder.newFile("labels.mapcss");
+        Files.write(css.toPath(), ("node[name] { text: name; font-size: 16; text-color: #0000ff; text-offset-y: -40; }\n"
+                + "node[name]::second { text: name; font-size: 16; text-color: #0000ff; text-offset-y: 40; }\n")
+                .getBytes(StandardCharsets.UTF_8));
+        StyleData style = new StyleData();
+        style.styleUrl = css.getAbsolutePath();
+        RenderingHelper helper = new RenderingHelper(ds, new Bounds(53.55, 13.25, 53.56, 13.26), 2,
+                Collections.singletonList(style));
+        BufferedImage expected = helper.render();
+        StyledMapRenderer.PREFERENCE_LABEL_COLLISION.put(true);
+        try {
+            assertSameImage(expected, helper.render());
+        } finally {
+            StyledMapRenderer.PREFERENCE_LABEL_COLLISION.put(false);
+        }
+    }
+
+    /**
+     * Checks that two images are the same, except for the antialiasing of a few pixels: the tiles are drawn into their
+     * own images, and clipping the shapes to the tile changes the coverage computed by the rasterizer slightly.
+     * @param expected the expected image
+     * @param actual the actual image
+     */
+    private static void assertSameImage(BufferedImage expected, BufferedImage actual) {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        int w = expected.getWidth();
+        int h = expected.getHeight();
+        int[] expectedRGB = expected.getRGB(0, 0, w, h, null, 0, w);
+        int[] actualRGB = actual.getRGB(0, 0, w, h, null, 0, w);
+        int different = 0;
+        for (int i = 0; i < expectedRGB.length; i++) {
+            if (expectedRGB[i] != actualRGB[i]) {
+                different++;
+                for (int shift = 0; shift < 32; shift += 8) {
+                    int delta = Math.abs(premultiplied(expectedRGB[i], shift) - premultiplied(actualRGB[i], shift));
+                    assertTrue("pixel " + i % w + "," + i / w + " differs by " + delta, delta <= 64);
+                }
+            }
+        }
+        assertTrue(different + " pixels differ", different <= expectedRGB.length / 10_000);
+    }
+
+    private static int premultiplied(int argb, int shift) {
+        int alpha = argb >>> 24;
+        return shift == 24 ? alpha : ((argb >> shift) & 0xff) * alpha / 255;
+    }
 }
@@ -0,0 +1,164 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm.visitor.paint;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.gui.NavigatableComponent;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link WireframeMapRenderer} class.
+ */
+public class WireframeMapRendererTest {
+
+    private static final int SIZE = 200;
+    private static final Bounds BOUNDS = new Bounds(0, 0, 0.01, 0.01);
+
+    /**
+     * Setup rule
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences().projection();
+
+    private BufferedImage image;
+    private Graphics2D g;
+    private NavigatableComponent nc;
+
+    /**
+     * Creates the image and the view.
+     */
+    @Before
+    public void setUp() {
+        image = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_ARGB);
+        g = image.createGraphics();
+        g.setClip(0, 0, SIZE, SIZE);
+        nc = new NavigatableComponent() {
+            {
+                setBounds(0, 0, SIZE, SIZE);
+                updateLocationState();
+            }
+
+            @Override
+            protected boolean isVisibleOnScreen() {
+                return true;
+            }
+
+            @Override
+            public Point getLocationOnScreen() {
+                return new Point(0, 0);
+            }
+        };
+        nc.zoomTo(BOUNDS);
+    }
+
+    private void clear() {
+        g.setColor(Color.BLACK);
+        g.fillRect(0, 0, SIZE, SIZE);
+    }
+
+    private static Way addWay(DataSet ds, LatLon from, LatLon to) {
+        Node n1 = new Node(from);
+        Node n2 = new Node(to);
+        Way w = new Way();
+        w.setNodes(Arrays.asList(n1, n2));
+        ds.addPrimitive(n1);
+        ds.addPrimitive(n2);
+        ds.addPrimitive(w);
+        return w;
+    }
+
+    private int getColorAt(LatLon ll) {
+        Point p = nc.getPoint(ll);
+        return image.getRGB(p.x, p.y);
+    }
+
+    /**
+     * Highlighted and selected ways are drawn on top of the other ways, even if the renderer is reused and the
+     * segments are batched by color (fix #8276).
+     */
+    @Test
+    public void testHighlightedAndSelectedOnTop() {
+        WireframeMapRenderer renderer = new WireframeMapRenderer(g, nc, false);
+
+        // a first frame containing only a highlighted way, so that its color is known first to the renderer
+        DataSet ds1 = new DataSet();
+        addWay(ds1, new LatLon(0.002, 0.001), new LatLon(0.002, 0.009)).setHighlighted(true);
+        clear();
+        renderer.render(ds1, false, BOUNDS);
+
+        DataSet ds = new DataSet();
+        LatLon crossing = new LatLon(0.005, 0.005);
+        addWay(ds, new LatLon(0.005, 0.001), new LatLon(0.005, 0.009));
+        addWay(ds, new LatLon(0.001, 0.005), new LatLon(0.009, 0.005)).setHighlighted(true);
+        LatLon selectedCrossing = new LatLon(0.007, 0.003);
+        Way tagged = addWay(ds, new LatLon(0.007, 0.001), new LatLon(0.007, 0.009));
+        tagged.put("highway", "residential");
+        Way selected = addWay(ds, new LatLon(0.001, 0.003), new LatLon(0.009, 0.003));
+        ds.setSelected(selected);
+        clear();
+        renderer.render(ds, false, BOUNDS);
+
+        assertEquals(PaintColors.HIGHLIGHT_WIREFRAME.get().getRGB(), getColorAt(crossing));
+        assertEquals(PaintColors.SELECTED.get().getRGB(), getColorAt(selectedCrossing));
+    }
+
+    /**
+     * The circles around the nodes of a relation are drawn.
+     */
+    @Test
+    public void testRelationMemberNode() {
+        DataSet ds = new DataSet();
+        Node n = new Node(new LatLon(0.005, 0.005));
+        ds.addPrimitive(n);
+        Relation r = new Relation();
+        r.addMember(new RelationMember("", n));
+        ds.addPrimitive(r);
+        clear();
+        new WireframeMapRenderer(g, nc, false).render(ds, false, BOUNDS);
+
+        Point p = nc.getPoint(n.getCoor());
+        assertEquals(PaintColors.RELATION.get().getRGB(), image.getRGB(p.x - 4, p.y));
+    }
+
+    /**
+     * Nothing is drawn once the render pass has been canceled.
+     */
+    @Test
+    public void testCanceled() {
+        DataSet ds = new DataSet();
+        Way way = addWay(ds, new LatLon(0.005, 0.001), new LatLon(0.005, 0.009));
+        WireframeMapRenderer renderer = new WireframeMapRenderer(g, nc, false);
+        renderer.setCancelCheck(() -> true);
+        clear();
+        renderer.render(ds, false, BOUNDS);
+        assertTrue(renderer.isCanceled());
+        assertEquals(Color.BLACK.getRGB(), getColorAt(way.getNode(0).getCoor().interpolate(way.getNode(1).getCoor(), 0.5)));
+
+        renderer.setCancelCheck(null);
+        renderer.render(ds, false, BOUNDS);
+        assertFalse(renderer.isCanceled());
+        assertNotEquals(Color.BLACK.getRGB(), getColorAt(way.getNode(0).getCoor().interpolate(way.getNode(1).getCoor(), 0.5)));
+    }
+}
@@ -0,0 +1,83 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.preferences;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openstreetmap.josm.spi.preferences.ListListSetting;
+import org.openstreetmap.josm.spi.preferences.ListSetting;
+import org.openstreetmap.josm.spi.preferences.MapListSetting;
+import org.openstreetmap.josm.spi.preferences.Setting;
+import org.openstreetmap.josm.spi.preferences.StringSetting;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link PreferencesCache} class.
+ */
+public class PreferencesCacheTest {
+
+    /**
+     * Temporary directory for preference files.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Test that settings of all types are written and read back unchanged.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testWriteRead() throws Exception {
+        File xml = folder.newFile("preferences.xml");
+        Files.write(xml.toPath(), "<preferences/>".getBytes(StandardCharsets.UTF_8));
+        Map<String, String> map = new LinkedHashMap<>();
+        map.put("name", "Bing éè");
+        map.put("url", "http://example.org/{z}/{x}/{y}");
+        SortedMap<String, Setting<?>> settings = new TreeMap<>();
+        settings.put("string", new StringSetting("value"));
+        settings.put("list", new ListSetting(Arrays.asList("a", "b", "")));
+        settings.put("lists", new ListListSetting(Arrays.asList(Arrays.asList("a"), Collections.emptyList())));
+        settings.put("maps", new MapListSetting(Arrays.asList(map, Collections.emptyMap())));
+
+        PreferencesCache cache = new PreferencesCache(new File(folder.getRoot(), "preferences.cache"), xml);
+        cache.write(1234, settings.entrySet());
+        assertTrue(cache.isUpToDate());
+
+        PreferencesCache cache2 = new PreferencesCache(new File(folder.getRoot(), "preferences.cache"), xml);
+        cache2.read();
+        assertEquals(1234, cache2.getVersion());
+        assertEquals(settings, cache2.getSettings());
+    }
+
+    /**
+     * Test that the cache is not used once the XML file has changed.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testOutdated() throws Exception {
+        File xml = folder.newFile("preferences.xml");
+        Files.write(xml.toPath(), "<preferences/>".getBytes(StandardCharsets.UTF_8));
+        PreferencesCache cache = new PreferencesCache(new File(folder.getRoot(), "preferences.cache"), xml);
+        assertFalse(cache.isUpToDate());
+        cache.write(1, Collections.emptyList());
+        assertTrue(cache.isUpToDate());
+        Files.write(xml.toPath(), "<preferences></preferences>".getBytes(StandardCharsets.UTF_8));
+        assertFalse(cache.isUpToDate());
+    }
+}
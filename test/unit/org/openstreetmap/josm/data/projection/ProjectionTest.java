@@ -14,6 +14,7 @@ import org.junit.Test;
 import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.coor.EastNorth;
 import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.projection.datum.NTV2Datum;
 
 /**
  * Unit tests for class {@link Projection}.
@@ -184,6 +185,34 @@ public class ProjectionTest {
         }
     }
 
+    /**
+     * Tests that projecting an array of coordinates gives the same results as projecting them one by one,
+     * for all projections, in particular for the datum shift.
+     */
+    @Test
+    public void testLatLon2EastNorthArray() {
+        for (String code : Projections.getAllProjectionCodes()) {
+            Projection p = Projections.getProjectionByCode(code);
+            if (p instanceof AbstractProjection && ((AbstractProjection) p).getDatum() instanceof NTV2Datum) {
+                // the grid shift files are downloaded on demand
+                continue;
+            }
+            Bounds b = p.getWorldBoundsLatLon();
+            double[] latLon = new double[20];
+            for (int i = 0; i < latLon.length; i += 2) {
+                latLon[i] = b.getMinLat() + rand.nextDouble() * (b.getMaxLat() - b.getMinLat());
+                latLon[i + 1] = b.getMinLon() + rand.nextDouble() * (b.getMaxLon() - b.getMinLon());
+            }
+            double[] eastNorth = new double[latLon.length];
+            p.latlon2eastNorth(latLon, eastNorth, latLon.length / 2);
+            for (int i = 0; i < latLon.length; i += 2) {
+                EastNorth en = p.latlon2eastNorth(new LatLon(latLon[i], latLon[i + 1]));
+                Assert.assertEquals(code, en.east(), eastNorth[i], 0);
+                Assert.assertEquals(code, en.north(), eastNorth[i + 1], 0);
+            }
+        }
+    }
+
     /**
      * Checks that Swedish projections have their axis defined correctly.
      */
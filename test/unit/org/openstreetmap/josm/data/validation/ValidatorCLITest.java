@@ -0,0 +1,140 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.validation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openstreetmap.josm.data.preferences.sources.ValidatorPrefHelper;
+import org.openstreetmap.josm.data.validation.ValidatorCLI.FileResult;
+import org.openstreetmap.josm.data.validation.ValidatorCLI.TestTiming;
+import org.openstreetmap.josm.data.validation.tests.CrossingWays;
+import org.openstreetmap.josm.data.validation.tests.DuplicateNode;
+import org.openstreetmap.josm.spi.preferences.Config;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link ValidatorCLI} class.
+ */
+public class ValidatorCLITest {
+
+    /**
+     * Setup rule
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences().projection();
+
+    /**
+     * Temporary folder rule
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Enables again the tests disabled by preferences.
+     */
+    @After
+    public void tearDown() {
+        OsmValidator.getTests().forEach(t -> t.enabled = true);
+    }
+
+    /**
+     * Test {@link ValidatorCLI#getTestClassNames}.
+     */
+    @Test
+    public void testGetTestClassNames() {
+        assertEquals(Arrays.asList(DuplicateNode.class.getName(), CrossingWays.Ways.class.getName()),
+                ValidatorCLI.getTestClassNames(Arrays.asList("DuplicateNode", "CrossingWays.Ways")));
+    }
+
+    /**
+     * Test {@link ValidatorCLI#getTestClassName}.
+     */
+    @Test
+    public void testGetTestClassName() {
+        assertEquals("DuplicateNode", ValidatorCLI.getTestClassName(new DuplicateNode()));
+        assertEquals("CrossingWays.Ways", ValidatorCLI.getTestClassName(new CrossingWays.Ways()));
+    }
+
+    /**
+     * Test {@link ValidatorCLI#getTestClassNames} with an unknown test.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testGetTestClassNamesUnknown() {
+        ValidatorCLI.getTestClassNames(Collections.singletonList("NoSuchTest"));
+    }
+
+    /**
+     * Test validation of a file, exit code and JSON output.
+     * @throws Exception if any error occurs
+     */
+    @Test
+    public void testValidate() throws Exception {
+        List<String> skipped = new ArrayList<>(OsmValidator.getAllTestsMap().keySet());
+        skipped.remove(DuplicateNode.class.getName());
+        Config.getPref().putList(ValidatorPrefHelper.PREF_SKIP_TESTS, skipped);
+
+        File file = folder.newFile("data.osm");
+        Files.write(file.toPath(), ("<osm version='0.6'>\n" +
+                "  <node id='1' version='1' lat='1.0' lon='1.0' />\n" +
+                "  <node id='2' version='1' lat='1.0' lon='1.0' />\n" +
+                "  <node id='3' version='1' lat='2.0' lon='2.0' />\n" +
+                "</osm>").getBytes(StandardCharsets.UTF_8));
+
+        Map<org.openstreetmap.josm.data.validation.Test, TestTiming> timings = new LinkedHashMap<>();
+        List<FileResult> results = ValidatorCLI.validate(Collections.singletonList(file.getPath()), timings);
+        assertEquals(1, results.size());
+        assertEquals(3, results.get(0).primitives);
+        assertEquals(1, results.get(0).errors.size());
+        TestError error = results.get(0).errors.get(0);
+        assertEquals(Severity.WARNING, error.getSeverity());
+        assertEquals(2, error.getPrimitives().size());
+
+        assertEquals(1, timings.size());
+        TestTiming timing = timings.values().iterator().next();
+        assertTrue(timing.test instanceof DuplicateNode);
+        assertEquals(1, timing.errors);
+
+        assertEquals(ValidatorCLI.EXIT_OK, ValidatorCLI.getExitCode(results, Severity.ERROR));
+        assertEquals(ValidatorCLI.EXIT_ERRORS_FOUND, ValidatorCLI.getExitCode(results, Severity.WARNING));
+        assertEquals(ValidatorCLI.EXIT_OK, ValidatorCLI.getExitCode(results, null));
+
+        StringWriter json = new StringWriter();
+        try (PrintWriter writer = new PrintWriter(json)) {
+            ValidatorCLI.writeJson(writer, results, timings);
+        }
+        String s = json.toString();
+        assertTrue(s, s.contains("\"test\": \"DuplicateNode\""));
+        assertTrue(s, s.contains("\"severity\": \"warning\""));
+        assertTrue(s, s.contains("\"milliseconds\""));
+
+        // a test failing with an exception makes the validation fail
+        results.get(0).failedTests.add(timing.test);
+        assertEquals(ValidatorCLI.EXIT_FAILURE, ValidatorCLI.getExitCode(results, null));
+        json = new StringWriter();
+        try (PrintWriter writer = new PrintWriter(json)) {
+            ValidatorCLI.writeJson(writer, results, timings);
+        }
+        s = json.toString();
+        assertTrue(s, s.contains("\"failedTests\""));
+    }
+}
@@ -0,0 +1,104 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Graphics2D;
+import java.awt.event.ComponentEvent;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.gpx.GpxData;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.gui.layer.GpxLayer;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+import org.openstreetmap.josm.gui.util.GuiHelper;
+import org.openstreetmap.josm.io.GpxReaderTest;
+import org.openstreetmap.josm.spi.preferences.Config;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link MapView} class.
+ */
+public class MapViewTest {
+
+    /**
+     * Setup tests
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences().projection().main().timeout(60000);
+
+    private static BufferedImage paint(MapView mv) {
+        BufferedImage image = new BufferedImage(mv.getWidth(), mv.getHeight(), BufferedImage.TYPE_3BYTE_BGR);
+        Graphics2D g = image.createGraphics();
+        g.setClip(0, 0, mv.getWidth(), mv.getHeight());
+        GuiHelper.runInEDTAndWait(() -> mv.paint(g));
+        g.dispose();
+        return image;
+    }
+
+    /**
+     * Checks that painting the layers concurrently gives the same image as painting them one after another.
+     * @throws Exception if any error occurs
+     */
+    @Test
+    public void testConcurrentLayers() throws Exception {
+        // paint the data layer in the event dispatch thread, like the layers that cannot be painted concurrently
+        Config.getPref().putBoolean("mappaint.retained-image.render-thread", false);
+        GpxData gpx = GpxReaderTest.parseGpxData("data_nodist/munich.gpx");
+        GpxLayer bottom = new GpxLayer(gpx, "bottom");
+        MainApplication.getLayerManager().addLayer(bottom);
+        Bounds bounds = gpx.recalculateBounds();
+        DataSet ds = new DataSet();
+        Node n1 = new Node(bounds.getMin());
+        Node n2 = new Node(bounds.getMax());
+        Way way = new Way();
+        way.setNodes(Arrays.asList(n1, n2));
+        ds.addPrimitive(n1);
+        ds.addPrimitive(n2);
+        ds.addPrimitive(way);
+        MainApplication.getLayerManager().addLayer(new OsmDataLayer(ds, "data", null));
+        GpxLayer top = new GpxLayer(GpxReaderTest.parseGpxData("data_nodist/munich.gpx"), "top");
+        top.setOpacity(0.5);
+        MainApplication.getLayerManager().addLayer(top);
+
+        MapView mv = MainApplication.getMap().mapView;
+        GuiHelper.runInEDTAndWaitWithException(() -> {
+            mv.setVisible(true);
+            mv.addNotify();
+            mv.doLayout();
+            mv.setBounds(0, 0, 800, 600);
+            Arrays.stream(mv.getComponentListeners()).forEach(
+                    cl -> cl.componentResized(new ComponentEvent(mv, ComponentEvent.COMPONENT_RESIZED)));
+        });
+        mv.zoomTo(bounds);
+
+        MapView.PROP_CONCURRENT_LAYERS.put(false);
+        BufferedImage expected = paint(mv);
+        MapView.PROP_CONCURRENT_LAYERS.put(true);
+        BufferedImage actual = paint(mv);
+
+        int w = expected.getWidth();
+        int h = expected.getHeight();
+        int[] e = expected.getRGB(0, 0, w, h, null, 0, w);
+        int[] a = actual.getRGB(0, 0, w, h, null, 0, w);
+        int background = e[0];
+        int painted = 0;
+        for (int i = 0; i < e.length; i++) {
+            assertEquals("pixel " + i, e[i], a[i]);
+            if (e[i] != background) {
+                painted++;
+            }
+        }
+        assertTrue(painted > 0);
+    }
+}
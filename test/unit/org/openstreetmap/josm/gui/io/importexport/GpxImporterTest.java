@@ -0,0 +1,71 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.io.importexport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.TestUtils;
+import org.openstreetmap.josm.gui.MainApplication;
+import org.openstreetmap.josm.gui.layer.GpxLayer;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.gui.util.GuiHelper;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link GpxImporter} class.
+ */
+public class GpxImporterTest {
+
+    /**
+     * Setup test
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences().main().projection();
+
+    private static List<File> getFiles() {
+        return Arrays.asList(
+                new File(TestUtils.getTestDataRoot() + "/mergelayers/Layer1.gpx"),
+                new File(TestUtils.getTestDataRoot() + "/mergelayers/Layer2.gpx"));
+    }
+
+    private static List<GpxLayer> getGpxLayers() {
+        GuiHelper.runInEDTAndWait(() -> { });
+        return MainApplication.getLayerManager().getLayersOfType(GpxLayer.class);
+    }
+
+    /**
+     * Unit test of {@link GpxImporter#importData(List, org.openstreetmap.josm.gui.progress.ProgressMonitor)}.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testImportFiles() throws Exception {
+        new GpxImporter().importData(getFiles(), NullProgressMonitor.INSTANCE);
+        List<GpxLayer> layers = getGpxLayers();
+        assertEquals(2, layers.size());
+        assertEquals(10, layers.get(0).data.getTracks().size() + layers.get(1).data.getTracks().size());
+    }
+
+    /**
+     * Unit test of {@link GpxImporter#importData(List, org.openstreetmap.josm.gui.progress.ProgressMonitor)}
+     * with {@link GpxImporter#MERGE_FILES}.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testImportMergedFiles() throws Exception {
+        GpxImporter.MERGE_FILES.put(true);
+        new GpxImporter().importData(getFiles(), NullProgressMonitor.INSTANCE);
+        List<GpxLayer> layers = getGpxLayers();
+        assertEquals(1, layers.size());
+        assertEquals(10, layers.get(0).data.getTracks().size());
+        assertNull(layers.get(0).data.storageFile);
+    }
+}
@@ -0,0 +1,265 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.layer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.Toolkit;
+import java.awt.event.ComponentEvent;
+import java.awt.event.KeyEvent;
+import java.awt.geom.Area;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.visitor.paint.StyledMapRenderer;
+import org.openstreetmap.josm.gui.MainApplication;
+import org.openstreetmap.josm.gui.MapView;
+import org.openstreetmap.josm.gui.MapViewState.MapViewPoint;
+import org.openstreetmap.josm.gui.layer.MapViewPaintable.LayerPainter;
+import org.openstreetmap.josm.gui.util.GuiHelper;
+import org.openstreetmap.josm.io.Compression;
+import org.openstreetmap.josm.io.OsmReader;
+import org.openstreetmap.josm.spi.preferences.Config;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link OsmDataLayerPainter} class.
+ */
+public class OsmDataLayerPainterTest {
+
+    /**
+     * Setup tests
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences().projection().main().timeout(60000);
+
+    private static BufferedImage paint(LayerPainter painter, MapView mv) {
+        BufferedImage image = new BufferedImage(mv.getWidth(), mv.getHeight(), BufferedImage.TYPE_3BYTE_BGR);
+        Graphics2D g = image.createGraphics();
+        g.setClip(0, 0, mv.getWidth(), mv.getHeight());
+        painter.paint(new MapViewGraphics(mv, g, mv.getState().getViewArea()));
+        g.dispose();
+        return image;
+    }
+
+    private static int countDifferentPixels(BufferedImage expected, BufferedImage actual) {
+        int w = expected.getWidth();
+        int h = expected.getHeight();
+        int[] e = expected.getRGB(0, 0, w, h, null, 0, w);
+        int[] a = actual.getRGB(0, 0, w, h, null, 0, w);
+        int count = 0;
+        for (int i = 0; i < e.length; i++) {
+            if (e[i] != a[i]) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static OsmDataLayer addLayer(DataSet ds) {
+        OsmDataLayer layer = new OsmDataLayer(ds, "", null);
+        MainApplication.getLayerManager().addLayer(layer);
+        MapView mv = MainApplication.getMap().mapView;
+        GuiHelper.runInEDTAndWaitWithException(() -> {
+            mv.setVisible(true);
+            mv.addNotify();
+            mv.doLayout();
+            mv.setBounds(0, 0, 800, 600);
+            Arrays.stream(mv.getComponentListeners()).forEach(
+                    cl -> cl.componentResized(new ComponentEvent(mv, ComponentEvent.COMPONENT_RESIZED)));
+        });
+        mv.zoomTo(new LatLon(53.557, 13.256));
+        mv.zoomTo(mv.getCenter(), 1);
+        return layer;
+    }
+
+    private static DataSet loadData() throws Exception {
+        try (InputStream in = Compression.getUncompressedFileInputStream(new File("data_nodist/neubrandenburg.osm.bz2"))) {
+            return OsmReader.parseDataSet(in, null);
+        }
+    }
+
+    /**
+     * Checks that repainting only the dirty regions gives the same image as a full repaint,
+     * and that shifting the image on pan gives nearly the same image.
+     * @throws Exception if any error occurs
+     */
+    @Test
+    public void testIncrementalRepaint() throws Exception {
+        DataSet ds = loadData();
+        OsmDataLayer layer = addLayer(ds);
+        MapView mv = MainApplication.getMap().mapView;
+
+        LayerPainter painter = layer.createMapViewPainter(null);
+        paint(painter, mv);
+        Rectangle viewRect = new Rectangle(0, 0, 800, 600);
+        assertTrue(((OsmDataLayerPainter) painter).getLastRepaint().contains(viewRect));
+        paint(painter, mv);
+        assertNull(((OsmDataLayerPainter) painter).getLastRepaint());
+
+        // select and move a node of a visible way
+        Way way = ds.getWays().stream()
+                .filter(w -> w.hasKey("building") && w.getReferrers().isEmpty() && mv.getState().getPointFor(w.getNode(1)).isInView())
+                .findFirst().get();
+        ds.setSelected(way);
+        paint(painter, mv);
+        Node node = way.getNode(1);
+        MapViewPoint p = mv.getState().getPointFor(node);
+        node.setCoor(mv.getState().getForView(p.getInViewX() + 20, p.getInViewY() + 10).getLatLon());
+        BufferedImage image = paint(painter, mv);
+        Area repaint = ((OsmDataLayerPainter) painter).getLastRepaint();
+        assertNotNull(repaint);
+        assertFalse(repaint.contains(viewRect));
+        assertEquals(0, countDifferentPixels(paint(layer.createMapViewPainter(null), mv), image));
+
+        // pan the map, paths clipped to the view are rasterized slightly differently at the borders
+        mv.zoomTo(mv.getState().getForView(400 + 37, 300 - 23).getEastNorth());
+        image = paint(painter, mv);
+        repaint = ((OsmDataLayerPainter) painter).getLastRepaint();
+        assertNotNull(repaint);
+        assertFalse(repaint.contains(viewRect));
+        int different = countDifferentPixels(paint(layer.createMapViewPainter(null), mv), image);
+        assertTrue(Integer.toString(different), different < 800 * 600 / 100);
+    }
+
+    /**
+     * Checks that repainting only the dirty regions gives the same image as a full repaint with label collision detection,
+     * i.e. that labels reaching outside of the dirty regions are neither cut nor overlapped.
+     * @throws Exception if any error occurs
+     */
+    @Test
+    public void testIncrementalRepaintLabelCollision() throws Exception {
+        StyledMapRenderer.PREFERENCE_LABEL_COLLISION.put(true);
+        try {
+            DataSet ds = loadData();
+            OsmDataLayer layer = addLayer(ds);
+            MapView mv = MainApplication.getMap().mapView;
+            OsmDataLayerPainter painter = (OsmDataLayerPainter) layer.createMapViewPainter(null);
+            paint(painter, mv);
+            Rectangle viewRect = new Rectangle(0, 0, 800, 600);
+
+            // rename and move a named way, so that its label and the labels next to it change
+            Node node = ds.getNodes().stream()
+                    .filter(n -> n.isLatLonKnown() && n.getReferrers().size() == 1 && mv.getState().getPointFor(n).isInView())
+                    .filter(n -> n.getParentWays().stream().anyMatch(
+                            w -> w.hasKey("name") && w.getReferrers().isEmpty() && w.getLength() < 100))
+                    .min(Comparator.comparingLong(Node::getUniqueId)).get();
+            Way way = node.getParentWays().get(0);
+            ds.setSelected(way);
+            paint(painter, mv);
+            way.put("name", way.get("name") + " with a much longer name");
+            BufferedImage image = paint(painter, mv);
+            assertFalse(painter.getLastRepaint().contains(viewRect));
+            assertEquals(0, countDifferentPixels(paint(layer.createMapViewPainter(null), mv), image));
+
+            MapViewPoint p = mv.getState().getPointFor(node);
+            node.setCoor(mv.getState().getForView(p.getInViewX() + 30, p.getInViewY() - 20).getLatLon());
+            image = paint(painter, mv);
+            assertFalse(painter.getLastRepaint().contains(viewRect));
+            assertEquals(0, countDifferentPixels(paint(layer.createMapViewPainter(null), mv), image));
+        } finally {
+            StyledMapRenderer.PREFERENCE_LABEL_COLLISION.put(false);
+        }
+    }
+
+    /**
+     * Checks that highlighting a primitive only repaints its region, and that only preferences affecting the rendering
+     * cause a full repaint.
+     * @throws Exception if any error occurs
+     */
+    @Test
+    public void testHighlightAndPreferences() throws Exception {
+        DataSet ds = loadData();
+        OsmDataLayer layer = addLayer(ds);
+        MapView mv = MainApplication.getMap().mapView;
+        OsmDataLayerPainter painter = (OsmDataLayerPainter) layer.createMapViewPainter(null);
+        paint(painter, mv);
+        Rectangle viewRect = new Rectangle(0, 0, 800, 600);
+
+        Way way = ds.getWays().stream()
+                .filter(w -> w.hasKey("building") && w.getReferrers().isEmpty() && mv.getState().getPointFor(w.getNode(1)).isInView())
+                .findFirst().get();
+        way.setHighlighted(true);
+        BufferedImage image = paint(painter, mv);
+        Area repaint = painter.getLastRepaint();
+        assertNotNull(repaint);
+        assertFalse(repaint.contains(viewRect));
+        assertEquals(0, countDifferentPixels(paint(layer.createMapViewPainter(null), mv), image));
+
+        Config.getPref().put("osm-server.url", "https://example.com/api");
+        paint(painter, mv);
+        assertNull(painter.getLastRepaint());
+        Config.getPref().putBoolean("mappaint.shownames", false);
+        paint(painter, mv);
+        assertTrue(painter.getLastRepaint().contains(viewRect));
+    }
+
+    /**
+     * Checks that the data is drawn as a preview after a slow full repaint, and that the refined image is
+     * the same as a full repaint.
+     * @throws Exception if any error occurs
+     */
+    @Test
+    public void testPreview() throws Exception {
+        OsmDataLayer layer = addLayer(loadData());
+        MapView mv = MainApplication.getMap().mapView;
+        OsmDataLayerPainter.PROP_PREVIEW_THRESHOLD.put(0);
+        OsmDataLayerPainter painter = (OsmDataLayerPainter) layer.createMapViewPainter(null);
+
+        // the duration of a full repaint is not known yet
+        paint(painter, mv);
+        assertFalse(painter.isPreview());
+
+        mv.zoomTo(mv.getCenter(), mv.getScale() / 2);
+        BufferedImage image = paint(painter, mv);
+        assertTrue(painter.isPreview());
+        OsmDataLayerPainter.PROP_PREVIEW_THRESHOLD.put(-1);
+        BufferedImage expected = paint(layer.createMapViewPainter(null), mv);
+        assertTrue(countDifferentPixels(expected, image) > 0);
+
+        painter.refinementDue();
+        assertFalse(painter.isPreview());
+        assertTrue(painter.getLastRepaint().contains(new Rectangle(0, 0, 800, 600)));
+        image = paint(painter, mv);
+        assertEquals(0, countDifferentPixels(expected, image));
+    }
+
+    /**
+     * Checks that a full repaint is canceled and replaced by a preview if user input is waiting.
+     * @throws Exception if any error occurs
+     */
+    @Test
+    public void testCanceledRepaint() throws Exception {
+        OsmDataLayer layer = addLayer(loadData());
+        MapView mv = MainApplication.getMap().mapView;
+        OsmDataLayerPainter painter = (OsmDataLayerPainter) layer.createMapViewPainter(null);
+        GuiHelper.runInEDTAndWaitWithException(() -> {
+            // the event is not processed before the paint, since the event dispatch thread is busy
+            Toolkit.getDefaultToolkit().getSystemEventQueue().postEvent(
+                    new KeyEvent(mv, KeyEvent.KEY_PRESSED, System.currentTimeMillis(), 0, KeyEvent.VK_LEFT, KeyEvent.CHAR_UNDEFINED));
+            paint(painter, mv);
+        });
+        assertTrue(painter.isPreview());
+        paint(painter, mv);
+        assertTrue(painter.isPreview());
+        painter.refinementDue();
+        assertFalse(painter.isPreview());
+    }
+}
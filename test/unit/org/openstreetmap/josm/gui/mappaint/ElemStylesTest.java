@@ -0,0 +1,99 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.mappaint;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.TagMap;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSStyleSource;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link ElemStyles} class.
+ */
+public class ElemStylesTest {
+
+    /**
+     * Setup rule
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences();
+
+    private static Node newNode(DataSet ds, double lat, double lon, String... tags) {
+        Node n = new Node(new LatLon(lat, lon));
+        n.setKeys(new TagMap(tags));
+        ds.addPrimitive(n);
+        return n;
+    }
+
+    /**
+     * Test that context free nodes with identical tags share their styles.
+     */
+    @Test
+    public void testSharedStyles() {
+        MapCSSStyleSource source = new MapCSSStyleSource("" +
+                "node[amenity=bench] { symbol-shape: circle; symbol-size: 5; }\n" +
+                "way > node[amenity=bench] { symbol-size: 10; }\n" +
+                "way[highway] { width: 2; }\n");
+        source.loadStyleSource();
+        ElemStyles styles = new ElemStyles();
+        styles.add(source);
+
+        DataSet ds = new DataSet();
+        Node n1 = newNode(ds, 1, 1, "amenity", "bench");
+        Node n2 = newNode(ds, 2, 2, "amenity", "bench");
+        Node n3 = newNode(ds, 3, 3, "amenity", "bench");
+        Node n4 = newNode(ds, 4, 4);
+        Way w = new Way();
+        w.setNodes(Arrays.asList(n3, n4));
+        w.put("highway", "footway");
+        ds.addPrimitive(w);
+
+        assertTrue(source.isContextFree(n1));
+        assertFalse(source.isContextFree(n3));
+        assertTrue(source.isContextFree(w));
+
+        StyleElementList l1 = styles.get(n1, 10, null);
+        assertSame(l1, styles.get(n2, 10, null));
+        assertNotEquals(l1, styles.get(n3, 10, null));
+
+        ElemStyles.PREFERENCE_SHARE_STYLES.put(false);
+        try {
+            n2.clearCachedStyle();
+            StyleElementList l2 = styles.get(n2, 10, null);
+            assertNotSame(l1, l2);
+            assertEquals(l1, l2);
+        } finally {
+            ElemStyles.PREFERENCE_SHARE_STYLES.put(true);
+        }
+    }
+
+    /**
+     * Test that a primitive is not context free if a rule reading the cascade might match.
+     */
+    @Test
+    public void testIsContextFreeClassCondition() {
+        MapCSSStyleSource source = new MapCSSStyleSource("" +
+                "node[amenity] { set foo; }\n" +
+                "way > node[amenity].foo { symbol-size: 10; }\n");
+        source.loadStyleSource();
+        DataSet ds = new DataSet();
+        assertTrue(source.isContextFree(newNode(ds, 1, 1, "highway", "crossing")));
+        assertFalse(source.isContextFree(newNode(ds, 2, 2, "amenity", "bench")));
+    }
+}
@@ -0,0 +1,124 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.mappaint;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openstreetmap.josm.gui.mappaint.RenderingHelper.StyleData;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+import org.openstreetmap.josm.tools.Utils;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link RenderServer} class.
+ */
+public class RenderServerTest {
+
+    /**
+     * Setup rule
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences().projection();
+
+    /**
+     * Temporary folder
+     */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static HttpURLConnection get(RenderServer server, String path) throws Exception {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + server.getPort() + path).openConnection();
+        connection.setUseCaches(false);
+        return connection;
+    }
+
+    /**
+     * Test that tiles are rendered in blocks, cached, and rendered again after the data file has been modified.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testTiles() throws Exception {
+        File style = temporaryFolder.newFile("style.mapcss");
+        Files.write(style.toPath(), Arrays.asList(
+                "canvas { fill-color: #ffffff; }",
+                "way { width: 3; color: #ff0000; }"), StandardCharsets.UTF_8);
+        StyleData sd = new StyleData();
+        sd.styleUrl = style.getAbsolutePath();
+        // a line crossing tile z=19/x=292949/y=174587 from west to east
+        File data = temporaryFolder.newFile("data.osm");
+        Files.write(data.toPath(), Arrays.asList(
+                "<osm version='0.6'>",
+                "  <node id='-1' lat='51.401133' lon='21.1515'/>",
+                "  <node id='-2' lat='51.401133' lon='21.1534'/>",
+                "  <way id='-3'><nd ref='-1'/><nd ref='-2'/></way>",
+                "</osm>"), StandardCharsets.UTF_8);
+
+        RenderServer server = new RenderServer(data, Collections.singletonList(sd), 0, 2, 100);
+        server.start();
+        try {
+            for (int i = 0; i < 2; i++) {
+                HttpURLConnection connection = get(server, "/19/292949/174587.png");
+                assertEquals(200, connection.getResponseCode());
+                assertEquals("image/png", connection.getContentType());
+                BufferedImage tile;
+                try (InputStream in = connection.getInputStream()) {
+                    tile = ImageIO.read(in);
+                }
+                assertEquals(TileRenderingHelper.TILE_SIZE, tile.getWidth());
+                assertEquals(0xffff0000, tile.getRGB(128, 128));
+            }
+            // the neighbouring tile has been rendered in the same block
+            assertEquals(200, get(server, "/19/292950/174587.png").getResponseCode());
+            assertTrue(server.getMetrics(), server.getMetrics().contains("cache hits: 2 requests"));
+            assertTrue(server.getMetrics(), server.getMetrics().contains("rendered: 1 requests"));
+
+            // the line is moved out of the tile
+            Files.write(data.toPath(), Arrays.asList(
+                    "<osm version='0.6'>",
+                    "  <node id='-1' lat='51.5' lon='21.1515'/>",
+                    "  <node id='-2' lat='51.5' lon='21.1534'/>",
+                    "  <way id='-3'><nd ref='-1'/><nd ref='-2'/></way>",
+                    "</osm>"), StandardCharsets.UTF_8);
+            assertTrue(data.setLastModified(data.lastModified() + 2000));
+            HttpURLConnection connection = get(server, "/19/292949/174587.png");
+            try (InputStream in = connection.getInputStream()) {
+                assertEquals(0xffffffff, ImageIO.read(in).getRGB(128, 128));
+            }
+            assertTrue(server.getMetrics(), server.getMetrics().contains("rendered: 2 requests"));
+
+            assertEquals(404, get(server, "/19/292949/174587.jpg").getResponseCode());
+            assertEquals(404, get(server, "/2/4/0.png").getResponseCode());
+            connection = get(server, "/metrics");
+            assertEquals(200, connection.getResponseCode());
+            try (InputStream in = connection.getInputStream()) {
+                String expected = "cached tiles: " + TileRenderingHelper.METATILE_SIZE * TileRenderingHelper.METATILE_SIZE + "/100";
+                assertTrue(new String(Utils.readBytesFromStream(in), StandardCharsets.UTF_8).startsWith(expected));
+            }
+
+            // the data file cannot be loaded anymore
+            Files.write(data.toPath(), Arrays.asList("<osm version='0.6'>", "  <node id='-1'"), StandardCharsets.UTF_8);
+            assertTrue(data.setLastModified(data.lastModified() + 4000));
+            assertEquals(500, get(server, "/19/292949/174587.png").getResponseCode());
+            assertTrue(server.getMetrics(), server.getMetrics().contains("failed: 1 requests"));
+        } finally {
+            server.stop();
+        }
+    }
+}
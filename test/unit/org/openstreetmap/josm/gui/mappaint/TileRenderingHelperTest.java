@@ -0,0 +1,140 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.mappaint;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.gui.mappaint.RenderingHelper.StyleData;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link TileRenderingHelper} class.
+ */
+public class TileRenderingHelperTest {
+
+    /**
+     * Setup rule
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences().projection();
+
+    /**
+     * Temporary folder
+     */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    // area of imagery tile z=19/x=292949/y=174587
+    private static final Bounds TILE = new Bounds(51.40091918770498, 21.152114868164077, 51.4013475612123, 21.15280151367189, false);
+
+    private TileRenderingHelper createHelper() throws IOException {
+        File style = temporaryFolder.newFile("style.mapcss");
+        Files.write(style.toPath(), Arrays.asList(
+                "canvas { fill-color: #ffffff; }",
+                "way { width: 3; color: #ff0000; }"), StandardCharsets.UTF_8);
+        StyleData sd = new StyleData();
+        sd.styleUrl = style.getAbsolutePath();
+
+        // a line crossing the tile from west to east
+        DataSet ds = new DataSet();
+        Node n1 = new Node(new LatLon(TILE.getCenter().lat(), 21.1515));
+        Node n2 = new Node(new LatLon(TILE.getCenter().lat(), 21.1534));
+        Way w = new Way();
+        ds.addPrimitive(n1);
+        ds.addPrimitive(n2);
+        w.setNodes(Arrays.asList(n1, n2));
+        ds.addPrimitive(w);
+
+        // slightly smaller than the tile, to avoid rounding to the neighbouring tiles
+        Bounds bounds = new Bounds(TILE.getMinLat() + 1e-6, TILE.getMinLon() + 1e-6,
+                TILE.getMaxLat() - 1e-6, TILE.getMaxLon() - 1e-6, false);
+        return new TileRenderingHelper(ds, bounds, Collections.singletonList(sd));
+    }
+
+    /**
+     * Test that the tiles are written to a z/x/y tree.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testRender() throws Exception {
+        TileRenderingHelper trh = createHelper();
+        trh.setThreads(2);
+        File dir = temporaryFolder.newFolder("tiles");
+        assertEquals(2, trh.render(18, 19, dir));
+
+        assertTrue(new File(dir, "18/146474/87293.png").isFile());
+        File file = new File(dir, "19/292949/174587.png");
+        assertTrue(file.isFile());
+        assertEquals(1, new File(dir, "19").list().length);
+        assertEquals(1, new File(dir, "19/292949").list().length);
+
+        BufferedImage tile = ImageIO.read(file);
+        assertEquals(TileRenderingHelper.TILE_SIZE, tile.getWidth());
+        assertEquals(TileRenderingHelper.TILE_SIZE, tile.getHeight());
+        // the line is drawn through the middle of the tile, from one border to the other
+        for (int x : new int[] {0, 128, 255}) {
+            assertEquals(0xffff0000, tile.getRGB(x, 128));
+        }
+        assertEquals(0xffffffff, tile.getRGB(128, 10));
+    }
+
+    /**
+     * Test invalid zoom ranges.
+     * @throws Exception if an error occurs
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidZoom() throws Exception {
+        TileRenderingHelper trh = createHelper();
+        File dir = temporaryFolder.newFolder("tiles");
+        try {
+            trh.render(19, 18, dir);
+        } finally {
+            assertFalse(new File(dir, "18").exists());
+        }
+    }
+
+    /**
+     * Test that rendering too many tiles is refused.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testMaxTiles() throws Exception {
+        TileRenderingHelper trh = createHelper();
+        File dir = temporaryFolder.newFolder("tiles");
+        // the count of the deepest zoom levels does not fit into an int
+        TileRenderingHelper world = new TileRenderingHelper(new DataSet(), new Bounds(-80, -180, 80, 180), Collections.emptyList());
+        assertTrue(world.getTileCount(TileRenderingHelper.MAX_ZOOM, TileRenderingHelper.MAX_ZOOM) > Integer.MAX_VALUE);
+        trh.setMaxTiles(1);
+        try {
+            trh.render(18, 19, dir);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            assertFalse(new File(dir, "18").exists());
+        }
+        trh.setMaxTiles(0);
+        assertEquals(2, trh.render(18, 19, dir));
+    }
+}
@@ -1,6 +1,12 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.gui.mappaint.mapcss;
 
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
+
 import org.junit.Rule;
 import org.junit.Test;
 import org.openstreetmap.josm.gui.mappaint.mapcss.Condition.Context;
@@ -32,6 +38,31 @@ public class ConditionFactoryTest {
         ConditionFactory.createKeyValueCondition("name", "Rodovia ([A-Z]{2,3}-[0-9]{2,4}", Op.REGEX, Context.PRIMITIVE, false);
     }
 
+    /**
+     * Tests that {@link Op#compile} is equivalent to {@link Op#eval}.
+     */
+    @Test
+    public void testOpCompile() {
+        List<String> values = Arrays.asList(null, "", "k1", "v1", "0.2983", "192.312", "2983", "1000", "a;b ; c", "b", "NaN", "[");
+        for (Op op : Op.values()) {
+            for (String prototype : values) {
+                if (prototype == null) {
+                    continue;
+                }
+                Predicate<String> predicate = op.compile(prototype);
+                for (String test : values) {
+                    boolean expected;
+                    try {
+                        expected = op.eval(test, prototype);
+                    } catch (RuntimeException e) {
+                        continue;
+                    }
+                    assertEquals(op + " " + test + " " + prototype, expected, predicate.test(test));
+                }
+            }
+        }
+    }
+
     /**
      * Tests that {@code PseudoClasses} satisfies utility class criterias.
      * @throws ReflectiveOperationException if an error occurs
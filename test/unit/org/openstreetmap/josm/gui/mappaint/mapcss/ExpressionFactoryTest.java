@@ -1,9 +1,20 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.gui.mappaint.mapcss;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
 import org.junit.Rule;
 import org.junit.Test;
+import org.openstreetmap.josm.data.osm.OsmUtils;
+import org.openstreetmap.josm.gui.mappaint.Environment;
+import org.openstreetmap.josm.gui.mappaint.MultiCascade;
+import org.openstreetmap.josm.gui.mappaint.mapcss.ExpressionFactory.ConstantFunction;
 import org.openstreetmap.josm.gui.mappaint.mapcss.ExpressionFactory.Functions;
+import org.openstreetmap.josm.gui.mappaint.mapcss.ExpressionFactory.ParameterFunction;
 import org.openstreetmap.josm.testutils.JOSMTestRules;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
@@ -29,4 +40,43 @@ public class ExpressionFactoryTest {
     public void testUtilityClass() throws ReflectiveOperationException {
         UtilityClassTestUtil.assertUtilityClassWellDefined(Functions.class);
     }
+
+    /**
+     * Tests that functions with constant arguments are evaluated once when they are created.
+     */
+    @Test
+    public void testConstantFolding() {
+        Expression e = ExpressionFactory.createFunctionExpression("plus", Arrays.asList(
+                new LiteralExpression(1f),
+                ExpressionFactory.createFunctionExpression("times", Arrays.asList(new LiteralExpression(2f), new LiteralExpression(3f)))));
+        assertTrue(e instanceof ConstantFunction);
+        assertEquals(7f, e.evaluate(null));
+
+        e = ExpressionFactory.createFunctionExpression("concat", Arrays.asList(new LiteralExpression("a"), new LiteralExpression(1f)));
+        assertTrue(e instanceof ConstantFunction);
+        assertEquals("a1.0", e.evaluate(null));
+
+        // depends on the environment
+        e = ExpressionFactory.createFunctionExpression("tag", Collections.singletonList(new LiteralExpression("name")));
+        assertTrue(e instanceof ParameterFunction);
+        // not deterministic
+        e = ExpressionFactory.createFunctionExpression("random", Collections.emptyList());
+        assertTrue(e instanceof ParameterFunction);
+        // mutable result
+        e = ExpressionFactory.createFunctionExpression("split", Arrays.asList(new LiteralExpression(";"), new LiteralExpression("a;b")));
+        assertTrue(e instanceof ParameterFunction);
+        assertEquals(Arrays.asList("a", "b"), e.evaluate(null));
+    }
+
+    /**
+     * Tests that a constant function in a {@code text} declaration is not treated as tag key.
+     */
+    @Test
+    public void testConstantFoldingText() {
+        MapCSSStyleSource sheet = new MapCSSStyleSource("way {text: concat(\"high\", \"way\"); }");
+        sheet.loadStyleSource();
+        MultiCascade mc = new MultiCascade();
+        sheet.apply(mc, OsmUtils.createPrimitive("way highway=primary"), 20, false);
+        assertEquals("highway", mc.getCascade(Environment.DEFAULT_LAYER).get("text"));
+    }
 }
@@ -0,0 +1,224 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.search.SearchCompiler;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link ConvertCLI} class.
+ */
+public class ConvertCLITest {
+
+    /**
+     * Setup rule
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences();
+
+    /**
+     * Temporary folder rule
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final String OSM =
+            "<?xml version='1.0' encoding='UTF-8'?>\n" +
+            "<osm version='0.6' generator='test'>\n" +
+            "  <bounds minlat='0' minlon='0' maxlat='2' maxlon='2' origin='test' />\n" +
+            "  <node id='1' version='1' lat='1.0' lon='1.0'>\n" +
+            "    <tag k='amenity' v='bench' />\n" +
+            "  </node>\n" +
+            "  <node id='2' version='1' lat='1.5' lon='1.5' />\n" +
+            "  <node id='3' version='1' lat='5.0' lon='5.0' />\n" +
+            "  <node id='4' version='1' lat='6.0' lon='6.0' />\n" +
+            "  <way id='10' version='1'>\n" +
+            "    <nd ref='2' />\n" +
+            "    <nd ref='3' />\n" +
+            "    <tag k='highway' v='residential' />\n" +
+            "  </way>\n" +
+            "  <way id='11' version='1'>\n" +
+            "    <nd ref='3' />\n" +
+            "    <nd ref='4' />\n" +
+            "    <tag k='highway' v='track' />\n" +
+            "  </way>\n" +
+            "  <relation id='20' version='1'>\n" +
+            "    <member type='way' ref='10' role='outer' />\n" +
+            "    <tag k='type' v='route' />\n" +
+            "  </relation>\n" +
+            "  <relation id='21' version='1'>\n" +
+            "    <member type='way' ref='11' role='' />\n" +
+            "  </relation>\n" +
+            "</osm>\n";
+
+    private File createInput(String name) throws Exception {
+        File input = folder.newFile(name);
+        Files.write(input.toPath(), OSM.getBytes(StandardCharsets.UTF_8));
+        return input;
+    }
+
+    private static DataSet read(File file) throws Exception {
+        try (InputStream in = Compression.getUncompressedFileInputStream(file)) {
+            String name = file.getName();
+            if (name.contains(".json")) {
+                return OsmJsonReader.parseDataSet(in, NullProgressMonitor.INSTANCE);
+            } else if (name.contains(".osc")) {
+                return OsmChangeReader.parseDataSet(in, NullProgressMonitor.INSTANCE);
+            }
+            return OsmReader.parseDataSet(in, NullProgressMonitor.INSTANCE);
+        }
+    }
+
+    /**
+     * Test streamed conversion from OSM XML to compressed OSM JSON and back.
+     * @throws Exception if any error occurs
+     */
+    @Test
+    public void testJsonRoundTrip() throws Exception {
+        File json = folder.newFile("data.json.gz");
+        ConvertCLI.Statistics stats = ConvertCLI.INSTANCE.convert(createInput("data.osm"), json, null, null);
+        assertTrue(stats.streamed);
+        assertArrayEquals(new long[] {4, 2, 2}, stats.read);
+        assertArrayEquals(new long[] {4, 2, 2}, stats.written);
+        assertTrue(stats.bytesRead > 0);
+        assertTrue(stats.bytesWritten > 0);
+
+        File osm = folder.newFile("data.osm.bz2");
+        stats = ConvertCLI.INSTANCE.convert(json, osm, null, null);
+        assertFalse(stats.streamed);
+        assertArrayEquals(new long[] {4, 2, 2}, stats.written);
+
+        DataSet ds = read(osm);
+        assertEquals(4, ds.getNodes().size());
+        Node n = (Node) ds.getPrimitiveById(1, OsmPrimitiveType.NODE);
+        assertEquals("bench", n.get("amenity"));
+        assertEquals(1.0, n.lat(), 1e-7);
+        assertEquals(1, n.getVersion());
+        Way w = (Way) ds.getPrimitiveById(10, OsmPrimitiveType.WAY);
+        assertEquals(2, w.getNodesCount());
+        assertEquals(3, w.getNode(1).getUniqueId());
+        Relation r = (Relation) ds.getPrimitiveById(20, OsmPrimitiveType.RELATION);
+        assertEquals("outer", r.getMember(0).getRole());
+        assertEquals(w, r.getMember(0).getMember());
+    }
+
+    /**
+     * Test streamed conversion with a bounding box.
+     * @throws Exception if any error occurs
+     */
+    @Test
+    public void testBounds() throws Exception {
+        File osm = folder.newFile("data.osm");
+        ConvertCLI.Statistics stats = ConvertCLI.INSTANCE.convert(createInput("input.osm"), osm, new Bounds(0, 0, 2, 2), null);
+        assertTrue(stats.streamed);
+        assertArrayEquals(new long[] {2, 1, 1}, stats.written);
+        DataSet ds = read(osm);
+        assertNotNull(ds.getPrimitiveById(1, OsmPrimitiveType.NODE));
+        assertNull(ds.getPrimitiveById(4, OsmPrimitiveType.NODE));
+        assertNotNull(ds.getPrimitiveById(10, OsmPrimitiveType.WAY));
+        assertNull(ds.getPrimitiveById(11, OsmPrimitiveType.WAY));
+        assertNotNull(ds.getPrimitiveById(20, OsmPrimitiveType.RELATION));
+        assertEquals(1, ds.getDataSources().size());
+    }
+
+    /**
+     * Test conversion with a search expression, streamed or not. The untagged nodes of selected ways are kept.
+     * @throws Exception if any error occurs
+     */
+    @Test
+    public void testSearch() throws Exception {
+        File input = createInput("input.osm");
+        File osm = folder.newFile("data.osm");
+        ConvertCLI.Statistics stats = ConvertCLI.INSTANCE.convert(input, osm, null,
+                SearchCompiler.compile("highway=residential | amenity=*"));
+        assertTrue(stats.streamed);
+        assertArrayEquals(new long[] {3, 1, 0}, stats.written);
+        DataSet ds = read(osm);
+        Way w = (Way) ds.getPrimitiveById(10, OsmPrimitiveType.WAY);
+        assertTrue(w.getNodes().stream().noneMatch(Node::isIncomplete));
+        assertNull(ds.getPrimitiveById(4, OsmPrimitiveType.NODE));
+
+        File geojson = folder.newFile("data.geojson");
+        stats = ConvertCLI.INSTANCE.convert(input, geojson, null, SearchCompiler.compile("type:way highway=track"));
+        assertFalse(stats.streamed);
+        assertArrayEquals(new long[] {2, 1, 0}, stats.written);
+        String json = new String(Files.readAllBytes(geojson.toPath()), StandardCharsets.UTF_8);
+        assertTrue(json, json.contains("\"track\""));
+        assertFalse(json, json.contains("\"residential\""));
+    }
+
+    /**
+     * Test that osmChange output only contains new, modified and deleted primitives.
+     * @throws Exception if any error occurs
+     */
+    @Test
+    public void testOsmChange() throws Exception {
+        File input = folder.newFile("input.osm");
+        Files.write(input.toPath(), OSM
+                .replace("<node id='2' version='1'", "<node id='2' version='1' action='modify'")
+                .replace("<relation id='21' version='1'>", "<relation id='21' version='1' action='delete'>")
+                .replace("</osm>", "<node id='-1' lat='1.2' lon='1.2' /></osm>")
+                .getBytes(StandardCharsets.UTF_8));
+        File osc = folder.newFile("data.osc");
+        ConvertCLI.Statistics stats = ConvertCLI.INSTANCE.convert(input, osc, null, null);
+        assertTrue(stats.streamed);
+        assertArrayEquals(new long[] {2, 0, 1}, stats.written);
+        String xml = new String(Files.readAllBytes(osc.toPath()), StandardCharsets.UTF_8);
+        assertTrue(xml, xml.contains("<create>"));
+        assertTrue(xml, xml.contains("<modify>"));
+        assertTrue(xml, xml.contains("<delete>"));
+        assertFalse(xml, xml.contains("id='1'"));
+    }
+
+    /**
+     * Test that the visibility of primitives is written as a boolean in OSM JSON.
+     * @throws Exception if any error occurs
+     */
+    @Test
+    public void testJsonVisible() throws Exception {
+        File input = folder.newFile("input.osm");
+        Files.write(input.toPath(), OSM.replace("<node id='4' version='1'", "<node id='4' version='1' visible='false'")
+                .getBytes(StandardCharsets.UTF_8));
+        File json = folder.newFile("data.json");
+        ConvertCLI.INSTANCE.convert(input, json, null, null);
+        String content = new String(Files.readAllBytes(json.toPath()), StandardCharsets.UTF_8);
+        assertTrue(content, content.contains("\"visible\":false"));
+    }
+
+    /**
+     * Test {@link ConvertCLI#isTagOnly}.
+     * @throws Exception if any error occurs
+     */
+    @Test
+    public void testIsTagOnly() throws Exception {
+        assertTrue(ConvertCLI.isTagOnly(SearchCompiler.compile("highway=* -oneway=yes")));
+        assertTrue(ConvertCLI.isTagOnly(SearchCompiler.compile("name~foo | ref")));
+        assertFalse(ConvertCLI.isTagOnly(SearchCompiler.compile("highway=* type:way")));
+        assertFalse(ConvertCLI.isTagOnly(SearchCompiler.compile("child amenity=bench")));
+    }
+}
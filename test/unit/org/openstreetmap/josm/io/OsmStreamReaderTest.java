@@ -0,0 +1,76 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.NodeData;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.osm.PrimitiveData;
+import org.openstreetmap.josm.data.osm.RelationData;
+import org.openstreetmap.josm.data.osm.WayData;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link OsmStreamReader} class.
+ */
+public class OsmStreamReaderTest {
+
+    /**
+     * Setup rule
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules();
+
+    /**
+     * Test that primitives are passed to the consumer in file order, with unresolved references.
+     * @throws Exception if any error occurs
+     */
+    @Test
+    public void testParse() throws Exception {
+        String osm = "<osm version='0.6'>\n" +
+                "  <bounds minlat='0' minlon='0' maxlat='1' maxlon='1' />\n" +
+                "  <node id='1' version='1' lat='0.5' lon='0.5'><tag k='amenity' v='bench' /></node>\n" +
+                "  <way id='2' version='1'><nd ref='1' /><nd ref='3' /></way>\n" +
+                "  <relation id='4' version='1'><member type='way' ref='2' role='outer' />" +
+                "<member type='relation' ref='5' role='' /></relation>\n" +
+                "</osm>";
+        List<PrimitiveData> primitives = new ArrayList<>();
+        DataSet ds;
+        try (InputStream in = new ByteArrayInputStream(osm.getBytes(StandardCharsets.UTF_8))) {
+            ds = new OsmStreamReader(primitives::add).parse(in, NullProgressMonitor.INSTANCE);
+        }
+        assertTrue(ds.allPrimitives().isEmpty());
+        assertEquals(1, ds.getDataSources().size());
+        assertEquals(3, primitives.size());
+
+        NodeData n = (NodeData) primitives.get(0);
+        assertEquals(1, n.getUniqueId());
+        assertEquals("bench", n.get("amenity"));
+        assertEquals(0.5, n.getCoor().lat(), 1e-7);
+
+        WayData w = (WayData) primitives.get(1);
+        assertEquals(Arrays.asList(1L, 3L), w.getNodeIds());
+
+        RelationData r = (RelationData) primitives.get(2);
+        assertEquals(2, r.getMembersCount());
+        assertEquals(OsmPrimitiveType.WAY, r.getMemberType(0));
+        assertEquals(2, r.getMemberId(0));
+        assertEquals("outer", r.getRole(0));
+        assertEquals(5, r.getMemberId(1));
+    }
+}
@@ -3,15 +3,22 @@ package org.openstreetmap.josm.io;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
 import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
 import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.io.InputStream;
 import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.regex.Matcher;
 
 import org.junit.Before;
@@ -19,6 +26,13 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.openstreetmap.josm.TestUtils;
 import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.DataSetMerger;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
 import org.openstreetmap.josm.io.OverpassDownloadReader.OverpassOutpoutFormat;
 import org.openstreetmap.josm.testutils.JOSMTestRules;
 import org.openstreetmap.josm.tools.OverpassTurboQueryWizard;
@@ -229,4 +243,81 @@ public class OverpassDownloadReaderTest {
                     OverpassDownloadReader.searchName(NameFinder.parseSearchResults(reader)).getOsmId().getUniqueId());
         }
     }
+
+    private static DataSet mergeBatches(List<DataSet> batches) {
+        DataSet merged = new DataSet();
+        for (DataSet batch : batches) {
+            new DataSetMerger(merged, batch).merge();
+        }
+        return merged;
+    }
+
+    private static void assertStreamedData(DataSet full, DataSet merged) {
+        assertEquals(full.getNodes().size(), merged.getNodes().size());
+        assertEquals(full.getWays().size(), merged.getWays().size());
+        assertEquals(full.getRelations().size(), merged.getRelations().size());
+        Way way = (Way) merged.getPrimitiveById(2001, OsmPrimitiveType.WAY);
+        assertEquals(4, way.getNodesCount());
+        assertTrue(way.isClosed());
+        assertFalse(way.hasIncompleteNodes());
+        assertEquals("drinking_water", way.get("amenity"));
+        Node node = (Node) merged.getPrimitiveById(1003, OsmPrimitiveType.NODE);
+        assertFalse(node.isIncomplete());
+        assertEquals(2, node.getVersion());
+        Relation relation = (Relation) merged.getPrimitiveById(3001, OsmPrimitiveType.RELATION);
+        assertEquals(3, relation.getMembersCount());
+        assertEquals(way, relation.getMember(0).getMember());
+        assertTrue(relation.getMember(2).getMember().isIncomplete());
+    }
+
+    /**
+     * Tests that streamed batches merged one after the other give the same result as a complete parsing.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testStreamingParse() throws Exception {
+        OverpassDownloadReader.STREAMING_BATCH_SIZE.put(3);
+        final String file = TestUtils.getTestDataRoot() + "/__files/overpass/streaming.osm";
+        final OverpassDownloadReader reader = new OverpassDownloadReader(new Bounds(1, 2, 3, 4), null, "");
+        final DataSet full;
+        try (InputStream in = Files.newInputStream(Paths.get(file))) {
+            full = reader.parseDataSet(in, NullProgressMonitor.INSTANCE);
+        }
+        final List<DataSet> batches = new ArrayList<>();
+        reader.setBatchConsumer(batches::add);
+        try (InputStream in = Files.newInputStream(Paths.get(file))) {
+            // the streamed primitives are not kept by the reader
+            assertTrue(reader.parseDataSet(in, NullProgressMonitor.INSTANCE).allPrimitives().isEmpty());
+        }
+        // 8 primitives by batches of 3
+        assertEquals(3, batches.size());
+        assertStreamedData(full, mergeBatches(batches));
+    }
+
+    /**
+     * Tests streaming a recorded Overpass response served by a local HTTP stub.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testStreamingDownload() throws Exception {
+        OverpassDownloadReader.STREAMING_BATCH_SIZE.put(2);
+        wireMockRule.stubFor(post(urlEqualTo("/interpreter"))
+                .willReturn(aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "text/xml")
+                    .withBodyFile("overpass/streaming.osm")));
+        final OverpassDownloadReader reader = new OverpassDownloadReader(new Bounds(48.85, 2.29, 48.86, 2.30),
+                "http://localhost:" + wireMockRule.port() + "/", "[out:xml];node({{bbox}});out meta;");
+        final DataSet full;
+        try (InputStream in = Files.newInputStream(Paths.get(TestUtils.getTestDataRoot() + "/__files/overpass/streaming.osm"))) {
+            full = reader.parseDataSet(in, NullProgressMonitor.INSTANCE);
+        }
+        final List<DataSet> batches = new ArrayList<>();
+        reader.setBatchConsumer(batches::add);
+        final DataSet result = reader.parseOsm(NullProgressMonitor.INSTANCE);
+        assertEquals(4, batches.size());
+        assertStreamedData(full, mergeBatches(batches));
+        assertTrue(result.allPrimitives().isEmpty());
+        assertEquals(1, result.getDataSources().size());
+    }
 }
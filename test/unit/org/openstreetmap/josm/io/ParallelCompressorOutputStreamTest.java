@@ -0,0 +1,172 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.apache.commons.compress.compressors.xz.XZCompressorOutputStream;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.io.ParallelCompressorOutputStream.CompressorFactory;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+import org.openstreetmap.josm.tools.Utils;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link ParallelCompressorOutputStream} class.
+ */
+public class ParallelCompressorOutputStreamTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences();
+
+    private static ExecutorService executor;
+
+    /**
+     * Creates the executor compressing chunks.
+     */
+    @BeforeClass
+    public static void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    /**
+     * Shuts the executor down.
+     */
+    @AfterClass
+    public static void tearDown() {
+        executor.shutdown();
+    }
+
+    private static byte[] createData(int size) {
+        // compressible data: random words from a small vocabulary
+        Random random = new Random(42);
+        StringBuilder sb = new StringBuilder(size + 16);
+        while (sb.length() < size) {
+            sb.append("<node id='").append(random.nextInt(1000)).append("' />\n");
+        }
+        return sb.substring(0, size).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] compress(byte[] data, CompressorFactory factory) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (OutputStream out = new ParallelCompressorOutputStream(compressed, factory, 10_000, executor, 4)) {
+            // mix single bytes and arrays
+            int i = 0;
+            for (; i < Math.min(data.length, 100); i++) {
+                out.write(data[i]);
+            }
+            out.write(data, i, data.length - i);
+        }
+        return compressed.toByteArray();
+    }
+
+    private static void testRoundTrip(Compression compression, CompressorFactory factory, int size) throws IOException {
+        byte[] data = createData(size);
+        try (InputStream in = compression.getUncompressedInputStream(new ByteArrayInputStream(compress(data, factory)))) {
+            assertArrayEquals(data, Utils.readBytesFromStream(in));
+        }
+    }
+
+    /**
+     * Test gzip compression.
+     * @throws IOException never
+     */
+    @Test
+    public void testGzip() throws IOException {
+        testRoundTrip(Compression.GZIP, GZIPOutputStream::new, 0);
+        testRoundTrip(Compression.GZIP, GZIPOutputStream::new, 10_000);
+        testRoundTrip(Compression.GZIP, GZIPOutputStream::new, 123_456);
+    }
+
+    /**
+     * Test that all gzip members are read from a stream which does not know how many bytes are available,
+     * like a network or pipe stream.
+     * @throws IOException never
+     */
+    @Test
+    public void testGzipUnknownAvailable() throws IOException {
+        byte[] data = createData(123_456);
+        InputStream raw = new FilterInputStream(new ByteArrayInputStream(compress(data, GZIPOutputStream::new))) {
+            @Override
+            public int available() {
+                return 0;
+            }
+        };
+        try (InputStream in = Compression.GZIP.getUncompressedInputStream(raw)) {
+            assertArrayEquals(data, Utils.readBytesFromStream(in));
+        }
+    }
+
+    /**
+     * Test bzip2 compression.
+     * @throws IOException never
+     */
+    @Test
+    public void testBzip2() throws IOException {
+        testRoundTrip(Compression.BZIP2, BZip2CompressorOutputStream::new, 0);
+        testRoundTrip(Compression.BZIP2, BZip2CompressorOutputStream::new, 123_456);
+    }
+
+    /**
+     * Test xz compression.
+     * @throws IOException never
+     */
+    @Test
+    public void testXz() throws IOException {
+        testRoundTrip(Compression.XZ, XZCompressorOutputStream::new, 0);
+        testRoundTrip(Compression.XZ, XZCompressorOutputStream::new, 123_456);
+    }
+
+    /**
+     * Test that compression errors are reported.
+     */
+    @Test
+    public void testError() {
+        CompressorFactory failing = out -> {
+            throw new IOException("test");
+        };
+        try {
+            testRoundTrip(Compression.GZIP, failing, 50_000);
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("test"));
+            return;
+        }
+        throw new AssertionError("IOException expected");
+    }
+
+    /**
+     * Test that the number of chunks compressed at the same time is bounded by the free memory.
+     */
+    @Test
+    public void testGetWorkers() {
+        long xzMemory = 94L << 20;
+        int chunkSize = 8 << 20;
+        // 110 MiB per xz chunk: 1 GiB of free memory allows only 2 of them
+        assertEquals(2, ParallelCompressorOutputStream.getWorkers(8, chunkSize, xzMemory, 1L << 30));
+        assertEquals(8, ParallelCompressorOutputStream.getWorkers(8, chunkSize, xzMemory, 8L << 30));
+        assertEquals(0, ParallelCompressorOutputStream.getWorkers(8, chunkSize, xzMemory, 64L << 20));
+        assertEquals(8, ParallelCompressorOutputStream.getWorkers(8, 1 << 20, 1 << 20, 256L << 20));
+    }
+}
@@ -0,0 +1,257 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.DataSource;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link TiledBoundingBoxDownloader} class.
+ */
+public class TiledBoundingBoxDownloaderTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences().fakeAPI();
+
+    private static final double EPSILON = 1e-9;
+
+    private static void assertCovers(Bounds area, List<Bounds> tiles, double maxTileArea) {
+        double total = 0;
+        for (Bounds tile : tiles) {
+            assertTrue(tile + " too large", tile.getArea() <= maxTileArea + EPSILON);
+            assertTrue(area.contains(tile.getMin()));
+            assertTrue(area.contains(tile.getMax()));
+            total += tile.getArea();
+        }
+        assertEquals(area.getArea(), total, EPSILON);
+    }
+
+    /**
+     * Unit test of {@link TiledBoundingBoxDownloader#planTiles} for areas fitting in a single request.
+     */
+    @Test
+    public void testPlanTilesSingle() {
+        Bounds area = new Bounds(48.8, 2.2, 49.0, 2.4);
+        List<Bounds> tiles = TiledBoundingBoxDownloader.planTiles(area, 0.25, 50_000, 0);
+        assertEquals(1, tiles.size());
+        assertEquals(area, tiles.get(0));
+    }
+
+    /**
+     * Unit test of {@link TiledBoundingBoxDownloader#planTiles} with respect to the area limit.
+     */
+    @Test
+    public void testPlanTilesAreaLimit() {
+        Bounds area = new Bounds(48.0, 2.0, 49.0, 3.0);
+        List<Bounds> tiles = TiledBoundingBoxDownloader.planTiles(area, 0.25, 50_000, 0);
+        assertEquals(4, tiles.size());
+        assertCovers(area, tiles, 0.25);
+
+        // thin strip: tiles span the whole height
+        area = new Bounds(48.0, 2.0, 48.1, 6.0);
+        tiles = TiledBoundingBoxDownloader.planTiles(area, 0.25, 50_000, 0);
+        assertEquals(8, tiles.size());
+        assertCovers(area, tiles, 0.25);
+    }
+
+    /**
+     * Unit test of {@link TiledBoundingBoxDownloader#planTiles} with respect to the expected data density.
+     */
+    @Test
+    public void testPlanTilesDensity() {
+        Bounds area = new Bounds(48.8, 2.2, 49.0, 2.4);
+        // 10 million nodes per square degree, 400 000 nodes expected in the area
+        List<Bounds> tiles = TiledBoundingBoxDownloader.planTiles(area, 0.25, 50_000, 10_000_000);
+        assertEquals(12, tiles.size());
+        assertCovers(area, tiles, 50_000 * 0.8 / 10_000_000);
+    }
+
+    /**
+     * Unit test of {@link TiledBoundingBoxDownloader#planTiles} for areas crossing the 180th meridian.
+     */
+    @Test
+    public void testPlanTiles180thMeridian() {
+        Bounds area = new Bounds(-10.0, 179.9, -9.9, -179.9);
+        List<Bounds> tiles = TiledBoundingBoxDownloader.planTiles(area, 0.25, 50_000, 0);
+        assertEquals(2, tiles.size());
+        for (Bounds tile : tiles) {
+            assertFalse(tile.crosses180thMeridian());
+        }
+    }
+
+    /**
+     * Unit test of {@link TiledBoundingBoxDownloader#bisect}.
+     */
+    @Test
+    public void testBisect() {
+        List<Bounds> halves = TiledBoundingBoxDownloader.bisect(new Bounds(48.0, 2.0, 48.5, 3.0));
+        assertEquals(new Bounds(48.0, 2.0, 48.5, 2.5), halves.get(0));
+        assertEquals(new Bounds(48.0, 2.5, 48.5, 3.0), halves.get(1));
+        halves = TiledBoundingBoxDownloader.bisect(new Bounds(48.0, 2.0, 49.0, 2.5));
+        assertEquals(new Bounds(48.0, 2.0, 48.5, 2.5), halves.get(0));
+        assertEquals(new Bounds(48.5, 2.0, 49.0, 2.5), halves.get(1));
+    }
+
+    /**
+     * Unit test of {@link TiledBoundingBoxDownloader#isRequestTooLarge}.
+     */
+    @Test
+    public void testIsRequestTooLarge() {
+        assertTrue(TiledBoundingBoxDownloader.isRequestTooLarge(new OsmApiException(400, null,
+                "You requested too many nodes (limit is 50000). Either request a smaller area, or use planet.osm")));
+        assertTrue(TiledBoundingBoxDownloader.isRequestTooLarge(new OsmApiException(400,
+                "The maximum bbox size is 0.25, and your request was too large. Either request a smaller area, or use planet.osm",
+                null)));
+        assertFalse(TiledBoundingBoxDownloader.isRequestTooLarge(new OsmApiException(400, null,
+                "The latitudes must be between -90 and 90, longitudes between -180 and 180 and the minima must be less than the maxima.")));
+        assertFalse(TiledBoundingBoxDownloader.isRequestTooLarge(new OsmApiException(509, null, "too many nodes")));
+    }
+
+    /**
+     * Tile downloader answering with one node per tile and one node shared by all tiles, rejecting tiles larger than a limit.
+     */
+    private static class FakeTiledBoundingBoxDownloader extends TiledBoundingBoxDownloader {
+        private final double maxTileArea;
+        private final Set<Bounds> downloaded = ConcurrentHashMap.newKeySet();
+        private final AtomicInteger rejected = new AtomicInteger();
+        private final Set<String> threads = ConcurrentHashMap.newKeySet();
+        private final CyclicBarrier barrier;
+
+        FakeTiledBoundingBoxDownloader(Bounds downloadArea, double maxTileArea, CyclicBarrier barrier) {
+            super(downloadArea);
+            this.maxTileArea = maxTileArea;
+            this.barrier = barrier;
+        }
+
+        @Override
+        protected DataSet downloadTile(Bounds tile) throws OsmTransferException {
+            threads.add(Thread.currentThread().getName());
+            if (barrier != null) {
+                try {
+                    // the first tiles are only downloaded if they are downloaded at the same time
+                    barrier.await(10, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    throw new OsmTransferException(e);
+                }
+            }
+            if (tile.getArea() > maxTileArea) {
+                rejected.incrementAndGet();
+                throw new OsmApiException(400, null, "You requested too many nodes (limit is 50000). Either request a smaller area");
+            }
+            downloaded.add(tile);
+            DataSet ds = new DataSet();
+            ds.addPrimitive(new Node(tile.getCenter()));
+            Node shared = new Node(1, 1);
+            shared.setCoor(new LatLon(48.5, 2.5));
+            ds.addPrimitive(shared);
+            ds.addDataSource(new DataSource(tile, "test"));
+            return ds;
+        }
+    }
+
+    /**
+     * Checks that tiles are downloaded concurrently and merged into a single data set with a single data source.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testDownloadTiles() throws Exception {
+        Bounds area = new Bounds(48.0, 2.0, 49.0, 3.0);
+        FakeTiledBoundingBoxDownloader reader = new FakeTiledBoundingBoxDownloader(area, 1, new CyclicBarrier(2));
+        DataSet ds = reader.parseOsm(NullProgressMonitor.INSTANCE);
+        assertEquals(4, reader.downloaded.size());
+        assertEquals(2, reader.threads.size());
+        // one node per tile, and the node shared by all tiles
+        assertEquals(5, ds.getNodes().size());
+        assertEquals(Collections.singletonList(area), ds.getDataSourceBounds());
+    }
+
+    /**
+     * Checks that tiles rejected by the server are bisected and downloaded again, up to the max number of tiles.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testBisectOnError() throws Exception {
+        Bounds area = new Bounds(48.0, 2.0, 49.0, 3.0);
+        FakeTiledBoundingBoxDownloader reader = new FakeTiledBoundingBoxDownloader(area, 0.1, null);
+        DataSet ds = reader.parseOsm(NullProgressMonitor.INSTANCE);
+        // each of the 4 tiles is rejected, then its 2 halves
+        assertEquals(12, reader.rejected.get());
+        assertEquals(16, reader.downloaded.size());
+        assertCovers(area, new ArrayList<>(reader.downloaded), 0.1);
+        assertEquals(17, ds.getNodes().size());
+        assertEquals(1, ds.getDataSources().size());
+
+        TiledBoundingBoxDownloader.MAX_TILES.put(8);
+        try {
+            reader = new FakeTiledBoundingBoxDownloader(area, 0.1, null);
+            reader.parseOsm(NullProgressMonitor.INSTANCE);
+            fail("expected OsmApiException");
+        } catch (OsmApiException e) {
+            assertTrue(TiledBoundingBoxDownloader.isRequestTooLarge(e));
+        } finally {
+            TiledBoundingBoxDownloader.MAX_TILES.remove();
+        }
+    }
+
+    /**
+     * Checks that areas needing too many tiles are refused without sending any request.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testTooManyTiles() throws Exception {
+        Bounds area = new Bounds(40.0, 0.0, 50.0, 10.0);
+        assertEquals(400, TiledBoundingBoxDownloader.countTiles(area, 0.25, 50_000, 0));
+        assertTrue(TiledBoundingBoxDownloader.isAreaTooLarge(area, 0));
+        assertFalse(TiledBoundingBoxDownloader.isAreaTooLarge(new Bounds(48.0, 2.0, 49.0, 3.0), 0));
+        FakeTiledBoundingBoxDownloader reader = new FakeTiledBoundingBoxDownloader(area, 1, null);
+        try {
+            reader.parseOsm(NullProgressMonitor.INSTANCE);
+            fail("expected OsmTransferException");
+        } catch (OsmTransferException e) {
+            assertTrue(reader.downloaded.isEmpty());
+            assertTrue(reader.threads.isEmpty());
+        }
+    }
+
+    /**
+     * Unit test of {@link TiledBoundingBoxDownloader#estimateDensity}.
+     */
+    @Test
+    public void testEstimateDensity() {
+        DataSet ds = new DataSet();
+        assertEquals(0, TiledBoundingBoxDownloader.estimateDensity(ds, new Bounds(48.0, 2.0, 49.0, 3.0)), 0);
+        ds.addDataSource(new DataSource(new Bounds(48.0, 2.0, 48.1, 2.1), "test"));
+        for (int i = 0; i < 10; i++) {
+            ds.addPrimitive(new Node(new LatLon(48.05, 2.0 + i * 0.01)));
+        }
+        ds.addPrimitive(new Node(new LatLon(47.0, 2.0)));
+        assertEquals(1000, TiledBoundingBoxDownloader.estimateDensity(ds, new Bounds(48.0, 2.0, 49.0, 3.0)), 1e-6);
+        assertEquals(0, TiledBoundingBoxDownloader.estimateDensity(ds, new Bounds(10.0, 2.0, 11.0, 3.0)), 0);
+    }
+}
@@ -57,6 +57,7 @@ import org.openstreetmap.josm.testutils.mockers.EDTAssertionMocker;
 import org.openstreetmap.josm.testutils.mockers.WindowlessMapViewStateMocker;
 import org.openstreetmap.josm.testutils.mockers.WindowlessNavigatableComponentMocker;
 import org.openstreetmap.josm.tools.I18n;
+import org.openstreetmap.josm.tools.ImageProvider;
 import org.openstreetmap.josm.tools.JosmRuntimeException;
 import org.openstreetmap.josm.tools.Logging;
 import org.openstreetmap.josm.tools.MemoryManagerTest;
@@ -437,6 +438,10 @@ public class JOSMTestRules implements TestRule {
         }
 
         Preferences pref = Preferences.main();
+        // do not leave a preferences cache in the test directories
+        pref.enableCache(false);
+        // nor rasterized SVG images
+        ImageProvider.enableSvgDiskCache(false);
         Config.setPreferencesInstance(pref);
         Config.setBaseDirectoriesProvider(JosmBaseDirectories.getInstance());
         Config.setUrlsProvider(JosmUrls.getInstance());
@@ -0,0 +1,54 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.awt.image.BufferedImage;
+
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link ImageCache} class.
+ */
+public class ImageCacheTest {
+
+    private static BufferedImage image(int size) {
+        return new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+    }
+
+    /**
+     * Checks that the least recently used images are evicted when the cache is full.
+     */
+    @Test
+    public void testEviction() {
+        ImageCache<String, BufferedImage> cache = new ImageCache<>("test", ImageCache::getSize, () -> 3 * 4 * 16 * 16);
+        BufferedImage a = image(16);
+        BufferedImage b = image(16);
+        cache.put("a", a);
+        cache.put("b", b);
+        cache.put("c", image(16));
+        assertEquals(3, cache.getCount());
+        assertEquals(3 * 4 * 16 * 16, cache.getSize());
+
+        assertSame(a, cache.get("a"));
+        cache.put("d", image(16));
+        assertNull(cache.get("b"));
+        assertSame(a, cache.get("a"));
+        assertEquals(1, cache.getEvictions());
+
+        // the most recent image is kept, even if larger than the cache
+        BufferedImage large = image(64);
+        assertSame(large, cache.computeIfAbsent("large", k -> large));
+        assertEquals(1, cache.getCount());
+        assertEquals(4 * 64 * 64, cache.getSize());
+        assertSame(large, cache.computeIfAbsent("large", k -> b));
+        assertEquals(4, cache.getEvictions());
+        assertEquals("test: 1 entries, 16.0 kB of 3.00 kB, 3 hits, 2 misses, 4 evicted", cache.toString());
+
+        cache.clear();
+        assertEquals(0, cache.getCount());
+        assertEquals(0, cache.getSize());
+    }
+}
@@ -4,11 +4,16 @@ package org.openstreetmap.josm.tools;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
+import java.awt.Dimension;
 import java.awt.Transparency;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Handler;
 import java.util.logging.LogRecord;
 import java.util.logging.Logger;
@@ -16,9 +21,12 @@ import java.util.logging.Logger;
 import javax.swing.ImageIcon;
 
 import org.junit.BeforeClass;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.openstreetmap.josm.JOSMFixture;
 import org.openstreetmap.josm.TestUtils;
+import org.openstreetmap.josm.data.preferences.JosmBaseDirectories;
 
 import com.kitfox.svg.SVGConst;
 
@@ -29,6 +37,12 @@ import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
  */
 public class ImageProviderTest {
 
+    /**
+     * Temporary folder
+     */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     private static final class LogHandler14319 extends Handler {
         boolean failed;
 
@@ -115,4 +129,78 @@ public class ImageProviderTest {
                 "iVBORw0KGgoAAAANSUhEUgAAAAUAAAAFCAYAAACNbyblAAAAHElEQVQI12P4"+
                 "//8/w38GIAXDIBKE0DHxgljNBAAO9TXL0Y4OHwAAAABJRU5ErkJggg=="));
     }
+
+    /**
+     * Enables the disk cache of rasterized SVG images in a temporary cache directory.
+     * @return the cache directory of the SVG images
+     * @throws IOException if the directory cannot be created
+     */
+    private File enableSvgDiskCache() throws IOException {
+        File cache = temporaryFolder.newFolder("cache");
+        Utils.updateSystemProperty("josm.cache", cache.getAbsolutePath());
+        JosmBaseDirectories.getInstance().clearMemos();
+        ImageProvider.enableSvgDiskCache(true);
+        return new File(cache, "svg");
+    }
+
+    private static void disableSvgDiskCache() {
+        ImageProvider.enableSvgDiskCache(false);
+        System.clearProperty("josm.cache");
+        JosmBaseDirectories.getInstance().clearMemos();
+    }
+
+    /**
+     * Checks that rasterized SVG images are read from the disk cache, without parsing the SVG file again.
+     * @throws IOException if an error occurs during reading
+     */
+    @Test
+    public void testSvgDiskCache() throws IOException {
+        enableSvgDiskCache();
+        try {
+            File svg = temporaryFolder.newFile("node.svg");
+            Files.copy(new File("images/Mf_node.svg").toPath(), svg.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            ImageProvider.clearCache();
+            ImageIcon rendered = new ImageProvider(svg.getAbsolutePath()).setSize(32, 32).get();
+            assertNotNull(rendered);
+
+            ImageProvider.clearCache();
+            ImageResource resource = new ImageProvider(svg.getAbsolutePath()).getResource();
+            assertTrue(resource.toString(), resource.toString().contains("svgSource="));
+            ImageIcon cached = resource.getImageIcon(new Dimension(32, 32), false);
+            assertTrue(resource.toString(), resource.toString().contains("svgSource="));
+            BufferedImage expected = (BufferedImage) rendered.getImage();
+            BufferedImage actual = (BufferedImage) cached.getImage();
+            assertEquals(expected.getWidth(), actual.getWidth());
+            assertEquals(expected.getHeight(), actual.getHeight());
+            for (int x = 0; x < expected.getWidth(); x++) {
+                for (int y = 0; y < expected.getHeight(); y++) {
+                    assertEquals(expected.getRGB(x, y), actual.getRGB(x, y));
+                }
+            }
+        } finally {
+            disableSvgDiskCache();
+            ImageProvider.clearCache();
+        }
+    }
+
+    /**
+     * Checks that the disk cache directories of other JOSM versions are only deleted once they have expired.
+     * @throws IOException if an error occurs during writing
+     */
+    @Test
+    public void testSvgDiskCacheExpiry() throws IOException {
+        File root = enableSvgDiskCache();
+        try {
+            File expired = new File(root, "expired");
+            File recent = new File(root, "recent");
+            assertTrue(expired.mkdirs());
+            assertTrue(recent.mkdirs());
+            assertTrue(expired.setLastModified(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(SvgDiskCache.MAX_AGE_DAYS + 1)));
+            SvgDiskCache.loadIndex();
+            assertFalse(expired.exists());
+            assertTrue(recent.isDirectory());
+        } finally {
+            disableSvgDiskCache();
+        }
+    }
 }